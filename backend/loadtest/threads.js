@@ -0,0 +1,65 @@
+// Lasttest: Durchsatz mit 2.000 gleichzeitigen Clients
+//
+// Vergleich Plattform-Threads (Standard-Build, Java 17) gegen virtuelle
+// Threads (mvn -Pjava21), siehe README "Lasttest".
+//
+//   k6 run -e BASE_URL=http://localhost:8080/api -e MODE=platform loadtest/threads.js
+//
+// Optional: TOKEN=<Firebase ID-Token> für die authentifizierten Endpoints
+// (durchläuft dann auch verifyIdToken im FirebaseAuthenticationFilter).
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const MODE = __ENV.MODE || 'unknown';
+const TOKEN = __ENV.TOKEN;
+const CLIENTS = parseInt(__ENV.CLIENTS || '2000', 10);
+
+const rejected = new Counter('rejected_503');
+
+export const options = {
+    scenarios: {
+        clients: {
+            executor: 'constant-vus',
+            vus: CLIENTS,
+            duration: __ENV.DURATION || '2m',
+            gracefulStop: '10s',
+        },
+    },
+    tags: { mode: MODE },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    // IDs für die Detailabrufe aus der ersten Seite holen
+    const response = http.get(`${BASE_URL}/cars?limit=50&fields=brand`);
+    const ids = response.status === 200 ? response.json('items').map((car) => car.id) : [];
+    return { ids };
+}
+
+export default function (data) {
+    const headers = { 'Accept-Encoding': 'gzip, br' };
+    if (TOKEN) {
+        headers.Authorization = `Bearer ${TOKEN}`;
+    }
+
+    const roll = Math.random();
+    let response;
+    if (roll < 0.5) {
+        response = http.get(`${BASE_URL}/cars?limit=24`, { headers, tags: { endpoint: 'list' } });
+    } else if (roll < 0.8 && data.ids.length > 0) {
+        const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+        response = http.get(`${BASE_URL}/cars/${id}`, { headers, tags: { endpoint: 'detail' } });
+    } else if (TOKEN) {
+        response = http.get(`${BASE_URL}/users/me`, { headers, tags: { endpoint: 'me' } });
+    } else {
+        response = http.get(`${BASE_URL}/cars/search?brand=BMW&limit=24`, { headers, tags: { endpoint: 'search' } });
+    }
+
+    if (response.status === 503) {
+        rejected.add(1);
+    }
+    check(response, { 'status 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
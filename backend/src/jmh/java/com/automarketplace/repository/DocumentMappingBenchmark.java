@@ -0,0 +1,127 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CarCodec/UserCodec gegen den reflexiven CustomClassMapper des SDK
+ *
+ * Snapshots und CustomClassMapper über FirestoreSnapshots aus den Testquellen;
+ * die Benchmarks werden mit diesen kompiliert und landen nicht im Anwendungs-Jar.
+ * Die LocalDateTime-Felder bleiben leer, da der CustomClassMapper sie unter
+ * Java 17 nicht abbilden kann.
+ *
+ * Ausführen: mvn -Pjmh verify -Djmh.args="DocumentMapping"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentMappingBenchmark {
+    
+    private final CarCodec carCodec = new CarCodec();
+    private final UserCodec userCodec = new UserCodec();
+    
+    private Firestore firestore;
+    private Car car;
+    private User user;
+    private DocumentSnapshot carSnapshot;
+    private DocumentSnapshot userSnapshot;
+    
+    @Setup
+    public void setUp() {
+        firestore = FirestoreSnapshots.offlineFirestore("benchmark");
+        
+        car = new Car("seller-1", "BMW", "3er", 2019, new BigDecimal("27450.00"), 48000, "Diesel", "Automatik",
+                      "Gebraucht", "Gepflegter 320d mit vollständiger Historie, Nichtraucherfahrzeug.");
+        car.setColor("Schwarz");
+        car.setDoors(4);
+        car.setSeats(5);
+        car.setBodyType("Limousine");
+        car.setEngineSize("2.0L");
+        car.setHorsepower(190);
+        car.setDrivetrain("Heckantrieb");
+        car.setPreviousOwners(1);
+        car.setServiceHistory("Scheckheftgepflegt");
+        car.setFeatures(List.of("Klimaanlage", "Navigation", "Ledersitze", "Sitzheizung", "Einparkhilfe"));
+        car.setImageUrls(List.of("https://res.cloudinary.com/demo/1.jpg", "https://res.cloudinary.com/demo/2.jpg"));
+        car.setMainImageUrl("https://res.cloudinary.com/demo/1.jpg");
+        car.setLocation("München");
+        car.setZipCode("80331");
+        car.setStatus(CarStatus.ACTIVE);
+        car.setCreatedAt(null);
+        car.setUpdatedAt(null);
+        
+        user = new User("uid-1", "max@example.com", "Max", "Mustermann", UserType.SELLER);
+        user.setPhoneNumber("+49 89 123456");
+        user.setCompanyName("Autohaus Mustermann");
+        user.setAddress("Hauptstraße 1, 80331 München");
+        user.setSpecializations(List.of("BMW", "Audi"));
+        user.setCreatedAt(null);
+        user.setUpdatedAt(null);
+        
+        carSnapshot = snapshot("cars", "car-1", carCodec.encode(car));
+        userSnapshot = snapshot("users", "uid-1", userCodec.encode(user));
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        firestore.close();
+    }
+    
+    private DocumentSnapshot snapshot(String collection, String documentId, Map<String, Object> data) {
+        return FirestoreSnapshots.snapshot(firestore, collection, documentId, data);
+    }
+    
+    @Benchmark
+    public Car carToObject() {
+        return carSnapshot.toObject(Car.class);
+    }
+    
+    @Benchmark
+    public Car carCodecDecode() {
+        return carCodec.decode(carSnapshot.getId(), carSnapshot.getData());
+    }
+    
+    @Benchmark
+    public Object carCustomClassMapperEncode() {
+        return FirestoreSnapshots.convertToPlainJavaTypes(car);
+    }
+    
+    @Benchmark
+    public Object carCodecEncode() {
+        return FirestoreSnapshots.convertToPlainJavaTypes(carCodec.encode(car));
+    }
+    
+    @Benchmark
+    public User userToObject() {
+        return userSnapshot.toObject(User.class);
+    }
+    
+    @Benchmark
+    public User userCodecDecode() {
+        return userCodec.decode(userSnapshot.getId(), userSnapshot.getData());
+    }
+}
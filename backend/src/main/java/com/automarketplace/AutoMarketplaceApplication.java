@@ -2,6 +2,7 @@ package com.automarketplace;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Hauptklasse für die Auto Marketplace Spring Boot Anwendung
@@ -10,8 +11,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - @Configuration: Markiert die Klasse als Konfigurationsquelle
  * - @EnableAutoConfiguration: Aktiviert Spring Boot Auto-Konfiguration
  * - @ComponentScan: Scannt nach Spring Komponenten in diesem Paket
+ * 
+ * @EnableScheduling aktiviert periodische Aufgaben (z.B. LoginActivityBuffer)
  */
 @SpringBootApplication
+@EnableScheduling
 public class AutoMarketplaceApplication {
 
     /**
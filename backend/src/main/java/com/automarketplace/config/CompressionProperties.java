@@ -0,0 +1,127 @@
+package com.automarketplace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Konfiguration der Antwort-Komprimierung (http-compression.*)
+ */
+@Component
+@ConfigurationProperties(prefix = "http-compression")
+public class CompressionProperties {
+    
+    private boolean enabled = true;
+    
+    // Kleinere Antworten werden unkomprimiert gesendet
+    private DataSize minResponseSize = DataSize.ofKilobytes(2);
+    
+    // Komprimiert werden nur diese Content-Types
+    private List<String> mimeTypes = new ArrayList<>(List.of("application/json"));
+    
+    // gzip-Stufe (1-9) und Brotli-Qualität (0-11)
+    private int gzipLevel = 6;
+    private int brotliQuality = 5;
+    
+    private Cache cache = new Cache();
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public DataSize getMinResponseSize() {
+        return minResponseSize;
+    }
+    
+    public void setMinResponseSize(DataSize minResponseSize) {
+        this.minResponseSize = minResponseSize;
+    }
+    
+    public List<String> getMimeTypes() {
+        return mimeTypes;
+    }
+    
+    public void setMimeTypes(List<String> mimeTypes) {
+        this.mimeTypes = mimeTypes;
+    }
+    
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+    
+    public void setGzipLevel(int gzipLevel) {
+        this.gzipLevel = gzipLevel;
+    }
+    
+    public int getBrotliQuality() {
+        return brotliQuality;
+    }
+    
+    public void setBrotliQuality(int brotliQuality) {
+        this.brotliQuality = brotliQuality;
+    }
+    
+    public Cache getCache() {
+        return cache;
+    }
+    
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+    
+    /**
+     * Cache der komprimierten Antworten für Listen-Endpoints
+     */
+    public static class Cache {
+        
+        private boolean enabled = true;
+        
+        // Pfade ohne Context-Path (Ant-Muster), nur GET
+        private List<String> paths = new ArrayList<>(List.of("/cars", "/cars/search", "/cars/brand/*"));
+        
+        // Obergrenze für die Summe der komprimierten Bytes
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+        
+        private Duration expireAfterAccess = Duration.ofMinutes(10);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public List<String> getPaths() {
+            return paths;
+        }
+        
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+        
+        public DataSize getMaximumSize() {
+            return maximumSize;
+        }
+        
+        public void setMaximumSize(DataSize maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+        
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+        
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.automarketplace.config;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.cloud.FirestoreClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -67,4 +70,17 @@ public class FirebaseConfig {
     public FirebaseAuth firebaseAuth() {
         return FirebaseAuth.getInstance();
     }
+    
+    /**
+     * Firestore Bean für FirestoreService
+     * 
+     * Nur wenn Firestore als Dokumentenspeicher gewählt ist (document-store.type)
+     * 
+     * @return Firestore Instanz
+     */
+    @Bean
+    @ConditionalOnProperty(name = "document-store.type", havingValue = "firestore", matchIfMissing = true)
+    public Firestore firestore() {
+        return FirestoreClient.getFirestore();
+    }
 }
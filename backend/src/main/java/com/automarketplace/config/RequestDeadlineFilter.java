@@ -0,0 +1,58 @@
+package com.automarketplace.config;
+
+import com.automarketplace.service.FirestoreCallProperties;
+import com.automarketplace.service.RequestDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setzt das Zeitbudget des Requests für alle Firestore-Aufrufe (RequestDeadline)
+ *
+ * Budget: firestore.calls.request-budget; ein Client kann es mit dem Header
+ * X-Request-Timeout (Millisekunden) verkürzen, aber nicht verlängern.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+    
+    private static final String TIMEOUT_HEADER = "X-Request-Timeout";
+    
+    private final FirestoreCallProperties properties;
+    
+    public RequestDeadlineFilter(FirestoreCallProperties properties) {
+        this.properties = properties;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long budget = properties.getRequestBudget().toNanos();
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long requested = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(header.trim()));
+                if (requested > 0) {
+                    budget = Math.min(budget, requested);
+                }
+            } catch (NumberFormatException e) {
+                // Ungültiger Header -> Standardbudget
+            }
+        }
+        
+        Long previous = RequestDeadline.replace(System.nanoTime() + budget);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.replace(previous);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.automarketplace.config;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Komprimierung der API-Antworten mit Brotli oder gzip (nach Accept-Encoding)
+ *
+ * Antworten ab http-compression.min-response-size mit passendem Content-Type
+ * werden gepuffert und komprimiert; Brotli wird bevorzugt, sofern die native
+ * Bibliothek geladen werden konnte.
+ *
+ * Für die Listen-Endpoints (http-compression.cache.paths) werden die
+ * komprimierten Bytes nach dem SHA-256 der unkomprimierten Antwort gecacht:
+ * eine unveränderte Liste wird nur einmal pro Encoding komprimiert. Der Hash
+ * dient zugleich als schwaches ETag, If-None-Match liefert dann 304.
+ *
+ * Metriken: http.compression.ratio, http.compression.cpu (CPU-Zeit des
+ * Threads), http.compression.cache (Treffer/Fehlschläge).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCompressionFilter.class);
+    
+    private static final String BROTLI = "br";
+    private static final String GZIP = "gzip";
+    
+    private final CompressionProperties properties;
+    private final boolean brotliAvailable;
+    private final Cache<String, byte[]> compressedCache;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    
+    // Meter einmal pro Encoding bzw. Ergebnis registrieren, nicht pro Request
+    private final Map<String, Timer> cpuTimers = new HashMap<>();
+    private final Map<String, DistributionSummary> ratios = new HashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    
+    public ResponseCompressionFilter(CompressionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.brotliAvailable = loadBrotli();
+        
+        for (String encoding : brotliAvailable ? List.of(BROTLI, GZIP) : List.of(GZIP)) {
+            cpuTimers.put(encoding, Timer.builder("http.compression.cpu")
+                .description("CPU-Zeit für das Komprimieren einer Antwort")
+                .tag("encoding", encoding)
+                .register(registry));
+            ratios.put(encoding, DistributionSummary.builder("http.compression.ratio")
+                .description("Komprimierte Größe / Originalgröße")
+                .tag("encoding", encoding)
+                .register(registry));
+        }
+        this.cacheHits = cacheCounter(registry, "hit");
+        this.cacheMisses = cacheCounter(registry, "miss");
+        
+        CompressionProperties.Cache cache = properties.getCache();
+        this.compressedCache = cache.isEnabled()
+            ? Caffeine.newBuilder()
+                .maximumWeight(cache.getMaximumSize().toBytes())
+                .weigher((String key, byte[] value) -> value.length + key.length())
+                .expireAfterAccess(cache.getExpireAfterAccess())
+                .build()
+            : null;
+    }
+    
+    private static boolean loadBrotli() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            logger.warn("Brotli nicht verfügbar, komprimiere nur mit gzip: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Controller liefern CompletableFutures - geschrieben wird erst im Async-Dispatch
+        return false;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        String encoding = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            if (!isAsyncDispatch(request)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        HttpServletResponse responseToUse = response;
+        if (!isAsyncDispatch(request) && !(response instanceof ContentCachingResponseWrapper)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            responseToUse = new ContentCachingResponseWrapper(response);
+        }
+        
+        filterChain.doFilter(request, responseToUse);
+        
+        if (!isAsyncStarted(request)) {
+            ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(responseToUse, ContentCachingResponseWrapper.class);
+            if (wrapper != null) {
+                writeResponse(request, wrapper, encoding);
+            }
+        }
+    }
+    
+    private void writeResponse(HttpServletRequest request, ContentCachingResponseWrapper wrapper, String encoding)
+            throws IOException {
+        HttpServletResponse rawResponse = (HttpServletResponse) wrapper.getResponse();
+        byte[] body = wrapper.getContentAsByteArray();
+        
+        if (!isCompressible(wrapper, rawResponse, body.length)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        
+        byte[] compressed;
+        if (compressedCache != null && isCacheable(request)) {
+            byte[] digest = sha256(body);
+            String etag = "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            rawResponse.setHeader(HttpHeaders.ETAG, etag);
+            
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null && ifNoneMatch.contains(etag.substring(2))) {
+                wrapper.resetBuffer();
+                rawResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            
+            String key = encoding + ":" + HexFormat.of().formatHex(digest);
+            compressed = compressedCache.getIfPresent(key);
+            (compressed != null ? cacheHits : cacheMisses).increment();
+            if (compressed == null) {
+                compressed = compress(body, encoding);
+                compressedCache.put(key, compressed);
+            }
+        } else {
+            compressed = compress(body, encoding);
+        }
+        
+        wrapper.resetBuffer();
+        rawResponse.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        rawResponse.setContentLength(compressed.length);
+        rawResponse.getOutputStream().write(compressed);
+    }
+    
+    private boolean isCompressible(ContentCachingResponseWrapper wrapper, HttpServletResponse rawResponse, int length) {
+        if (rawResponse.isCommitted() || length < properties.getMinResponseSize().toBytes()) {
+            return false;
+        }
+        int status = wrapper.getStatus();
+        if (status < 200 || status >= 300 || status == HttpServletResponse.SC_NO_CONTENT) {
+            return false;
+        }
+        if (rawResponse.getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        String contentType = wrapper.getContentType();
+        return contentType != null && properties.getMimeTypes().stream().anyMatch(contentType::startsWith);
+    }
+    
+    private boolean isCacheable(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return properties.getCache().getPaths().stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+    
+    /**
+     * Encoding aus Accept-Encoding wählen: br vor gzip, q=0 schließt aus
+     *
+     * @return "br", "gzip" oder null für unkomprimiert
+     */
+    String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        
+        Map<String, Double> accepted = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            accepted.put(tokens[0].trim().toLowerCase(Locale.ROOT), quality);
+        }
+        
+        double wildcard = accepted.getOrDefault("*", 0.0);
+        if (brotliAvailable && accepted.getOrDefault(BROTLI, wildcard) > 0) {
+            return BROTLI;
+        }
+        if (accepted.getOrDefault(GZIP, wildcard) > 0) {
+            return GZIP;
+        }
+        return null;
+    }
+    
+    /**
+     * Komprimieren und Verhältnis sowie CPU-Zeit erfassen
+     */
+    private byte[] compress(byte[] body, String encoding) throws IOException {
+        boolean cpuTime = threadBean.isCurrentThreadCpuTimeSupported();
+        long start = cpuTime ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+        
+        byte[] compressed = BROTLI.equals(encoding) ? brotli(body) : gzip(body);
+        
+        long elapsed = (cpuTime ? threadBean.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+        cpuTimers.get(encoding).record(elapsed, TimeUnit.NANOSECONDS);
+        ratios.get(encoding).record((double) compressed.length / body.length);
+        
+        return compressed;
+    }
+    
+    private byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(body.length / 4, 512));
+        int level = properties.getGzipLevel();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+    
+    private byte[] brotli(byte[] body) throws IOException {
+        Encoder.Parameters parameters = new Encoder.Parameters()
+            .setQuality(properties.getBrotliQuality())
+            .setMode(Encoder.Mode.TEXT);
+        return Encoder.compress(body, parameters);
+    }
+    
+    private static Counter cacheCounter(MeterRegistry registry, String result) {
+        return Counter.builder("http.compression.cache")
+            .description("Cache der komprimierten Listen-Antworten")
+            .tag("result", result)
+            .register(registry);
+    }
+    
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+}
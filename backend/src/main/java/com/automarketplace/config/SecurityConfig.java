@@ -2,6 +2,7 @@ package com.automarketplace.config;
 
 import com.automarketplace.security.FirebaseAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -27,9 +28,14 @@ public class SecurityConfig {
     
     private final FirebaseAuthenticationFilter firebaseAuthenticationFilter;
     
+    // Interner Port der Actuator-Endpoints (management.server.port)
+    private final int managementPort;
+    
     @Autowired
-    public SecurityConfig(FirebaseAuthenticationFilter firebaseAuthenticationFilter) {
+    public SecurityConfig(FirebaseAuthenticationFilter firebaseAuthenticationFilter,
+                          @Value("${management.server.port:8081}") int managementPort) {
         this.firebaseAuthenticationFilter = firebaseAuthenticationFilter;
+        this.managementPort = managementPort;
     }
     
     /**
@@ -56,6 +62,10 @@ public class SecurityConfig {
                 // Öffentliche Endpoints (keine Authentifizierung erforderlich)
                 .requestMatchers("/api/public/**").permitAll()
                 .requestMatchers("/api/health").permitAll()
+                .requestMatchers("/api/health/ready").permitAll() // Readiness Probe
+                // Actuator (Prometheus Scrape) nur über den internen Management-Port;
+                // auf dem öffentlichen Port gibt es keine Actuator-Endpoints
+                .requestMatchers(request -> request.getLocalPort() == managementPort).permitAll()
                 
                 // Auto-Endpoints (teilweise öffentlich)
                 .requestMatchers("GET", "/api/cars/search/**").permitAll() // Öffentliche Suche
@@ -108,6 +118,7 @@ public class SecurityConfig {
             "Authorization", 
             "Content-Type", 
             "X-Requested-With",
+            "X-Request-Timeout",
             "Accept",
             "Origin",
             "Access-Control-Request-Method",
@@ -120,7 +131,8 @@ public class SecurityConfig {
         // Exposed Headers (für Frontend verfügbar)
         configuration.setExposedHeaders(Arrays.asList(
             "Access-Control-Allow-Origin",
-            "Access-Control-Allow-Credentials"
+            "Access-Control-Allow-Credentials",
+            "Retry-After"
         ));
         
         // Cache Preflight Requests für 1 Stunde
@@ -1,231 +1,433 @@
 package com.automarketplace.controller;
 
 import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarFields;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSearchHit;
+import com.automarketplace.model.CarSort;
 import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.CarSuggestion;
 import com.automarketplace.service.CarService;
+import com.automarketplace.service.ConcurrencyLimitExceededException;
+import com.automarketplace.service.DeadlineExceededException;
+import com.automarketplace.service.DocumentConflictException;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST Controller für Auto-Operationen
+ *
+ * Alle Endpoints liefern ein CompletableFuture zurück. Spring MVC gibt den
+ * Request-Thread dadurch frei, solange auf Firestore gewartet wird.
  */
 @RestController
 @RequestMapping("/cars")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 public class CarController {
     
+    /**
+     * Maximale Anzahl IDs pro Batch-Abfrage
+     */
+    private static final int MAX_BATCH_IDS = 100;
+    
+    /**
+     * Cache-Dauer der Facetten (Cache-Control: max-age)
+     */
+    private static final Duration FACETS_MAX_AGE = Duration.ofSeconds(30);
+    private static final Duration SUGGEST_MAX_AGE = Duration.ofSeconds(30);
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+    
+    private static final TypeReference<Map<String, Object>> CAR_PROPERTIES = new TypeReference<>() {};
+    
     @Autowired
     private CarService carService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
-     * Alle verfügbaren Autos abrufen
+     * Verfügbare Autos seitenweise abrufen
+     *
+     * GET /cars?limit=24&cursor=...&fields=brand,model,price,mainImageUrl
      */
     @GetMapping
-    public ResponseEntity<List<Car>> getAllAvailableCars() {
-        try {
-            List<Car> cars = carService.findAvailableCars();
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    public CompletableFuture<ResponseEntity<Page<?>>> getAllAvailableCars(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        return projected(limit, cursor, fields, carService::findAvailableCarsAsync);
+    }
+    
+    /**
+     * Mehrere Autos nach ID abrufen (ein Firestore-Aufruf)
+     *
+     * GET /cars/batch?ids=a,b,c
+     *
+     * Die Autos werden in der Reihenfolge der IDs geliefert, unbekannte IDs
+     * stehen in "missingIds".
+     */
+    @GetMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> getCarsByIds(@RequestParam List<String> ids) {
+        Set<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!id.isBlank()) {
+                uniqueIds.add(id.trim());
+            }
+        }
+        
+        if (uniqueIds.size() > MAX_BATCH_IDS) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Maximal " + MAX_BATCH_IDS + " IDs pro Anfrage erlaubt")));
         }
+        
+        return carService.findByIdsAsync(uniqueIds)
+            .<ResponseEntity<?>>thenApply(found -> {
+                List<String> missingIds = new ArrayList<>();
+                for (String id : uniqueIds) {
+                    if (!found.containsKey(id)) {
+                        missingIds.add(id);
+                    }
+                }
+                
+                return ResponseEntity.ok(Map.of(
+                    "cars", new ArrayList<>(found.values()),
+                    "missingIds", missingIds
+                ));
+            })
+            .exceptionally(CarController::readFailed);
     }
     
     /**
      * Auto nach ID abrufen
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Car> getCarById(@PathVariable String id) {
-        try {
-            Optional<Car> car = carService.findById(id);
-            return car.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Car>> getCarById(@PathVariable String id) {
+        return carService.findByIdAsync(id)
+            .thenApply(car -> car.map(ResponseEntity::ok)
+                                 .orElse(ResponseEntity.notFound().build()))
+            .exceptionally(CarController::readFailed);
     }
     
     /**
      * Neues Auto erstellen
      */
     @PostMapping
-    public ResponseEntity<Car> createCar(@Valid @RequestBody CarRequestDTOs.CreateCarRequest request,
-                                        Authentication authentication) {
-        try {
-            String sellerFirebaseUid = authentication.getName();
-            
-            Car car = new Car();
-            car.setBrand(request.getBrand());
-            car.setModel(request.getModel());
-            car.setYear(request.getYear());
-            car.setPrice(request.getPrice());
-            car.setMileage(request.getMileage());
-            car.setFuelType(request.getFuelType());
-            car.setTransmission(request.getTransmission());
-            car.setCondition(request.getCondition());
-            car.setDescription(request.getDescription());
-            car.setImages(request.getImages());
-            
-            Car createdCar = carService.createCar(car, sellerFirebaseUid);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdCar);
-            
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Car>> createCar(@Valid @RequestBody CarRequestDTOs.CreateCarRequest request,
+                                                           Authentication authentication) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        Car car = new Car();
+        car.setBrand(request.getBrand());
+        car.setModel(request.getModel());
+        car.setYear(request.getYear());
+        car.setPrice(request.getPrice());
+        car.setMileage(request.getMileage());
+        car.setFuelType(request.getFuelType());
+        car.setTransmission(request.getTransmission());
+        car.setCondition(request.getCondition());
+        car.setDescription(request.getDescription());
+        car.setImages(request.getImages());
+        
+        return carService.createCarAsync(car, sellerFirebaseUid)
+            .thenApply(createdCar -> ResponseEntity.status(HttpStatus.CREATED).body(createdCar))
+            .exceptionally(CarController::mutationFailed);
     }
     
     /**
      * Auto aktualisieren
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Car> updateCar(@PathVariable String id,
-                                        @Valid @RequestBody CarRequestDTOs.UpdateCarRequest request,
-                                        Authentication authentication) {
-        try {
-            String sellerFirebaseUid = authentication.getName();
-            
-            Car updatedCar = new Car();
-            updatedCar.setBrand(request.getBrand());
-            updatedCar.setModel(request.getModel());
-            updatedCar.setYear(request.getYear());
-            updatedCar.setPrice(request.getPrice());
-            updatedCar.setMileage(request.getMileage());
-            updatedCar.setFuelType(request.getFuelType());
-            updatedCar.setTransmission(request.getTransmission());
-            updatedCar.setCondition(request.getCondition());
-            updatedCar.setDescription(request.getDescription());
-            updatedCar.setImages(request.getImages());
-            
-            Car car = carService.updateCar(id, updatedCar, sellerFirebaseUid);
-            return ResponseEntity.ok(car);
-            
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Car>> updateCar(@PathVariable String id,
+                                                           @Valid @RequestBody CarRequestDTOs.UpdateCarRequest request,
+                                                           Authentication authentication) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        Car updatedCar = new Car();
+        updatedCar.setBrand(request.getBrand());
+        updatedCar.setModel(request.getModel());
+        updatedCar.setYear(request.getYear());
+        updatedCar.setPrice(request.getPrice());
+        updatedCar.setMileage(request.getMileage());
+        updatedCar.setFuelType(request.getFuelType());
+        updatedCar.setTransmission(request.getTransmission());
+        updatedCar.setCondition(request.getCondition());
+        updatedCar.setDescription(request.getDescription());
+        updatedCar.setImages(request.getImages());
+        
+        return carService.updateCarAsync(id, updatedCar, sellerFirebaseUid)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(CarController::mutationFailed);
     }
     
     /**
      * Auto-Status ändern
      */
     @PatchMapping("/{id}/status")
-    public ResponseEntity<Car> updateCarStatus(@PathVariable String id,
-                                              @RequestBody CarRequestDTOs.UpdateStatusRequest request,
-                                              Authentication authentication) {
-        try {
-            String sellerFirebaseUid = authentication.getName();
-            Car car = carService.updateCarStatus(id, request.getStatus(), sellerFirebaseUid);
-            return ResponseEntity.ok(car);
-            
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Car>> updateCarStatus(@PathVariable String id,
+                                                                 @RequestBody CarRequestDTOs.UpdateStatusRequest request,
+                                                                 Authentication authentication) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        return carService.updateCarStatusAsync(id, request.getStatus(), sellerFirebaseUid)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(CarController::mutationFailed);
     }
     
     /**
      * Auto löschen
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteCar(@PathVariable String id, Authentication authentication) {
-        try {
-            String sellerFirebaseUid = authentication.getName();
-            carService.deleteCar(id, sellerFirebaseUid);
-            return ResponseEntity.noContent().build();
-            
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Void>> deleteCar(@PathVariable String id, Authentication authentication) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        return carService.deleteCarAsync(id, sellerFirebaseUid)
+            .thenApply(deleted -> ResponseEntity.noContent().<Void>build())
+            .exceptionally(CarController::mutationFailed);
     }
     
     /**
      * Autos suchen
+     *
+     * Kriterien als Query-Parameter (siehe CarSearchCriteria): brand, model,
+     * minPrice, maxPrice, minYear, maxYear, minMileage, maxMileage, fuelType,
+     * transmission, bodyType, drivetrain, condition
+     *
+     * Mit "q" zusätzlich Volltextsuche über Beschreibung, Ausstattung und
+     * Servicehistorie: Treffer nach Relevanz, mit "score" und "highlights".
+     *
+     * Mit "sort" sortiert (ohne "q"): price, year, mileage, horsepower, createdAt
+     * oder brand, optional mit ",desc", z.B. sort=price,desc. Unbekannte Felder → 400.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Car>> searchCars(
-            @RequestParam(required = false) String brand,
-            @RequestParam(required = false) String model,
-            @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(required = false) Integer minYear,
-            @RequestParam(required = false) Integer maxYear,
-            @RequestParam(required = false) String fuelType,
-            @RequestParam(required = false) String transmission) {
+    public CompletableFuture<ResponseEntity<Page<?>>> searchCars(
+            @ModelAttribute CarSearchCriteria criteria,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
         
-        try {
-            List<Car> cars = carService.searchCars(brand, model, minPrice, maxPrice, 
-                                                  minYear, maxYear, fuelType, transmission);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        if (q != null && !q.isBlank()) {
+            if (sort != null && !sort.isBlank()) {
+                // Volltexttreffer sind nach Relevanz sortiert
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+            }
+            return projected(limit, cursor, fields, (pageRequest, selected) -> carService.searchCarsAsync(
+                q, criteria, pageRequest));
+        }
+        return projected(limit, cursor, fields, (pageRequest, selected) -> carService.searchCarsAsync(
+            criteria, sort != null && !sort.isBlank() ? CarSort.parse(sort) : null, pageRequest, selected));
+    }
+    
+    /**
+     * Facetten für die Filter-Sidebar: Anzahl pro Marke, Kraftstoff, Getriebe und
+     * Karosserie sowie Histogramme für Preis, Baujahr und Kilometerstand
+     *
+     * Gleiche Kriterien wie /search. Die Antwort darf kurz gecacht werden.
+     */
+    @GetMapping("/search/facets")
+    public CompletableFuture<ResponseEntity<CarFacets>> getSearchFacets(@ModelAttribute CarSearchCriteria criteria) {
+        return carService.searchFacetsAsync(criteria)
+            .thenApply(facets -> ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(FACETS_MAX_AGE).cachePublic())
+                .body(facets))
+            .exceptionally(CarController::readFailed);
+    }
+    
+    /**
+     * Autovervollständigung für Marke und Modell, absteigend nach Anzahl verfügbarer Inserate
+     *
+     * GET /cars/suggest?prefix=bm&limit=10
+     */
+    @GetMapping("/suggest")
+    public CompletableFuture<ResponseEntity<List<CarSuggestion>>> suggest(@RequestParam String prefix,
+                                                                          @RequestParam(required = false) Integer limit) {
+        if (prefix.isBlank()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
+        int size = limit == null || limit <= 0 ? DEFAULT_SUGGEST_LIMIT : Math.min(limit, MAX_SUGGEST_LIMIT);
+        return carService.suggestAsync(prefix, size)
+            .thenApply(suggestions -> ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(SUGGEST_MAX_AGE).cachePublic())
+                .body(suggestions))
+            .exceptionally(CarController::readFailed);
     }
     
     /**
      * Autos nach Marke finden
      */
     @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<Car>> getCarsByBrand(@PathVariable String brand) {
-        try {
-            List<Car> cars = carService.findByBrand(brand);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Page<?>>> getCarsByBrand(@PathVariable String brand,
+                                                                    @RequestParam(required = false) Integer limit,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) String fields) {
+        return projected(limit, cursor, fields,
+                         (pageRequest, selected) -> carService.findByBrandAsync(brand, pageRequest, selected));
     }
     
     /**
      * Ähnliche Autos finden
      */
     @GetMapping("/{id}/similar")
-    public ResponseEntity<List<Car>> getSimilarCars(@PathVariable String id) {
-        try {
-            List<Car> cars = carService.findSimilarCars(id);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<List<Car>>> getSimilarCars(@PathVariable String id) {
+        return carService.findSimilarCarsAsync(id)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(CarController::readFailed);
     }
     
     /**
      * Meine Autos abrufen (für Verkäufer)
      */
     @GetMapping("/my")
-    public ResponseEntity<List<Car>> getMyCars(Authentication authentication) {
-        try {
-            String sellerFirebaseUid = authentication.getName();
-            List<Car> cars = carService.findCarsBySeller(sellerFirebaseUid);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public CompletableFuture<ResponseEntity<Page<Car>>> getMyCars(Authentication authentication,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) String cursor) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        return paged(limit, cursor, pageRequest -> carService.findCarsBySellerAsync(sellerFirebaseUid, pageRequest));
     }
     
     /**
      * Meine Autos nach Status abrufen
      */
     @GetMapping("/my/status/{status}")
-    public ResponseEntity<List<Car>> getMyCarsByStatus(@PathVariable CarStatus status,
-                                                      Authentication authentication) {
+    public CompletableFuture<ResponseEntity<List<Car>>> getMyCarsByStatus(@PathVariable CarStatus status,
+                                                                         Authentication authentication) {
+        String sellerFirebaseUid = authentication.getName();
+        
+        return carService.findCarsBySellerAndStatusAsync(sellerFirebaseUid, status)
+            .thenApply(ResponseEntity::ok)
+            .exceptionally(CarController::readFailed);
+    }
+    
+    /**
+     * Seitenweise Abfrage ausführen
+     *
+     * Ein ungültiger Cursor führt zu 400 Bad Request, andere Fehler zu 500.
+     */
+    private <T> CompletableFuture<ResponseEntity<Page<T>>> paged(Integer limit, String cursor,
+                                                                 Function<PageRequest, CompletableFuture<Page<T>>> query) {
+        try {
+            return query.apply(PageRequest.of(limit, cursor))
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    return cause instanceof IllegalArgumentException
+                        ? ResponseEntity.badRequest().build()
+                        : readFailed(cause);
+                });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+    }
+    
+    /**
+     * Fehler beim Lesen: 503 bei ausgelastetem Bulkhead, 504 wenn das Zeitbudget
+     * für Firestore aufgebraucht war, sonst 500
+     */
+    private static <T> ResponseEntity<T> readFailed(Throwable e) {
+        ResponseEntity<T> overloaded = overloaded(e);
+        if (overloaded != null) {
+            return overloaded;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException) {
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+            }
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+    
+    /**
+     * Fehler einer Änderung: 503 bei ausgelastetem Bulkhead, 409 bei gleichzeitiger
+     * Änderung durch jemand anderen, sonst 400
+     */
+    private static <T> ResponseEntity<T> mutationFailed(Throwable e) {
+        ResponseEntity<T> overloaded = overloaded(e);
+        if (overloaded != null) {
+            return overloaded;
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof DocumentConflictException
+            ? ResponseEntity.status(HttpStatus.CONFLICT).build()
+            : ResponseEntity.badRequest().build();
+    }
+    
+    /**
+     * 503 mit Retry-After, wenn Firestore-Aufrufe wegen Überlast abgelehnt wurden
+     *
+     * @return Antwort oder null bei anderen Fehlern
+     */
+    private static <T> ResponseEntity<T> overloaded(Throwable e) {
+        ConcurrencyLimitExceededException exceeded = ConcurrencyLimitExceededException.find(e);
+        if (exceeded == null) {
+            return null;
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exceeded.getRetryAfter().toSeconds())))
+            .build();
+    }
+    
+    /**
+     * Seitenweise Abfrage mit optionaler Feldprojektion
+     *
+     * Ohne "fields" werden vollständige Autos geliefert. Mit "fields" liest
+     * Firestore nur die ausgewählten Felder und jedes Auto wird als Map mit
+     * genau diesen Feldern (plus "id") serialisiert. Unbekannte Felder → 400.
+     * Treffer der Volltextsuche behalten zusätzlich "score" und "highlights".
+     */
+    private <T> CompletableFuture<ResponseEntity<Page<?>>> projected(Integer limit, String cursor, String fields,
+                                                                     BiFunction<PageRequest, Set<String>, CompletableFuture<Page<T>>> query) {
+        Set<String> selected;
         try {
-            String sellerFirebaseUid = authentication.getName();
-            List<Car> cars = carService.findCarsBySellerAndStatus(sellerFirebaseUid, status);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            selected = CarFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
+        
+        return paged(limit, cursor, pageRequest -> query.apply(pageRequest, selected))
+            .thenApply(response -> {
+                Page<T> page = response.getBody();
+                if (selected == null || page == null) {
+                    return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(page);
+                }
+                return ResponseEntity.ok(project(page, selected));
+            });
+    }
+    
+    private <T> Page<Map<String, Object>> project(Page<T> page, Set<String> selected) {
+        List<Map<String, Object>> items = page.getItems().stream()
+            .map(item -> {
+                Map<String, Object> properties = objectMapper.convertValue(item, CAR_PROPERTIES);
+                properties.keySet().removeIf(key -> !key.equals(CarFields.ID) && !CarSearchHit.EXTRA_FIELDS.contains(key)
+                                                    && !selected.contains(key));
+                return properties;
+            })
+            .collect(Collectors.toList());
+        return new Page<>(items, page.getNextCursor());
     }
-}
\ No newline at end of file
+}
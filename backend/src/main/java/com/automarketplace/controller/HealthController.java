@@ -1,16 +1,21 @@
 package com.automarketplace.controller;
 
+import com.automarketplace.repository.CarReplica;
+import com.automarketplace.service.DocumentStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Health Check Controller
- * 
+ *
  * Dieser Controller bietet einen einfachen Health Check Endpoint
  * um zu prüfen, ob die API läuft.
  */
@@ -18,11 +23,17 @@ import java.util.Map;
 @RequestMapping("/api")
 public class HealthController {
     
+    @Autowired
+    private DocumentStore documentStore;
+    
+    @Autowired(required = false)
+    private CarReplica carReplica;
+    
     /**
      * Health Check Endpoint (öffentlich)
-     * 
+     *
      * GET /api/health
-     * 
+     *
      * @return ResponseEntity mit Status-Informationen
      */
     @GetMapping("/health")
@@ -37,4 +48,37 @@ public class HealthController {
         
         return ResponseEntity.ok(status);
     }
+    
+    /**
+     * Statistiken der Dokument-Caches
+     *
+     * GET /api/health/cache
+     */
+    @GetMapping("/health/cache")
+    public ResponseEntity<?> cacheStatistics() {
+        return ResponseEntity.ok(documentStore.getCacheStatistics());
+    }
+    
+    /**
+     * Readiness Check
+     *
+     * GET /api/health/ready
+     *
+     * Mit aktivem Replikat der Autos erst bereit, wenn es einmal vollständig
+     * geladen ist (sonst 503). Ein später veralteter Stand macht die Instanz
+     * nicht unbereit, Abfragen gehen dann an Firestore; Größe, Verzögerung
+     * und Nutzbarkeit des Replikats stehen in der Antwort.
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<?> readiness() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        boolean ready = carReplica == null || carReplica.isLoaded();
+        
+        status.put("status", ready ? "UP" : "OUT_OF_SERVICE");
+        if (carReplica != null) {
+            status.put("carReplica", carReplica.getStatus());
+        }
+        
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
 }
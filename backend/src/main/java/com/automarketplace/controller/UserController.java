@@ -3,8 +3,10 @@ package com.automarketplace.controller;
 import com.automarketplace.model.User;
 import com.automarketplace.model.UserType;
 import com.automarketplace.security.FirebaseUserDetails;
+import com.automarketplace.service.ConcurrencyLimitExceededException;
 import com.automarketplace.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -13,13 +15,15 @@ import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * REST Controller für User-Management
  * 
  * Dieser Controller behandelt alle HTTP-Requests bezüglich User-Operationen.
  * Alle Endpoints sind authentifiziert (außer explizit als öffentlich markiert).
+ * Die Endpoints arbeiten asynchron und geben ein CompletableFuture zurück.
  */
 @RestController
 @RequestMapping("/api/users")
@@ -42,31 +46,25 @@ public class UserController {
      * 
      * @param userRequest User-Daten vom Frontend
      * @param authentication Spring Security Authentication (automatisch injiziert)
-     * @return ResponseEntity<User>
+     * @return CompletableFuture<ResponseEntity<User>>
      */
     @PostMapping("/profile")
-    public ResponseEntity<?> createOrUpdateProfile(@Valid @RequestBody CreateUserRequest userRequest, 
-                                                  Authentication authentication) {
-        try {
-            // Extrahiere Firebase UID aus Authentication
-            String firebaseUid = (String) authentication.getPrincipal();
-            FirebaseUserDetails userDetails = (FirebaseUserDetails) authentication.getDetails();
-            
-            // Erstelle oder aktualisiere User
-            User user = userService.createOrUpdateUser(
+    public CompletableFuture<ResponseEntity<?>> createOrUpdateProfile(@Valid @RequestBody CreateUserRequest userRequest, 
+                                                                     Authentication authentication) {
+        // Extrahiere Firebase UID aus Authentication
+        String firebaseUid = (String) authentication.getPrincipal();
+        FirebaseUserDetails userDetails = (FirebaseUserDetails) authentication.getDetails();
+        
+        // Erstelle oder aktualisiere User
+        return userService.createOrUpdateUserAsync(
                 firebaseUid,
                 userDetails.getEmail(),
                 userRequest.getFirstName(),
                 userRequest.getLastName(),
                 userRequest.getUserType()
-            );
-            
-            return ResponseEntity.ok(user);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Erstellen des Profils: " + e.getMessage()));
-        }
+            )
+            .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+            .exceptionally(e -> error("Fehler beim Erstellen des Profils: ", e));
     }
     
     /**
@@ -75,26 +73,22 @@ public class UserController {
      * GET /api/users/me
      * 
      * @param authentication Spring Security Authentication
-     * @return ResponseEntity<User>
+     * @return CompletableFuture<ResponseEntity<User>>
      */
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(Authentication authentication) {
-        try {
-            String firebaseUid = (String) authentication.getPrincipal();
-            
-            Optional<User> user = userService.findByFirebaseUid(firebaseUid);
-            
-            if (user.isPresent()) {
-                return ResponseEntity.ok(user.get());
-            } else {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "User-Profil nicht gefunden"));
-            }
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Laden des Profils: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> getCurrentUser(Authentication authentication) {
+        String firebaseUid = (String) authentication.getPrincipal();
+        
+        return userService.findByFirebaseUidAsync(firebaseUid)
+            .<ResponseEntity<?>>thenApply(user -> {
+                if (user.isPresent()) {
+                    return ResponseEntity.ok(user.get());
+                } else {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "User-Profil nicht gefunden"));
+                }
+            })
+            .exceptionally(e -> error("Fehler beim Laden des Profils: ", e));
     }
     
     /**
@@ -104,36 +98,33 @@ public class UserController {
      * 
      * @param updateRequest Update-Daten
      * @param authentication Spring Security Authentication
-     * @return ResponseEntity<User>
+     * @return CompletableFuture<ResponseEntity<User>>
      */
     @PutMapping("/me")
-    public ResponseEntity<?> updateProfile(@Valid @RequestBody UpdateUserRequest updateRequest,
-                                          Authentication authentication) {
-        try {
-            String firebaseUid = (String) authentication.getPrincipal();
-            
-            // Finde User
-            Optional<User> userOpt = userService.findByFirebaseUid(firebaseUid);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "User nicht gefunden"));
-            }
-            
-            // Aktualisiere Profil
-            User updatedUser = userService.updateProfile(
-                userOpt.get().getId(),
-                updateRequest.getFirstName(),
-                updateRequest.getLastName(),
-                updateRequest.getPhoneNumber(),
-                updateRequest.getProfileImageUrl()
-            );
-            
-            return ResponseEntity.ok(updatedUser);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Aktualisieren des Profils: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> updateProfile(@Valid @RequestBody UpdateUserRequest updateRequest,
+                                                             Authentication authentication) {
+        String firebaseUid = (String) authentication.getPrincipal();
+        
+        // Finde User
+        return userService.findByFirebaseUidAsync(firebaseUid)
+            .thenCompose(userOpt -> {
+                if (userOpt.isEmpty()) {
+                    return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "User nicht gefunden")));
+                }
+                
+                // Aktualisiere Profil
+                return userService.updateProfileAsync(
+                        userOpt.get().getId(),
+                        updateRequest.getFirstName(),
+                        updateRequest.getLastName(),
+                        updateRequest.getPhoneNumber(),
+                        updateRequest.getProfileImageUrl()
+                    )
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok);
+            })
+            .exceptionally(e -> error("Fehler beim Aktualisieren des Profils: ", e));
     }
     
     /**
@@ -143,42 +134,40 @@ public class UserController {
      * 
      * @param sellerRequest Seller-spezifische Daten
      * @param authentication Spring Security Authentication
-     * @return ResponseEntity<User>
+     * @return CompletableFuture<ResponseEntity<User>>
      */
     @PutMapping("/seller-info")
-    public ResponseEntity<?> updateSellerInfo(@Valid @RequestBody UpdateSellerRequest sellerRequest,
-                                             Authentication authentication) {
-        try {
-            String firebaseUid = (String) authentication.getPrincipal();
-            
-            // Finde User
-            Optional<User> userOpt = userService.findByFirebaseUid(firebaseUid);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "User nicht gefunden"));
-            }
-            
-            User user = userOpt.get();
-            if (!user.isSeller()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("error", "Nur Seller können diese Informationen aktualisieren"));
-            }
-            
-            // Aktualisiere Seller-Informationen
-            User updatedUser = userService.updateSellerInfo(
-                user.getId(),
-                sellerRequest.getCompanyName(),
-                sellerRequest.getBusinessLicense(),
-                sellerRequest.getAddress(),
-                sellerRequest.getSpecializations()
-            );
-            
-            return ResponseEntity.ok(updatedUser);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Aktualisieren der Seller-Informationen: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> updateSellerInfo(@Valid @RequestBody UpdateSellerRequest sellerRequest,
+                                                                Authentication authentication) {
+        String firebaseUid = (String) authentication.getPrincipal();
+        
+        // Finde User
+        return userService.findByFirebaseUidAsync(firebaseUid)
+            .thenCompose(userOpt -> {
+                if (userOpt.isEmpty()) {
+                    return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "User nicht gefunden")));
+                }
+                
+                User user = userOpt.get();
+                if (!user.isSeller()) {
+                    return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                        ResponseEntity.status(HttpStatus.FORBIDDEN)
+                            .body(Map.of("error", "Nur Seller können diese Informationen aktualisieren")));
+                }
+                
+                // Aktualisiere Seller-Informationen
+                return userService.updateSellerInfoAsync(
+                        user.getId(),
+                        sellerRequest.getCompanyName(),
+                        sellerRequest.getBusinessLicense(),
+                        sellerRequest.getAddress(),
+                        sellerRequest.getSpecializations()
+                    )
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok);
+            })
+            .exceptionally(e -> error("Fehler beim Aktualisieren der Seller-Informationen: ", e));
     }
     
     /**
@@ -186,18 +175,13 @@ public class UserController {
      * 
      * GET /api/users/sellers
      * 
-     * @return ResponseEntity<List<User>>
+     * @return CompletableFuture<ResponseEntity<List<User>>>
      */
     @GetMapping("/sellers")
-    public ResponseEntity<?> getActiveSellers() {
-        try {
-            List<User> sellers = userService.findActiveSellers();
-            return ResponseEntity.ok(sellers);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Laden der Seller: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> getActiveSellers() {
+        return userService.findActiveSellersAsync()
+            .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+            .exceptionally(e -> error("Fehler beim Laden der Seller: ", e));
     }
     
     /**
@@ -206,18 +190,13 @@ public class UserController {
      * GET /api/users/sellers/search?specialization=BMW
      * 
      * @param specialization Spezialisierung
-     * @return ResponseEntity<List<User>>
+     * @return CompletableFuture<ResponseEntity<List<User>>>
      */
     @GetMapping("/sellers/search")
-    public ResponseEntity<?> searchSellersBySpecialization(@RequestParam String specialization) {
-        try {
-            List<User> sellers = userService.findSellersBySpecialization(specialization);
-            return ResponseEntity.ok(sellers);
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler bei der Seller-Suche: " + e.getMessage()));
-        }
+    public CompletableFuture<ResponseEntity<?>> searchSellersBySpecialization(@RequestParam String specialization) {
+        return userService.findSellersBySpecializationAsync(specialization)
+            .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+            .exceptionally(e -> error("Fehler bei der Seller-Suche: ", e));
     }
     
     /**
@@ -226,29 +205,47 @@ public class UserController {
      * DELETE /api/users/me
      * 
      * @param authentication Spring Security Authentication
-     * @return ResponseEntity<?>
+     * @return CompletableFuture<ResponseEntity<?>>
      */
     @DeleteMapping("/me")
-    public ResponseEntity<?> deactivateAccount(Authentication authentication) {
-        try {
-            String firebaseUid = (String) authentication.getPrincipal();
-            
-            // Finde User
-            Optional<User> userOpt = userService.findByFirebaseUid(firebaseUid);
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "User nicht gefunden"));
-            }
-            
-            // Deaktiviere Account
-            userService.deactivateUser(userOpt.get().getId());
-            
-            return ResponseEntity.ok(Map.of("message", "Account erfolgreich deaktiviert"));
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Fehler beim Deaktivieren des Accounts: " + e.getMessage()));
+    public CompletableFuture<ResponseEntity<?>> deactivateAccount(Authentication authentication) {
+        String firebaseUid = (String) authentication.getPrincipal();
+        
+        // Finde User
+        return userService.findByFirebaseUidAsync(firebaseUid)
+            .thenCompose(userOpt -> {
+                if (userOpt.isEmpty()) {
+                    return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "User nicht gefunden")));
+                }
+                
+                // Deaktiviere Account
+                return userService.deactivateUserAsync(userOpt.get().getId())
+                    .<ResponseEntity<?>>thenApply(done -> 
+                        ResponseEntity.ok(Map.of("message", "Account erfolgreich deaktiviert")));
+            })
+            .exceptionally(e -> error("Fehler beim Deaktivieren des Accounts: ", e));
+    }
+    
+    /**
+     * Fehlerantwort mit der Meldung der ursprünglichen Exception erstellen
+     * 
+     * @param prefix Text vor der Fehlermeldung
+     * @param e Fehler aus dem CompletableFuture (ggf. in CompletionException verpackt)
+     * @return ResponseEntity mit Status 500, bzw. 503 mit Retry-After bei Überlast
+     */
+    private static ResponseEntity<?> error(String prefix, Throwable e) {
+        ConcurrencyLimitExceededException exceeded = ConcurrencyLimitExceededException.find(e);
+        if (exceeded != null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exceeded.getRetryAfter().toSeconds())))
+                .body(Map.of("error", prefix + "Dienst ausgelastet, bitte später erneut versuchen"));
         }
+        
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(Map.of("error", prefix + cause.getMessage()));
     }
 }
 
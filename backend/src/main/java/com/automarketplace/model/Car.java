@@ -1,5 +1,6 @@
 package com.automarketplace.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.cloud.firestore.annotation.DocumentId;
 
 import jakarta.validation.constraints.NotBlank;
@@ -8,6 +9,7 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Min;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -41,6 +43,10 @@ public class Car {
     @Positive(message = "Preis muss positiv sein")
     private BigDecimal price;
     
+    // Firestore speichert BigDecimal als String - für Bereichsabfragen
+    // wird der Preis zusätzlich numerisch in Cent gespeichert
+    private Long priceCents;
+    
     @NotNull(message = "Kilometerstand ist erforderlich")
     @Min(value = 0, message = "Kilometerstand kann nicht negativ sein")
     private Integer mileage; // Kilometerstand
@@ -100,7 +106,7 @@ public class Car {
         this.brand = brand;
         this.model = model;
         this.year = year;
-        this.price = price;
+        setPrice(price);
         this.mileage = mileage;
         this.fuelType = fuelType;
         this.transmission = transmission;
@@ -155,6 +161,24 @@ public class Car {
     
     public void setPrice(BigDecimal price) {
         this.price = price;
+        this.priceCents = toPriceCents(price);
+    }
+    
+    @JsonIgnore
+    public Long getPriceCents() {
+        return priceCents;
+    }
+    
+    @JsonIgnore
+    public void setPriceCents(Long priceCents) {
+        this.priceCents = priceCents;
+    }
+    
+    /**
+     * Preis in Cent umrechnen (kaufmännisch gerundet)
+     */
+    public static Long toPriceCents(BigDecimal price) {
+        return price != null ? price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : null;
     }
     
     public Integer getMileage() {
@@ -0,0 +1,154 @@
+package com.automarketplace.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Facetten der Autosuche (GET /cars/search/facets)
+ *
+ * Für die Treffer der aktuellen Suchkriterien: Anzahl pro Wert von Marke,
+ * Kraftstoff, Getriebe und Karosserie sowie Histogramme für Preis (Euro),
+ * Baujahr und Kilometerstand. Buckets ohne Treffer werden weggelassen.
+ */
+public class CarFacets {
+    
+    /**
+     * Felder mit Anzahl pro Wert
+     */
+    public static final List<String> VALUE_FIELDS = List.of("brand", "fuelType", "transmission", "bodyType");
+    
+    // Bucketbreiten der Histogramme (Preis in Cent: 5.000 Euro)
+    private static final Map<String, Long> BUCKET_WIDTHS = Map.of(
+        "price", 500_000L,
+        "year", 1L,
+        "mileage", 25_000L);
+    
+    private long total;
+    private final Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+    
+    // Feld -> Bucketanfang -> Anzahl
+    private final Map<String, TreeMap<Long, Long>> histograms = new LinkedHashMap<>();
+    
+    public CarFacets() {
+        VALUE_FIELDS.forEach(field -> counts.put(field, new LinkedHashMap<>()));
+        histograms.put("price", new TreeMap<>());
+        histograms.put("year", new TreeMap<>());
+        histograms.put("mileage", new TreeMap<>());
+    }
+    
+    /**
+     * Facetten einer Trefferliste in einem Durchlauf berechnen
+     */
+    public static CarFacets of(Collection<Car> cars) {
+        CarFacets facets = new CarFacets();
+        facets.setTotal(cars.size());
+        for (Car car : cars) {
+            for (String field : VALUE_FIELDS) {
+                String value = CarSearchCriteria.TEXT_FIELDS.get(field).apply(car);
+                if (value != null) {
+                    facets.count(field, value, 1);
+                }
+            }
+            facets.addToHistograms(car);
+        }
+        return facets;
+    }
+    
+    /**
+     * Anzahl für einen Feldwert hinzuzählen
+     */
+    public void count(String field, String value, long count) {
+        counts.get(field).merge(value, count, Long::sum);
+    }
+    
+    /**
+     * Preis, Baujahr und Kilometerstand eines Treffers in die Histogramme eintragen
+     */
+    public void addToHistograms(Car car) {
+        if (car.getPriceCents() != null) {
+            addToBucket("price", car.getPriceCents());
+        }
+        if (car.getYear() != null) {
+            addToBucket("year", car.getYear());
+        }
+        if (car.getMileage() != null) {
+            addToBucket("mileage", car.getMileage());
+        }
+    }
+    
+    private void addToBucket(String field, long value) {
+        long width = BUCKET_WIDTHS.get(field);
+        histograms.get(field).merge(Math.floorDiv(value, width) * width, 1L, Long::sum);
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    public void setTotal(long total) {
+        this.total = total;
+    }
+    
+    /**
+     * Anzahl pro Feldwert, absteigend nach Anzahl
+     */
+    public Map<String, Map<String, Long>> getCounts() {
+        Map<String, Map<String, Long>> sorted = new LinkedHashMap<>();
+        counts.forEach((field, values) -> {
+            Map<String, Long> byCount = new LinkedHashMap<>();
+            values.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> byCount.put(entry.getKey(), entry.getValue()));
+            sorted.put(field, byCount);
+        });
+        return sorted;
+    }
+    
+    /**
+     * Histogramme, aufsteigend nach Bucket
+     */
+    public Map<String, List<Bucket>> getHistograms() {
+        Map<String, List<Bucket>> result = new LinkedHashMap<>();
+        histograms.forEach((field, buckets) -> {
+            long width = BUCKET_WIDTHS.get(field);
+            // Preise in Euro ausgeben
+            long unit = field.equals("price") ? 100 : 1;
+            List<Bucket> list = new ArrayList<>(buckets.size());
+            buckets.forEach((from, count) -> list.add(new Bucket(from / unit, (from + width) / unit, count)));
+            result.put(field, list);
+        });
+        return result;
+    }
+    
+    /**
+     * Bucket eines Histogramms: from <= Wert < to
+     */
+    public static class Bucket {
+        
+        private final long from;
+        private final long to;
+        private final long count;
+        
+        public Bucket(long from, long to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+        
+        public long getFrom() {
+            return from;
+        }
+        
+        public long getTo() {
+            return to;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+    }
+}
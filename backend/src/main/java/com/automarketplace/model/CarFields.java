@@ -0,0 +1,58 @@
+package com.automarketplace.model;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Feldnamen eines Autos für Projektionen (Parameter "fields=")
+ * 
+ * Listen-Ansichten brauchen nur einen Bruchteil der Felder eines Autos.
+ * Mit einer Projektion liest Firestore nur diese Felder und die API
+ * serialisiert auch nur diese.
+ */
+public final class CarFields {
+    
+    /**
+     * Document ID - wird immer geliefert, ist aber kein gespeichertes Feld
+     */
+    public static final String ID = "id";
+    
+    /**
+     * Alle in Firestore gespeicherten Felder, die ausgewählt werden können
+     */
+    public static final Set<String> SELECTABLE = Set.of(
+        "sellerId", "brand", "model", "year", "price", "mileage", "fuelType", "transmission",
+        "color", "doors", "seats", "bodyType", "engineSize", "horsepower", "drivetrain",
+        "condition", "previousOwners", "accidentFree", "serviceHistory", "features",
+        "imageUrls", "mainImageUrl", "description", "location", "zipCode", "status",
+        "createdAt", "updatedAt", "soldAt"
+    );
+    
+    private CarFields() {}
+    
+    /**
+     * Kommagetrennte Feldliste parsen
+     * 
+     * @param fields z.B. "brand,model,price,mainImageUrl"
+     * @return ausgewählte Felder (ohne "id") oder null, wenn keine Projektion gewünscht ist
+     * @throws IllegalArgumentException bei unbekannten Feldern
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || name.equals(ID)) {
+                continue;
+            }
+            if (!SELECTABLE.contains(name)) {
+                throw new IllegalArgumentException("Unbekanntes Feld: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+}
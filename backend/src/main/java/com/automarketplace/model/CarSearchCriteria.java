@@ -0,0 +1,226 @@
+package com.automarketplace.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Kriterien der Autosuche (GET /cars/search)
+ *
+ * Semantik: Marke und Modell als Teilstring ohne Groß-/Kleinschreibung,
+ * Kraftstoff, Getriebe, Karosserie, Antrieb und Zustand exakt ohne
+ * Groß-/Kleinschreibung, Preis, Baujahr und Kilometerstand als geschlossene
+ * Bereiche.
+ * Leere Werte filtern nicht.
+ *
+ * Der Suchindex (CarSearchIndex) und die Suche ohne Index verwenden dieselben
+ * Prädikate aus valueFilters(), liefern also dieselben Treffer. Die Bereiche
+ * prüft der Index über rangeFilters() (Preis in Cent), die Suche ohne Index
+ * über matchesRanges().
+ */
+public class CarSearchCriteria {
+    
+    /**
+     * Textfelder, nach denen gefiltert werden kann, mit ihrem Getter
+     */
+    public static final Map<String, Function<Car, String>> TEXT_FIELDS = textFields();
+    
+    /**
+     * Felder, die matches() liest (für Projektionen bei der Suche ohne Index)
+     */
+    public static final Set<String> FILTER_FIELDS = Set.of(
+        "brand", "model", "price", "year", "mileage", "fuelType", "transmission", "bodyType", "drivetrain", "condition");
+    
+    private String brand;
+    private String model;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Integer minYear;
+    private Integer maxYear;
+    private Integer minMileage;
+    private Integer maxMileage;
+    private String fuelType;
+    private String transmission;
+    private String bodyType;
+    private String drivetrain;
+    private String condition;
+    
+    public CarSearchCriteria() {}
+    
+    public CarSearchCriteria(String brand, String model, BigDecimal minPrice, BigDecimal maxPrice,
+                             Integer minYear, Integer maxYear, String fuelType, String transmission) {
+        this.brand = brand;
+        this.model = model;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.fuelType = fuelType;
+        this.transmission = transmission;
+    }
+    
+    private static Map<String, Function<Car, String>> textFields() {
+        Map<String, Function<Car, String>> fields = new LinkedHashMap<>();
+        fields.put("brand", Car::getBrand);
+        fields.put("model", Car::getModel);
+        fields.put("fuelType", Car::getFuelType);
+        fields.put("transmission", Car::getTransmission);
+        fields.put("bodyType", Car::getBodyType);
+        fields.put("drivetrain", Car::getDrivetrain);
+        fields.put("condition", Car::getCondition);
+        return Map.copyOf(fields);
+    }
+    
+    /**
+     * Prädikate auf den Feldwerten der gesetzten Textfilter (Feldname -> Prädikat)
+     *
+     * Ein fehlender Feldwert (null) erfüllt keinen Filter.
+     */
+    public Map<String, Predicate<String>> valueFilters() {
+        Map<String, Predicate<String>> filters = new LinkedHashMap<>();
+        if (isSet(brand)) {
+            String term = brand.toLowerCase();
+            filters.put("brand", value -> value.toLowerCase().contains(term));
+        }
+        if (isSet(model)) {
+            String term = model.toLowerCase();
+            filters.put("model", value -> value.toLowerCase().contains(term));
+        }
+        putEqualsIgnoreCase(filters, "fuelType", fuelType);
+        putEqualsIgnoreCase(filters, "transmission", transmission);
+        putEqualsIgnoreCase(filters, "bodyType", bodyType);
+        putEqualsIgnoreCase(filters, "drivetrain", drivetrain);
+        putEqualsIgnoreCase(filters, "condition", condition);
+        return filters;
+    }
+    
+    private static void putEqualsIgnoreCase(Map<String, Predicate<String>> filters, String field, String expected) {
+        if (isSet(expected)) {
+            filters.put(field, value -> value.equalsIgnoreCase(expected));
+        }
+    }
+    
+    /**
+     * Gesetzte Bereichsfilter als ganzzahlige Grenzen (Feldname -> {min, max}, beide inklusive)
+     *
+     * Felder: priceCents, year, mileage. Preisgrenzen werden auf ganze Cent
+     * gerundet, ohne Treffer zu verlieren oder hinzuzufügen.
+     */
+    public Map<String, long[]> rangeFilters() {
+        Map<String, long[]> ranges = new LinkedHashMap<>();
+        if (minPrice != null || maxPrice != null) {
+            ranges.put("priceCents", new long[] {
+                minPrice != null ? minPrice.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact() : Long.MIN_VALUE,
+                maxPrice != null ? maxPrice.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact() : Long.MAX_VALUE
+            });
+        }
+        putRange(ranges, "year", minYear, maxYear);
+        putRange(ranges, "mileage", minMileage, maxMileage);
+        return ranges;
+    }
+    
+    private static void putRange(Map<String, long[]> ranges, String field, Integer min, Integer max) {
+        if (min != null || max != null) {
+            ranges.put(field, new long[] {
+                min != null ? min : Long.MIN_VALUE,
+                max != null ? max : Long.MAX_VALUE
+            });
+        }
+    }
+    
+    /**
+     * Erfüllt das Auto Preis-, Baujahr- und Kilometerbereich?
+     */
+    public boolean matchesRanges(Car car) {
+        if (minPrice != null && (car.getPrice() == null || car.getPrice().compareTo(minPrice) < 0)) {
+            return false;
+        }
+        if (maxPrice != null && (car.getPrice() == null || car.getPrice().compareTo(maxPrice) > 0)) {
+            return false;
+        }
+        if (minYear != null && (car.getYear() == null || car.getYear() < minYear)) {
+            return false;
+        }
+        if (maxYear != null && (car.getYear() == null || car.getYear() > maxYear)) {
+            return false;
+        }
+        if (minMileage != null && (car.getMileage() == null || car.getMileage() < minMileage)) {
+            return false;
+        }
+        if (maxMileage != null && (car.getMileage() == null || car.getMileage() > maxMileage)) {
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Erfüllt das Auto alle Kriterien?
+     */
+    public boolean matches(Car car) {
+        return toPredicate().test(car);
+    }
+    
+    /**
+     * Als Prädikat, mit einmal aufgebauten Textfiltern
+     */
+    public Predicate<Car> toPredicate() {
+        Map<String, Predicate<String>> filters = valueFilters();
+        return car -> {
+            for (Map.Entry<String, Predicate<String>> filter : filters.entrySet()) {
+                String value = TEXT_FIELDS.get(filter.getKey()).apply(car);
+                if (value == null || !filter.getValue().test(value)) {
+                    return false;
+                }
+            }
+            return matchesRanges(car);
+        };
+    }
+    
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
+    
+    // Getter und Setter
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+    
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+    
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+    
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+    
+    public Integer getMinYear() { return minYear; }
+    public void setMinYear(Integer minYear) { this.minYear = minYear; }
+    
+    public Integer getMaxYear() { return maxYear; }
+    public void setMaxYear(Integer maxYear) { this.maxYear = maxYear; }
+    
+    public Integer getMinMileage() { return minMileage; }
+    public void setMinMileage(Integer minMileage) { this.minMileage = minMileage; }
+    
+    public Integer getMaxMileage() { return maxMileage; }
+    public void setMaxMileage(Integer maxMileage) { this.maxMileage = maxMileage; }
+    
+    public String getFuelType() { return fuelType; }
+    public void setFuelType(String fuelType) { this.fuelType = fuelType; }
+    
+    public String getTransmission() { return transmission; }
+    public void setTransmission(String transmission) { this.transmission = transmission; }
+    
+    public String getBodyType() { return bodyType; }
+    public void setBodyType(String bodyType) { this.bodyType = bodyType; }
+    
+    public String getDrivetrain() { return drivetrain; }
+    public void setDrivetrain(String drivetrain) { this.drivetrain = drivetrain; }
+    
+    public String getCondition() { return condition; }
+    public void setCondition(String condition) { this.condition = condition; }
+}
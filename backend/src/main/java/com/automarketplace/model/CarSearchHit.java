@@ -0,0 +1,43 @@
+package com.automarketplace.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Treffer der Volltextsuche (GET /cars/search?q=...)
+ *
+ * Wird flach serialisiert: alle Felder des Autos plus "score" (BM25) und
+ * "highlights" (Feld -> Textstelle mit <b>...</b> um die Treffer).
+ */
+public class CarSearchHit {
+    
+    /**
+     * Zusätzliche Felder gegenüber einem Auto; bleiben bei Projektionen erhalten
+     */
+    public static final Set<String> EXTRA_FIELDS = Set.of("score", "highlights");
+    
+    private final Car car;
+    private final float score;
+    private final Map<String, String> highlights;
+    
+    public CarSearchHit(Car car, float score, Map<String, String> highlights) {
+        this.car = car;
+        this.score = score;
+        this.highlights = highlights;
+    }
+    
+    @JsonUnwrapped
+    public Car getCar() {
+        return car;
+    }
+    
+    public float getScore() {
+        return score;
+    }
+    
+    public Map<String, String> getHighlights() {
+        return highlights;
+    }
+}
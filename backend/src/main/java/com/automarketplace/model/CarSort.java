@@ -0,0 +1,113 @@
+package com.automarketplace.model;
+
+import java.text.Collator;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sortierung der Suchergebnisse (GET /cars/search?sort=price,desc)
+ *
+ * Zahlenfelder (price, year, mileage, horsepower, createdAt) werden als long
+ * verglichen, Preis in Cent und Erstellzeit in Millisekunden. "brand" sortiert
+ * nach Marke und Modell mit einem deutschen Collator (ohne Groß-/Kleinschreibung).
+ * Autos ohne Wert stehen in beiden Richtungen am Ende; bei Gleichstand
+ * entscheidet die Document ID.
+ */
+public class CarSort {
+    
+    public static final String TEXT_FIELD = "brand";
+    
+    private static final Map<String, Function<Car, Long>> NUMERIC_FIELDS = Map.of(
+        "price", Car::getPriceCents,
+        "year", car -> toLong(car.getYear()),
+        "mileage", car -> toLong(car.getMileage()),
+        "horsepower", car -> toLong(car.getHorsepower()),
+        "createdAt", car -> car.getCreatedAt() != null
+            ? car.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli()
+            : null);
+    
+    private final String field;
+    private final boolean descending;
+    private final Function<Car, Long> getter;
+    
+    private CarSort(String field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+        this.getter = NUMERIC_FIELDS.get(field);
+    }
+    
+    /**
+     * Sortierung aus dem Query-Parameter lesen: "feld" oder "feld,asc|desc"
+     *
+     * @throws IllegalArgumentException bei unbekanntem Feld oder ungültiger Richtung
+     */
+    public static CarSort parse(String value) {
+        String[] parts = value.split(",", 2);
+        String field = parts[0].trim();
+        String direction = parts.length > 1 ? parts[1].trim().toLowerCase(Locale.ROOT) : "asc";
+        
+        if (!NUMERIC_FIELDS.containsKey(field) && !TEXT_FIELD.equals(field)) {
+            throw new IllegalArgumentException("Unbekanntes Sortierfeld: " + field);
+        }
+        if (!direction.equals("asc") && !direction.equals("desc")) {
+            throw new IllegalArgumentException("Ungültige Sortierrichtung: " + direction);
+        }
+        return new CarSort(field, direction.equals("desc"));
+    }
+    
+    /**
+     * Collator für die Sortierung nach Marke und Modell (nicht threadsicher, pro Verwendung neu holen)
+     */
+    public static Collator collator() {
+        Collator collator = Collator.getInstance(Locale.GERMAN);
+        collator.setStrength(Collator.SECONDARY);
+        return collator;
+    }
+    
+    /**
+     * Name für Cursor, z.B. "price" oder "price,desc"
+     */
+    public String getName() {
+        return descending ? field + ",desc" : field;
+    }
+    
+    public String getField() {
+        return field;
+    }
+    
+    public boolean isDescending() {
+        return descending;
+    }
+    
+    public boolean isText() {
+        return getter == null;
+    }
+    
+    /**
+     * Sortierschlüssel eines Zahlenfelds, aufsteigend zu vergleichen
+     * (absteigende Sortierung negiert; ohne Wert Long.MAX_VALUE)
+     */
+    public long key(Car car) {
+        Long value = getter.apply(car);
+        if (value == null) {
+            return Long.MAX_VALUE;
+        }
+        return descending ? -value : value;
+    }
+    
+    /**
+     * Text für die Sortierung nach Marke und Modell (null ohne Marke)
+     */
+    public static String text(Car car) {
+        if (car.getBrand() == null) {
+            return null;
+        }
+        return car.getModel() != null ? car.getBrand() + " " + car.getModel() : car.getBrand();
+    }
+    
+    private static Long toLong(Integer value) {
+        return value != null ? value.longValue() : null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.automarketplace.model;
+
+/**
+ * Vorschlag der Autovervollständigung (GET /cars/suggest)
+ *
+ * Marke, Modell oder "Marke Modell" mit der Anzahl verfügbarer Inserate.
+ */
+public class CarSuggestion {
+    
+    public static final String BRAND = "brand";
+    public static final String MODEL = "model";
+    public static final String BRAND_MODEL = "brandModel";
+    
+    private final String text;
+    private final String type;
+    private final String brand;
+    private final String model;
+    private final int count;
+    
+    public CarSuggestion(String text, String type, String brand, String model, int count) {
+        this.text = text;
+        this.type = type;
+        this.brand = brand;
+        this.model = model;
+        this.count = count;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * brand, model oder brandModel
+     */
+    public String getType() {
+        return type;
+    }
+    
+    public String getBrand() {
+        return brand;
+    }
+    
+    /**
+     * null bei Markenvorschlägen
+     */
+    public String getModel() {
+        return model;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.service.DocumentCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.automarketplace.service.DocumentValues.*;
+
+/**
+ * Abbildung von Car auf Firestore-Felder ohne Reflection
+ * 
+ * Liest die Felder mit einem switch über die Feldnamen statt über den
+ * CustomClassMapper des SDK. Geschrieben werden dieselben Felder wie bisher,
+ * einschließlich der abgeleiteten Felder fullName, available und sold.
+ * Neue Felder in Car müssen hier ergänzt werden.
+ */
+@Component
+public class CarCodec implements DocumentCodec<Car> {
+    
+    @Override
+    public Class<Car> getType() {
+        return Car.class;
+    }
+    
+    @Override
+    public Car decode(String documentId, Map<String, Object> data) {
+        Car car = new Car();
+        car.setId(documentId);
+        
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            Object value = field.getValue();
+            switch (field.getKey()) {
+                case "sellerId": car.setSellerId(asString(value)); break;
+                case "brand": car.setBrand(asString(value)); break;
+                case "model": car.setModel(asString(value)); break;
+                case "year": car.setYear(asInteger(value)); break;
+                case "price": car.setPrice(asBigDecimal(value)); break;
+                case "mileage": car.setMileage(asInteger(value)); break;
+                case "fuelType": car.setFuelType(asString(value)); break;
+                case "transmission": car.setTransmission(asString(value)); break;
+                case "color": car.setColor(asString(value)); break;
+                case "doors": car.setDoors(asInteger(value)); break;
+                case "seats": car.setSeats(asInteger(value)); break;
+                case "bodyType": car.setBodyType(asString(value)); break;
+                case "engineSize": car.setEngineSize(asString(value)); break;
+                case "horsepower": car.setHorsepower(asInteger(value)); break;
+                case "drivetrain": car.setDrivetrain(asString(value)); break;
+                case "condition": car.setCondition(asString(value)); break;
+                case "previousOwners": car.setPreviousOwners(asInteger(value)); break;
+                case "accidentFree":
+                    if (value != null) {
+                        car.setAccidentFree(asBoolean(value));
+                    }
+                    break;
+                case "serviceHistory": car.setServiceHistory(asString(value)); break;
+                case "features": car.setFeatures(asStringList(value)); break;
+                case "imageUrls": car.setImageUrls(asStringList(value)); break;
+                case "mainImageUrl": car.setMainImageUrl(asString(value)); break;
+                case "description": car.setDescription(asString(value)); break;
+                case "location": car.setLocation(asString(value)); break;
+                case "zipCode": car.setZipCode(asString(value)); break;
+                case "status": car.setStatus(asEnum(value, CarStatus.class)); break;
+                case "createdAt": car.setCreatedAt(asLocalDateTime(value)); break;
+                case "updatedAt": car.setUpdatedAt(asLocalDateTime(value)); break;
+                case "soldAt": car.setSoldAt(asLocalDateTime(value)); break;
+                default: break; // priceCents (folgt aus price) und abgeleitete Felder
+            }
+        }
+        
+        // Nur priceCents gelesen (Projektion) -> trotzdem übernehmen
+        if (!data.containsKey("price") && data.containsKey("priceCents")) {
+            car.setPriceCents(asLong(data.get("priceCents")));
+        }
+        return car;
+    }
+    
+    @Override
+    public Map<String, Object> encode(Car car) {
+        Map<String, Object> data = new HashMap<>(64);
+        data.put("sellerId", car.getSellerId());
+        data.put("brand", car.getBrand());
+        data.put("model", car.getModel());
+        data.put("year", car.getYear());
+        data.put("price", fromBigDecimal(car.getPrice()));
+        data.put("priceCents", car.getPriceCents());
+        data.put("mileage", car.getMileage());
+        data.put("fuelType", car.getFuelType());
+        data.put("transmission", car.getTransmission());
+        data.put("color", car.getColor());
+        data.put("doors", car.getDoors());
+        data.put("seats", car.getSeats());
+        data.put("bodyType", car.getBodyType());
+        data.put("engineSize", car.getEngineSize());
+        data.put("horsepower", car.getHorsepower());
+        data.put("drivetrain", car.getDrivetrain());
+        data.put("condition", car.getCondition());
+        data.put("previousOwners", car.getPreviousOwners());
+        data.put("accidentFree", car.isAccidentFree());
+        data.put("serviceHistory", car.getServiceHistory());
+        data.put("features", car.getFeatures());
+        data.put("imageUrls", car.getImageUrls());
+        data.put("mainImageUrl", car.getMainImageUrl());
+        data.put("description", car.getDescription());
+        data.put("location", car.getLocation());
+        data.put("zipCode", car.getZipCode());
+        data.put("status", fromEnum(car.getStatus()));
+        data.put("createdAt", fromLocalDateTime(car.getCreatedAt()));
+        data.put("updatedAt", fromLocalDateTime(car.getUpdatedAt()));
+        data.put("soldAt", fromLocalDateTime(car.getSoldAt()));
+        data.put("fullName", car.getFullName());
+        data.put("available", car.isAvailable());
+        data.put("sold", car.isSold());
+        return data;
+    }
+}
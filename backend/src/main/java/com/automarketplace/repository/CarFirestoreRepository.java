@@ -1,150 +1,799 @@
 package com.automarketplace.repository;
 
 import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSort;
 import com.automarketplace.model.CarStatus;
-import com.automarketplace.service.FirestoreService;
+import com.automarketplace.model.CarSuggestion;
+import com.automarketplace.service.BulkWriteResult;
+import com.automarketplace.service.DocumentQuery;
+import com.automarketplace.service.DocumentStore;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageRequest;
+import com.automarketplace.service.VersionedDocument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Repository für Car-Operationen mit Firestore
+ *
+ * Zu den meisten Methoden gibt es eine nicht-blockierende Variante mit dem Suffix "Async".
+ * Ist CarReplica aktiv und aktuell, kommen Listen-, Such- und Zählabfragen aus dem Speicher;
+ * Abfragen nach ID und alle Schreibvorgänge gehen immer an Firestore.
  */
 @Repository
 public class CarFirestoreRepository {
     
     private static final String COLLECTION_NAME = "cars";
     
+    /**
+     * Status verfügbarer Autos, wie in Firestore gespeichert (Enum-Name)
+     */
+    static final String AVAILABLE = CarStatus.ACTIVE.name();
+    
+    /**
+     * Verfügbare Autos: gemeinsames Statusprädikat für Suche, Listen und Vorschläge,
+     * dieselbe Regel wie das abgeleitete Feld "available" (Car.isAvailable)
+     */
+    static final Predicate<Car> IS_AVAILABLE = Car::isAvailable;
+    
     @Autowired
-    private FirestoreService firestoreService;
+    private DocumentStore documentStore;
+    
+    /**
+     * Optionales In-Memory-Replikat; wenn nutzbar, beantwortet es Listen-,
+     * Such- und Zählabfragen ohne Firestore-Zugriff
+     */
+    @Autowired(required = false)
+    private CarReplica carReplica;
+    
+    // Vorschlagsindex ohne nutzbares Replikat, höchstens SUGGEST_FALLBACK_TTL alt
+    private static final Duration SUGGEST_FALLBACK_TTL = Duration.ofSeconds(60);
+    private volatile CompletableFuture<CarSuggestIndex> fallbackSuggestions;
+    private volatile Instant fallbackSuggestionsAt = Instant.MIN;
     
     /**
      * Auto speichern
      */
     public Car save(Car car) {
-        String documentId = firestoreService.saveDocument(COLLECTION_NAME, car.getId(), car);
+        String documentId = documentStore.saveDocument(COLLECTION_NAME, car.getId(), car);
         car.setId(documentId);
         return car;
     }
     
+    /**
+     * Auto speichern (nicht-blockierend)
+     */
+    public CompletableFuture<Car> saveAsync(Car car) {
+        return documentStore.saveDocumentAsync(COLLECTION_NAME, car.getId(), car)
+            .thenApply(documentId -> {
+                car.setId(documentId);
+                return car;
+            });
+    }
+    
+    /**
+     * Autos gesammelt speichern
+     *
+     * Nutzt den BulkWriter von Firestore statt eines Round-Trips pro Auto.
+     * Neue Autos (ohne ID) erhalten dabei ihre Document ID.
+     *
+     * @return Ergebnis pro Dokument in der Reihenfolge der Eingabe
+     */
+    public BulkWriteResult saveAll(Collection<Car> cars) {
+        List<Car> list = new ArrayList<>(cars);
+        return assignIds(list, documentStore.saveDocuments(COLLECTION_NAME, list, Car::getId));
+    }
+    
+    /**
+     * Autos gesammelt speichern (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> saveAllAsync(Collection<Car> cars) {
+        List<Car> list = new ArrayList<>(cars);
+        return documentStore.saveDocumentsAsync(COLLECTION_NAME, list, Car::getId)
+            .thenApply(result -> assignIds(list, result));
+    }
+    
+    /**
+     * Neu angelegte Autos erhalten die von Firestore erzeugte ID
+     */
+    private static BulkWriteResult assignIds(List<Car> cars, BulkWriteResult result) {
+        for (int i = 0; i < cars.size(); i++) {
+            cars.get(i).setId(result.getEntries().get(i).getDocumentId());
+        }
+        return result;
+    }
+    
+    /**
+     * Einzelne Felder eines Autos aktualisieren (nur diese Felder werden geschrieben)
+     *
+     * @param fields Feldname -> neuer Wert
+     */
+    public void update(String id, Map<String, Object> fields) {
+        documentStore.updateDocument(COLLECTION_NAME, id, fields);
+    }
+    
+    /**
+     * Einzelne Felder eines Autos aktualisieren (nicht-blockierend)
+     */
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields) {
+        return documentStore.updateDocumentAsync(COLLECTION_NAME, id, fields);
+    }
+    
+    /**
+     * Felder eines Autos nur aktualisieren, wenn es seit dem Lesen unverändert ist
+     *
+     * @param expectedUpdateTime Änderungszeitpunkt aus findVersionedById
+     * @throws com.automarketplace.service.DocumentConflictException bei zwischenzeitlicher Änderung
+     */
+    public Instant updateIfUnchanged(String id, Map<String, Object> fields, Instant expectedUpdateTime) {
+        return documentStore.updateDocumentIfUnchanged(COLLECTION_NAME, id, fields, expectedUpdateTime);
+    }
+    
+    /**
+     * Felder eines Autos nur aktualisieren, wenn es seit dem Lesen unverändert ist (nicht-blockierend)
+     */
+    public CompletableFuture<Instant> updateIfUnchangedAsync(String id, Map<String, Object> fields, Instant expectedUpdateTime) {
+        return documentStore.updateDocumentIfUnchangedAsync(COLLECTION_NAME, id, fields, expectedUpdateTime);
+    }
+    
+    /**
+     * Geändertes Auto bedingt schreiben und den neuen Stand sofort ins Replikat übernehmen
+     *
+     * Eine direkt folgende Änderung findet so über findKnownVersion schon die neue
+     * Version, ohne auf den Snapshot zu warten.
+     *
+     * @param car vollständiger Stand nach der Änderung
+     * @param fields die geänderten Felder
+     * @throws com.automarketplace.service.DocumentConflictException bei zwischenzeitlicher Änderung
+     */
+    public Instant updateIfUnchanged(Car car, Map<String, Object> fields, Instant expectedUpdateTime) {
+        Instant updateTime = updateIfUnchanged(car.getId(), fields, expectedUpdateTime);
+        applyToReplica(car, updateTime);
+        return updateTime;
+    }
+    
+    /**
+     * Geändertes Auto bedingt schreiben und ins Replikat übernehmen (nicht-blockierend)
+     */
+    public CompletableFuture<Instant> updateIfUnchangedAsync(Car car, Map<String, Object> fields,
+                                                             Instant expectedUpdateTime) {
+        return updateIfUnchangedAsync(car.getId(), fields, expectedUpdateTime)
+            .thenApply(updateTime -> {
+                applyToReplica(car, updateTime);
+                return updateTime;
+            });
+    }
+    
+    private void applyToReplica(Car car, Instant updateTime) {
+        if (carReplica != null) {
+            carReplica.applyWrite(car, updateTime);
+        }
+    }
+    
+    /**
+     * Autos gesammelt teilweise aktualisieren
+     *
+     * @param updates Document ID -> zu ändernde Felder
+     */
+    public BulkWriteResult updateAll(Map<String, Map<String, Object>> updates) {
+        return documentStore.updateDocuments(COLLECTION_NAME, updates);
+    }
+    
+    /**
+     * Autos gesammelt teilweise aktualisieren (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> updateAllAsync(Map<String, Map<String, Object>> updates) {
+        return documentStore.updateDocumentsAsync(COLLECTION_NAME, updates);
+    }
+    
+    /**
+     * Autos gesammelt löschen
+     */
+    public BulkWriteResult deleteAll(Collection<String> ids) {
+        return documentStore.deleteDocuments(COLLECTION_NAME, ids);
+    }
+    
+    /**
+     * Autos gesammelt löschen (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> deleteAllAsync(Collection<String> ids) {
+        return documentStore.deleteDocumentsAsync(COLLECTION_NAME, ids);
+    }
+    
     /**
      * Auto nach ID finden
      */
     public Optional<Car> findById(String id) {
-        Car car = firestoreService.getDocument(COLLECTION_NAME, id, Car.class);
+        Car car = documentStore.getDocument(COLLECTION_NAME, id, Car.class);
         return Optional.ofNullable(car);
     }
     
+    /**
+     * Auto nach ID finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<Car>> findByIdAsync(String id) {
+        return documentStore.getDocumentAsync(COLLECTION_NAME, id, Car.class)
+            .thenApply(Optional::ofNullable);
+    }
+    
+    /**
+     * Zuletzt bekannte Version eines Autos für bedingte Änderungen
+     *
+     * Kommt aus dem Replikat, solange es nutzbar ist und das Auto kennt (ohne
+     * Firestore-Aufruf), sonst wie findVersionedById. Ein veralteter Stand fällt
+     * beim bedingten Schreiben als DocumentConflictException auf; für den zweiten
+     * Versuch liest findVersionedById direkt.
+     */
+    public Optional<VersionedDocument<Car>> findKnownVersion(String id) {
+        Optional<VersionedDocument<Car>> known = replicaUsable() ? carReplica.findVersioned(id) : Optional.empty();
+        return known.isPresent() ? known : findVersionedById(id);
+    }
+    
+    /**
+     * Zuletzt bekannte Version eines Autos (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<VersionedDocument<Car>>> findKnownVersionAsync(String id) {
+        Optional<VersionedDocument<Car>> known = replicaUsable() ? carReplica.findVersioned(id) : Optional.empty();
+        return known.isPresent() ? CompletableFuture.completedFuture(known) : findVersionedByIdAsync(id);
+    }
+    
+    /**
+     * Auto mit Änderungszeitpunkt finden (für bedingte Änderungen)
+     */
+    public Optional<VersionedDocument<Car>> findVersionedById(String id) {
+        return Optional.ofNullable(documentStore.getVersionedDocument(COLLECTION_NAME, id, Car.class));
+    }
+    
+    /**
+     * Auto mit Änderungszeitpunkt finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<VersionedDocument<Car>>> findVersionedByIdAsync(String id) {
+        return documentStore.getVersionedDocumentAsync(COLLECTION_NAME, id, Car.class)
+            .thenApply(Optional::ofNullable);
+    }
+    
+    /**
+     * Mehrere Autos nach ID in einem Round-Trip finden
+     *
+     * @return Map ID -> Auto in der Reihenfolge der IDs; unbekannte IDs fehlen
+     */
+    public Map<String, Car> findAllById(Collection<String> ids) {
+        return documentStore.getDocuments(COLLECTION_NAME, ids, Car.class);
+    }
+    
+    /**
+     * Mehrere Autos nach ID in einem Round-Trip finden (nicht-blockierend)
+     */
+    public CompletableFuture<Map<String, Car>> findAllByIdAsync(Collection<String> ids) {
+        return documentStore.getDocumentsAsync(COLLECTION_NAME, ids, Car.class);
+    }
+    
+    /**
+     * Verfügbare Autos zu den IDs abrufen (fehlende und nicht verfügbare fehlen in der Map)
+     */
+    public CompletableFuture<Map<String, Car>> findAvailableByIdAsync(Collection<String> ids) {
+        return findAllByIdAsync(ids).thenApply(found -> found.entrySet().stream()
+            .filter(entry -> IS_AVAILABLE.test(entry.getValue()))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+    
     /**
      * Alle Autos abrufen
      */
     public List<Car> findAll() {
-        return firestoreService.getAllDocuments(COLLECTION_NAME, Car.class);
+        if (replicaUsable()) {
+            return carReplica.find(car -> true);
+        }
+        return documentStore.getAllDocuments(COLLECTION_NAME, Car.class);
+    }
+    
+    /**
+     * Alle Autos abrufen (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findAllAsync() {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(car -> true));
+        }
+        return documentStore.getAllDocumentsAsync(COLLECTION_NAME, Car.class);
+    }
+    
+    /**
+     * Eine Seite aller Autos nur mit dem gespeicherten Feld priceCents (nicht-blockierend)
+     *
+     * Liest immer aus dem Dokumentenspeicher: Autos, deren Dokument noch kein
+     * priceCents enthält, haben hier getPriceCents() == null.
+     */
+    public CompletableFuture<Page<Car>> findStoredPriceCentsAsync(PageRequest pageRequest) {
+        return documentStore.queryPageAsync(COLLECTION_NAME, null, null, null, pageRequest,
+                                            List.of("priceCents"), Car.class);
+    }
+    
+    /**
+     * Eine Seite aller Autos abrufen (sortiert nach ID)
+     */
+    public Page<Car> findAll(PageRequest pageRequest) {
+        if (replicaUsable()) {
+            return carReplica.findPage(car -> true, pageRequest);
+        }
+        return documentStore.queryPage(COLLECTION_NAME, null, null, null, pageRequest, Car.class);
+    }
+    
+    /**
+     * Eine Seite aller Autos abrufen (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findAllAsync(PageRequest pageRequest) {
+        if (replicaUsable()) {
+            return pageFromReplica(car -> true, pageRequest);
+        }
+        return documentStore.queryPageAsync(COLLECTION_NAME, null, null, null, pageRequest, Car.class);
     }
     
     /**
      * Autos nach Verkäufer-ID finden
      */
     public List<Car> findBySellerId(String sellerId) {
-        return firestoreService.queryDocuments(COLLECTION_NAME, "sellerId", sellerId, Car.class);
+        if (replicaUsable()) {
+            return carReplica.find(hasSeller(sellerId));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, "sellerId", sellerId, Car.class);
+    }
+    
+    /**
+     * Autos nach Verkäufer-ID finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findBySellerIdAsync(String sellerId) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(hasSeller(sellerId)));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "sellerId", sellerId, Car.class);
+    }
+    
+    /**
+     * Eine Seite der Autos eines Verkäufers finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findBySellerIdAsync(String sellerId, PageRequest pageRequest) {
+        if (replicaUsable()) {
+            return pageFromReplica(hasSeller(sellerId), pageRequest);
+        }
+        return documentStore.queryPageAsync(COLLECTION_NAME, "sellerId", sellerId, null, pageRequest, Car.class);
     }
     
     /**
      * Autos nach Status finden
      */
     public List<Car> findByStatus(CarStatus status) {
-        return firestoreService.queryDocuments(COLLECTION_NAME, "status", status.toString(), Car.class);
+        if (replicaUsable()) {
+            return carReplica.find(hasStatus(status.name()));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, "status", status.name(), Car.class);
+    }
+    
+    /**
+     * Autos nach Status finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByStatusAsync(CarStatus status) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(hasStatus(status.name())));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "status", status.name(), Car.class);
     }
     
     /**
-     * Verfügbare Autos finden (Status = AVAILABLE)
+     * Verfügbare Autos finden (Status ACTIVE)
      */
     public List<Car> findAvailableCars() {
-        return firestoreService.queryDocuments(COLLECTION_NAME, "status", "AVAILABLE", Car.class);
+        if (replicaUsable()) {
+            return carReplica.find(IS_AVAILABLE);
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, "status", AVAILABLE, Car.class);
+    }
+    
+    /**
+     * Verfügbare Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findAvailableCarsAsync() {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(IS_AVAILABLE));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "status", AVAILABLE, Car.class);
+    }
+    
+    /**
+     * Verfügbare Autos finden, die einen Filter erfüllen
+     *
+     * Die Autos werden gestreamt, nur die Treffer bleiben im Speicher.
+     */
+    public List<Car> findAvailableCars(Predicate<Car> filter) {
+        if (replicaUsable()) {
+            return carReplica.find(IS_AVAILABLE.and(filter));
+        }
+        return documentStore.filterDocuments(COLLECTION_NAME, "status", AVAILABLE, Car.class, filter);
+    }
+    
+    /**
+     * Verfügbare Autos finden, die einen Filter erfüllen (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findAvailableCarsAsync(Predicate<Car> filter) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(IS_AVAILABLE.and(filter)));
+        }
+        return documentStore.filterDocumentsAsync(COLLECTION_NAME, "status", AVAILABLE, Car.class, filter);
+    }
+    
+    /**
+     * Eine Seite verfügbarer Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findAvailableCarsAsync(PageRequest pageRequest) {
+        return findAvailableCarsAsync(pageRequest, null);
+    }
+    
+    /**
+     * Eine Seite verfügbarer Autos mit ausgewählten Feldern finden (nicht-blockierend)
+     *
+     * @param fields zu lesende Felder oder null für alle
+     */
+    public CompletableFuture<Page<Car>> findAvailableCarsAsync(PageRequest pageRequest, Collection<String> fields) {
+        if (replicaUsable()) {
+            return pageFromReplica(IS_AVAILABLE, pageRequest);
+        }
+        return documentStore.queryPageAsync(COLLECTION_NAME, "status", AVAILABLE, null, pageRequest, fields, Car.class);
     }
     
     /**
      * Autos nach Marke finden
      */
     public List<Car> findByBrand(String brand) {
-        return firestoreService.queryDocuments(COLLECTION_NAME, "brand", brand, Car.class);
+        if (replicaUsable()) {
+            return carReplica.find(hasBrand(brand));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, "brand", brand, Car.class);
+    }
+    
+    /**
+     * Autos nach Marke finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByBrandAsync(String brand) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(hasBrand(brand)));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "brand", brand, Car.class);
+    }
+    
+    /**
+     * Eine Seite der Autos einer Marke finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findByBrandAsync(String brand, PageRequest pageRequest) {
+        return findByBrandAsync(brand, pageRequest, null);
+    }
+    
+    /**
+     * Eine Seite der Autos einer Marke mit ausgewählten Feldern finden (nicht-blockierend)
+     *
+     * @param fields zu lesende Felder oder null für alle
+     */
+    public CompletableFuture<Page<Car>> findByBrandAsync(String brand, PageRequest pageRequest, Collection<String> fields) {
+        if (replicaUsable()) {
+            return pageFromReplica(hasBrand(brand), pageRequest);
+        }
+        return documentStore.queryPageAsync(COLLECTION_NAME, "brand", brand, null, pageRequest, fields, Car.class);
     }
     
     /**
      * Autos nach Marke und Modell finden
+     *
+     * Marke und Modell müssen exakt übereinstimmen (Groß-/Kleinschreibung),
+     * da der Vergleich in Firestore läuft.
      */
     public List<Car> findByBrandAndModel(String brand, String model) {
-        // Für komplexere Queries müssen wir alle Autos laden und filtern
-        // In einer produktiven Anwendung würde man Composite Indexes verwenden
-        return findAll().stream()
-            .filter(car -> brand.equalsIgnoreCase(car.getBrand()) && 
-                          model.equalsIgnoreCase(car.getModel()))
-            .collect(Collectors.toList());
+        if (replicaUsable()) {
+            return carReplica.find(hasBrand(brand).and(car -> model.equals(car.getModel())));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, brandAndModel(brand, model), Car.class);
+    }
+    
+    /**
+     * Autos nach Marke und Modell finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByBrandAndModelAsync(String brand, String model) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(hasBrand(brand).and(car -> model.equals(car.getModel()))));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, brandAndModel(brand, model), Car.class);
+    }
+    
+    /**
+     * Gibt es einen Suchindex für searchAvailable? (nur mit aktuellem Replikat)
+     */
+    public boolean hasSearchIndex() {
+        return replicaUsable();
+    }
+    
+    /**
+     * Verfügbare Autos nach Suchkriterien finden
+     *
+     * Mit Replikat über dessen Suchindex, sonst per Abfrage nach Status und
+     * Filter in der Anwendung.
+     */
+    public List<Car> searchAvailable(CarSearchCriteria criteria) {
+        if (replicaUsable()) {
+            return carReplica.search(AVAILABLE, criteria);
+        }
+        return findAvailableCars(criteria.toPredicate());
+    }
+    
+    /**
+     * Verfügbare Autos nach Suchkriterien finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> searchAvailableAsync(CarSearchCriteria criteria) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.search(AVAILABLE, criteria));
+        }
+        return findAvailableCarsAsync(criteria.toPredicate());
+    }
+    
+    /**
+     * Facetten der verfügbaren Autos nach Suchkriterien (nicht-blockierend)
+     *
+     * Mit Replikat über dessen Suchindex, sonst aus allen Treffern der Suche.
+     */
+    public CompletableFuture<CarFacets> facetsAvailableAsync(CarSearchCriteria criteria) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.facets(AVAILABLE, criteria));
+        }
+        return findAvailableCarsAsync(criteria.toPredicate()).thenApply(CarFacets::of);
+    }
+    
+    /**
+     * Seite verfügbarer Autos nach Suchkriterien in einer Sortierung (nicht-blockierend)
+     *
+     * Mit Replikat über dessen Suchindex, sonst über die gestreamten Autos; in
+     * beiden Fällen wählt ein beschränkter Heap nur die Autos der Seite aus
+     * (siehe TopKSelection), sortiert werden also nie alle Treffer.
+     */
+    public CompletableFuture<Page<Car>> searchAvailableAsync(CarSearchCriteria criteria, CarSort sort,
+                                                             PageRequest pageRequest) {
+        if (replicaUsable()) {
+            try {
+                return CompletableFuture.completedFuture(carReplica.searchPage(AVAILABLE, criteria, sort, pageRequest));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        
+        TopKSelection selection;
+        try {
+            selection = new TopKSelection(sort, pageRequest.getCursor(), pageRequest.getLimit(), Long.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // Treffer direkt in den Heap streamen; der Consumer läuft in beiden
+        // Speichern nacheinander, die Treffer werden nie als Liste gesammelt
+        Predicate<Car> filter = criteria.toPredicate();
+        return documentStore.streamDocumentsAsync(COLLECTION_NAME, "status", AVAILABLE, Car.class, car -> {
+            if (filter.test(car)) {
+                selection.offer(car);
+            }
+        }).thenApply(done -> {
+            List<Car> items = selection.result();
+            String nextCursor = items.size() == pageRequest.getLimit()
+                ? TopKSelection.cursorAfter(sort, items.get(items.size() - 1)).encode()
+                : null;
+            return new Page<>(items, nextCursor);
+        });
+    }
+    
+    /**
+     * Vorschläge für Marke und Modell zum Präfix, absteigend nach Anzahl verfügbarer Inserate (nicht-blockierend)
+     *
+     * Mit Replikat aus dessen laufend aktualisiertem Präfix-Index, sonst aus einem
+     * Index über alle verfügbaren Autos, der höchstens eine Minute alt ist.
+     */
+    public CompletableFuture<List<CarSuggestion>> suggestAsync(String prefix, int limit) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.suggest(prefix, limit));
+        }
+        return fallbackSuggestions().thenApply(index -> index.suggest(prefix, limit));
+    }
+    
+    private CompletableFuture<CarSuggestIndex> fallbackSuggestions() {
+        CompletableFuture<CarSuggestIndex> current = fallbackSuggestions;
+        if (current == null || current.isCompletedExceptionally()
+                || fallbackSuggestionsAt.isBefore(Instant.now().minus(SUGGEST_FALLBACK_TTL))) {
+            synchronized (this) {
+                if (current == fallbackSuggestions) {
+                    current = findAvailableCarsAsync()
+                        .thenApply(cars -> CarSuggestIndex.of(cars, IS_AVAILABLE));
+                    fallbackSuggestions = current;
+                    fallbackSuggestionsAt = Instant.now();
+                } else {
+                    current = fallbackSuggestions;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Seite verfügbarer Autos nach Suchkriterien über den Suchindex (sortiert nach ID)
+     *
+     * Nur aufrufen, wenn hasSearchIndex() zutrifft.
+     */
+    public CompletableFuture<Page<Car>> searchAvailableAsync(CarSearchCriteria criteria, PageRequest pageRequest) {
+        if (!replicaUsable()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Suchindex nicht verfügbar"));
+        }
+        try {
+            return CompletableFuture.completedFuture(carReplica.searchPage(AVAILABLE, criteria, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
     
     /**
      * Autos in Preisbereich finden
      */
     public List<Car> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
-        return findAll().stream()
-            .filter(car -> car.getPrice().compareTo(minPrice) >= 0 && 
-                          car.getPrice().compareTo(maxPrice) <= 0)
-            .collect(Collectors.toList());
+        if (replicaUsable()) {
+            return carReplica.findInRange("priceCents", minPriceCents(minPrice), maxPriceCents(maxPrice));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, priceBetween(minPrice, maxPrice), Car.class);
+    }
+    
+    /**
+     * Autos in Preisbereich finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByPriceBetweenAsync(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.findInRange("priceCents", minPriceCents(minPrice), maxPriceCents(maxPrice)));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, priceBetween(minPrice, maxPrice), Car.class);
     }
     
     /**
      * Autos nach Jahr finden
      */
     public List<Car> findByYear(Integer year) {
-        return firestoreService.queryDocuments(COLLECTION_NAME, "year", year, Car.class);
+        return documentStore.queryDocuments(COLLECTION_NAME, "year", year, Car.class);
+    }
+    
+    /**
+     * Autos nach Jahr finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByYearAsync(Integer year) {
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "year", year, Car.class);
     }
     
     /**
      * Autos in Jahresbereich finden
      */
     public List<Car> findByYearBetween(Integer startYear, Integer endYear) {
-        return findAll().stream()
-            .filter(car -> car.getYear() >= startYear && car.getYear() <= endYear)
-            .collect(Collectors.toList());
+        if (replicaUsable()) {
+            return carReplica.findInRange("year", startYear, endYear);
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, yearBetween(startYear, endYear), Car.class);
+    }
+    
+    /**
+     * Autos in Jahresbereich finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByYearBetweenAsync(Integer startYear, Integer endYear) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.findInRange("year", startYear, endYear));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, yearBetween(startYear, endYear), Car.class);
     }
     
     /**
      * Auto löschen
      */
     public void delete(Car car) {
-        firestoreService.deleteDocument(COLLECTION_NAME, car.getId());
+        documentStore.deleteDocument(COLLECTION_NAME, car.getId());
+    }
+    
+    /**
+     * Auto löschen (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteAsync(Car car) {
+        return documentStore.deleteDocumentAsync(COLLECTION_NAME, car.getId());
+    }
+    
+    /**
+     * Auto nur löschen, wenn es seit dem Lesen unverändert ist
+     *
+     * @throws com.automarketplace.service.DocumentConflictException bei zwischenzeitlicher Änderung
+     */
+    public void deleteIfUnchanged(String id, Instant expectedUpdateTime) {
+        documentStore.deleteDocumentIfUnchanged(COLLECTION_NAME, id, expectedUpdateTime);
+    }
+    
+    /**
+     * Auto nur löschen, wenn es seit dem Lesen unverändert ist (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteIfUnchangedAsync(String id, Instant expectedUpdateTime) {
+        return documentStore.deleteDocumentIfUnchangedAsync(COLLECTION_NAME, id, expectedUpdateTime);
     }
     
     /**
      * Auto nach ID löschen
      */
     public void deleteById(String id) {
-        firestoreService.deleteDocument(COLLECTION_NAME, id);
+        documentStore.deleteDocument(COLLECTION_NAME, id);
+    }
+    
+    /**
+     * Auto nach ID löschen (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteByIdAsync(String id) {
+        return documentStore.deleteDocumentAsync(COLLECTION_NAME, id);
     }
     
     /**
      * Prüfen ob Auto existiert
      */
     public boolean existsById(String id) {
-        return firestoreService.documentExists(COLLECTION_NAME, id);
+        return documentStore.documentExists(COLLECTION_NAME, id);
+    }
+    
+    /**
+     * Prüfen ob Auto existiert (nicht-blockierend)
+     */
+    public CompletableFuture<Boolean> existsByIdAsync(String id) {
+        return documentStore.documentExistsAsync(COLLECTION_NAME, id);
     }
     
     /**
      * Anzahl Autos zählen
      */
     public long count() {
-        return findAll().size();
+        if (replicaUsable()) {
+            return carReplica.size();
+        }
+        return documentStore.countDocuments(COLLECTION_NAME, null, null);
+    }
+    
+    /**
+     * Anzahl Autos zählen (nicht-blockierend)
+     */
+    public CompletableFuture<Long> countAsync() {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture((long) carReplica.size());
+        }
+        return documentStore.countDocumentsAsync(COLLECTION_NAME, null, null);
     }
     
     /**
      * Anzahl Autos eines Verkäufers zählen
      */
     public long countBySellerId(String sellerId) {
-        return findBySellerId(sellerId).size();
+        if (replicaUsable()) {
+            return carReplica.count(hasSeller(sellerId));
+        }
+        return documentStore.countDocuments(COLLECTION_NAME, "sellerId", sellerId);
+    }
+    
+    /**
+     * Anzahl Autos eines Verkäufers zählen (nicht-blockierend)
+     */
+    public CompletableFuture<Long> countBySellerIdAsync(String sellerId) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.count(hasSeller(sellerId)));
+        }
+        return documentStore.countDocumentsAsync(COLLECTION_NAME, "sellerId", sellerId);
     }
     
     /**
@@ -154,39 +803,181 @@ public class CarFirestoreRepository {
         return findBySellerId(seller.getFirebaseUid());
     }
     
+    /**
+     * Autos nach Verkäufer finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findBySellerAsync(com.automarketplace.model.User seller) {
+        return findBySellerIdAsync(seller.getFirebaseUid());
+    }
+    
     /**
      * Autos nach Verkäufer und Status finden
      */
     public List<Car> findBySellerAndStatus(com.automarketplace.model.User seller, CarStatus status) {
-        return findAll().stream()
-            .filter(car -> seller.getFirebaseUid().equals(car.getSellerId()) && 
-                          status.toString().equals(car.getStatus().toString()))
-            .collect(Collectors.toList());
+        if (replicaUsable()) {
+            return carReplica.find(hasSeller(seller.getFirebaseUid()).and(hasStatus(status.name())));
+        }
+        return documentStore.queryDocuments(COLLECTION_NAME, sellerAndStatus(seller, status), Car.class);
     }
     
     /**
-     * Ähnliche Autos finden
+     * Autos nach Verkäufer und Status finden (nicht-blockierend)
      */
-    public List<Car> findSimilarCars(String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice, String excludeId) {
-        return findAll().stream()
-            .filter(car -> !car.getId().equals(excludeId) &&
-                          brand.equalsIgnoreCase(car.getBrand()) &&
-                          car.getPrice().compareTo(minPrice) >= 0 &&
-                          car.getPrice().compareTo(maxPrice) <= 0)
-            .collect(Collectors.toList());
+    public CompletableFuture<List<Car>> findBySellerAndStatusAsync(com.automarketplace.model.User seller, CarStatus status) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.find(hasSeller(seller.getFirebaseUid()).and(hasStatus(status.name()))));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, sellerAndStatus(seller, status), Car.class);
+    }
+    
+    /**
+     * Ähnliche Autos finden (gleiche Marke, Preis im Bereich, ohne das Auto selbst)
+     */
+    public List<Car> findSimilarCars(String brand, BigDecimal minPrice, BigDecimal maxPrice, String excludeId) {
+        if (replicaUsable()) {
+            return without(similarFromReplica(brand, minPrice, maxPrice), excludeId);
+        }
+        return without(documentStore.queryDocuments(COLLECTION_NAME, similarTo(brand, minPrice, maxPrice), Car.class),
+                       excludeId);
+    }
+    
+    /**
+     * Ähnliche Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findSimilarCarsAsync(String brand, BigDecimal minPrice, BigDecimal maxPrice, String excludeId) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(without(similarFromReplica(brand, minPrice, maxPrice), excludeId));
+        }
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, similarTo(brand, minPrice, maxPrice), Car.class)
+            .thenApply(cars -> without(cars, excludeId));
     }
     
     /**
      * Anzahl Autos nach Status zählen
      */
     public long countByStatus(CarStatus status) {
-        return findByStatus(status).size();
+        if (replicaUsable()) {
+            return carReplica.count(hasStatus(status.name()));
+        }
+        return documentStore.countDocuments(COLLECTION_NAME, "status", status.name());
+    }
+    
+    /**
+     * Anzahl Autos nach Status zählen (nicht-blockierend)
+     */
+    public CompletableFuture<Long> countByStatusAsync(CarStatus status) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.count(hasStatus(status.name())));
+        }
+        return documentStore.countDocumentsAsync(COLLECTION_NAME, "status", status.name());
     }
     
     /**
      * Anzahl Autos nach Verkäufer und Status zählen
      */
     public long countBySellerAndStatus(com.automarketplace.model.User seller, CarStatus status) {
-        return findBySellerAndStatus(seller, status).size();
+        if (replicaUsable()) {
+            return carReplica.count(hasSeller(seller.getFirebaseUid()).and(hasStatus(status.name())));
+        }
+        return documentStore.countDocuments(COLLECTION_NAME, sellerAndStatus(seller, status));
+    }
+    
+    /**
+     * Anzahl Autos nach Verkäufer und Status zählen (nicht-blockierend)
+     */
+    public CompletableFuture<Long> countBySellerAndStatusAsync(com.automarketplace.model.User seller, CarStatus status) {
+        if (replicaUsable()) {
+            return CompletableFuture.completedFuture(carReplica.count(hasSeller(seller.getFirebaseUid()).and(hasStatus(status.name()))));
+        }
+        return documentStore.countDocumentsAsync(COLLECTION_NAME, sellerAndStatus(seller, status));
+    }
+    
+    private boolean replicaUsable() {
+        return carReplica != null && carReplica.isUsable();
+    }
+    
+    private CompletableFuture<Page<Car>> pageFromReplica(Predicate<Car> filter, PageRequest pageRequest) {
+        try {
+            return CompletableFuture.completedFuture(carReplica.findPage(filter, pageRequest));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    // Filter für Antworten aus dem Replikat; sie entsprechen den Firestore-Queries
+    // (exakter Vergleich, Status nach Enum-Namen, Preis in Cent)
+    
+    private static Predicate<Car> hasSeller(String sellerId) {
+        return car -> sellerId.equals(car.getSellerId());
+    }
+    
+    private static Predicate<Car> hasStatus(String status) {
+        return car -> car.getStatus() != null && status.equals(car.getStatus().name());
+    }
+    
+    private static Predicate<Car> hasBrand(String brand) {
+        return car -> brand.equals(car.getBrand());
+    }
+    
+    // Preisbereich über den Bereichsindex (bereits nach Preis sortiert), danach die Marke
+    private List<Car> similarFromReplica(String brand, BigDecimal minPrice, BigDecimal maxPrice) {
+        return carReplica.findInRange("priceCents", minPriceCents(minPrice), maxPriceCents(maxPrice)).stream()
+            .filter(hasBrand(brand))
+            .collect(Collectors.toList());
+    }
+    
+    // Queries für die Methoden mit mehreren Bedingungen. Sie laufen komplett
+    // in Firestore; die benötigten Composite Indexes stehen in firestore.indexes.json.
+    // Preise werden über das numerische Feld priceCents verglichen.
+    
+    private static DocumentQuery brandAndModel(String brand, String model) {
+        return DocumentQuery.create()
+            .whereEqualTo("brand", brand)
+            .whereEqualTo("model", model);
+    }
+    
+    private static DocumentQuery priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        return DocumentQuery.create()
+            .whereGreaterThanOrEqualTo("priceCents", minPriceCents(minPrice))
+            .whereLessThanOrEqualTo("priceCents", maxPriceCents(maxPrice))
+            .orderBy("priceCents");
+    }
+    
+    private static DocumentQuery yearBetween(Integer startYear, Integer endYear) {
+        return DocumentQuery.create()
+            .whereGreaterThanOrEqualTo("year", startYear)
+            .whereLessThanOrEqualTo("year", endYear)
+            .orderBy("year");
+    }
+    
+    private static DocumentQuery sellerAndStatus(com.automarketplace.model.User seller, CarStatus status) {
+        // Enums speichert Firestore mit ihrem Namen
+        return DocumentQuery.create()
+            .whereEqualTo("sellerId", seller.getFirebaseUid())
+            .whereEqualTo("status", status.name());
+    }
+    
+    private static DocumentQuery similarTo(String brand, BigDecimal minPrice, BigDecimal maxPrice) {
+        return DocumentQuery.create()
+            .whereEqualTo("brand", brand)
+            .whereGreaterThanOrEqualTo("priceCents", minPriceCents(minPrice))
+            .whereLessThanOrEqualTo("priceCents", maxPriceCents(maxPrice))
+            .orderBy("priceCents");
+    }
+    
+    // Bereichsgrenzen auf ganze Cent runden, ohne Treffer zu verlieren oder hinzuzufügen
+    
+    private static long minPriceCents(BigDecimal minPrice) {
+        return minPrice.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+    
+    private static long maxPriceCents(BigDecimal maxPrice) {
+        return maxPrice.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+    
+    private static List<Car> without(List<Car> cars, String excludeId) {
+        return cars.stream()
+            .filter(car -> !car.getId().equals(excludeId))
+            .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,371 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Volltextindex (Lucene) über Beschreibung, Ausstattung und Servicehistorie der Autos
+ *
+ * Deutsche Analyse (siehe GermanSearchAnalyzer), Ranking nach BM25, Marke und
+ * Modell als stärker gewichtetes Titelfeld. Der Index folgt den Snapshots des
+ * Replikats (CarReplica.addChangeListener): der erste Snapshot baut ihn auf,
+ * danach werden nur geänderte und gelöschte Autos fortgeschrieben, auch die
+ * anderer Instanzen. Eigene Änderungen indexiert CarService zusätzlich sofort.
+ * Ohne Replikat wird der Index einmal beim Start aus allen Autos aufgebaut.
+ * Der Status wird mit indexiert, die Suche liefert nur verfügbare Autos
+ * (Status ACTIVE).
+ *
+ * Ohne search.fulltext.directory liegt der Index im Speicher.
+ */
+@Component
+@ConditionalOnProperty(prefix = "search.fulltext", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CarFullTextIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CarFullTextIndex.class);
+    
+    private static final String ID = "id";
+    private static final String STATUS = "status";
+    
+    // Relevanz absteigend, bei Gleichstand ID aufsteigend
+    private static final Sort BY_SCORE = new Sort(SortField.FIELD_SCORE, new SortField(ID, SortField.Type.STRING));
+    
+    // Suchfelder mit Gewichtung
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(
+        "title", 3f,
+        "features", 2f,
+        "description", 1f,
+        "serviceHistory", 1f);
+    
+    private static final String[] HIGHLIGHT_FIELDS = {"description", "features", "serviceHistory"};
+    
+    private final CarFirestoreRepository carRepository;
+    // Fehlt bei firestore.replica.cars.enabled=false
+    private final Optional<CarReplica> carReplica;
+    private final GermanSearchAnalyzer analyzer;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    
+    public CarFullTextIndex(CarFirestoreRepository carRepository,
+                            Optional<CarReplica> carReplica,
+                            @Value("${search.fulltext.directory:}") String directory,
+                            @Value("${search.fulltext.compounds:classpath:search/compounds-de.txt}") Resource compounds)
+            throws IOException {
+        this.carRepository = carRepository;
+        this.carReplica = carReplica;
+        this.analyzer = new GermanSearchAnalyzer(readWords(compounds));
+        this.directory = directory.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(directory));
+        
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+            .setSimilarity(new BM25Similarity())
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(this.directory, config);
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+    
+    private static List<String> readWords(Resource resource) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .collect(Collectors.toList());
+        }
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+    
+    @PostConstruct
+    public void start() {
+        carReplica.ifPresent(replica -> replica.addChangeListener(this::apply));
+    }
+    
+    /**
+     * Ohne Replikat: Index beim Start einmal aus allen Autos aufbauen
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (carReplica.isEmpty()) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Index aus allen Autos neu aufbauen
+     */
+    public void rebuild() {
+        carRepository.findAllAsync()
+            .thenAccept(this::replaceAll)
+            .exceptionally(e -> {
+                logger.error("Volltextindex konnte nicht aufgebaut werden: {}", e.getMessage());
+                return null;
+            });
+    }
+    
+    private void replaceAll(Collection<Car> cars) {
+        try {
+            // Aktualisieren statt leeren: ein Refresh durch index()/delete() währenddessen
+            // zeigt nie einen halb aufgebauten Index
+            List<BytesRef> ids = new ArrayList<>(cars.size());
+            for (Car car : cars) {
+                writer.updateDocument(new Term(ID, car.getId()), toDocument(car));
+                ids.add(new BytesRef(car.getId()));
+            }
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                .add(new TermInSetQuery(ID, ids), BooleanClause.Occur.MUST_NOT)
+                .build());
+            writer.commit();
+            searcherManager.maybeRefresh();
+            logger.info("Volltextindex mit {} Autos aufgebaut", cars.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Änderungen eines Snapshots des Replikats übernehmen (siehe CarReplica.ChangeListener)
+     */
+    void apply(Map<String, Car> upserts, Set<String> removedIds, boolean complete) {
+        if (complete) {
+            replaceAll(upserts.values());
+            return;
+        }
+        try {
+            for (Car car : upserts.values()) {
+                writer.updateDocument(new Term(ID, car.getId()), toDocument(car));
+            }
+            for (String id : removedIds) {
+                writer.deleteDocuments(new Term(ID, id));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            // Die nächste Änderung des Autos oder ein Neustart des Replikats holt es nach
+            logger.warn("Volltextindex: {} Änderungen nicht übernommen: {}", upserts.size() + removedIds.size(),
+                       e.getMessage());
+        }
+    }
+    
+    /**
+     * Auto (neu) indexieren
+     */
+    public void index(Car car) {
+        try {
+            writer.updateDocument(new Term(ID, car.getId()), toDocument(car));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            // Der Snapshot mit dieser Änderung holt das Auto nach
+            logger.warn("Auto {} konnte nicht indexiert werden: {}", car.getId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Auto aus dem Index entfernen
+     */
+    public void delete(String id) {
+        try {
+            writer.deleteDocuments(new Term(ID, id));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.warn("Auto {} konnte nicht aus dem Index entfernt werden: {}", id, e.getMessage());
+        }
+    }
+    
+    private static Document toDocument(Car car) {
+        Document document = new Document();
+        document.add(new StringField(ID, car.getId(), Field.Store.YES));
+        // Für die Sortierung bei gleicher Relevanz
+        document.add(new SortedDocValuesField(ID, new BytesRef(car.getId())));
+        if (car.getStatus() != null) {
+            document.add(new StringField(STATUS, car.getStatus().name(), Field.Store.NO));
+        }
+        addText(document, "title", join(car.getBrand(), car.getModel()));
+        addText(document, "description", car.getDescription());
+        addText(document, "features", car.getFeatures() != null ? String.join(", ", car.getFeatures()) : null);
+        addText(document, "serviceHistory", car.getServiceHistory());
+        return document;
+    }
+    
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            // Gespeichert für die Hervorhebung
+            document.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+    
+    private static String join(String brand, String model) {
+        return (brand != null ? brand : "") + " " + (model != null ? model : "");
+    }
+    
+    /**
+     * Verfügbare Autos, deren Texte zur Suchanfrage passen, absteigend nach Relevanz (bei Gleichstand nach ID)
+     *
+     * Syntax der Anfrage: Wörter (alle müssen vorkommen), "Phrasen", -ausschließen,
+     * a | b, präfix*. Liefert höchstens count Treffer hinter after (null = ab
+     * Anfang); weitere Treffer mit dem letzten Treffer als after.
+     */
+    public List<Hit> search(String queryText, Hit after, int count) {
+        Query query = parse(queryText);
+        if (query == null || count <= 0) {
+            return new ArrayList<>();
+        }
+        Query available = new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(STATUS, CarStatus.ACTIVE.name())), BooleanClause.Occur.FILTER)
+            .build();
+        
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // Dokumentnummer ohne Bedeutung (die ID ist eindeutig), muss aber im Index liegen
+                FieldDoc afterDoc = after != null
+                    ? new FieldDoc(searcher.getIndexReader().maxDoc() - 1, after.getScore(),
+                                   new Object[] {after.getScore(), new BytesRef(after.getId())})
+                    : null;
+                TopDocs top = searcher.searchAfter(afterDoc, available, count, BY_SCORE, true);
+                List<Hit> hits = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    hits.add(new Hit(searcher.storedFields().document(scoreDoc.doc).get(ID), scoreDoc.score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fehler bei der Volltextsuche", e);
+        }
+    }
+    
+    /**
+     * Passende Textstellen der Autos, Treffer mit <b>...</b> markiert, Text HTML-escaped (ID -> Feld -> Textstelle)
+     */
+    public Map<String, Map<String, String>> highlights(String queryText, Collection<String> ids) {
+        Map<String, Map<String, String>> result = new LinkedHashMap<>();
+        Query query = parse(queryText);
+        if (query == null || ids.isEmpty()) {
+            return result;
+        }
+        
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                Query restricted = new BooleanQuery.Builder()
+                    .add(query, BooleanClause.Occur.MUST)
+                    .add(new TermInSetQuery(ID, ids.stream().map(BytesRef::new).collect(Collectors.toList())),
+                         BooleanClause.Occur.FILTER)
+                    .build();
+                TopDocs top = searcher.search(restricted, ids.size());
+                
+                UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withMaxNoHighlightPassages(0)
+                    // Texte der Verkäufer HTML-escapen, nur die Markierung ist HTML
+                    .withFormatter(new DefaultPassageFormatter("<b>", "</b>", "… ", true))
+                    .build();
+                Map<String, String[]> passages = highlighter.highlightFields(HIGHLIGHT_FIELDS, query, top);
+                
+                for (int i = 0; i < top.scoreDocs.length; i++) {
+                    String id = searcher.storedFields().document(top.scoreDocs[i].doc).get(ID);
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    for (String field : HIGHLIGHT_FIELDS) {
+                        String passage = passages.get(field)[i];
+                        if (passage != null) {
+                            fields.put(field, passage);
+                        }
+                    }
+                    result.put(id, fields);
+                }
+                return result;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fehler beim Hervorheben der Treffer", e);
+        }
+    }
+    
+    private Query parse(String queryText) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        return parser.parse(queryText);
+    }
+    
+    /**
+     * Treffer der Volltextsuche
+     */
+    public static class Hit {
+        
+        private final String id;
+        private final float score;
+        
+        public Hit(String id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public float getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,581 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSort;
+import com.automarketplace.model.CarSuggestion;
+import com.automarketplace.service.CollectionListener;
+import com.automarketplace.service.DocumentQuery;
+import com.automarketplace.service.DocumentStore;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageCursor;
+import com.automarketplace.service.PageRequest;
+import com.automarketplace.service.VersionedDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Vollständige In-Memory-Kopie der Collection "cars"
+ *
+ * Lädt die Collection einmal und hält sie über einen Snapshot-Listener
+ * aktuell. CarFirestoreRepository beantwortet Listen-, Such- und
+ * Zähl-Abfragen daraus ohne Netzwerkzugriff, solange die Kopie bereit ist
+ * und ihr Stand nicht älter als firestore.replica.cars.max-lag ist.
+ *
+ * Der Stand gilt als bestätigt mit der Lesezeit jedes Snapshots. Kommt länger
+ * kein Snapshot (ruhige Collection oder hängender Listener), prüft ein
+ * Heartbeat mit zwei kleinen Abfragen (Anzahl, zuletzt geändertes Auto), ob
+ * die Kopie noch mit Firestore übereinstimmt; sonst wird sie unbrauchbar.
+ *
+ * Für die Autosuche pflegt die Kopie zusätzlich einen invertierten Index
+ * (CarSearchIndex); Indexe außerhalb (CarFullTextIndex) bekommen die
+ * Änderungen der Snapshots über addChangeListener. Zu jedem Auto kennt sie den Änderungszeitpunkt, so dass
+ * Änderungen ohne vorheriges Lesen bedingt geschrieben werden können
+ * (findVersioned, applyWrite).
+ *
+ * Die gelieferten Car-Objekte sind die der Kopie und dürfen nicht
+ * verändert werden. Zum Ändern wird ein Auto über findById geladen.
+ *
+ * Standardmäßig aktiv (firestore.replica.cars.enabled=false schaltet ab); kostet
+ * ca. 1,5 KB Heap pro Auto einschließlich der Indexe.
+ */
+@Component
+@ConditionalOnProperty(prefix = "firestore.replica.cars", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CarReplica {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CarReplica.class);
+    private static final String COLLECTION_NAME = "cars";
+    
+    // Kopien für bedingte Änderungen (findVersioned, applyWrite)
+    private static final CarCodec CODEC = new CarCodec();
+    
+    private final DocumentStore documentStore;
+    
+    // Änderungen schreiben Map und Indexe gemeinsam, Abfragen lesen einen Stand
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Sortiert nach Document ID, wie die Seiten aus Firestore
+    private final ConcurrentSkipListMap<String, Car> cars = new ConcurrentSkipListMap<>();
+    
+    // Änderungszeitpunkt (Version) pro Auto, nur unter dem Lock
+    private final Map<String, Instant> updateTimes = new HashMap<>();
+    
+    private final CarSearchIndex searchIndex = new CarSearchIndex();
+    
+    private final CarSuggestIndex suggestIndex = new CarSuggestIndex(CarFirestoreRepository.IS_AVAILABLE);
+    
+    // Empfänger der Änderungen; benachrichtigt wird unter changeLock, in Snapshot-Reihenfolge
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Object changeLock = new Object();
+    
+    private final ScheduledExecutorService restartExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "car-replica-restart");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Value("${firestore.replica.cars.max-lag:5s}")
+    private Duration maxLag;
+    
+    @Value("${firestore.replica.cars.restart-delay:5s}")
+    private Duration restartDelay;
+    
+    private volatile AutoCloseable registration;
+    private volatile boolean ready;
+    // Einmal vollständig geladen; bleibt auch bei Neustarts des Listeners gesetzt
+    private volatile boolean loaded;
+    private volatile boolean connected;
+    private volatile Instant lastReadTime;
+    private volatile Instant lastAppliedAt;
+    private volatile Duration lastLag = Duration.ZERO;
+    
+    // Zeitpunkt, zu dem die Kopie zuletzt nachweislich aktuell war (Snapshot oder Heartbeat)
+    private volatile Instant confirmedAt = Instant.MIN;
+    private volatile boolean heartbeatRunning;
+    
+    public CarReplica(DocumentStore documentStore) {
+        this.documentStore = documentStore;
+    }
+    
+    @PostConstruct
+    public void start() {
+        logger.info("Starte Replikat der Collection {}", COLLECTION_NAME);
+        registration = documentStore.watchCollection(COLLECTION_NAME, Car.class, new CollectionListener<Car>() {
+            @Override
+            public void onChanges(Map<String, Car> upserts, Set<String> removedIds, Instant readTime) {
+                apply(upserts, Map.of(), removedIds, readTime);
+            }
+            
+            @Override
+            public void onChanges(Map<String, Car> upserts, Map<String, Instant> versions, Set<String> removedIds,
+                                  Instant readTime) {
+                apply(upserts, versions, removedIds, readTime);
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                connected = false;
+                scheduleRestart();
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        restartExecutor.shutdownNow();
+        close();
+    }
+    
+    private void apply(Map<String, Car> upserts, Map<String, Instant> versions, Set<String> removedIds,
+                       Instant readTime) {
+        boolean complete;
+        synchronized (changeLock) {
+            // Erster Snapshot nach Start oder Neustart: enthält alle Autos
+            complete = !ready;
+            Map<String, Car> newer = applyLocked(upserts, versions, removedIds);
+            ready = true;
+            changeListeners.forEach(listener -> notify(listener, newer, removedIds, complete));
+        }
+        
+        Instant now = Instant.now();
+        lastReadTime = readTime;
+        lastAppliedAt = now;
+        lastLag = Duration.between(readTime, now).isNegative() ? Duration.ZERO : Duration.between(readTime, now);
+        confirm(readTime);
+        connected = true;
+        
+        if (complete) {
+            loaded = true;
+            logger.info("Replikat von {} bereit mit {} Autos", COLLECTION_NAME, cars.size());
+        } else {
+            logger.debug("Replikat von {}: {} geändert, {} gelöscht", COLLECTION_NAME, upserts.size(), removedIds.size());
+        }
+    }
+    
+    // Übernommene Autos; ein mit applyWrite schon übernommener neuerer Stand wird nicht zurückgesetzt
+    private Map<String, Car> applyLocked(Map<String, Car> upserts, Map<String, Instant> versions,
+                                         Set<String> removedIds) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Car> newer = new HashMap<>(upserts);
+            newer.keySet().removeIf(id -> isBefore(versions.get(id), updateTimes.get(id)));
+            
+            cars.putAll(newer);
+            newer.keySet().forEach(id -> {
+                Instant version = versions.get(id);
+                if (version != null) {
+                    updateTimes.put(id, version);
+                } else {
+                    updateTimes.remove(id);
+                }
+            });
+            removedIds.forEach(id -> {
+                cars.remove(id);
+                updateTimes.remove(id);
+            });
+            searchIndex.apply(newer, removedIds);
+            suggestIndex.apply(newer, removedIds);
+            return newer;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static void notify(ChangeListener listener, Map<String, Car> upserts, Set<String> removedIds,
+                               boolean complete) {
+        try {
+            listener.onChanges(upserts, removedIds, complete);
+        } catch (RuntimeException e) {
+            logger.warn("Empfänger der Änderungen von {} fehlgeschlagen: {}", COLLECTION_NAME, e.getMessage());
+        }
+    }
+    
+    /**
+     * Empfänger für die Änderungen der Snapshots registrieren
+     *
+     * Ist die Kopie schon geladen, bekommt der Empfänger sofort alle Autos
+     * (complete), danach jede Änderung in Snapshot-Reihenfolge. Selbst
+     * geschriebene Stände (applyWrite) gibt die Kopie nicht weiter.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        synchronized (changeLock) {
+            changeListeners.add(listener);
+            if (ready) {
+                notify(listener, read(() -> new HashMap<>(cars)), Set.of(), true);
+            }
+        }
+    }
+    
+    /**
+     * Empfänger für die Änderungen der Kopie (siehe addChangeListener)
+     */
+    public interface ChangeListener {
+        
+        /**
+         * @param upserts neue oder geänderte Autos; Objekte der Kopie, nicht verändern
+         * @param removedIds IDs gelöschter Autos
+         * @param complete upserts enthält alle Autos (erster Snapshot nach Start oder
+         *                 Neustart des Listeners); was nicht darin ist, gibt es nicht mehr
+         */
+        void onChanges(Map<String, Car> upserts, Set<String> removedIds, boolean complete);
+    }
+    
+    /**
+     * Listener nach einem Fehler neu registrieren; der erste Snapshot gleicht die Kopie wieder vollständig ab
+     */
+    private void scheduleRestart() {
+        close();
+        if (restartExecutor.isShutdown()) {
+            return;
+        }
+        restartExecutor.schedule(() -> {
+            lock.writeLock().lock();
+            try {
+                cars.clear();
+                updateTimes.clear();
+                searchIndex.clear();
+                suggestIndex.clear();
+                ready = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            start();
+        }, restartDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    private void close() {
+        AutoCloseable current = registration;
+        registration = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (Exception e) {
+                logger.warn("Snapshot-Listener für {} konnte nicht beendet werden: {}", COLLECTION_NAME, e.getMessage());
+            }
+        }
+    }
+    
+    private void confirm(Instant asOf) {
+        if (asOf.isAfter(confirmedAt)) {
+            confirmedAt = asOf;
+        }
+    }
+    
+    /**
+     * Stand der Kopie gegen Firestore prüfen, wenn seit heartbeat-interval kein Snapshot kam
+     *
+     * Stimmen Anzahl und das zuletzt geänderte Auto (ID und updatedAt) überein,
+     * gilt die Kopie ab Beginn der Prüfung als aktuell. Sonst bleibt der alte
+     * Zeitpunkt stehen und die Kopie wird nach max-lag unbrauchbar; ein
+     * fehlender Snapshot holt sie dann wieder ein.
+     */
+    @Scheduled(fixedDelayString = "${firestore.replica.cars.heartbeat-interval:2s}")
+    public void heartbeat() {
+        Instant startedAt = Instant.now();
+        if (!ready || !connected || heartbeatRunning
+                || Duration.between(confirmedAt, startedAt).compareTo(maxLag.dividedBy(2)) < 0) {
+            return;
+        }
+        
+        heartbeatRunning = true;
+        CompletableFuture<Long> count = documentStore.countDocumentsAsync(COLLECTION_NAME, DocumentQuery.create());
+        CompletableFuture<List<Car>> newest = documentStore.queryDocumentsAsync(
+            COLLECTION_NAME, DocumentQuery.create().orderBy("updatedAt", true).limit(1), Car.class);
+        
+        count.thenCombine(newest, (total, latest) -> {
+            if (matches(total, latest)) {
+                confirm(startedAt);
+            } else {
+                logger.warn("Replikat von {} weicht von Firestore ab ({} Autos, Firestore {})",
+                           COLLECTION_NAME, cars.size(), total);
+            }
+            return null;
+        }).whenComplete((result, e) -> {
+            heartbeatRunning = false;
+            if (e != null) {
+                logger.warn("Heartbeat des Replikats von {} fehlgeschlagen: {}", COLLECTION_NAME, e.getMessage());
+            }
+        });
+    }
+    
+    private boolean matches(long total, List<Car> latest) {
+        return read(() -> {
+            if (total != cars.size()) {
+                return false;
+            }
+            if (latest.isEmpty()) {
+                return true;
+            }
+            Car newest = latest.get(0);
+            Car copy = cars.get(newest.getId());
+            return copy != null && Objects.equals(copy.getUpdatedAt(), newest.getUpdatedAt());
+        });
+    }
+    
+    /**
+     * Selbst geschriebenen Stand eines Autos sofort übernehmen, ohne auf den Snapshot zu warten
+     *
+     * Nur für Autos, die die Kopie schon mit einer älteren Version enthält; ein
+     * inzwischen gelöschtes Auto wird nicht wieder aufgenommen. Der Snapshot mit
+     * derselben Version folgt und ändert dann nichts mehr.
+     *
+     * @param car vollständiger neuer Stand; die Kopie speichert eine eigene Kopie
+     * @param updateTime Änderungszeitpunkt aus dem Schreibergebnis
+     */
+    public void applyWrite(Car car, Instant updateTime) {
+        lock.writeLock().lock();
+        try {
+            Instant known = updateTimes.get(car.getId());
+            if (!cars.containsKey(car.getId()) || known == null || !known.isBefore(updateTime)) {
+                return;
+            }
+            Map<String, Car> upsert = Map.of(car.getId(), copy(car));
+            cars.putAll(upsert);
+            updateTimes.put(car.getId(), updateTime);
+            searchIndex.apply(upsert, Set.of());
+            suggestIndex.apply(upsert, Set.of());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Auto mit Version aus der Kopie, für bedingte Änderungen ohne vorheriges Lesen
+     *
+     * @return eigene Kopie des Autos, die verändert werden darf; leer, wenn Auto oder Version fehlen
+     */
+    public Optional<VersionedDocument<Car>> findVersioned(String id) {
+        return read(() -> {
+            Car car = cars.get(id);
+            Instant updateTime = updateTimes.get(id);
+            return car != null && updateTime != null
+                ? Optional.of(new VersionedDocument<>(copy(car), updateTime))
+                : Optional.<VersionedDocument<Car>>empty();
+        });
+    }
+    
+    private static Car copy(Car car) {
+        return CODEC.decode(car.getId(), CODEC.encode(car));
+    }
+    
+    private static boolean isBefore(Instant version, Instant known) {
+        return version != null && known != null && version.isBefore(known);
+    }
+    
+    /**
+     * Wurde die Kopie seit dem Start mindestens einmal vollständig geladen?
+     *
+     * Anders als isUsable() unabhängig von Verbindung und Alter des Stands.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Kann die Kopie Abfragen beantworten? (geladen, verbunden, Stand nicht älter als max-lag)
+     */
+    public boolean isUsable() {
+        return ready && connected && getStaleness().compareTo(maxLag) <= 0;
+    }
+    
+    /**
+     * Zeit seit dem letzten bestätigten Stand (Snapshot oder Heartbeat)
+     */
+    public Duration getStaleness() {
+        Duration staleness = Duration.between(confirmedAt, Instant.now());
+        return staleness.isNegative() ? Duration.ZERO : staleness;
+    }
+    
+    public int size() {
+        return cars.size();
+    }
+    
+    // Map und Indexe unter der Lesesperre: kein halb angewendeter Snapshot
+    private <R> R read(Supplier<R> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Alle Autos, die den Filter erfüllen, sortiert nach ID
+     */
+    public List<Car> find(Predicate<Car> filter) {
+        return read(() -> cars.values().stream()
+            .filter(filter)
+            .collect(Collectors.toList()));
+    }
+    
+    /**
+     * Alle Autos, die den Filter erfüllen, in der angegebenen Reihenfolge
+     */
+    public List<Car> find(Predicate<Car> filter, Comparator<Car> order) {
+        List<Car> matches = find(filter);
+        matches.sort(order);
+        return matches;
+    }
+    
+    public long count(Predicate<Car> filter) {
+        return read(() -> cars.values().stream()
+            .filter(filter)
+            .count());
+    }
+    
+    /**
+     * Eine Seite der Autos, die den Filter erfüllen (sortiert nach ID, gleiche Cursor wie Firestore)
+     *
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    public Page<Car> findPage(Predicate<Car> filter, PageRequest pageRequest) {
+        return read(() -> findPageLocked(filter, pageRequest));
+    }
+    
+    private Page<Car> findPageLocked(Predicate<Car> filter, PageRequest pageRequest) {
+        PageCursor cursor = pageRequest.getCursor();
+        NavigableMap<String, Car> remaining = cars;
+        if (cursor != null) {
+            if (cursor.getOrderBy() != null) {
+                throw new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung");
+            }
+            remaining = cars.tailMap(cursor.getDocumentId(), false);
+        }
+        
+        int limit = pageRequest.getLimit();
+        List<Car> items = new ArrayList<>(limit);
+        for (Car car : remaining.values()) {
+            if (filter.test(car)) {
+                items.add(car);
+                if (items.size() == limit) {
+                    break;
+                }
+            }
+        }
+        
+        // Volle Seite -> es kann weitere Autos geben
+        String nextCursor = items.size() == limit
+            ? PageCursor.afterDocument(items.get(items.size() - 1).getId()).encode()
+            : null;
+        
+        return new Page<>(items, nextCursor);
+    }
+    
+    /**
+     * Alle Autos mit min <= Feldwert <= max, sortiert nach Feldwert und ID (über den Bereichsindex)
+     *
+     * @param field priceCents, year oder mileage
+     */
+    public List<Car> findInRange(String field, long min, long max) {
+        return read(() -> searchIndex.findInRange(field, min, max));
+    }
+    
+    /**
+     * Vorschläge für Marke und Modell zum Präfix, absteigend nach Anzahl verfügbarer Inserate
+     */
+    public List<CarSuggestion> suggest(String prefix, int limit) {
+        return read(() -> suggestIndex.suggest(prefix, limit));
+    }
+    
+    /**
+     * Facetten der Autos mit dem Status, die die Suchkriterien erfüllen (über den Suchindex)
+     */
+    public CarFacets facets(String status, CarSearchCriteria criteria) {
+        return read(() -> searchIndex.facets(status, criteria));
+    }
+    
+    /**
+     * Alle Autos mit dem Status, die die Suchkriterien erfüllen, sortiert nach ID (über den Suchindex)
+     */
+    public List<Car> search(String status, CarSearchCriteria criteria) {
+        return read(() -> searchIndex.search(status, criteria, null, Integer.MAX_VALUE, cars));
+    }
+    
+    /**
+     * Eine Seite der Autos mit dem Status, die die Suchkriterien erfüllen (über den Suchindex)
+     *
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    public Page<Car> searchPage(String status, CarSearchCriteria criteria, PageRequest pageRequest) {
+        PageCursor cursor = pageRequest.getCursor();
+        if (cursor != null && cursor.getOrderBy() != null) {
+            throw new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung");
+        }
+        
+        int limit = pageRequest.getLimit();
+        List<Car> items = read(() -> searchIndex.search(status, criteria, cursor != null ? cursor.getDocumentId() : null,
+                                                        limit, cars));
+        
+        String nextCursor = items.size() == limit
+            ? PageCursor.afterDocument(items.get(items.size() - 1).getId()).encode()
+            : null;
+        
+        return new Page<>(items, nextCursor);
+    }
+    
+    /**
+     * Eine Seite der Autos mit dem Status, die die Suchkriterien erfüllen, in der Sortierung (über den Suchindex)
+     *
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    public Page<Car> searchPage(String status, CarSearchCriteria criteria, CarSort sort, PageRequest pageRequest) {
+        int limit = pageRequest.getLimit();
+        List<Car> items = read(() -> searchIndex.search(status, criteria, sort, pageRequest.getCursor(), limit));
+        
+        String nextCursor = items.size() == limit
+            ? TopKSelection.cursorAfter(sort, items.get(items.size() - 1)).encode()
+            : null;
+        
+        return new Page<>(items, nextCursor);
+    }
+    
+    /**
+     * Zustand für Readiness-Checks
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("loaded", loaded);
+        status.put("ready", ready);
+        status.put("connected", connected);
+        status.put("usable", isUsable());
+        status.put("size", cars.size());
+        status.put("lagMillis", lastLag.toMillis());
+        status.put("stalenessMillis", getStaleness().toMillis());
+        status.put("maxLagMillis", maxLag.toMillis());
+        status.put("lastReadTime", lastReadTime != null ? lastReadTime.toString() : null);
+        status.put("lastAppliedAt", lastAppliedAt != null ? lastAppliedAt.toString() : null);
+        status.put("confirmedAt", confirmedAt.equals(Instant.MIN) ? null : confirmedAt.toString());
+        return status;
+    }
+}
@@ -0,0 +1,349 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSort;
+import com.automarketplace.service.PageCursor;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Invertierter Index über die Autos des Replikats (CarReplica)
+ *
+ * Jedes Auto bekommt eine interne Nummer; pro Feld und Feldwert hält der
+ * Index eine RoaringBitmap dieser Nummern (Textfelder aus
+ * CarSearchCriteria.TEXT_FIELDS und der Status). Eine Suche prüft die
+ * Prädikate der Kriterien nur gegen die verschiedenen Feldwerte, vereinigt
+ * deren Bitmaps und schneidet die Ergebnisse der Felder. Preis (in Cent),
+ * Baujahr und Kilometerstand liegen zusätzlich in sortierten Bereichsindexen
+ * (RangeIndex), deren Treffer ebenfalls als Bitmap geschnitten werden.
+ * Sortierte Suchen wählen die ersten Treffer per TopKSelection aus; für die
+ * Sortierung nach Marke und Modell liegen die CollationKeys vorberechnet bereit.
+ *
+ * Wird bei jeder Änderung des Replikats inkrementell fortgeschrieben.
+ */
+class CarSearchIndex {
+    
+    private static final String STATUS = "status";
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Document ID -> Nummer und Nummer -> Document ID/Auto (null = frei)
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Car> cars = new ArrayList<>();
+    private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+    
+    // Nummer -> vorberechneter CollationKey von Marke und Modell (Sortierung nach "brand")
+    private final List<CollationKey> textKeys = new ArrayList<>();
+    private final Collator collator = CarSort.collator();
+    
+    // Feld -> Feldwert -> Nummern
+    private final Map<String, Map<String, RoaringBitmap>> postings = new HashMap<>();
+    
+    // Feld -> Bereichsindex (Feldnamen wie in CarSearchCriteria.rangeFilters())
+    private final Map<String, RangeIndex> ranges = Map.of(
+        "priceCents", new RangeIndex(Car::getPriceCents),
+        "year", new RangeIndex(Car::getYear),
+        "mileage", new RangeIndex(Car::getMileage));
+    
+    /**
+     * Änderungen aus dem Snapshot-Listener übernehmen
+     */
+    void apply(Map<String, Car> upserts, Set<String> removedIds) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap changed = new RoaringBitmap();
+            for (Map.Entry<String, Car> upsert : upserts.entrySet()) {
+                Integer number = numbers.get(upsert.getKey());
+                if (number != null) {
+                    unindex(number, cars.get(number));
+                } else {
+                    number = allocate(upsert.getKey());
+                }
+                cars.set(number, upsert.getValue());
+                String text = CarSort.text(upsert.getValue());
+                textKeys.set(number, text != null ? collator.getCollationKey(text) : null);
+                index(number, upsert.getValue());
+                changed.add(number);
+            }
+            for (String id : removedIds) {
+                Integer number = numbers.remove(id);
+                if (number != null) {
+                    unindex(number, cars.get(number));
+                    ids.set(number, null);
+                    cars.set(number, null);
+                    textKeys.set(number, null);
+                    freeNumbers.push(number);
+                    changed.add(number);
+                }
+            }
+            // Nur die geänderten Nummern neu einsortieren, Abfragen sortieren nicht
+            ranges.values().forEach(range -> range.update(changed, cars, ids));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            numbers.clear();
+            ids.clear();
+            cars.clear();
+            textKeys.clear();
+            freeNumbers.clear();
+            postings.clear();
+            ranges.values().forEach(RangeIndex::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private int allocate(String id) {
+        Integer number = freeNumbers.poll();
+        if (number == null) {
+            number = cars.size();
+            ids.add(null);
+            cars.add(null);
+            textKeys.add(null);
+        }
+        numbers.put(id, number);
+        ids.set(number, id);
+        return number;
+    }
+    
+    private void index(int number, Car car) {
+        forEachValue(car, (field, value) -> postings
+            .computeIfAbsent(field, key -> new HashMap<>())
+            .computeIfAbsent(value, key -> new RoaringBitmap())
+            .add(number));
+    }
+    
+    private void unindex(int number, Car car) {
+        forEachValue(car, (field, value) -> {
+            Map<String, RoaringBitmap> values = postings.get(field);
+            RoaringBitmap bitmap = values != null ? values.get(value) : null;
+            if (bitmap != null) {
+                bitmap.remove(number);
+                // Werte ohne Autos entfernen, damit Suchen sie nicht mehr prüfen
+                if (bitmap.isEmpty()) {
+                    values.remove(value);
+                }
+            }
+        });
+    }
+    
+    private static void forEachValue(Car car, BiConsumer<String, String> consumer) {
+        for (Map.Entry<String, Function<Car, String>> field : CarSearchCriteria.TEXT_FIELDS.entrySet()) {
+            String value = field.getValue().apply(car);
+            if (value != null) {
+                consumer.accept(field.getKey(), value);
+            }
+        }
+        if (car.getStatus() != null) {
+            consumer.accept(STATUS, car.getStatus().name());
+        }
+    }
+    
+    /**
+     * Autos mit dem Status, die die Kriterien erfüllen, sortiert nach ID
+     *
+     * @param afterId  nur Autos mit größerer ID (null = ab Anfang)
+     * @param limit    höchstens so viele Autos
+     * @param byId     die sortierte Kopie des Replikats; bei vielen Kandidaten
+     *                 wird in ihrer Reihenfolge gesucht statt sortiert
+     */
+    List<Car> search(String status, CarSearchCriteria criteria, String afterId, int limit,
+                     NavigableMap<String, Car> byId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = candidates(status, criteria.valueFilters(), criteria.rangeFilters());
+            long count = candidates.getLongCardinality();
+            if (count == 0) {
+                return new ArrayList<>();
+            }
+            
+            // In ID-Reihenfolge laufen kostet etwa limit * size / count Schritte,
+            // Sortieren der Kandidaten etwa count; das Günstigere gewinnt
+            if (limit < Integer.MAX_VALUE && (double) limit * byId.size() < (double) count * count) {
+                return inIdOrder(candidates, afterId, limit, byId);
+            }
+            return sorted(candidates, afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Die ersten limit Autos mit dem Status, die die Kriterien erfüllen, in der
+     * Sortierung (Top-K-Auswahl über die Kandidaten, siehe TopKSelection)
+     *
+     * @param after nur Autos hinter diesem Cursor (null = ab Anfang)
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    List<Car> search(String status, CarSearchCriteria criteria, CarSort sort, PageCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = candidates(status, criteria.valueFilters(), criteria.rangeFilters());
+            TopKSelection selection = new TopKSelection(sort, after, limit, candidates.getLongCardinality());
+            IntIterator iterator = candidates.getIntIterator();
+            while (iterator.hasNext()) {
+                int number = iterator.next();
+                selection.offer(cars.get(number), textKeys.get(number));
+            }
+            return selection.result();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Facetten der Autos mit dem Status, die die Kriterien erfüllen
+     *
+     * Die Anzahl pro Feldwert ist die Schnittmenge der Kandidaten mit der
+     * Bitmap des Werts; für die Histogramme werden die Kandidaten einmal durchlaufen.
+     */
+    CarFacets facets(String status, CarSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = candidates(status, criteria.valueFilters(), criteria.rangeFilters());
+            CarFacets facets = new CarFacets();
+            facets.setTotal(candidates.getLongCardinality());
+            if (candidates.isEmpty()) {
+                return facets;
+            }
+            
+            for (String field : CarFacets.VALUE_FIELDS) {
+                postings.getOrDefault(field, Map.of()).forEach((value, bitmap) -> {
+                    long count = RoaringBitmap.andCardinality(candidates, bitmap);
+                    if (count > 0) {
+                        facets.count(field, value, count);
+                    }
+                });
+            }
+            
+            IntIterator iterator = candidates.getIntIterator();
+            while (iterator.hasNext()) {
+                facets.addToHistograms(cars.get(iterator.next()));
+            }
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Autos mit min <= Wert <= max, sortiert nach Wert und ID (wie orderBy(feld) in Firestore)
+     *
+     * @param field priceCents, year oder mileage
+     */
+    List<Car> findInRange(String field, long min, long max) {
+        lock.readLock().lock();
+        try {
+            int[] matches = rangeIndex(field).numbers(min, max);
+            List<Car> items = new ArrayList<>(matches.length);
+            for (int number : matches) {
+                items.add(cars.get(number));
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private RangeIndex rangeIndex(String field) {
+        RangeIndex index = ranges.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("Kein Bereichsindex für Feld: " + field);
+        }
+        return index;
+    }
+    
+    /**
+     * Nummern der Autos mit dem Status, deren Feldwerte alle Filter erfüllen
+     */
+    private RoaringBitmap candidates(String status, Map<String, Predicate<String>> valueFilters,
+                                     Map<String, long[]> rangeFilters) {
+        RoaringBitmap statusBitmap = postings.getOrDefault(STATUS, Map.of()).get(status);
+        if (statusBitmap == null) {
+            return new RoaringBitmap();
+        }
+        RoaringBitmap result = statusBitmap.clone();
+        for (Map.Entry<String, Predicate<String>> filter : valueFilters.entrySet()) {
+            List<RoaringBitmap> matching = new ArrayList<>();
+            postings.getOrDefault(filter.getKey(), Map.of()).forEach((value, bitmap) -> {
+                if (filter.getValue().test(value)) {
+                    matching.add(bitmap);
+                }
+            });
+            if (matching.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            result.and(FastAggregation.or(matching.iterator()));
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        for (Map.Entry<String, long[]> range : rangeFilters.entrySet()) {
+            long[] bounds = range.getValue();
+            result.and(rangeIndex(range.getKey()).bitmap(bounds[0], bounds[1]));
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        return result;
+    }
+    
+    private List<Car> inIdOrder(RoaringBitmap candidates, String afterId, int limit,
+                                NavigableMap<String, Car> byId) {
+        NavigableMap<String, Car> remaining = afterId != null ? byId.tailMap(afterId, false) : byId;
+        List<Car> items = new ArrayList<>(limit);
+        for (String id : remaining.keySet()) {
+            Integer number = numbers.get(id);
+            if (number != null && candidates.contains(number)) {
+                items.add(cars.get(number));
+                if (items.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return items;
+    }
+    
+    private List<Car> sorted(RoaringBitmap candidates, String afterId, int limit) {
+        List<Integer> matches = new ArrayList<>(candidates.getCardinality());
+        IntIterator iterator = candidates.getIntIterator();
+        while (iterator.hasNext()) {
+            int number = iterator.next();
+            if (afterId == null || ids.get(number).compareTo(afterId) > 0) {
+                matches.add(number);
+            }
+        }
+        matches.sort(Comparator.comparing(ids::get));
+        
+        List<Car> items = new ArrayList<>(Math.min(matches.size(), limit));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            items.add(cars.get(matches.get(i)));
+        }
+        return items;
+    }
+}
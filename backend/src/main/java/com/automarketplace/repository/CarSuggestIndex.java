@@ -0,0 +1,269 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Präfix-Index für die Autovervollständigung von Marke und Modell
+ *
+ * Zählt verfügbare Inserate (im Betrieb dasselbe Statusprädikat wie die Suche,
+ * CarFirestoreRepository.IS_AVAILABLE) pro Marke, Modell und "Marke Modell",
+ * ohne Groß-/Kleinschreibung. Abfragen laufen auf einem sortierten Array der
+ * Suchschlüssel: alle Schlüssel mit demselben Präfix liegen zusammenhängend
+ * (ein impliziter Trie) und werden per Binärsuche gefunden. Die Vorschläge mit
+ * den höchsten Anzahlen wählt eine kleine Bestenliste, die fertigen
+ * CarSuggestion-Objekte liegen im Array bereit.
+ *
+ * Änderungen zählen inkrementell. Ändert sich nur eine Anzahl, bekommt der
+ * Snapshot eine Kopie des Vorschlag-Arrays mit den neuen Einträgen; sortiert
+ * wird nur neu, wenn Schlüssel hinzukommen oder wegfallen. Änderungen ohne
+ * Auswirkung auf Marke, Modell oder Verfügbarkeit lassen den Snapshot unberührt.
+ */
+class CarSuggestIndex {
+    
+    // Welche Autos gezählt werden
+    private final Predicate<Car> available;
+    
+    // Identität (Typ, Marke, Modell) -> Eintrag
+    private final Map<String, Entry> entries = new HashMap<>();
+    
+    // Document ID -> {Marke, Modell} der mitgezählten aktiven Autos
+    private final Map<String, String[]> counted = new HashMap<>();
+    
+    // null = nach einer Änderung der Schlüssel noch nicht neu aufgebaut
+    private volatile Snapshot snapshot;
+    
+    // Während apply(): geänderte Einträge und ob Schlüssel hinzukamen/wegfielen
+    private final Set<Entry> changed = new HashSet<>();
+    private boolean keysChanged;
+    
+    CarSuggestIndex(Predicate<Car> available) {
+        this.available = available;
+    }
+    
+    /**
+     * Index aus einer Liste von Autos (ohne Replikat)
+     */
+    static CarSuggestIndex of(Collection<Car> cars, Predicate<Car> available) {
+        CarSuggestIndex index = new CarSuggestIndex(available);
+        for (Car car : cars) {
+            index.apply(Map.of(car.getId(), car), Set.of());
+        }
+        return index;
+    }
+    
+    /**
+     * Änderungen aus dem Snapshot-Listener übernehmen
+     */
+    synchronized void apply(Map<String, Car> upserts, Set<String> removedIds) {
+        for (Map.Entry<String, Car> upsert : upserts.entrySet()) {
+            Car car = upsert.getValue();
+            String[] brandAndModel = available.test(car) && car.getBrand() != null
+                ? new String[] {car.getBrand(), car.getModel()}
+                : null;
+            if (Arrays.equals(brandAndModel, counted.get(upsert.getKey()))) {
+                continue;
+            }
+            uncount(upsert.getKey());
+            if (brandAndModel != null) {
+                counted.put(upsert.getKey(), brandAndModel);
+                add(brandAndModel, 1);
+            }
+        }
+        removedIds.forEach(this::uncount);
+        publish();
+    }
+    
+    private void publish() {
+        Snapshot current = snapshot;
+        if (keysChanged) {
+            snapshot = null;
+        } else if (current != null && !changed.isEmpty()) {
+            CarSuggestion[] suggestions = current.suggestions.clone();
+            for (Entry entry : changed) {
+                suggestions[entry.position] = entry.toSuggestion();
+            }
+            snapshot = new Snapshot(current.keys, suggestions);
+        }
+        changed.clear();
+        keysChanged = false;
+    }
+    
+    synchronized void clear() {
+        entries.clear();
+        counted.clear();
+        snapshot = null;
+    }
+    
+    private void uncount(String id) {
+        String[] brandAndModel = counted.remove(id);
+        if (brandAndModel != null) {
+            add(brandAndModel, -1);
+        }
+    }
+    
+    private void add(String[] brandAndModel, int delta) {
+        String brand = brandAndModel[0];
+        String model = brandAndModel[1];
+        add(CarSuggestion.BRAND, brand, null, delta);
+        if (model != null) {
+            add(CarSuggestion.MODEL, brand, model, delta);
+            add(CarSuggestion.BRAND_MODEL, brand, model, delta);
+        }
+    }
+    
+    private void add(String type, String brand, String model, int delta) {
+        String identity = type + '\u0000' + normalize(brand) + '\u0000' + (model != null ? normalize(model) : "");
+        Entry entry = entries.get(identity);
+        if (entry == null) {
+            entry = new Entry(type, brand, model);
+            entries.put(identity, entry);
+            keysChanged = true;
+        }
+        entry.count += delta;
+        changed.add(entry);
+        if (entry.count <= 0) {
+            entries.remove(identity);
+            keysChanged = true;
+        }
+    }
+    
+    /**
+     * Vorschläge zum Präfix, absteigend nach Anzahl verfügbarer Inserate
+     */
+    List<CarSuggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        
+        Snapshot current = snapshot();
+        int from = lowerBound(current.keys, normalized);
+        int to = lowerBound(current.keys, normalized + Character.MAX_VALUE);
+        
+        // Bestenliste: Positionen der höchsten Anzahlen, absteigend; bei Gleichstand
+        // bleibt der alphabetisch frühere Schlüssel vorn
+        int[] best = new int[Math.min(limit, to - from)];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            int count = current.suggestions[i].getCount();
+            if (size == best.length && count <= current.suggestions[best[size - 1]].getCount()) {
+                continue;
+            }
+            int position = size < best.length ? size++ : size - 1;
+            while (position > 0 && current.suggestions[best[position - 1]].getCount() < count) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = i;
+        }
+        
+        List<CarSuggestion> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(current.suggestions[best[i]]);
+        }
+        return result;
+    }
+    
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = build();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private Snapshot build() {
+        Entry[] sorted = entries.values().toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparing(Entry::key));
+        
+        String[] keys = new String[sorted.length];
+        CarSuggestion[] suggestions = new CarSuggestion[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i].position = i;
+            keys[i] = sorted[i].key();
+            suggestions[i] = sorted[i].toSuggestion();
+        }
+        return new Snapshot(keys, suggestions);
+    }
+    
+    // Erster Index mit Schlüssel >= value
+    private static int lowerBound(String[] keys, String value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class Entry {
+        
+        private final String type;
+        private final String brand;
+        private final String model;
+        private int count;
+        // Position im zuletzt aufgebauten Snapshot
+        private int position;
+        
+        private Entry(String type, String brand, String model) {
+            this.type = type;
+            this.brand = brand;
+            this.model = model;
+        }
+        
+        private String text() {
+            switch (type) {
+                case CarSuggestion.BRAND: return brand;
+                case CarSuggestion.MODEL: return model;
+                default: return brand + " " + model;
+            }
+        }
+        
+        private String key() {
+            return normalize(text());
+        }
+        
+        private CarSuggestion toSuggestion() {
+            return new CarSuggestion(text(), type, brand, model, count);
+        }
+    }
+    
+    private static final class Snapshot {
+        
+        private final String[] keys;
+        private final CarSuggestion[] suggestions;
+        
+        private Snapshot(String[] keys, CarSuggestion[] suggestions) {
+            this.keys = keys;
+            this.suggestions = suggestions;
+        }
+    }
+}
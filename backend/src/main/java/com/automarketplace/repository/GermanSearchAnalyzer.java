@@ -0,0 +1,55 @@
+package com.automarketplace.repository;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.compound.DictionaryCompoundWordTokenFilter;
+import org.apache.lucene.analysis.de.GermanAnalyzer;
+import org.apache.lucene.analysis.de.GermanLightStemFilter;
+import org.apache.lucene.analysis.de.GermanNormalizationFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+import java.util.Collection;
+
+/**
+ * Analyzer der Volltextsuche für deutsche Inseratstexte
+ *
+ * Kleinschreibung, Stoppwörter, Umlaut-/ß-Faltung (ä -> a, ß -> ss, auch
+ * "ae" -> a), Zerlegung von Komposita anhand eines Wörterbuchs
+ * ("Sitzheizung" findet auch "Heizung") und leichtes Stemming.
+ *
+ * Die Wörterbucheinträge werden genauso gefaltet wie die Texte, dürfen also
+ * Umlaute enthalten.
+ */
+class GermanSearchAnalyzer extends Analyzer {
+    
+    private final CharArraySet compounds;
+    
+    GermanSearchAnalyzer(Collection<String> compoundWords) {
+        CharArraySet words = new CharArraySet(compoundWords.size(), false);
+        for (String word : compoundWords) {
+            words.add(normalize("", word).utf8ToString());
+        }
+        this.compounds = CharArraySet.unmodifiableSet(words);
+    }
+    
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer source = new StandardTokenizer();
+        TokenStream result = new LowerCaseFilter(source);
+        result = new StopFilter(result, GermanAnalyzer.getDefaultStopSet());
+        result = new GermanNormalizationFilter(result);
+        // Teilwörter kommen zusätzlich zum ganzen Wort in den Index
+        result = new DictionaryCompoundWordTokenFilter(result, compounds);
+        result = new GermanLightStemFilter(result);
+        return new TokenStreamComponents(source, result);
+    }
+    
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new GermanNormalizationFilter(new LowerCaseFilter(in));
+    }
+}
@@ -0,0 +1,202 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sortierter Bereichsindex über ein ganzzahliges Feld der Autos im Suchindex
+ *
+ * Hält Werte und Nummern (siehe CarSearchIndex) als parallele primitive Arrays,
+ * sortiert nach Wert und bei Gleichstand nach Document ID. Eine Bereichsabfrage
+ * sucht beide Grenzen binär; die Nummern dazwischen sind die Treffer, bereits
+ * in der Reihenfolge von orderBy(feld).
+ *
+ * Änderungen schreibt update() fort: die geänderten Nummern fallen heraus, ihre
+ * neuen Werte werden sortiert und in einem Durchlauf eingemischt. Das Ergebnis
+ * ersetzt die Arrays als Ganzes, Abfragen sortieren nie und lesen immer einen
+ * vollständigen Stand.
+ */
+class RangeIndex {
+    
+    private static final Sorted EMPTY = new Sorted(new long[0], new int[0]);
+    
+    private final Function<Car, ? extends Number> getter;
+    
+    private volatile Sorted sorted = EMPTY;
+    
+    RangeIndex(Function<Car, ? extends Number> getter) {
+        this.getter = getter;
+    }
+    
+    void clear() {
+        sorted = EMPTY;
+    }
+    
+    /**
+     * Geänderte und entfernte Nummern neu einsortieren
+     *
+     * @param changed Nummern, deren Auto sich geändert hat oder entfernt wurde
+     * @param cars    Nummer -> Auto auf dem neuen Stand (null = frei)
+     * @param ids     Nummer -> Document ID auf dem neuen Stand
+     */
+    void update(RoaringBitmap changed, List<Car> cars, List<String> ids) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        // Neue Werte der geänderten Nummern, sortiert nach Wert und Document ID
+        int[] addedNumbers = new int[changed.getCardinality()];
+        long[] addedValues = new long[addedNumbers.length];
+        int added = 0;
+        IntIterator iterator = changed.getIntIterator();
+        while (iterator.hasNext()) {
+            int number = iterator.next();
+            Car car = number < cars.size() ? cars.get(number) : null;
+            Number value = car != null ? getter.apply(car) : null;
+            if (value != null) {
+                addedNumbers[added] = number;
+                addedValues[added] = value.longValue();
+                added++;
+            }
+        }
+        int[] order = new int[added];
+        for (int i = 0; i < added; i++) {
+            order[i] = i;
+        }
+        sort(order, (a, b) -> {
+            int byValue = Long.compare(addedValues[a], addedValues[b]);
+            return byValue != 0 ? byValue : ids.get(addedNumbers[a]).compareTo(ids.get(addedNumbers[b]));
+        });
+        
+        // Bisherige Einträge ohne die geänderten Nummern mit den neuen mischen
+        Sorted current = sorted;
+        long[] values = new long[current.numbers.length + added];
+        int[] numbers = new int[values.length];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < current.numbers.length; i++) {
+            int number = current.numbers[i];
+            if (changed.contains(number)) {
+                continue;
+            }
+            long value = current.values[i];
+            while (next < added && before(addedValues[order[next]], addedNumbers[order[next]], value, number, ids)) {
+                values[size] = addedValues[order[next]];
+                numbers[size++] = addedNumbers[order[next++]];
+            }
+            values[size] = value;
+            numbers[size++] = number;
+        }
+        while (next < added) {
+            values[size] = addedValues[order[next]];
+            numbers[size++] = addedNumbers[order[next++]];
+        }
+        sorted = new Sorted(Arrays.copyOf(values, size), Arrays.copyOf(numbers, size));
+    }
+    
+    /**
+     * Nummern der Autos mit min <= Wert <= max
+     */
+    RoaringBitmap bitmap(long min, long max) {
+        Sorted current = sorted;
+        int from = current.lowerBound(min);
+        int to = current.upperBound(max);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        if (from < to) {
+            bitmap.addN(current.numbers, from, to - from);
+        }
+        return bitmap;
+    }
+    
+    /**
+     * Nummern der Autos mit min <= Wert <= max, sortiert nach Wert und Document ID
+     */
+    int[] numbers(long min, long max) {
+        Sorted current = sorted;
+        int from = current.lowerBound(min);
+        int to = current.upperBound(max);
+        return from < to ? Arrays.copyOfRange(current.numbers, from, to) : new int[0];
+    }
+    
+    // Kommt (value, number) vor (otherValue, otherNumber)? Die ID nur bei gleichem Wert vergleichen
+    private static boolean before(long value, int number, long otherValue, int otherNumber, List<String> ids) {
+        if (value != otherValue) {
+            return value < otherValue;
+        }
+        return ids.get(number).compareTo(ids.get(otherNumber)) < 0;
+    }
+    
+    /**
+     * Stabiles Mergesort über primitive Positionen, ohne Boxing
+     */
+    private static void sort(int[] positions, IntBinaryOperator comparator) {
+        int[] buffer = new int[positions.length];
+        for (int width = 1; width < positions.length; width *= 2) {
+            for (int low = 0; low < positions.length - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, positions.length);
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    buffer[out++] = comparator.applyAsInt(positions[right], positions[left]) < 0
+                        ? positions[right++] : positions[left++];
+                }
+                while (left < middle) {
+                    buffer[out++] = positions[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = positions[right++];
+                }
+                System.arraycopy(buffer, low, positions, low, high - low);
+            }
+        }
+    }
+    
+    private static final class Sorted {
+        
+        private final long[] values;
+        private final int[] numbers;
+        
+        private Sorted(long[] values, int[] numbers) {
+            this.values = values;
+            this.numbers = numbers;
+        }
+        
+        // Erster Index mit Wert >= min
+        private int lowerBound(long min) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < min) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+        
+        // Erster Index mit Wert > max
+        private int upperBound(long max) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] <= max) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
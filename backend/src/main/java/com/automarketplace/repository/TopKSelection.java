@@ -0,0 +1,207 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarSort;
+import com.automarketplace.service.PageCursor;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Die ersten k Autos einer Sortierung (CarSort), ohne alle Treffer zu sortieren
+ *
+ * Hält die bisher besten k Autos in einem beschränkten Max-Heap, das
+ * schlechteste an der Wurzel. Verglichen werden primitive long-Schlüssel bzw.
+ * bei der Textsortierung vorberechnete CollationKeys, bei Gleichstand die
+ * Document ID. Ein Auto, das nicht besser als die Wurzel ist, kostet nur einen
+ * Vergleich; insgesamt O(n log k) statt O(n log n).
+ *
+ * Mit Cursor zählen nur Autos hinter der Position des Cursors (Keyset-Pagination).
+ */
+class TopKSelection {
+    
+    private final CarSort sort;
+    private final boolean text;
+    private final boolean descending;
+    private final Collator collator;
+    
+    private final long[] keys;
+    private final CollationKey[] textKeys;
+    private final Car[] cars;
+    private int size;
+    
+    // Position des Cursors (afterId == null = ab Anfang)
+    private long afterKey;
+    private CollationKey afterText;
+    private String afterId;
+    
+    /**
+     * @param limit    höchstens so viele Autos
+     * @param expected erwartete Anzahl der Kandidaten (begrenzt die Heap-Größe)
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    TopKSelection(CarSort sort, PageCursor after, int limit, long expected) {
+        this.sort = sort;
+        this.text = sort.isText();
+        this.descending = sort.isDescending();
+        this.collator = text ? CarSort.collator() : null;
+        
+        int capacity = (int) Math.max(0, Math.min(limit, expected));
+        this.keys = new long[capacity];
+        this.textKeys = text ? new CollationKey[capacity] : null;
+        this.cars = new Car[capacity];
+        
+        if (after != null) {
+            if (!sort.getName().equals(after.getOrderBy())) {
+                throw new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung");
+            }
+            if (text) {
+                if (after.getValue() != null && !(after.getValue() instanceof String)) {
+                    throw new IllegalArgumentException("Ungültiger Cursor");
+                }
+                afterText = textKey((String) after.getValue());
+            } else {
+                if (!(after.getValue() instanceof Number)) {
+                    throw new IllegalArgumentException("Ungültiger Cursor");
+                }
+                afterKey = ((Number) after.getValue()).longValue();
+            }
+            afterId = after.getDocumentId();
+        }
+    }
+    
+    /**
+     * Cursor hinter einem Auto dieser Sortierung
+     */
+    static PageCursor cursorAfter(CarSort sort, Car car) {
+        Object value = sort.isText() ? CarSort.text(car) : (Object) sort.key(car);
+        return new PageCursor(sort.getName(), value, car.getId());
+    }
+    
+    /**
+     * CollationKey für die Textsortierung (null ohne Text)
+     */
+    CollationKey textKey(String text) {
+        return text != null ? collator.getCollationKey(text) : null;
+    }
+    
+    /**
+     * Auto anbieten; der Schlüssel wird hier berechnet
+     */
+    void offer(Car car) {
+        offer(car, text ? textKey(CarSort.text(car)) : null);
+    }
+    
+    /**
+     * Auto mit vorberechnetem CollationKey anbieten (nur Textsortierung)
+     */
+    void offer(Car car, CollationKey textKey) {
+        if (cars.length == 0) {
+            return;
+        }
+        long key = text ? 0 : sort.key(car);
+        String id = car.getId();
+        if (afterId != null && compare(key, textKey, id, afterKey, afterText, afterId) <= 0) {
+            return;
+        }
+        
+        if (size < cars.length) {
+            set(size, key, textKey, car);
+            siftUp(size++);
+        } else if (compare(key, textKey, id, 0) < 0) {
+            set(0, key, textKey, car);
+            siftDown(0);
+        }
+    }
+    
+    /**
+     * Ausgewählte Autos in Sortierreihenfolge
+     */
+    List<Car> result() {
+        Car[] sorted = new Car[size];
+        // Wurzel ist jeweils das schlechteste verbliebene Auto
+        for (int last = size - 1; last >= 0; last--) {
+            sorted[last] = cars[0];
+            swap(0, last);
+            size = last;
+            siftDown(0);
+        }
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+    
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(parent, index) >= 0) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+    
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && compare(left, largest) > 0) {
+                largest = left;
+            }
+            if (right < size && compare(right, largest) > 0) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+    
+    private int compare(int a, int b) {
+        return compare(keys[a], textKeys != null ? textKeys[a] : null, cars[a].getId(), b);
+    }
+    
+    private int compare(long key, CollationKey textKey, String id, int index) {
+        return compare(key, textKey, id, keys[index], textKeys != null ? textKeys[index] : null, cars[index].getId());
+    }
+    
+    private int compare(long keyA, CollationKey textA, String idA, long keyB, CollationKey textB, String idB) {
+        int result = text ? compareText(textA, textB) : Long.compare(keyA, keyB);
+        return result != 0 ? result : idA.compareTo(idB);
+    }
+    
+    // Ohne Text immer am Ende, sonst in Sortierrichtung
+    private int compareText(CollationKey a, CollationKey b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return descending ? b.compareTo(a) : a.compareTo(b);
+    }
+    
+    private void set(int index, long key, CollationKey textKey, Car car) {
+        keys[index] = key;
+        if (textKeys != null) {
+            textKeys[index] = textKey;
+        }
+        cars[index] = car;
+    }
+    
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        if (textKeys != null) {
+            CollationKey textKey = textKeys[a];
+            textKeys[a] = textKeys[b];
+            textKeys[b] = textKey;
+        }
+        Car car = cars[a];
+        cars[a] = cars[b];
+        cars[b] = car;
+    }
+}
@@ -0,0 +1,82 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.AccountStatus;
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.automarketplace.service.DocumentCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.automarketplace.service.DocumentValues.*;
+
+/**
+ * Abbildung von User auf Firestore-Felder ohne Reflection
+ * 
+ * Gegenstück zu CarCodec; schreibt auch die abgeleiteten Felder
+ * fullName, seller, customer und active. Neue Felder in User müssen
+ * hier ergänzt werden.
+ */
+@Component
+public class UserCodec implements DocumentCodec<User> {
+    
+    @Override
+    public Class<User> getType() {
+        return User.class;
+    }
+    
+    @Override
+    public User decode(String documentId, Map<String, Object> data) {
+        User user = new User();
+        user.setId(documentId);
+        
+        for (Map.Entry<String, Object> field : data.entrySet()) {
+            Object value = field.getValue();
+            switch (field.getKey()) {
+                case "firebaseUid": user.setFirebaseUid(asString(value)); break;
+                case "email": user.setEmail(asString(value)); break;
+                case "firstName": user.setFirstName(asString(value)); break;
+                case "lastName": user.setLastName(asString(value)); break;
+                case "phoneNumber": user.setPhoneNumber(asString(value)); break;
+                case "profileImageUrl": user.setProfileImageUrl(asString(value)); break;
+                case "userType": user.setUserType(asEnum(value, UserType.class)); break;
+                case "status": user.setStatus(asEnum(value, AccountStatus.class)); break;
+                case "createdAt": user.setCreatedAt(asLocalDateTime(value)); break;
+                case "updatedAt": user.setUpdatedAt(asLocalDateTime(value)); break;
+                case "lastLoginAt": user.setLastLoginAt(asLocalDateTime(value)); break;
+                case "companyName": user.setCompanyName(asString(value)); break;
+                case "businessLicense": user.setBusinessLicense(asString(value)); break;
+                case "address": user.setAddress(asString(value)); break;
+                case "specializations": user.setSpecializations(asStringList(value)); break;
+                default: break; // abgeleitete Felder
+            }
+        }
+        return user;
+    }
+    
+    @Override
+    public Map<String, Object> encode(User user) {
+        Map<String, Object> data = new HashMap<>(32);
+        data.put("firebaseUid", user.getFirebaseUid());
+        data.put("email", user.getEmail());
+        data.put("firstName", user.getFirstName());
+        data.put("lastName", user.getLastName());
+        data.put("phoneNumber", user.getPhoneNumber());
+        data.put("profileImageUrl", user.getProfileImageUrl());
+        data.put("userType", fromEnum(user.getUserType()));
+        data.put("status", fromEnum(user.getStatus()));
+        data.put("createdAt", fromLocalDateTime(user.getCreatedAt()));
+        data.put("updatedAt", fromLocalDateTime(user.getUpdatedAt()));
+        data.put("lastLoginAt", fromLocalDateTime(user.getLastLoginAt()));
+        data.put("companyName", user.getCompanyName());
+        data.put("businessLicense", user.getBusinessLicense());
+        data.put("address", user.getAddress());
+        data.put("specializations", user.getSpecializations());
+        data.put("fullName", user.getFullName());
+        data.put("seller", user.isSeller());
+        data.put("customer", user.isCustomer());
+        data.put("active", user.isActive());
+        return data;
+    }
+}
@@ -1,15 +1,23 @@
 package com.automarketplace.repository;
 
 import com.automarketplace.model.User;
-import com.automarketplace.service.FirestoreService;
+import com.automarketplace.service.BulkWriteResult;
+import com.automarketplace.service.DocumentStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 /**
  * Repository für User-Operationen mit Firestore
+ *
+ * Zu den meisten Methoden gibt es eine nicht-blockierende Variante mit dem Suffix "Async".
  */
 @Repository
 public class UserFirestoreRepository {
@@ -17,7 +25,7 @@ public class UserFirestoreRepository {
     private static final String COLLECTION_NAME = "users";
     
     @Autowired
-    private FirestoreService firestoreService;
+    private DocumentStore documentStore;
     
     /**
      * Benutzer speichern
@@ -25,19 +33,117 @@ public class UserFirestoreRepository {
      */
     public User save(User user) {
         String documentId = user.getFirebaseUid();
-        firestoreService.saveDocument(COLLECTION_NAME, documentId, user);
+        documentStore.saveDocument(COLLECTION_NAME, documentId, user);
         user.setId(documentId);
         return user;
     }
     
+    /**
+     * Benutzer speichern (nicht-blockierend)
+     */
+    public CompletableFuture<User> saveAsync(User user) {
+        String documentId = user.getFirebaseUid();
+        return documentStore.saveDocumentAsync(COLLECTION_NAME, documentId, user)
+            .thenApply(id -> {
+                user.setId(documentId);
+                return user;
+            });
+    }
+    
+    /**
+     * Benutzer gesammelt speichern
+     * Verwendet wie save() die Firebase UID als Document ID;
+     * die ID wird nur für erfolgreich geschriebene Benutzer gesetzt
+     *
+     * @return Ergebnis pro Dokument in der Reihenfolge der Eingabe
+     */
+    public BulkWriteResult saveAll(Collection<User> users) {
+        List<User> list = new ArrayList<>(users);
+        return assignIds(list, documentStore.saveDocuments(COLLECTION_NAME, list, User::getFirebaseUid));
+    }
+    
+    /**
+     * Benutzer gesammelt speichern (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> saveAllAsync(Collection<User> users) {
+        List<User> list = new ArrayList<>(users);
+        return documentStore.saveDocumentsAsync(COLLECTION_NAME, list, User::getFirebaseUid)
+            .thenApply(result -> assignIds(list, result));
+    }
+    
+    private static BulkWriteResult assignIds(List<User> users, BulkWriteResult result) {
+        // Einträge stehen in der Reihenfolge der Eingabe; fehlgeschlagene Benutzer behalten ihre ID
+        for (int i = 0; i < users.size(); i++) {
+            BulkWriteResult.Entry entry = result.getEntries().get(i);
+            if (entry.isSuccess()) {
+                users.get(i).setId(entry.getDocumentId());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Einzelne Felder eines Benutzers aktualisieren (nur diese Felder werden geschrieben)
+     *
+     * @param fields Feldname -> neuer Wert
+     */
+    public void update(String firebaseUid, Map<String, Object> fields) {
+        documentStore.updateDocument(COLLECTION_NAME, firebaseUid, fields);
+    }
+    
+    /**
+     * Einzelne Felder eines Benutzers aktualisieren (nicht-blockierend)
+     */
+    public CompletableFuture<Void> updateAsync(String firebaseUid, Map<String, Object> fields) {
+        return documentStore.updateDocumentAsync(COLLECTION_NAME, firebaseUid, fields);
+    }
+    
+    /**
+     * Benutzer gesammelt teilweise aktualisieren
+     *
+     * @param updates Document ID -> zu ändernde Felder
+     */
+    public BulkWriteResult updateAll(Map<String, Map<String, Object>> updates) {
+        return documentStore.updateDocuments(COLLECTION_NAME, updates);
+    }
+    
+    /**
+     * Benutzer gesammelt teilweise aktualisieren (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> updateAllAsync(Map<String, Map<String, Object>> updates) {
+        return documentStore.updateDocumentsAsync(COLLECTION_NAME, updates);
+    }
+    
+    /**
+     * Benutzer gesammelt löschen
+     */
+    public BulkWriteResult deleteAll(Collection<String> ids) {
+        return documentStore.deleteDocuments(COLLECTION_NAME, ids);
+    }
+    
+    /**
+     * Benutzer gesammelt löschen (nicht-blockierend)
+     */
+    public CompletableFuture<BulkWriteResult> deleteAllAsync(Collection<String> ids) {
+        return documentStore.deleteDocumentsAsync(COLLECTION_NAME, ids);
+    }
+    
     /**
      * Benutzer nach Firebase UID finden
      */
     public Optional<User> findByFirebaseUid(String firebaseUid) {
-        User user = firestoreService.getDocument(COLLECTION_NAME, firebaseUid, User.class);
+        User user = documentStore.getDocument(COLLECTION_NAME, firebaseUid, User.class);
         return Optional.ofNullable(user);
     }
     
+    /**
+     * Benutzer nach Firebase UID finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<User>> findByFirebaseUidAsync(String firebaseUid) {
+        return documentStore.getDocumentAsync(COLLECTION_NAME, firebaseUid, User.class)
+            .thenApply(Optional::ofNullable);
+    }
+    
     /**
      * Benutzer nach ID finden
      */
@@ -45,40 +151,83 @@ public class UserFirestoreRepository {
         return findByFirebaseUid(id);
     }
     
+    /**
+     * Benutzer nach ID finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<User>> findByIdAsync(String id) {
+        return findByFirebaseUidAsync(id);
+    }
+    
     /**
      * Alle Benutzer abrufen
      */
     public List<User> findAll() {
-        return firestoreService.getAllDocuments(COLLECTION_NAME, User.class);
+        return documentStore.getAllDocuments(COLLECTION_NAME, User.class);
+    }
+    
+    /**
+     * Alle Benutzer abrufen (nicht-blockierend)
+     */
+    public CompletableFuture<List<User>> findAllAsync() {
+        return documentStore.getAllDocumentsAsync(COLLECTION_NAME, User.class);
     }
     
     /**
      * Benutzer nach E-Mail finden
      */
     public Optional<User> findByEmail(String email) {
-        List<User> users = firestoreService.queryDocuments(COLLECTION_NAME, "email", email, User.class);
+        List<User> users = documentStore.queryDocuments(COLLECTION_NAME, "email", email, User.class);
         return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
     }
     
+    /**
+     * Benutzer nach E-Mail finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<User>> findByEmailAsync(String email) {
+        return documentStore.queryDocumentsAsync(COLLECTION_NAME, "email", email, User.class)
+            .thenApply(users -> users.isEmpty() ? Optional.<User>empty() : Optional.of(users.get(0)));
+    }
+    
     /**
      * Benutzer löschen
      */
     public void delete(User user) {
-        firestoreService.deleteDocument(COLLECTION_NAME, user.getFirebaseUid());
+        documentStore.deleteDocument(COLLECTION_NAME, user.getFirebaseUid());
+    }
+    
+    /**
+     * Benutzer löschen (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteAsync(User user) {
+        return documentStore.deleteDocumentAsync(COLLECTION_NAME, user.getFirebaseUid());
     }
     
     /**
      * Benutzer nach Firebase UID löschen
      */
     public void deleteByFirebaseUid(String firebaseUid) {
-        firestoreService.deleteDocument(COLLECTION_NAME, firebaseUid);
+        documentStore.deleteDocument(COLLECTION_NAME, firebaseUid);
+    }
+    
+    /**
+     * Benutzer nach Firebase UID löschen (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteByFirebaseUidAsync(String firebaseUid) {
+        return documentStore.deleteDocumentAsync(COLLECTION_NAME, firebaseUid);
     }
     
     /**
      * Prüfen ob Benutzer existiert
      */
     public boolean existsByFirebaseUid(String firebaseUid) {
-        return firestoreService.documentExists(COLLECTION_NAME, firebaseUid);
+        return documentStore.documentExists(COLLECTION_NAME, firebaseUid);
+    }
+    
+    /**
+     * Prüfen ob Benutzer existiert (nicht-blockierend)
+     */
+    public CompletableFuture<Boolean> existsByFirebaseUidAsync(String firebaseUid) {
+        return documentStore.documentExistsAsync(COLLECTION_NAME, firebaseUid);
     }
     
     /**
@@ -88,34 +237,54 @@ public class UserFirestoreRepository {
         return findByEmail(email).isPresent();
     }
     
+    /**
+     * Prüfen ob E-Mail bereits verwendet wird (nicht-blockierend)
+     */
+    public CompletableFuture<Boolean> existsByEmailAsync(String email) {
+        return findByEmailAsync(email).thenApply(Optional::isPresent);
+    }
+    
     /**
      * Aktive Verkäufer finden
      */
     public List<User> findActiveSellers() {
-        return findAll().stream()
-            .filter(user -> "SELLER".equals(user.getUserType().toString()) && 
-                           "ACTIVE".equals(user.getAccountStatus().toString()))
-            .collect(java.util.stream.Collectors.toList());
+        return documentStore.filterDocuments(COLLECTION_NAME, null, null, User.class, activeOfType("SELLER"));
+    }
+    
+    /**
+     * Aktive Verkäufer finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<User>> findActiveSellersAsync() {
+        return documentStore.filterDocumentsAsync(COLLECTION_NAME, null, null, User.class, activeOfType("SELLER"));
     }
     
     /**
      * Aktive Kunden finden
      */
     public List<User> findActiveCustomers() {
-        return findAll().stream()
-            .filter(user -> "CUSTOMER".equals(user.getUserType().toString()) && 
-                           "ACTIVE".equals(user.getAccountStatus().toString()))
-            .collect(java.util.stream.Collectors.toList());
+        return documentStore.filterDocuments(COLLECTION_NAME, null, null, User.class, activeOfType("CUSTOMER"));
+    }
+    
+    /**
+     * Aktive Kunden finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<User>> findActiveCustomersAsync() {
+        return documentStore.filterDocumentsAsync(COLLECTION_NAME, null, null, User.class, activeOfType("CUSTOMER"));
     }
     
     /**
      * Benutzer nach Namen suchen
      */
     public List<User> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(String firstName, String lastName) {
-        return findAll().stream()
-            .filter(user -> user.getFirstName().toLowerCase().contains(firstName.toLowerCase()) ||
-                           user.getLastName().toLowerCase().contains(lastName.toLowerCase()))
-            .collect(java.util.stream.Collectors.toList());
+        return documentStore.filterDocuments(COLLECTION_NAME, null, null, User.class, nameContains(firstName, lastName));
+    }
+    
+    /**
+     * Benutzer nach Namen suchen (nicht-blockierend)
+     */
+    public CompletableFuture<List<User>> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseAsync(String firstName, String lastName) {
+        return documentStore.filterDocumentsAsync(COLLECTION_NAME, null, null, User.class,
+                                                    nameContains(firstName, lastName));
     }
     
     /**
@@ -125,4 +294,24 @@ public class UserFirestoreRepository {
         // Für eine einfache Implementierung - in der Realität würde man ein separates Feld haben
         return findActiveSellers();
     }
+    
+    /**
+     * Verkäufer nach Spezialisierung finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<User>> findSellersBySpecializationAsync(String specialization) {
+        return findActiveSellersAsync();
+    }
+    
+    // Filter für die Methoden, die im Speicher filtern müssen.
+    // Die Dokumente werden gestreamt, es bleiben nur die Treffer im Speicher.
+    
+    private static Predicate<User> activeOfType(String userType) {
+        return user -> userType.equals(user.getUserType().toString()) &&
+                       "ACTIVE".equals(user.getAccountStatus().toString());
+    }
+    
+    private static Predicate<User> nameContains(String firstName, String lastName) {
+        return user -> user.getFirstName().toLowerCase().contains(firstName.toLowerCase()) ||
+                       user.getLastName().toLowerCase().contains(lastName.toLowerCase());
+    }
 }
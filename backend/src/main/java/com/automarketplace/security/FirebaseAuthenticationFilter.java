@@ -7,6 +7,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -22,10 +24,16 @@ import java.util.Collections;
  * 
  * Dieser Filter interceptiert alle HTTP-Requests und prüft Firebase JWT Tokens.
  * Wenn ein gültiger Token vorhanden ist, wird der User authentifiziert.
+ * 
+ * verifyIdToken() prüft lokal gegen die gecachten Public Keys von Google und
+ * blockiert nur beim gelegentlichen Nachladen der Keys. Protokolliert wird
+ * über SLF4J statt System.out, dessen Sperre sonst jeder Request nimmt.
  */
 @Component
 public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
     
+    private static final Logger logger = LoggerFactory.getLogger(FirebaseAuthenticationFilter.class);
+    
     private final FirebaseAuth firebaseAuth;
     
     @Autowired
@@ -66,10 +74,10 @@ public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
                 // Setze Authentication im Security Context
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 
-                System.out.println("User erfolgreich authentifiziert: " + firebaseUid + " (" + email + ")");
+                logger.debug("User erfolgreich authentifiziert: {} ({})", firebaseUid, email);
                 
             } catch (FirebaseAuthException e) {
-                System.err.println("Firebase Token Validierung fehlgeschlagen: " + e.getMessage());
+                logger.warn("Firebase Token Validierung fehlgeschlagen: {}", e.getMessage());
                 // Token ist ungültig - Request wird ohne Authentication fortgesetzt
                 // Spring Security wird den Zugriff auf geschützte Endpoints verweigern
             }
@@ -0,0 +1,81 @@
+package com.automarketplace.service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Ergebnis einer Massen-Schreiboperation (saveAll, updateAll, deleteAll)
+ *
+ * Enthält pro Dokument einen Eintrag in der Reihenfolge der Eingabe,
+ * damit der Aufrufer fehlgeschlagene Dokumente gezielt wiederholen kann.
+ */
+public class BulkWriteResult {
+
+    private final List<Entry> entries;
+
+    public BulkWriteResult(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int getSucceededCount() {
+        return (int) entries.stream().filter(Entry::isSuccess).count();
+    }
+
+    public int getFailedCount() {
+        return entries.size() - getSucceededCount();
+    }
+
+    public boolean isAllSucceeded() {
+        return entries.stream().allMatch(Entry::isSuccess);
+    }
+
+    /**
+     * IDs der fehlgeschlagenen Dokumente
+     */
+    public List<String> getFailedIds() {
+        return entries.stream()
+            .filter(entry -> !entry.isSuccess())
+            .map(Entry::getDocumentId)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Ergebnis für ein einzelnes Dokument
+     */
+    public static class Entry {
+
+        private final String documentId;
+        private final boolean success;
+        private final String error;
+
+        private Entry(String documentId, boolean success, String error) {
+            this.documentId = documentId;
+            this.success = success;
+            this.error = error;
+        }
+
+        public static Entry success(String documentId) {
+            return new Entry(documentId, true, null);
+        }
+
+        public static Entry failure(String documentId, String error) {
+            return new Entry(documentId, false, error);
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
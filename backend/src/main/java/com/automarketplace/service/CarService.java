@@ -1,31 +1,66 @@
 package com.automarketplace.service;
 
 import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSearchHit;
+import com.automarketplace.model.CarSort;
 import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.CarSuggestion;
 import com.automarketplace.model.User;
 import com.automarketplace.repository.CarFirestoreRepository;
+import com.automarketplace.repository.CarFullTextIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Service-Klasse für Car-Business-Logic mit Firestore
+ *
+ * Die Methoden mit dem Suffix "Async" blockieren nicht und werden vom
+ * CarController verwendet; Fehler werden über das zurückgegebene Future gemeldet.
  */
 @Service
 public class CarService {
     
+    /**
+     * Mindestanzahl Autos, die bei einer Suche pro Firestore-Abfrage gelesen werden
+     */
+    private static final int SEARCH_SCAN_BATCH_SIZE = 50;
+    
+    /**
+     * Sortierfeld im Cursor der Volltextsuche (Relevanz)
+     */
+    private static final String SCORE = "_score";
+    
     private final CarFirestoreRepository carRepository;
     private final UserService userService;
     
+    // Fehlt bei search.fulltext.enabled=false
+    private final Optional<CarFullTextIndex> fullTextIndex;
+    
     @Autowired
-    public CarService(CarFirestoreRepository carRepository, UserService userService) {
+    public CarService(CarFirestoreRepository carRepository, UserService userService,
+                      Optional<CarFullTextIndex> fullTextIndex) {
         this.carRepository = carRepository;
         this.userService = userService;
+        this.fullTextIndex = fullTextIndex;
     }
     
     /**
@@ -33,16 +68,19 @@ public class CarService {
      */
     public Car createCar(Car car, String sellerFirebaseUid) {
         // Verkäufer validieren
-        User seller = userService.findByFirebaseUid(sellerFirebaseUid)
-            .orElseThrow(() -> new RuntimeException("Verkäufer nicht gefunden: " + sellerFirebaseUid));
-        
-        // Auto-Daten setzen
-        car.setSellerId(seller.getFirebaseUid());
-        car.setStatus(CarStatus.DRAFT);
-        car.setCreatedAt(LocalDateTime.now());
-        car.setUpdatedAt(LocalDateTime.now());
+        User seller = requireSeller(userService.findByFirebaseUid(sellerFirebaseUid), sellerFirebaseUid);
         
-        return carRepository.save(car);
+        return indexText(carRepository.save(prepareNewCar(car, seller)));
+    }
+    
+    /**
+     * Erstelle neues Auto-Inserat (nicht-blockierend)
+     */
+    public CompletableFuture<Car> createCarAsync(Car car, String sellerFirebaseUid) {
+        return userService.findByFirebaseUidAsync(sellerFirebaseUid)
+            .thenApply(seller -> requireSeller(seller, sellerFirebaseUid))
+            .thenCompose(seller -> carRepository.saveAsync(prepareNewCar(car, seller)))
+            .thenApply(this::indexText);
     }
     
     /**
@@ -52,6 +90,29 @@ public class CarService {
         return carRepository.findById(id);
     }
     
+    /**
+     * Auto nach ID finden (nicht-blockierend)
+     */
+    public CompletableFuture<Optional<Car>> findByIdAsync(String id) {
+        return carRepository.findByIdAsync(id);
+    }
+    
+    /**
+     * Mehrere Autos nach ID finden (z.B. für Vergleich und Favoriten)
+     *
+     * @return Map ID -> Auto in der Reihenfolge der IDs; unbekannte IDs fehlen
+     */
+    public Map<String, Car> findByIds(Collection<String> ids) {
+        return carRepository.findAllById(ids);
+    }
+    
+    /**
+     * Mehrere Autos nach ID finden (nicht-blockierend)
+     */
+    public CompletableFuture<Map<String, Car>> findByIdsAsync(Collection<String> ids) {
+        return carRepository.findAllByIdAsync(ids);
+    }
+    
     /**
      * Alle verfügbaren Autos finden
      */
@@ -59,6 +120,29 @@ public class CarService {
         return carRepository.findAvailableCars();
     }
     
+    /**
+     * Alle verfügbaren Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findAvailableCarsAsync() {
+        return carRepository.findAvailableCarsAsync();
+    }
+    
+    /**
+     * Eine Seite verfügbarer Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findAvailableCarsAsync(PageRequest pageRequest) {
+        return carRepository.findAvailableCarsAsync(pageRequest);
+    }
+    
+    /**
+     * Eine Seite verfügbarer Autos mit ausgewählten Feldern finden (nicht-blockierend)
+     *
+     * @param fields zu lesende Felder (siehe CarFields) oder null für alle
+     */
+    public CompletableFuture<Page<Car>> findAvailableCarsAsync(PageRequest pageRequest, Set<String> fields) {
+        return carRepository.findAvailableCarsAsync(pageRequest, fields);
+    }
+    
     /**
      * Alle Autos abrufen
      */
@@ -66,89 +150,192 @@ public class CarService {
         return carRepository.findAll();
     }
     
+    /**
+     * Alle Autos abrufen (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findAllCarsAsync() {
+        return carRepository.findAllAsync();
+    }
+    
     /**
      * Autos eines Verkäufers finden
      */
     public List<Car> findCarsBySeller(String sellerFirebaseUid) {
-        User seller = userService.findByFirebaseUid(sellerFirebaseUid)
-            .orElseThrow(() -> new RuntimeException("Verkäufer nicht gefunden: " + sellerFirebaseUid));
+        User seller = requireSeller(userService.findByFirebaseUid(sellerFirebaseUid), sellerFirebaseUid);
         
         return carRepository.findBySeller(seller);
     }
     
+    /**
+     * Autos eines Verkäufers finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findCarsBySellerAsync(String sellerFirebaseUid) {
+        return userService.findByFirebaseUidAsync(sellerFirebaseUid)
+            .thenApply(seller -> requireSeller(seller, sellerFirebaseUid))
+            .thenCompose(carRepository::findBySellerAsync);
+    }
+    
+    /**
+     * Eine Seite der Autos eines Verkäufers finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findCarsBySellerAsync(String sellerFirebaseUid, PageRequest pageRequest) {
+        return userService.findByFirebaseUidAsync(sellerFirebaseUid)
+            .thenApply(seller -> requireSeller(seller, sellerFirebaseUid))
+            .thenCompose(seller -> carRepository.findBySellerIdAsync(seller.getFirebaseUid(), pageRequest));
+    }
+    
     /**
      * Autos eines Verkäufers nach Status finden
      */
     public List<Car> findCarsBySellerAndStatus(String sellerFirebaseUid, CarStatus status) {
-        User seller = userService.findByFirebaseUid(sellerFirebaseUid)
-            .orElseThrow(() -> new RuntimeException("Verkäufer nicht gefunden: " + sellerFirebaseUid));
+        User seller = requireSeller(userService.findByFirebaseUid(sellerFirebaseUid), sellerFirebaseUid);
         
         return carRepository.findBySellerAndStatus(seller, status);
     }
     
+    /**
+     * Autos eines Verkäufers nach Status finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findCarsBySellerAndStatusAsync(String sellerFirebaseUid, CarStatus status) {
+        return userService.findByFirebaseUidAsync(sellerFirebaseUid)
+            .thenApply(seller -> requireSeller(seller, sellerFirebaseUid))
+            .thenCompose(seller -> carRepository.findBySellerAndStatusAsync(seller, status));
+    }
+    
+    // Änderungen an einem Auto prüfen den Besitzer an der bekannten Version und
+    // schreiben nur, wenn das Dokument seitdem unverändert ist (Precondition auf
+    // den Änderungszeitpunkt). Besitzer und Version kommen aus dem Replikat, das
+    // auch den eigenen geschriebenen Stand sofort übernimmt; dann kostet die
+    // Änderung nur den Schreibvorgang. Ohne nutzbares Replikat wird vorher über
+    // den Dokument-Cache gelesen. Bei einem Konflikt wird einmal mit frisch aus
+    // Firestore gelesener Version wiederholt.
+    
     /**
      * Auto aktualisieren
      */
     public Car updateCar(String id, Car updatedCar, String sellerFirebaseUid) {
-        Car existingCar = carRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Auto nicht gefunden: " + id));
-        
-        // Prüfen ob der Benutzer der Besitzer ist
-        if (!existingCar.getSellerId().equals(sellerFirebaseUid)) {
-            throw new RuntimeException("Keine Berechtigung für dieses Auto");
-        }
-        
-        // Aktualisierbare Felder setzen
-        existingCar.setBrand(updatedCar.getBrand());
-        existingCar.setModel(updatedCar.getModel());
-        existingCar.setYear(updatedCar.getYear());
-        existingCar.setPrice(updatedCar.getPrice());
-        existingCar.setMileage(updatedCar.getMileage());
-        existingCar.setFuelType(updatedCar.getFuelType());
-        existingCar.setTransmission(updatedCar.getTransmission());
-        existingCar.setCondition(updatedCar.getCondition());
-        existingCar.setDescription(updatedCar.getDescription());
-        existingCar.setImages(updatedCar.getImages());
-        existingCar.setUpdatedAt(LocalDateTime.now());
-        
-        return carRepository.save(existingCar);
+        return changeOwnedCar(id, sellerFirebaseUid, car -> applyUpdate(car, updatedCar));
+    }
+    
+    /**
+     * Auto aktualisieren (nicht-blockierend)
+     */
+    public CompletableFuture<Car> updateCarAsync(String id, Car updatedCar, String sellerFirebaseUid) {
+        return changeOwnedCarAsync(id, sellerFirebaseUid, car -> applyUpdate(car, updatedCar));
     }
     
     /**
      * Auto-Status ändern
      */
     public Car updateCarStatus(String id, CarStatus newStatus, String sellerFirebaseUid) {
-        Car car = carRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Auto nicht gefunden: " + id));
-        
-        // Prüfen ob der Benutzer der Besitzer ist
-        if (!car.getSellerId().equals(sellerFirebaseUid)) {
-            throw new RuntimeException("Keine Berechtigung für dieses Auto");
-        }
-        
-        car.setStatus(newStatus);
-        car.setUpdatedAt(LocalDateTime.now());
-        
-        if (newStatus == CarStatus.SOLD) {
-            car.setSoldAt(LocalDateTime.now());
-        }
-        
-        return carRepository.save(car);
+        return changeOwnedCar(id, sellerFirebaseUid, car -> applyStatus(car, newStatus));
+    }
+    
+    /**
+     * Auto-Status ändern (nicht-blockierend)
+     */
+    public CompletableFuture<Car> updateCarStatusAsync(String id, CarStatus newStatus, String sellerFirebaseUid) {
+        return changeOwnedCarAsync(id, sellerFirebaseUid, car -> applyStatus(car, newStatus));
     }
     
     /**
      * Auto löschen
      */
     public void deleteCar(String id, String sellerFirebaseUid) {
-        Car car = carRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Auto nicht gefunden: " + id));
+        retryOnConflict(
+            () -> deleteOwnedCar(carRepository.findKnownVersion(id), id, sellerFirebaseUid),
+            () -> deleteOwnedCar(carRepository.findVersionedById(id), id, sellerFirebaseUid));
+        fullTextIndex.ifPresent(index -> index.delete(id));
+    }
+    
+    /**
+     * Auto löschen (nicht-blockierend)
+     */
+    public CompletableFuture<Void> deleteCarAsync(String id, String sellerFirebaseUid) {
+        return retryOnConflictAsync(
+            () -> carRepository.findKnownVersionAsync(id)
+                .thenCompose(version -> deleteOwnedCarAsync(version, id, sellerFirebaseUid)),
+            () -> carRepository.findVersionedByIdAsync(id)
+                .thenCompose(version -> deleteOwnedCarAsync(version, id, sellerFirebaseUid)))
+            .thenRun(() -> fullTextIndex.ifPresent(index -> index.delete(id)));
+    }
+    
+    private Void deleteOwnedCar(Optional<VersionedDocument<Car>> car, String id, String sellerFirebaseUid) {
+        VersionedDocument<Car> version = requireOwnedCar(car, id, sellerFirebaseUid);
+        carRepository.deleteIfUnchanged(id, version.getUpdateTime());
+        return null;
+    }
+    
+    private CompletableFuture<Void> deleteOwnedCarAsync(Optional<VersionedDocument<Car>> car, String id,
+                                                        String sellerFirebaseUid) {
+        VersionedDocument<Car> version = requireOwnedCar(car, id, sellerFirebaseUid);
+        return carRepository.deleteIfUnchangedAsync(id, version.getUpdateTime());
+    }
+    
+    /**
+     * Eigenes Auto bedingt ändern
+     *
+     * @param change setzt die Änderung im Auto und liefert die geänderten Felder
+     */
+    private Car changeOwnedCar(String id, String sellerFirebaseUid, Function<Car, Map<String, Object>> change) {
+        return indexText(retryOnConflict(
+            () -> changeOwnedCar(carRepository.findKnownVersion(id), id, sellerFirebaseUid, change),
+            () -> changeOwnedCar(carRepository.findVersionedById(id), id, sellerFirebaseUid, change)));
+    }
+    
+    private Car changeOwnedCar(Optional<VersionedDocument<Car>> current, String id, String sellerFirebaseUid,
+                               Function<Car, Map<String, Object>> change) {
+        VersionedDocument<Car> version = requireOwnedCar(current, id, sellerFirebaseUid);
+        Car car = version.getValue();
         
-        // Prüfen ob der Benutzer der Besitzer ist
-        if (!car.getSellerId().equals(sellerFirebaseUid)) {
-            throw new RuntimeException("Keine Berechtigung für dieses Auto");
-        }
+        carRepository.updateIfUnchanged(car, change.apply(car), version.getUpdateTime());
+        return car;
+    }
+    
+    private CompletableFuture<Car> changeOwnedCarAsync(String id, String sellerFirebaseUid,
+                                                       Function<Car, Map<String, Object>> change) {
+        return retryOnConflictAsync(
+            () -> carRepository.findKnownVersionAsync(id)
+                .thenCompose(version -> changeOwnedCarAsync(version, id, sellerFirebaseUid, change)),
+            () -> carRepository.findVersionedByIdAsync(id)
+                .thenCompose(version -> changeOwnedCarAsync(version, id, sellerFirebaseUid, change)))
+            .thenApply(this::indexText);
+    }
+    
+    private CompletableFuture<Car> changeOwnedCarAsync(Optional<VersionedDocument<Car>> current, String id,
+                                                       String sellerFirebaseUid,
+                                                       Function<Car, Map<String, Object>> change) {
+        VersionedDocument<Car> version = requireOwnedCar(current, id, sellerFirebaseUid);
+        Car car = version.getValue();
         
-        carRepository.delete(car);
+        return carRepository.updateIfUnchangedAsync(car, change.apply(car), version.getUpdateTime())
+            .thenApply(updateTime -> car);
+    }
+    
+    /**
+     * Gespeichertes Auto in den Volltextindex übernehmen
+     */
+    private Car indexText(Car car) {
+        fullTextIndex.ifPresent(index -> index.index(car));
+        return car;
+    }
+    
+    private static <R> R retryOnConflict(Supplier<R> attempt, Supplier<R> retry) {
+        try {
+            return attempt.get();
+        } catch (DocumentConflictException e) {
+            return retry.get();
+        }
+    }
+    
+    private static <R> CompletableFuture<R> retryOnConflictAsync(Supplier<CompletableFuture<R>> attempt,
+                                                                 Supplier<CompletableFuture<R>> retry) {
+        return attempt.get().exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return cause instanceof DocumentConflictException
+                ? retry.get()
+                : CompletableFuture.failedFuture(cause);
+        });
     }
     
     /**
@@ -157,37 +344,183 @@ public class CarService {
     public List<Car> searchCars(String brand, String model, BigDecimal minPrice, BigDecimal maxPrice,
                                Integer minYear, Integer maxYear, String fuelType, String transmission) {
         
-        List<Car> cars = carRepository.findAvailableCars();
+        return carRepository.searchAvailable(
+            new CarSearchCriteria(brand, model, minPrice, maxPrice, minYear, maxYear, fuelType, transmission));
+    }
+    
+    /**
+     * Autos suchen (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> searchCarsAsync(String brand, String model, BigDecimal minPrice, BigDecimal maxPrice,
+                                                       Integer minYear, Integer maxYear, String fuelType, String transmission) {
+        return carRepository.searchAvailableAsync(
+            new CarSearchCriteria(brand, model, minPrice, maxPrice, minYear, maxYear, fuelType, transmission));
+    }
+    
+    /**
+     * Eine Seite von Suchergebnissen finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> searchCarsAsync(String brand, String model, BigDecimal minPrice, BigDecimal maxPrice,
+                                                       Integer minYear, Integer maxYear, String fuelType, String transmission,
+                                                       PageRequest pageRequest) {
+        return searchCarsAsync(brand, model, minPrice, maxPrice, minYear, maxYear, fuelType, transmission,
+                               pageRequest, null);
+    }
+    
+    /**
+     * Eine Seite von Suchergebnissen mit ausgewählten Feldern finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> searchCarsAsync(String brand, String model, BigDecimal minPrice, BigDecimal maxPrice,
+                                                       Integer minYear, Integer maxYear, String fuelType, String transmission,
+                                                       PageRequest pageRequest, Set<String> fields) {
+        return searchCarsAsync(
+            new CarSearchCriteria(brand, model, minPrice, maxPrice, minYear, maxYear, fuelType, transmission),
+            pageRequest, fields);
+    }
+    
+    /**
+     * Eine Seite von Suchergebnissen mit ausgewählten Feldern finden (nicht-blockierend)
+     *
+     * Mit aktuellem Replikat beantwortet dessen Suchindex die Anfrage. Sonst liest
+     * die Suche verfügbare Autos seitenweise aus Firestore und filtert im Speicher,
+     * bis die Seite gefüllt ist. Der Cursor zeigt in beiden Fällen auf das zuletzt
+     * gelieferte bzw. geprüfte Auto (Sortierung nach ID), ist also austauschbar.
+     *
+     * @param fields zu liefernde Felder (siehe CarFields) oder null für alle; die
+     *               vom Filter benötigten Felder werden zusätzlich gelesen
+     */
+    public CompletableFuture<Page<Car>> searchCarsAsync(CarSearchCriteria criteria, PageRequest pageRequest,
+                                                       Set<String> fields) {
+        if (carRepository.hasSearchIndex()) {
+            return carRepository.searchAvailableAsync(criteria, pageRequest);
+        }
+        
+        PageRequest scanRequest = PageRequest.first(Math.max(pageRequest.getLimit(), SEARCH_SCAN_BATCH_SIZE))
+            .withCursor(pageRequest.getCursor());
         
-        return cars.stream()
-            .filter(car -> {
-                if (brand != null && !brand.isEmpty() && !car.getBrand().toLowerCase().contains(brand.toLowerCase())) {
-                    return false;
-                }
-                if (model != null && !model.isEmpty() && !car.getModel().toLowerCase().contains(model.toLowerCase())) {
-                    return false;
-                }
-                if (minPrice != null && car.getPrice().compareTo(minPrice) < 0) {
-                    return false;
-                }
-                if (maxPrice != null && car.getPrice().compareTo(maxPrice) > 0) {
-                    return false;
-                }
-                if (minYear != null && car.getYear() < minYear) {
-                    return false;
-                }
-                if (maxYear != null && car.getYear() > maxYear) {
-                    return false;
+        Set<String> readFields = null;
+        if (fields != null) {
+            readFields = new LinkedHashSet<>(fields);
+            readFields.addAll(CarSearchCriteria.FILTER_FIELDS);
+        }
+        
+        return scanSearchPage(criteria.toPredicate(), pageRequest.getLimit(), scanRequest, readFields, new ArrayList<>());
+    }
+    
+    /**
+     * Eine Seite von Suchergebnissen in einer Sortierung finden (nicht-blockierend)
+     *
+     * Ohne Sortierung wie searchCarsAsync(criteria, pageRequest, fields). Mit
+     * Sortierung wählt das Repository per Top-K-Auswahl nur die Autos der Seite
+     * aus; der Cursor enthält Sortierschlüssel und ID des letzten Autos.
+     *
+     * @throws IllegalArgumentException (im Future) bei einem Cursor einer anderen Sortierung
+     */
+    public CompletableFuture<Page<Car>> searchCarsAsync(CarSearchCriteria criteria, CarSort sort, PageRequest pageRequest,
+                                                       Set<String> fields) {
+        if (sort == null) {
+            return searchCarsAsync(criteria, pageRequest, fields);
+        }
+        return carRepository.searchAvailableAsync(criteria, sort, pageRequest);
+    }
+    
+    /**
+     * Eine Seite der Volltextsuche mit Suchkriterien finden (nicht-blockierend)
+     *
+     * Die Treffer des Volltextindex (nach Relevanz, nur verfügbare Autos) werden
+     * in Blöcken abgefragt und mit den Kriterien gefiltert, bis die Seite voll
+     * oder der Index erschöpft ist; nur die Autos der Seite
+     * bekommen Textstellen. Der Cursor enthält Relevanz und ID des letzten Treffers.
+     *
+     * @throws IllegalArgumentException (im Future) bei deaktivierter Volltextsuche
+     *         oder einem Cursor einer anderen Sortierung
+     */
+    public CompletableFuture<Page<CarSearchHit>> searchCarsAsync(String query, CarSearchCriteria criteria,
+                                                                PageRequest pageRequest) {
+        if (fullTextIndex.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Volltextsuche ist nicht aktiviert"));
+        }
+        PageCursor cursor = pageRequest.getCursor();
+        if (cursor != null && (!SCORE.equals(cursor.getOrderBy()) || !(cursor.getValue() instanceof Number))) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung"));
+        }
+        
+        CarFullTextIndex.Hit after = cursor != null
+            ? new CarFullTextIndex.Hit(cursor.getDocumentId(), ((Number) cursor.getValue()).floatValue())
+            : null;
+        return scanTextHits(query, after, criteria.toPredicate(), pageRequest.getLimit(), new ArrayList<>());
+    }
+    
+    private CompletableFuture<Page<CarSearchHit>> scanTextHits(String query, CarFullTextIndex.Hit after,
+                                                               Predicate<Car> filter, int limit, List<CarSearchHit> matches) {
+        List<CarFullTextIndex.Hit> batch = fullTextIndex.get().search(query, after, Math.max(limit, SEARCH_SCAN_BATCH_SIZE));
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(withHighlights(query, matches, null));
+        }
+        
+        List<String> ids = batch.stream().map(CarFullTextIndex.Hit::getId).collect(Collectors.toList());
+        return carRepository.findAvailableByIdAsync(ids)
+            .thenCompose(cars -> {
+                for (CarFullTextIndex.Hit hit : batch) {
+                    Car car = cars.get(hit.getId());
+                    if (car != null && filter.test(car)) {
+                        matches.add(new CarSearchHit(car, hit.getScore(), null));
+                        if (matches.size() == limit) {
+                            String nextCursor = new PageCursor(SCORE, hit.getScore(), hit.getId()).encode();
+                            return CompletableFuture.completedFuture(withHighlights(query, matches, nextCursor));
+                        }
+                    }
                 }
-                if (fuelType != null && !fuelType.isEmpty() && !car.getFuelType().equalsIgnoreCase(fuelType)) {
-                    return false;
+                return scanTextHits(query, batch.get(batch.size() - 1), filter, limit, matches);
+            });
+    }
+    
+    private Page<CarSearchHit> withHighlights(String query, List<CarSearchHit> matches, String nextCursor) {
+        List<String> ids = matches.stream().map(hit -> hit.getCar().getId()).collect(Collectors.toList());
+        Map<String, Map<String, String>> highlights = fullTextIndex.get().highlights(query, ids);
+        
+        List<CarSearchHit> items = matches.stream()
+            .map(hit -> new CarSearchHit(hit.getCar(), hit.getScore(),
+                                         highlights.getOrDefault(hit.getCar().getId(), Map.of())))
+            .collect(Collectors.toList());
+        return new Page<>(items, nextCursor);
+    }
+    
+    /**
+     * Facetten (Anzahl pro Wert, Histogramme) für die Treffer einer Suche (nicht-blockierend)
+     */
+    public CompletableFuture<CarFacets> searchFacetsAsync(CarSearchCriteria criteria) {
+        return carRepository.facetsAvailableAsync(criteria);
+    }
+    
+    /**
+     * Vorschläge für Marke und Modell zum Präfix, absteigend nach Anzahl verfügbarer Inserate (nicht-blockierend)
+     */
+    public CompletableFuture<List<CarSuggestion>> suggestAsync(String prefix, int limit) {
+        return carRepository.suggestAsync(prefix, limit);
+    }
+    
+    private CompletableFuture<Page<Car>> scanSearchPage(Predicate<Car> filter, int limit, PageRequest scanRequest,
+                                                        Set<String> readFields, List<Car> matches) {
+        return carRepository.findAvailableCarsAsync(scanRequest, readFields)
+            .thenCompose(scanned -> {
+                for (Car car : scanned.getItems()) {
+                    if (filter.test(car)) {
+                        matches.add(car);
+                    }
+                    if (matches.size() == limit) {
+                        String nextCursor = PageCursor.afterDocument(car.getId()).encode();
+                        return CompletableFuture.completedFuture(new Page<>(matches, nextCursor));
+                    }
                 }
-                if (transmission != null && !transmission.isEmpty() && !car.getTransmission().equalsIgnoreCase(transmission)) {
-                    return false;
+                
+                if (!scanned.isHasMore()) {
+                    return CompletableFuture.completedFuture(new Page<>(matches, null));
                 }
-                return true;
-            })
-            .collect(Collectors.toList());
+                
+                return scanSearchPage(filter, limit,
+                    scanRequest.withCursor(PageCursor.decode(scanned.getNextCursor())), readFields, matches);
+            });
     }
     
     /**
@@ -197,6 +530,29 @@ public class CarService {
         return carRepository.findByBrand(brand);
     }
     
+    /**
+     * Autos nach Marke finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findByBrandAsync(String brand) {
+        return carRepository.findByBrandAsync(brand);
+    }
+    
+    /**
+     * Eine Seite der Autos einer Marke finden (nicht-blockierend)
+     */
+    public CompletableFuture<Page<Car>> findByBrandAsync(String brand, PageRequest pageRequest) {
+        return carRepository.findByBrandAsync(brand, pageRequest);
+    }
+    
+    /**
+     * Eine Seite der Autos einer Marke mit ausgewählten Feldern finden (nicht-blockierend)
+     *
+     * @param fields zu lesende Felder (siehe CarFields) oder null für alle
+     */
+    public CompletableFuture<Page<Car>> findByBrandAsync(String brand, PageRequest pageRequest, Set<String> fields) {
+        return carRepository.findByBrandAsync(brand, pageRequest, fields);
+    }
+    
     /**
      * Ähnliche Autos finden
      */
@@ -210,6 +566,20 @@ public class CarService {
         return carRepository.findSimilarCars(car.getBrand(), minPrice, maxPrice, carId);
     }
     
+    /**
+     * Ähnliche Autos finden (nicht-blockierend)
+     */
+    public CompletableFuture<List<Car>> findSimilarCarsAsync(String carId) {
+        return carRepository.findByIdAsync(carId)
+            .thenApply(car -> car.orElseThrow(() -> new RuntimeException("Auto nicht gefunden: " + carId)))
+            .thenCompose(car -> {
+                BigDecimal minPrice = car.getPrice().multiply(new BigDecimal("0.8"));
+                BigDecimal maxPrice = car.getPrice().multiply(new BigDecimal("1.2"));
+                
+                return carRepository.findSimilarCarsAsync(car.getBrand(), minPrice, maxPrice, carId);
+            });
+    }
+    
     /**
      * Statistiken abrufen
      */
@@ -226,9 +596,115 @@ public class CarService {
     }
     
     public long getSellerCarsCount(String sellerFirebaseUid) {
-        User seller = userService.findByFirebaseUid(sellerFirebaseUid)
-            .orElseThrow(() -> new RuntimeException("Verkäufer nicht gefunden: " + sellerFirebaseUid));
+        User seller = requireSeller(userService.findByFirebaseUid(sellerFirebaseUid), sellerFirebaseUid);
         
         return carRepository.countBySellerAndStatus(seller, CarStatus.AVAILABLE);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Statistiken abrufen (nicht-blockierend)
+     */
+    public CompletableFuture<Long> getTotalCarsCountAsync() {
+        return carRepository.countAsync();
+    }
+    
+    public CompletableFuture<Long> getAvailableCarsCountAsync() {
+        return carRepository.countByStatusAsync(CarStatus.AVAILABLE);
+    }
+    
+    public CompletableFuture<Long> getSoldCarsCountAsync() {
+        return carRepository.countByStatusAsync(CarStatus.SOLD);
+    }
+    
+    public CompletableFuture<Long> getSellerCarsCountAsync(String sellerFirebaseUid) {
+        return userService.findByFirebaseUidAsync(sellerFirebaseUid)
+            .thenApply(seller -> requireSeller(seller, sellerFirebaseUid))
+            .thenCompose(seller -> carRepository.countBySellerAndStatusAsync(seller, CarStatus.AVAILABLE));
+    }
+    
+    // Gemeinsame Logik der synchronen und asynchronen Varianten
+    
+    private User requireSeller(Optional<User> seller, String sellerFirebaseUid) {
+        return seller.orElseThrow(() -> new RuntimeException("Verkäufer nicht gefunden: " + sellerFirebaseUid));
+    }
+    
+    /**
+     * Prüfen ob das Auto existiert und der Benutzer der Besitzer ist
+     */
+    private VersionedDocument<Car> requireOwnedCar(Optional<VersionedDocument<Car>> car, String id,
+                                                   String sellerFirebaseUid) {
+        VersionedDocument<Car> existingCar = car.orElseThrow(() -> new RuntimeException("Auto nicht gefunden: " + id));
+        
+        if (!existingCar.getValue().getSellerId().equals(sellerFirebaseUid)) {
+            throw new RuntimeException("Keine Berechtigung für dieses Auto");
+        }
+        
+        return existingCar;
+    }
+    
+    private Car prepareNewCar(Car car, User seller) {
+        // Auto-Daten setzen
+        car.setSellerId(seller.getFirebaseUid());
+        car.setStatus(CarStatus.DRAFT);
+        car.setCreatedAt(LocalDateTime.now());
+        car.setUpdatedAt(LocalDateTime.now());
+        return car;
+    }
+    
+    /**
+     * Aktualisierbare Felder im Auto setzen und sie für ein Teil-Update liefern
+     */
+    private Map<String, Object> applyUpdate(Car existingCar, Car updatedCar) {
+        // Aktualisierbare Felder setzen
+        existingCar.setBrand(updatedCar.getBrand());
+        existingCar.setModel(updatedCar.getModel());
+        existingCar.setYear(updatedCar.getYear());
+        existingCar.setPrice(updatedCar.getPrice());
+        existingCar.setMileage(updatedCar.getMileage());
+        existingCar.setFuelType(updatedCar.getFuelType());
+        existingCar.setTransmission(updatedCar.getTransmission());
+        existingCar.setCondition(updatedCar.getCondition());
+        existingCar.setDescription(updatedCar.getDescription());
+        existingCar.setImages(updatedCar.getImages());
+        existingCar.setUpdatedAt(LocalDateTime.now());
+        
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("brand", existingCar.getBrand());
+        fields.put("model", existingCar.getModel());
+        fields.put("year", existingCar.getYear());
+        fields.put("price", existingCar.getPrice());
+        fields.put("priceCents", existingCar.getPriceCents());
+        fields.put("mileage", existingCar.getMileage());
+        fields.put("fuelType", existingCar.getFuelType());
+        fields.put("transmission", existingCar.getTransmission());
+        fields.put("condition", existingCar.getCondition());
+        fields.put("description", existingCar.getDescription());
+        fields.put("imageUrls", existingCar.getImageUrls());
+        fields.put("updatedAt", existingCar.getUpdatedAt());
+        // Abgeleitete Felder, die beim vollständigen Speichern mitgeschrieben werden
+        fields.put("fullName", existingCar.getFullName());
+        return fields;
+    }
+    
+    /**
+     * Status im Auto setzen und die geänderten Felder für ein Teil-Update liefern
+     */
+    private Map<String, Object> applyStatus(Car car, CarStatus newStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        car.setStatus(newStatus);
+        car.setUpdatedAt(now);
+        
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", newStatus);
+        fields.put("updatedAt", now);
+        
+        if (newStatus == CarStatus.SOLD) {
+            car.setSoldAt(now);
+            fields.put("soldAt", now);
+        }
+        // Abgeleitete Felder, die beim vollständigen Speichern mitgeschrieben werden
+        fields.put("available", car.isAvailable());
+        fields.put("sold", car.isSold());
+        return fields;
+    }
+}
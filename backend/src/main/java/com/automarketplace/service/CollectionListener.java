@@ -0,0 +1,38 @@
+package com.automarketplace.service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Empfänger für Änderungen an einer Collection (siehe DocumentStore.watchCollection)
+ *
+ * Der erste Aufruf von onChanges enthält alle Dokumente der Collection,
+ * danach kommen nur noch die Änderungen.
+ */
+public interface CollectionListener<T> {
+    
+    /**
+     * @param upserts neue oder geänderte Dokumente (Document ID -> Objekt)
+     * @param removedIds IDs gelöschter Dokumente
+     * @param readTime Zeitpunkt, zu dem die Datenbank diesen Stand hatte
+     */
+    void onChanges(Map<String, T> upserts, Set<String> removedIds, Instant readTime);
+    
+    /**
+     * Wie onChanges, zusätzlich mit dem Änderungszeitpunkt jedes geänderten Dokuments
+     * (Version für bedingte Schreibvorgänge). Die Dokumentenspeicher rufen diese
+     * Variante auf; ohne Überschreiben werden die Zeitpunkte ignoriert.
+     *
+     * @param updateTimes Document ID -> Zeitpunkt der letzten Änderung, für jedes Dokument aus upserts
+     */
+    default void onChanges(Map<String, T> upserts, Map<String, Instant> updateTimes, Set<String> removedIds,
+                           Instant readTime) {
+        onChanges(upserts, removedIds, readTime);
+    }
+    
+    /**
+     * Der Listener wurde wegen eines Fehlers beendet und muss neu registriert werden
+     */
+    void onError(Throwable error);
+}
@@ -0,0 +1,38 @@
+package com.automarketplace.service;
+
+import java.time.Duration;
+
+/**
+ * Ein Firestore-Aufruf wurde abgelehnt, weil der Bulkhead seiner Art
+ * (z.B. cars-read, writes) bereits voll ausgelastet war
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    public ConcurrencyLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    /**
+     * Empfohlene Wartezeit für den Client (Retry-After)
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    /**
+     * Diese Exception in der Ursachenkette suchen
+     *
+     * @return gefundene Exception oder null
+     */
+    public static ConcurrencyLimitExceededException find(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyLimitExceededException exceeded) {
+                return exceeded;
+            }
+        }
+        return null;
+    }
+}
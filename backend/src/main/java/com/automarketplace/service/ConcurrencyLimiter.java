@@ -0,0 +1,87 @@
+package com.automarketplace.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive Obergrenze gleichzeitiger Aufrufe (AIMD)
+ *
+ * - Erfolg unter der Latenzschwelle bei ausgelasteter Grenze: +1 pro Grenze
+ *   (additiv, d.h. jede Antwort erhöht um 1/limit)
+ * - Überlast (Timeout, UNAVAILABLE, RESOURCE_EXHAUSTED, ...) oder langsamer als
+ *   die Schwelle: Grenze * backoffRatio (multiplikativ)
+ *
+ * Ohne freie Genehmigung wird nicht gewartet: tryAcquire() liefert false.
+ * Die synchronized-Abschnitte rechnen nur und blockieren nie, halten also
+ * auch virtuelle Threads nicht am Träger-Thread fest.
+ */
+public class ConcurrencyLimiter {
+    
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    
+    private double limit;
+    private int inFlight;
+    
+    public ConcurrencyLimiter(String name, FirestoreCallProperties.Bulkhead settings) {
+        this.name = name;
+        this.minLimit = Math.max(1, settings.getMinLimit());
+        this.maxLimit = Math.max(minLimit, settings.getMaxLimit());
+        this.backoffRatio = settings.getBackoffRatio();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, settings.getInitialLimit()));
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Genehmigung nehmen, falls die Grenze noch nicht erreicht ist
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+    
+    /**
+     * Genehmigung zurückgeben und die Grenze anpassen
+     *
+     * @param latencyNanos Laufzeit des Aufrufs
+     * @param overloaded   ob der Aufruf an Überlast gescheitert ist
+     * @param ignored      Aufruf nicht bewerten (z.B. abgebrochener Hedge-Versuch)
+     */
+    public synchronized void release(long latencyNanos, boolean overloaded, boolean ignored) {
+        int utilized = inFlight;
+        inFlight--;
+        if (ignored) {
+            return;
+        }
+        
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (utilized * 2 >= limit) {
+            // Nur erhöhen, wenn die Grenze auch genutzt wird
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+    
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+    
+    @Override
+    public String toString() {
+        return name + " (" + getInFlight() + "/" + getLimit() + ", Schwelle "
+            + TimeUnit.NANOSECONDS.toMillis(latencyThresholdNanos) + "ms)";
+    }
+}
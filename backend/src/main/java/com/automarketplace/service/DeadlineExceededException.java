@@ -0,0 +1,12 @@
+package com.automarketplace.service;
+
+/**
+ * Ein Firestore-Aufruf wurde abgebrochen, weil das Zeitbudget der Operation
+ * oder des Requests aufgebraucht war
+ */
+public class DeadlineExceededException extends RuntimeException {
+    
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
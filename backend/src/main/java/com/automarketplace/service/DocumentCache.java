@@ -0,0 +1,117 @@
+package com.automarketplace.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-Through-Cache für die Dokumente einer Collection
+ * 
+ * Gecacht wird der Rohzustand des Dokuments (z.B. der DocumentSnapshot),
+ * nicht das daraus erzeugte Objekt. Jeder Aufrufer bekommt dadurch ein
+ * eigenes Objekt und kann es ändern, ohne den Cache zu verfälschen.
+ * Nicht existierende Dokumente werden als Optional.empty() mit eigener,
+ * kürzerer Lebensdauer gecacht.
+ *
+ * @param <V> Typ des gecachten Dokumentzustands
+ */
+public class DocumentCache<V> {
+    
+    private final String collection;
+    private final AsyncLoadingCache<String, Optional<V>> cache;
+    
+    public DocumentCache(String collection, DocumentCacheProperties.CollectionSettings settings,
+                         AsyncCacheLoader<String, Optional<V>> loader) {
+        this.collection = collection;
+        
+        Caffeine<String, Optional<V>> builder = Caffeine.newBuilder()
+            .maximumSize(settings.getMaximumSize())
+            .recordStats()
+            .expireAfter(new DocumentExpiry<V>(settings.getExpireAfterWrite(), settings.getMissingTtl()));
+        
+        if (settings.getRefreshAfterWrite() != null && !settings.getRefreshAfterWrite().isZero()) {
+            builder.refreshAfterWrite(settings.getRefreshAfterWrite());
+        }
+        
+        this.cache = builder.buildAsync(loader);
+    }
+    
+    public String getCollection() {
+        return collection;
+    }
+    
+    /**
+     * Dokument aus dem Cache holen oder laden
+     */
+    public CompletableFuture<Optional<V>> get(String documentId) {
+        return cache.get(documentId);
+    }
+    
+    /**
+     * Eintrag entfernen, z.B. nach einem Schreibvorgang
+     * 
+     * Ein bereits laufender Ladevorgang für diese ID wird dabei verworfen.
+     */
+    public void invalidate(String documentId) {
+        cache.synchronous().invalidate(documentId);
+    }
+    
+    public void invalidateAll(Collection<String> documentIds) {
+        cache.synchronous().invalidateAll(documentIds);
+    }
+    
+    /**
+     * Treffer, Fehlschläge, Ladevorgänge und Verdrängungen seit dem Start
+     */
+    public Map<String, Object> statistics() {
+        CacheStats stats = cache.synchronous().stats();
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loads", stats.loadCount());
+        result.put("loadFailures", stats.loadFailureCount());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+    
+    /**
+     * Lebensdauer abhängig davon, ob das Dokument existiert
+     */
+    private static class DocumentExpiry<V> implements Expiry<String, Optional<V>> {
+        
+        private final long presentNanos;
+        private final long missingNanos;
+        
+        DocumentExpiry(Duration present, Duration missing) {
+            this.presentNanos = present.toNanos();
+            this.missingNanos = missing.toNanos();
+        }
+        
+        @Override
+        public long expireAfterCreate(String key, Optional<V> value, long currentTime) {
+            return value.isPresent() ? presentNanos : missingNanos;
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, Optional<V> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String key, Optional<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.automarketplace.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Konfiguration des Dokument-Caches pro Collection (firestore.cache.collections.*)
+ * 
+ * Nur Collections, die hier eingetragen sind, werden gecacht.
+ */
+@Component
+@ConfigurationProperties(prefix = "firestore.cache")
+public class DocumentCacheProperties {
+    
+    private Map<String, CollectionSettings> collections = new HashMap<>();
+    
+    public Map<String, CollectionSettings> getCollections() {
+        return collections;
+    }
+    
+    public void setCollections(Map<String, CollectionSettings> collections) {
+        this.collections = collections;
+    }
+    
+    /**
+     * Einstellungen für eine Collection
+     */
+    public static class CollectionSettings {
+        
+        private boolean enabled = true;
+        
+        // Maximale Anzahl Einträge
+        private long maximumSize = 10_000;
+        
+        // Lebensdauer eines gefundenen Dokuments
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+        
+        // Danach wird ein gelesener Eintrag im Hintergrund neu geladen (null = aus)
+        private Duration refreshAfterWrite = Duration.ofMinutes(1);
+        
+        // Lebensdauer eines "nicht gefunden"-Eintrags (0 = nicht cachen)
+        private Duration missingTtl = Duration.ofSeconds(30);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+        
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+        
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+        
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+        
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+        
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+        
+        public Duration getMissingTtl() {
+            return missingTtl;
+        }
+        
+        public void setMissingTtl(Duration missingTtl) {
+            this.missingTtl = missingTtl;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.automarketplace.service;
+
+import java.util.Map;
+
+/**
+ * Handgeschriebene Abbildung einer Klasse auf Firestore-Felder
+ * 
+ * Ersetzt für die registrierten Klassen den reflexiven CustomClassMapper des
+ * SDK (DocumentSnapshot.toObject, set(Object)). FirestoreService verwendet
+ * einen Codec automatisch, sobald er als Bean für die Klasse existiert.
+ */
+public interface DocumentCodec<T> {
+    
+    /**
+     * Klasse, die dieser Codec abbildet
+     */
+    Class<T> getType();
+    
+    /**
+     * Objekt aus den Feldern eines Dokuments erstellen
+     * 
+     * Fehlende Felder (z.B. bei select) behalten ihren Standardwert,
+     * unbekannte Felder werden ignoriert.
+     */
+    T decode(String documentId, Map<String, Object> data);
+    
+    /**
+     * Zu speichernde Felder eines Objekts (ohne Document ID)
+     */
+    Map<String, Object> encode(T value);
+}
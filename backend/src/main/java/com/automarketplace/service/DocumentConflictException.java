@@ -0,0 +1,12 @@
+package com.automarketplace.service;
+
+/**
+ * Ein bedingter Schreibvorgang wurde abgelehnt, weil das Dokument
+ * seit dem Lesen geändert oder gelöscht wurde
+ */
+public class DocumentConflictException extends RuntimeException {
+    
+    public DocumentConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,184 @@
+package com.automarketplace.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Typisierte Abfrage mit mehreren Bedingungen, Sortierung und Limit
+ * 
+ * Wird vom DocumentStore vollständig ausgewertet, bei Firestore serverseitig,
+ * gelesen werden also nur die Treffer. Kombinationen aus Gleichheit und Bereich
+ * brauchen dort einen Composite Index (siehe firestore.indexes.json).
+ * 
+ * Beispiel:
+ * <pre>
+ * DocumentQuery.create()
+ *     .whereEqualTo("brand", "BMW")
+ *     .whereGreaterThanOrEqualTo("priceCents", 1_000_000L)
+ *     .orderBy("priceCents")
+ *     .limit(50);
+ * </pre>
+ */
+public class DocumentQuery {
+    
+    public enum Operator {
+        EQUAL,
+        LESS_THAN,
+        LESS_THAN_OR_EQUAL,
+        GREATER_THAN,
+        GREATER_THAN_OR_EQUAL,
+        IN,
+        ARRAY_CONTAINS
+    }
+    
+    private final List<Filter> filters = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private Integer limit;
+    
+    private DocumentQuery() {}
+    
+    public static DocumentQuery create() {
+        return new DocumentQuery();
+    }
+    
+    public DocumentQuery whereEqualTo(String field, Object value) {
+        return where(field, Operator.EQUAL, value);
+    }
+    
+    public DocumentQuery whereLessThan(String field, Object value) {
+        return where(field, Operator.LESS_THAN, value);
+    }
+    
+    public DocumentQuery whereLessThanOrEqualTo(String field, Object value) {
+        return where(field, Operator.LESS_THAN_OR_EQUAL, value);
+    }
+    
+    public DocumentQuery whereGreaterThan(String field, Object value) {
+        return where(field, Operator.GREATER_THAN, value);
+    }
+    
+    public DocumentQuery whereGreaterThanOrEqualTo(String field, Object value) {
+        return where(field, Operator.GREATER_THAN_OR_EQUAL, value);
+    }
+    
+    /**
+     * Feldwert ist einer der angegebenen Werte (Firestore erlaubt höchstens 30)
+     */
+    public DocumentQuery whereIn(String field, Collection<?> values) {
+        return where(field, Operator.IN, List.copyOf(values));
+    }
+    
+    /**
+     * Array-Feld enthält den Wert
+     */
+    public DocumentQuery whereArrayContains(String field, Object value) {
+        return where(field, Operator.ARRAY_CONTAINS, value);
+    }
+    
+    /**
+     * Bedingung nur hinzufügen, wenn der Wert gesetzt ist (für optionale Filter)
+     */
+    public DocumentQuery whereIfPresent(String field, Operator operator, Object value) {
+        return value == null ? this : where(field, operator, value);
+    }
+    
+    public DocumentQuery where(String field, Operator operator, Object value) {
+        filters.add(new Filter(field, operator, value));
+        return this;
+    }
+    
+    public DocumentQuery orderBy(String field) {
+        return orderBy(field, false);
+    }
+    
+    public DocumentQuery orderBy(String field, boolean descending) {
+        orders.add(new Order(field, descending));
+        return this;
+    }
+    
+    public DocumentQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+    
+    public List<Filter> getFilters() {
+        return filters;
+    }
+    
+    public List<Order> getOrders() {
+        return orders;
+    }
+    
+    /**
+     * Maximale Anzahl Ergebnisse oder null für unbegrenzt
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+    
+    @Override
+    public String toString() {
+        return "filters=" + filters + ", orderBy=" + orders + (limit != null ? ", limit=" + limit : "");
+    }
+    
+    /**
+     * Einzelne Bedingung: Feld, Operator, Wert
+     */
+    public static class Filter {
+        
+        private final String field;
+        private final Operator operator;
+        private final Object value;
+        
+        private Filter(String field, Operator operator, Object value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+        
+        public String getField() {
+            return field;
+        }
+        
+        public Operator getOperator() {
+            return operator;
+        }
+        
+        public Object getValue() {
+            return value;
+        }
+        
+        @Override
+        public String toString() {
+            return field + " " + operator + " " + value;
+        }
+    }
+    
+    /**
+     * Sortierung nach einem Feld
+     */
+    public static class Order {
+        
+        private final String field;
+        private final boolean descending;
+        
+        private Order(String field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+        
+        public String getField() {
+            return field;
+        }
+        
+        public boolean isDescending() {
+            return descending;
+        }
+        
+        @Override
+        public String toString() {
+            return field + (descending ? " desc" : "");
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.automarketplace.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Dokumentenspeicher der Anwendung
+ * 
+ * Implementierungen: FirestoreService (Firestore) und EmbeddedDocumentStore
+ * (im Speicher, optional mit Datei). Ausgewählt wird über document-store.type
+ * in application.yml.
+ * 
+ * Jede Operation gibt es als nicht-blockierende Variante mit dem Suffix
+ * "Async". Die synchronen Varianten warten lediglich auf deren Ergebnis und
+ * werfen bei Fehlern die RuntimeException der Implementierung.
+ */
+public interface DocumentStore {
+    
+    /**
+     * Dokument erstellen oder überschreiben
+     * 
+     * @param documentId Document ID oder null/leer für eine neue ID
+     * @return Document ID
+     */
+    <T> CompletableFuture<String> saveDocumentAsync(String collection, String documentId, T data);
+    
+    default <T> String saveDocument(String collection, String documentId, T data) {
+        return await(saveDocumentAsync(collection, documentId, data));
+    }
+    
+    /**
+     * Dokument nach ID abrufen
+     * 
+     * @return Future mit dem Dokument oder null, wenn es nicht existiert
+     */
+    <T> CompletableFuture<T> getDocumentAsync(String collection, String documentId, Class<T> clazz);
+    
+    default <T> T getDocument(String collection, String documentId, Class<T> clazz) {
+        return await(getDocumentAsync(collection, documentId, clazz));
+    }
+    
+    /**
+     * Dokument mit Änderungszeitpunkt abrufen (für bedingte Schreibvorgänge)
+     * 
+     * @return Future mit dem Dokument oder null, wenn es nicht existiert
+     */
+    <T> CompletableFuture<VersionedDocument<T>> getVersionedDocumentAsync(String collection, String documentId, 
+                                                                       Class<T> clazz);
+    
+    default <T> VersionedDocument<T> getVersionedDocument(String collection, String documentId, Class<T> clazz) {
+        return await(getVersionedDocumentAsync(collection, documentId, clazz));
+    }
+    
+    /**
+     * Mehrere Dokumente nach ID abrufen
+     * 
+     * @return Map Document ID -> Dokument in der Reihenfolge der angefragten IDs;
+     *         nicht existierende Dokumente fehlen in der Map
+     */
+    <T> CompletableFuture<Map<String, T>> getDocumentsAsync(String collection, Collection<String> documentIds, 
+                                                          Class<T> clazz);
+    
+    default <T> Map<String, T> getDocuments(String collection, Collection<String> documentIds, Class<T> clazz) {
+        return await(getDocumentsAsync(collection, documentIds, clazz));
+    }
+    
+    /**
+     * Alle Dokumente einer Collection abrufen
+     */
+    <T> CompletableFuture<List<T>> getAllDocumentsAsync(String collection, Class<T> clazz);
+    
+    default <T> List<T> getAllDocuments(String collection, Class<T> clazz) {
+        return await(getAllDocumentsAsync(collection, clazz));
+    }
+    
+    /**
+     * Dokumente mit field == value abrufen
+     */
+    <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, String field, Object value, Class<T> clazz);
+    
+    default <T> List<T> queryDocuments(String collection, String field, Object value, Class<T> clazz) {
+        return await(queryDocumentsAsync(collection, field, value, clazz));
+    }
+    
+    /**
+     * Dokumente mit zusammengesetzter Query abrufen
+     */
+    <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, DocumentQuery documentQuery, Class<T> clazz);
+    
+    default <T> List<T> queryDocuments(String collection, DocumentQuery documentQuery, Class<T> clazz) {
+        return await(queryDocumentsAsync(collection, documentQuery, clazz));
+    }
+    
+    /**
+     * Eine Seite von Dokumenten abrufen (Keyset-Pagination)
+     * 
+     * @param field Filterfeld (Gleichheit) oder null für die ganze Collection
+     * @param orderBy Sortierfeld oder null für Sortierung nach Document ID
+     * @param fields zu lesende Felder oder null für alle; nicht gelesene Felder
+     *               behalten im Objekt ihren Standardwert
+     * @throws IllegalArgumentException wenn der Cursor zu einer anderen Sortierung gehört
+     */
+    <T> CompletableFuture<Page<T>> queryPageAsync(String collection, String field, Object value, String orderBy, 
+                                                PageRequest pageRequest, Collection<String> fields, Class<T> clazz);
+    
+    default <T> CompletableFuture<Page<T>> queryPageAsync(String collection, String field, Object value, String orderBy, 
+                                                        PageRequest pageRequest, Class<T> clazz) {
+        return queryPageAsync(collection, field, value, orderBy, pageRequest, null, clazz);
+    }
+    
+    default <T> Page<T> queryPage(String collection, String field, Object value, String orderBy, 
+                                  PageRequest pageRequest, Class<T> clazz) {
+        return await(queryPageAsync(collection, field, value, orderBy, pageRequest, null, clazz));
+    }
+    
+    /**
+     * Dokumente einzeln an einen Consumer streamen, ohne die ganze Ergebnisliste im Speicher zu halten
+     * 
+     * @param field Filterfeld (Gleichheit) oder null für die ganze Collection
+     */
+    <T> CompletableFuture<Void> streamDocumentsAsync(String collection, String field, Object value, Class<T> clazz, 
+                                                   Consumer<? super T> consumer);
+    
+    default <T> void streamDocuments(String collection, String field, Object value, Class<T> clazz, 
+                                     Consumer<? super T> consumer) {
+        await(streamDocumentsAsync(collection, field, value, clazz, consumer));
+    }
+    
+    /**
+     * Dokumente streamen und nur die Treffer des Filters sammeln
+     */
+    <T> CompletableFuture<List<T>> filterDocumentsAsync(String collection, String field, Object value, Class<T> clazz, 
+                                                      Predicate<? super T> filter);
+    
+    default <T> List<T> filterDocuments(String collection, String field, Object value, Class<T> clazz, 
+                                        Predicate<? super T> filter) {
+        return await(filterDocumentsAsync(collection, field, value, clazz, filter));
+    }
+    
+    /**
+     * Dokumente einer zusammengesetzten Query zählen
+     */
+    CompletableFuture<Long> countDocumentsAsync(String collection, DocumentQuery documentQuery);
+    
+    default long countDocuments(String collection, DocumentQuery documentQuery) {
+        return await(countDocumentsAsync(collection, documentQuery));
+    }
+    
+    /**
+     * Dokumente mit field == value zählen
+     * 
+     * @param field Filterfeld oder null für die ganze Collection
+     */
+    default CompletableFuture<Long> countDocumentsAsync(String collection, String field, Object value) {
+        DocumentQuery documentQuery = DocumentQuery.create();
+        if (field != null) {
+            documentQuery.whereEqualTo(field, value);
+        }
+        return countDocumentsAsync(collection, documentQuery);
+    }
+    
+    default long countDocuments(String collection, String field, Object value) {
+        return await(countDocumentsAsync(collection, field, value));
+    }
+    
+    /**
+     * Collection beobachten: zuerst alle Dokumente, danach nur noch Änderungen
+     * 
+     * @return Registrierung; close() beendet die Beobachtung
+     */
+    <T> AutoCloseable watchCollection(String collection, Class<T> clazz, CollectionListener<T> listener);
+    
+    /**
+     * Dokument löschen
+     */
+    CompletableFuture<Void> deleteDocumentAsync(String collection, String documentId);
+    
+    default void deleteDocument(String collection, String documentId) {
+        await(deleteDocumentAsync(collection, documentId));
+    }
+    
+    /**
+     * Einzelne Felder eines bestehenden Dokuments aktualisieren
+     */
+    CompletableFuture<Void> updateDocumentAsync(String collection, String documentId, Map<String, Object> updates);
+    
+    default void updateDocument(String collection, String documentId, Map<String, Object> updates) {
+        await(updateDocumentAsync(collection, documentId, updates));
+    }
+    
+    /**
+     * Felder nur aktualisieren, wenn das Dokument seit dem Lesen unverändert ist
+     * 
+     * @return neuer Änderungszeitpunkt; Future endet mit DocumentConflictException,
+     *         wenn das Dokument inzwischen geändert oder gelöscht wurde
+     */
+    CompletableFuture<Instant> updateDocumentIfUnchangedAsync(String collection, String documentId, 
+                                                            Map<String, Object> updates, Instant expectedUpdateTime);
+    
+    default Instant updateDocumentIfUnchanged(String collection, String documentId, Map<String, Object> updates, 
+                                              Instant expectedUpdateTime) {
+        return await(updateDocumentIfUnchangedAsync(collection, documentId, updates, expectedUpdateTime));
+    }
+    
+    /**
+     * Dokument nur löschen, wenn es seit dem Lesen unverändert ist
+     */
+    CompletableFuture<Void> deleteDocumentIfUnchangedAsync(String collection, String documentId, Instant expectedUpdateTime);
+    
+    default void deleteDocumentIfUnchanged(String collection, String documentId, Instant expectedUpdateTime) {
+        await(deleteDocumentIfUnchangedAsync(collection, documentId, expectedUpdateTime));
+    }
+    
+    /**
+     * Prüfen ob Dokument existiert (Fehler -> false)
+     */
+    CompletableFuture<Boolean> documentExistsAsync(String collection, String documentId);
+    
+    default boolean documentExists(String collection, String documentId) {
+        return await(documentExistsAsync(collection, documentId));
+    }
+    
+    /**
+     * Mehrere Dokumente erstellen oder überschreiben
+     * 
+     * @param idExtractor liefert die Document ID eines Objekts (null = neue ID erzeugen)
+     * @return Ergebnis pro Dokument in der Reihenfolge der Eingabe
+     */
+    <T> CompletableFuture<BulkWriteResult> saveDocumentsAsync(String collection, Collection<T> documents,
+                                                            Function<T, String> idExtractor);
+    
+    default <T> BulkWriteResult saveDocuments(String collection, Collection<T> documents, Function<T, String> idExtractor) {
+        return await(saveDocumentsAsync(collection, documents, idExtractor));
+    }
+    
+    /**
+     * Mehrere Dokumente teilweise aktualisieren
+     * 
+     * @param updates Document ID -> zu ändernde Felder
+     */
+    CompletableFuture<BulkWriteResult> updateDocumentsAsync(String collection, Map<String, Map<String, Object>> updates);
+    
+    default BulkWriteResult updateDocuments(String collection, Map<String, Map<String, Object>> updates) {
+        return await(updateDocumentsAsync(collection, updates));
+    }
+    
+    /**
+     * Mehrere Dokumente löschen
+     */
+    CompletableFuture<BulkWriteResult> deleteDocumentsAsync(String collection, Collection<String> documentIds);
+    
+    default BulkWriteResult deleteDocuments(String collection, Collection<String> documentIds) {
+        return await(deleteDocumentsAsync(collection, documentIds));
+    }
+    
+    /**
+     * Statistiken der Dokument-Caches (Collection -> Kennzahlen); leer ohne Cache
+     */
+    Map<String, Map<String, Object>> getCacheStatistics();
+    
+    /**
+     * Auf ein Future warten und die ursprüngliche RuntimeException weiterreichen
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
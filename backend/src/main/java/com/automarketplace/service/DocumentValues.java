@@ -0,0 +1,135 @@
+package com.automarketplace.service;
+
+import com.google.cloud.Timestamp;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Umwandlung einzelner Feldwerte zwischen Java und Firestore (für DocumentCodecs)
+ *
+ * Gespeichert wird wie beim CustomClassMapper des SDK: BigDecimal als String,
+ * Enums als Name. LocalDateTime wird als Firestore-Timestamp in der Zeitzone des
+ * Servers gespeichert - der SDK-Mapper kann LocalDateTime unter Java 17 weder
+ * schreiben noch lesen.
+ */
+public final class DocumentValues {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private DocumentValues() {}
+
+    public static String asString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    public static Integer asInteger(Object value) {
+        return value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : null;
+    }
+
+    public static Long asLong(Object value) {
+        return value instanceof Number ? Long.valueOf(((Number) value).longValue()) : null;
+    }
+
+    public static Boolean asBoolean(Object value) {
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
+
+    public static BigDecimal asBigDecimal(Object value) {
+        if (value instanceof String) {
+            return new BigDecimal((String) value);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        return null;
+    }
+
+    /**
+     * Timestamp, ISO-String oder Bean-Map (year, monthValue, ...) in LocalDateTime umwandeln
+     */
+    public static LocalDateTime asLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return LocalDateTime.ofInstant(Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()), ZONE);
+        }
+        if (value instanceof String string) {
+            return LocalDateTime.parse(string);
+        }
+        if (value instanceof Map<?, ?> map && map.get("year") instanceof Number) {
+            return LocalDateTime.of(intOf(map, "year"), intOf(map, "monthValue"), intOf(map, "dayOfMonth"),
+                                    intOf(map, "hour"), intOf(map, "minute"), intOf(map, "second"), intOf(map, "nano"));
+        }
+        return null;
+    }
+
+    private static int intOf(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    public static <E extends Enum<E>> E asEnum(Object value, Class<E> type) {
+        return value == null ? null : Enum.valueOf(type, value.toString());
+    }
+
+    public static List<String> asStringList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(list.size());
+        for (Object element : list) {
+            result.add(asString(element));
+        }
+        return result;
+    }
+
+    public static String fromBigDecimal(BigDecimal value) {
+        return value == null ? null : value.toString();
+    }
+
+    public static Timestamp fromLocalDateTime(LocalDateTime value) {
+        if (value == null) {
+            return null;
+        }
+        Instant instant = value.atZone(ZONE).toInstant();
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    public static String fromEnum(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    /**
+     * Einzelwert für update()/where() umwandeln (LocalDateTime, BigDecimal, Enum);
+     * alles andere bleibt unverändert
+     */
+    public static Object toFirestore(Object value) {
+        if (value instanceof LocalDateTime localDateTime) {
+            return fromLocalDateTime(localDateTime);
+        }
+        if (value instanceof BigDecimal bigDecimal) {
+            return fromBigDecimal(bigDecimal);
+        }
+        if (value instanceof Enum<?> enumValue) {
+            return fromEnum(enumValue);
+        }
+        return value;
+    }
+
+    /**
+     * Alle Werte einer Update-Map umwandeln
+     */
+    public static Map<String, Object> toFirestore(Map<String, Object> fields) {
+        Map<String, Object> converted = new LinkedHashMap<>(fields.size() * 2);
+        fields.forEach((field, value) -> converted.put(field, toFirestore(value)));
+        return converted;
+    }
+}
@@ -0,0 +1,896 @@
+package com.automarketplace.service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.cloud.firestore.annotation.DocumentId;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Eingebetteter Dokumentenspeicher ohne Firestore (document-store.type=embedded)
+ *
+ * Für lokale Entwicklung, Lasttests und Benchmarks: alle Collections liegen im
+ * Speicher, optional zusätzlich als Append-only-Datei (eine JSON-Zeile pro
+ * Schreibvorgang), die beim Start eingelesen und verdichtet wird.
+ *
+ * Abfragen verhalten sich wie bei Firestore: Dokumente ohne das Filter- oder
+ * Sortierfeld fallen heraus, Bereichsfilter vergleichen nur Werte gleichen Typs,
+ * Zahlen werden typübergreifend verglichen, Cursor sind dieselben wie bei
+ * FirestoreService. Objekte werden wie von Firestore über ihre Felder
+ * abgebildet (Enums als Name); das Feld mit @DocumentId wird nicht gespeichert.
+ *
+ * Operationen werden wie bei Firestore nie im aufrufenden Thread abgeschlossen,
+ * sondern in einem eigenen Thread-Pool (document-store.embedded.threads); mit
+ * latency/jitter lässt sich zusätzlich eine Netzwerklatenz simulieren.
+ */
+@Service
+@ConditionalOnProperty(name = "document-store.type", havingValue = "embedded")
+public class EmbeddedDocumentStore implements DocumentStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedDocumentStore.class);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    
+    /**
+     * Abbildung wie bei Firestore: Felder statt Getter, Annotationen wie @JsonIgnore zählen nicht
+     */
+    private final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .disable(MapperFeature.USE_ANNOTATIONS)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+        .visibility(PropertyAccessor.ALL, Visibility.NONE)
+        .visibility(PropertyAccessor.FIELD, Visibility.ANY)
+        .build();
+    
+    private final Map<String, ConcurrentSkipListMap<String, StoredDocument>> collections = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Optional<String>> documentIdFields = new ConcurrentHashMap<>();
+    private final List<Watch<?>> watches = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Schreibvorgänge laufen nacheinander, damit Datei, Änderungszeitpunkte
+     * und Listener-Benachrichtigungen dieselbe Reihenfolge haben
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    private final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "document-store-listener");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Abschluss der Operationen, wie die Callback-Threads des Firestore-Clients
+    private ExecutorService operationExecutor;
+    
+    @Value("${document-store.embedded.threads:4}")
+    private int threads;
+    
+    @Value("${document-store.embedded.data-file:}")
+    private String dataFile;
+    
+    @Value("${document-store.embedded.latency:0ms}")
+    private Duration latency;
+    
+    @Value("${document-store.embedded.jitter:0ms}")
+    private Duration jitter;
+    
+    private BufferedWriter journal;
+    private Instant lastUpdateTime = Instant.EPOCH;
+    
+    @PostConstruct
+    public void open() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        operationExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "document-store-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        if (dataFile == null || dataFile.isBlank()) {
+            logger.info("Eingebetteter Dokumentenspeicher ohne Datei gestartet (nur im Speicher)");
+            return;
+        }
+        
+        Path path = Path.of(dataFile);
+        try {
+            if (Files.exists(path)) {
+                replay(path);
+            }
+            compact(path);
+            journal = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                                              StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new IllegalStateException("Datendatei " + path + " konnte nicht geöffnet werden", e);
+        }
+        
+        logger.info("Eingebetteter Dokumentenspeicher mit {} Dokumenten aus {} gestartet",
+                   collections.values().stream().mapToInt(Map::size).sum(), path);
+    }
+    
+    @PreDestroy
+    public void close() {
+        // Erst die Sperre: ein laufender Schreibvorgang benachrichtigt seine Listener
+        // noch, spätere sehen den beendeten Executor
+        writeLock.lock();
+        try {
+            listenerExecutor.shutdownNow();
+            operationExecutor.shutdown();
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            logger.warn("Datendatei konnte nicht geschlossen werden: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public <T> CompletableFuture<T> getDocumentAsync(String collection, String documentId, Class<T> clazz) {
+        return async(() -> {
+            StoredDocument document = collection(collection).get(documentId);
+            return document != null ? toObject(documentId, document.data, clazz) : null;
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<VersionedDocument<T>> getVersionedDocumentAsync(String collection, String documentId,
+                                                                              Class<T> clazz) {
+        return async(() -> {
+            StoredDocument document = collection(collection).get(documentId);
+            return document != null
+                ? new VersionedDocument<>(toObject(documentId, document.data, clazz), document.updateTime)
+                : null;
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getDocumentsAsync(String collection, Collection<String> documentIds,
+                                                                 Class<T> clazz) {
+        return async(() -> {
+            Map<String, StoredDocument> documents = collection(collection);
+            Map<String, T> result = new LinkedHashMap<>();
+            for (String documentId : new LinkedHashSet<>(documentIds)) {
+                StoredDocument document = documents.get(documentId);
+                if (document != null) {
+                    result.put(documentId, toObject(documentId, document.data, clazz));
+                }
+            }
+            return result;
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<List<T>> getAllDocumentsAsync(String collection, Class<T> clazz) {
+        return queryDocumentsAsync(collection, DocumentQuery.create(), clazz);
+    }
+    
+    @Override
+    public <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, String field, Object value, Class<T> clazz) {
+        return queryDocumentsAsync(collection, DocumentQuery.create().whereEqualTo(field, value), clazz);
+    }
+    
+    @Override
+    public <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, DocumentQuery documentQuery, Class<T> clazz) {
+        return async(() -> evaluate(collection, documentQuery).stream()
+            .map(entry -> toObject(entry.getKey(), entry.getValue().data, clazz))
+            .collect(Collectors.toList()));
+    }
+    
+    @Override
+    public <T> CompletableFuture<Page<T>> queryPageAsync(String collection, String field, Object value, String orderBy,
+                                                       PageRequest pageRequest, Collection<String> fields, Class<T> clazz) {
+        PageCursor cursor = pageRequest.getCursor();
+        if (cursor != null && !Objects.equals(cursor.getOrderBy(), orderBy)) {
+            throw new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung");
+        }
+        
+        DocumentQuery documentQuery = DocumentQuery.create();
+        if (field != null) {
+            documentQuery.whereEqualTo(field, value);
+        }
+        if (orderBy != null) {
+            documentQuery.orderBy(orderBy);
+        }
+        
+        int limit = pageRequest.getLimit();
+        
+        return async(() -> {
+            List<Map.Entry<String, StoredDocument>> page = evaluate(collection, documentQuery).stream()
+                .filter(entry -> cursor == null || isAfter(entry, orderBy, cursor))
+                .limit(limit)
+                .collect(Collectors.toList());
+            
+            List<T> items = new ArrayList<>(page.size());
+            for (Map.Entry<String, StoredDocument> entry : page) {
+                items.add(toObject(entry.getKey(), project(entry.getValue().data, fields, orderBy), clazz));
+            }
+            
+            // Volle Seite -> es kann weitere Dokumente geben
+            String nextCursor = null;
+            if (page.size() == limit) {
+                Map.Entry<String, StoredDocument> last = page.get(page.size() - 1);
+                Object lastValue = orderBy != null ? last.getValue().data.get(orderBy) : null;
+                nextCursor = new PageCursor(orderBy, lastValue, last.getKey()).encode();
+            }
+            return new Page<>(items, nextCursor);
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<Void> streamDocumentsAsync(String collection, String field, Object value, Class<T> clazz,
+                                                          Consumer<? super T> consumer) {
+        DocumentQuery documentQuery = field != null ? DocumentQuery.create().whereEqualTo(field, value) : DocumentQuery.create();
+        
+        return async(() -> {
+            for (Map.Entry<String, StoredDocument> entry : evaluate(collection, documentQuery)) {
+                consumer.accept(toObject(entry.getKey(), entry.getValue().data, clazz));
+            }
+            return null;
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<List<T>> filterDocumentsAsync(String collection, String field, Object value, Class<T> clazz,
+                                                             Predicate<? super T> filter) {
+        List<T> matches = Collections.synchronizedList(new ArrayList<>());
+        return streamDocumentsAsync(collection, field, value, clazz, document -> {
+            if (filter.test(document)) {
+                matches.add(document);
+            }
+        }).thenApply(ignored -> new ArrayList<>(matches));
+    }
+    
+    @Override
+    public CompletableFuture<Long> countDocumentsAsync(String collection, DocumentQuery documentQuery) {
+        return async(() -> (long) evaluate(collection, documentQuery).size());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> documentExistsAsync(String collection, String documentId) {
+        return async(() -> collection(collection).containsKey(documentId));
+    }
+    
+    /**
+     * Keine Caches - alle Lesezugriffe gehen direkt in den Speicher
+     */
+    @Override
+    public Map<String, Map<String, Object>> getCacheStatistics() {
+        return Collections.emptyMap();
+    }
+    
+    @Override
+    public <T> CompletableFuture<String> saveDocumentAsync(String collection, String documentId, T data) {
+        return async(() -> save(collection, documentId, data));
+    }
+    
+    @Override
+    public CompletableFuture<Void> updateDocumentAsync(String collection, String documentId, Map<String, Object> updates) {
+        return async(() -> {
+            update(collection, documentId, updates, null);
+            return null;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<Instant> updateDocumentIfUnchangedAsync(String collection, String documentId,
+                                                                   Map<String, Object> updates, Instant expectedUpdateTime) {
+        return async(() -> update(collection, documentId, updates, expectedUpdateTime));
+    }
+    
+    @Override
+    public CompletableFuture<Void> deleteDocumentAsync(String collection, String documentId) {
+        return async(() -> {
+            delete(collection, documentId, null);
+            return null;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<Void> deleteDocumentIfUnchangedAsync(String collection, String documentId,
+                                                                Instant expectedUpdateTime) {
+        return async(() -> {
+            delete(collection, documentId, expectedUpdateTime);
+            return null;
+        });
+    }
+    
+    @Override
+    public <T> CompletableFuture<BulkWriteResult> saveDocumentsAsync(String collection, Collection<T> documents,
+                                                                   Function<T, String> idExtractor) {
+        List<T> list = new ArrayList<>(documents);
+        return async(() -> bulkWrite(collection, "Speichern", list, idExtractor,
+                                     document -> save(collection, idExtractor.apply(document), document)));
+    }
+    
+    @Override
+    public CompletableFuture<BulkWriteResult> updateDocumentsAsync(String collection, Map<String, Map<String, Object>> updates) {
+        Map<String, Map<String, Object>> copy = new LinkedHashMap<>(updates);
+        return async(() -> bulkWrite(collection, "Aktualisieren", copy.keySet(), Function.identity(), documentId -> {
+            update(collection, documentId, copy.get(documentId), null);
+            return documentId;
+        }));
+    }
+    
+    @Override
+    public CompletableFuture<BulkWriteResult> deleteDocumentsAsync(String collection, Collection<String> documentIds) {
+        List<String> list = new ArrayList<>(documentIds);
+        return async(() -> bulkWrite(collection, "Löschen", list, Function.identity(), documentId -> {
+            delete(collection, documentId, null);
+            return documentId;
+        }));
+    }
+    
+    /**
+     * Dokumente einzeln schreiben; ein Fehler betrifft nur das jeweilige Dokument
+     */
+    private <T> BulkWriteResult bulkWrite(String collection, String action, Collection<T> documents,
+                                          Function<T, String> idExtractor, Function<T, String> write) {
+        List<BulkWriteResult.Entry> entries = new ArrayList<>(documents.size());
+        for (T document : documents) {
+            try {
+                entries.add(BulkWriteResult.Entry.success(write.apply(document)));
+            } catch (RuntimeException e) {
+                String documentId = idExtractor.apply(document);
+                logger.warn("Fehler beim {} von {}/{}: {}", action, collection, documentId, e.getMessage());
+                entries.add(BulkWriteResult.Entry.failure(documentId, e.getMessage()));
+            }
+        }
+        return new BulkWriteResult(entries);
+    }
+    
+    private String save(String collection, String documentId, Object data) {
+        String id = documentId != null && !documentId.isEmpty() ? documentId : newDocumentId();
+        Map<String, Object> fields = toData(data);
+        
+        writeLock.lock();
+        try {
+            put(collection, id, fields);
+            return id;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Felder eines bestehenden Dokuments ersetzen
+     *
+     * @param expectedUpdateTime erwarteter Änderungszeitpunkt oder null für unbedingt
+     * @return neuer Änderungszeitpunkt
+     */
+    private Instant update(String collection, String documentId, Map<String, Object> updates, Instant expectedUpdateTime) {
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        updates.forEach((field, value) -> normalized.put(field, normalize(value)));
+        
+        writeLock.lock();
+        try {
+            StoredDocument current = collection(collection).get(documentId);
+            checkUnchanged(collection, documentId, current, expectedUpdateTime);
+            if (current == null) {
+                throw new RuntimeException("Fehler beim Aktualisieren des Dokuments: " + collection + "/"
+                                           + documentId + " existiert nicht");
+            }
+            
+            Map<String, Object> fields = new LinkedHashMap<>(current.data);
+            fields.putAll(normalized);
+            return put(collection, documentId, fields).updateTime;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private void delete(String collection, String documentId, Instant expectedUpdateTime) {
+        writeLock.lock();
+        try {
+            StoredDocument current = collection(collection).get(documentId);
+            checkUnchanged(collection, documentId, current, expectedUpdateTime);
+            if (current == null) {
+                return;
+            }
+            
+            Instant updateTime = nextUpdateTime();
+            append(Map.of("op", "delete", "collection", collection, "id", documentId, "time", updateTime.toString()));
+            collection(collection).remove(documentId);
+            notifyWatches(collection, Map.of(), Set.of(documentId), updateTime);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private void checkUnchanged(String collection, String documentId, StoredDocument current, Instant expectedUpdateTime) {
+        if (expectedUpdateTime != null && (current == null || !current.updateTime.equals(expectedUpdateTime))) {
+            logger.warn("Konflikt bei {}/{}: Dokument wurde geändert", collection, documentId);
+            throw new DocumentConflictException("Dokument wurde zwischenzeitlich geändert: " + documentId, null);
+        }
+    }
+    
+    /**
+     * Dokument schreiben: zuerst in die Datei, dann in den Speicher (nur mit writeLock)
+     */
+    private StoredDocument put(String collection, String documentId, Map<String, Object> fields) {
+        StoredDocument document = new StoredDocument(Collections.unmodifiableMap(fields), nextUpdateTime());
+        
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("op", "put");
+        line.put("collection", collection);
+        line.put("id", documentId);
+        line.put("time", document.updateTime.toString());
+        line.put("data", document.data);
+        append(line);
+        
+        collection(collection).put(documentId, document);
+        notifyWatches(collection, Map.of(documentId, document), Set.of(), document.updateTime);
+        return document;
+    }
+    
+    /**
+     * Streng monoton steigende Änderungszeitpunkte, damit jede Version eindeutig ist
+     */
+    private Instant nextUpdateTime() {
+        Instant now = Instant.now();
+        lastUpdateTime = now.isAfter(lastUpdateTime) ? now : lastUpdateTime.plusNanos(1000);
+        return lastUpdateTime;
+    }
+    
+    private static String newDocumentId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+    }
+    
+    /**
+     * Collection beobachten: zuerst alle Dokumente, danach nur noch Änderungen
+     *
+     * Die Callbacks laufen nacheinander in einem eigenen Listener-Thread.
+     */
+    @Override
+    public <T> AutoCloseable watchCollection(String collection, Class<T> clazz, CollectionListener<T> listener) {
+        Watch<T> watch = new Watch<>(collection, clazz, listener);
+        
+        writeLock.lock();
+        try {
+            Map<String, StoredDocument> snapshot = new LinkedHashMap<>(collection(collection));
+            Instant readTime = Instant.now();
+            if (listenerExecutor.isShutdown()) {
+                throw new IllegalStateException("Dokumentenspeicher ist geschlossen");
+            }
+            watches.add(watch);
+            listenerExecutor.execute(() -> watch.deliver(snapshot, Set.of(), readTime));
+        } finally {
+            writeLock.unlock();
+        }
+        
+        return () -> {
+            watch.closed = true;
+            watches.remove(watch);
+        };
+    }
+    
+    /**
+     * Listener benachrichtigen (nur mit writeLock, siehe close())
+     */
+    private void notifyWatches(String collection, Map<String, StoredDocument> upserts, Set<String> removedIds,
+                               Instant readTime) {
+        if (listenerExecutor.isShutdown()) {
+            return;
+        }
+        for (Watch<?> watch : watches) {
+            if (watch.collection.equals(collection)) {
+                listenerExecutor.execute(() -> watch.deliver(upserts, removedIds, readTime));
+            }
+        }
+    }
+    
+    private class Watch<T> {
+        
+        private final String collection;
+        private final Class<T> clazz;
+        private final CollectionListener<T> listener;
+        private volatile boolean closed;
+        
+        Watch(String collection, Class<T> clazz, CollectionListener<T> listener) {
+            this.collection = collection;
+            this.clazz = clazz;
+            this.listener = listener;
+        }
+        
+        void deliver(Map<String, StoredDocument> upserts, Set<String> removedIds, Instant readTime) {
+            if (closed) {
+                return;
+            }
+            
+            Map<String, T> objects = new HashMap<>();
+            Map<String, Instant> updateTimes = new HashMap<>();
+            upserts.forEach((documentId, document) -> {
+                try {
+                    objects.put(documentId, toObject(documentId, document.data, clazz));
+                    updateTimes.put(documentId, document.updateTime);
+                } catch (RuntimeException conversionError) {
+                    logger.warn("Dokument {}/{} konnte nicht gelesen werden: {}",
+                               collection, documentId, conversionError.getMessage());
+                }
+            });
+            
+            try {
+                listener.onChanges(objects, updateTimes, removedIds, readTime);
+            } catch (RuntimeException e) {
+                logger.error("Listener für {} fehlgeschlagen: {}", collection, e.getMessage());
+                listener.onError(e);
+            }
+        }
+    }
+    
+    /**
+     * Query auswerten: Filter, Sortierung (danach Document ID) und Limit
+     */
+    private List<Map.Entry<String, StoredDocument>> evaluate(String collection, DocumentQuery documentQuery) {
+        List<Map.Entry<String, StoredDocument>> matches = new ArrayList<>();
+        for (Map.Entry<String, StoredDocument> entry : collection(collection).entrySet()) {
+            if (matches(entry.getValue().data, documentQuery)) {
+                matches.add(entry);
+            }
+        }
+        
+        if (!documentQuery.getOrders().isEmpty()) {
+            Comparator<Map.Entry<String, StoredDocument>> order = null;
+            boolean descending = false;
+            for (DocumentQuery.Order sortOrder : documentQuery.getOrders()) {
+                String field = sortOrder.getField();
+                Comparator<Map.Entry<String, StoredDocument>> byField =
+                    (a, b) -> compareValues(a.getValue().data.get(field), b.getValue().data.get(field));
+                byField = sortOrder.isDescending() ? byField.reversed() : byField;
+                order = order == null ? byField : order.thenComparing(byField);
+                descending = sortOrder.isDescending();
+            }
+            // Wie bei Firestore: gleiche Werte nach Document ID in Richtung der letzten Sortierung
+            Comparator<Map.Entry<String, StoredDocument>> byId = Map.Entry.comparingByKey();
+            matches.sort(order.thenComparing(descending ? byId.reversed() : byId));
+        }
+        
+        Integer limit = documentQuery.getLimit();
+        return limit != null && matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+    
+    private boolean matches(Map<String, Object> data, DocumentQuery documentQuery) {
+        for (DocumentQuery.Filter filter : documentQuery.getFilters()) {
+            if (!data.containsKey(filter.getField()) || !matches(data.get(filter.getField()), filter)) {
+                return false;
+            }
+        }
+        // Sortierfelder müssen vorhanden sein, sonst fällt das Dokument heraus
+        for (DocumentQuery.Order order : documentQuery.getOrders()) {
+            if (!data.containsKey(order.getField())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean matches(Object actual, DocumentQuery.Filter filter) {
+        Object expected = normalize(filter.getValue());
+        
+        switch (filter.getOperator()) {
+            case EQUAL:
+                return compareValues(actual, expected) == 0;
+            case LESS_THAN:
+                return sameType(actual, expected) && compareValues(actual, expected) < 0;
+            case LESS_THAN_OR_EQUAL:
+                return sameType(actual, expected) && compareValues(actual, expected) <= 0;
+            case GREATER_THAN:
+                return sameType(actual, expected) && compareValues(actual, expected) > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return sameType(actual, expected) && compareValues(actual, expected) >= 0;
+            case IN:
+                return ((List<?>) expected).stream().anyMatch(candidate -> compareValues(actual, candidate) == 0);
+            case ARRAY_CONTAINS:
+                return actual instanceof List<?> list
+                    && list.stream().anyMatch(element -> compareValues(element, expected) == 0);
+            default:
+                throw new IllegalArgumentException("Nicht unterstützter Operator: " + filter.getOperator());
+        }
+    }
+    
+    /**
+     * Liegt das Dokument hinter dem Cursor? (Sortierwert, dann Document ID)
+     */
+    private boolean isAfter(Map.Entry<String, StoredDocument> entry, String orderBy, PageCursor cursor) {
+        if (orderBy != null) {
+            int byValue = compareValues(entry.getValue().data.get(orderBy), normalize(cursor.getValue()));
+            if (byValue != 0) {
+                return byValue > 0;
+            }
+        }
+        return entry.getKey().compareTo(cursor.getDocumentId()) > 0;
+    }
+    
+    /**
+     * Nur die angefragten Felder (und das Sortierfeld für den Cursor) behalten
+     */
+    private static Map<String, Object> project(Map<String, Object> data, Collection<String> fields, String orderBy) {
+        if (fields == null || fields.isEmpty()) {
+            return data;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String field : fields) {
+            if (data.containsKey(field)) {
+                projected.put(field, data.get(field));
+            }
+        }
+        if (orderBy != null && data.containsKey(orderBy)) {
+            projected.put(orderBy, data.get(orderBy));
+        }
+        return projected;
+    }
+    
+    /**
+     * Typ-Rang wie bei Firestore: null < Boolean < Zahl < String < Array < Map
+     */
+    private static int typeRank(Object value) {
+        if (value == null) return 0;
+        if (value instanceof Boolean) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof String) return 3;
+        if (value instanceof List) return 4;
+        return 5;
+    }
+    
+    private static boolean sameType(Object a, Object b) {
+        return a != null && typeRank(a) == typeRank(b);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        int rank = Integer.compare(typeRank(a), typeRank(b));
+        if (rank != 0) {
+            return rank;
+        }
+        
+        if (a == null) {
+            return 0;
+        }
+        if (a instanceof Boolean) {
+            return ((Boolean) a).compareTo((Boolean) b);
+        }
+        if (a instanceof Number) {
+            return compareNumbers((Number) a, (Number) b);
+        }
+        if (a instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        if (a instanceof List) {
+            List<Object> left = (List<Object>) a;
+            List<Object> right = (List<Object>) b;
+            for (int i = 0; i < Math.min(left.size(), right.size()); i++) {
+                int result = compareValues(left.get(i), right.get(i));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Integer.compare(left.size(), right.size());
+        }
+        return Objects.equals(a, b) ? 0 : a.toString().compareTo(b.toString());
+    }
+    
+    /**
+     * Zahlen typübergreifend vergleichen (Integer, Long, BigDecimal, Double)
+     */
+    private static int compareNumbers(Number a, Number b) {
+        if (isFinite(a) && isFinite(b)) {
+            return toBigDecimal(a).compareTo(toBigDecimal(b));
+        }
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+    
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double || number instanceof Float) || Double.isFinite(number.doubleValue());
+    }
+    
+    private static BigDecimal toBigDecimal(Number number) {
+        return number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+    }
+    
+    private ConcurrentSkipListMap<String, StoredDocument> collection(String collection) {
+        return collections.computeIfAbsent(collection, name -> new ConcurrentSkipListMap<>());
+    }
+    
+    /**
+     * Objekt in gespeicherte Felder umwandeln, ohne das @DocumentId-Feld
+     */
+    private Map<String, Object> toData(Object data) {
+        Map<String, Object> fields = mapper.convertValue(data, MAP_TYPE);
+        documentIdField(data.getClass()).ifPresent(fields::remove);
+        return fields;
+    }
+    
+    private <T> T toObject(String documentId, Map<String, Object> data, Class<T> clazz) {
+        Optional<String> idField = documentIdField(clazz);
+        if (idField.isEmpty()) {
+            return mapper.convertValue(data, clazz);
+        }
+        Map<String, Object> fields = new LinkedHashMap<>(data);
+        fields.put(idField.get(), documentId);
+        return mapper.convertValue(fields, clazz);
+    }
+    
+    /**
+     * Einzelwert wie beim Speichern abbilden (Enum -> Name, LocalDateTime -> ISO-String)
+     */
+    private Object normalize(Object value) {
+        return value == null ? null : mapper.convertValue(value, Object.class);
+    }
+    
+    private Optional<String> documentIdField(Class<?> clazz) {
+        return documentIdFields.computeIfAbsent(clazz, type -> {
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(DocumentId.class)) {
+                        return Optional.of(field.getName());
+                    }
+                }
+            }
+            return Optional.empty();
+        });
+    }
+    
+    private void append(Map<String, Object> line) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(mapper.writeValueAsString(line));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            logger.error("Fehler beim Schreiben der Datendatei: {}", e.getMessage());
+            throw new RuntimeException("Fehler beim Schreiben der Datendatei", e);
+        }
+    }
+    
+    /**
+     * Datendatei einlesen; eine unvollständige letzte Zeile (Absturz beim Schreiben) wird übersprungen
+     */
+    @SuppressWarnings("unchecked")
+    private void replay(Path path) throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                Map<String, Object> entry;
+                try {
+                    entry = mapper.readValue(line, MAP_TYPE);
+                } catch (IOException e) {
+                    logger.warn("Zeile {} der Datendatei {} ist ungültig und wird übersprungen", lineNumber, path);
+                    continue;
+                }
+                
+                String collection = (String) entry.get("collection");
+                String documentId = (String) entry.get("id");
+                Instant updateTime = Instant.parse((String) entry.get("time"));
+                
+                if ("delete".equals(entry.get("op"))) {
+                    collection(collection).remove(documentId);
+                } else {
+                    Map<String, Object> data = (Map<String, Object>) entry.get("data");
+                    collection(collection).put(documentId, new StoredDocument(Collections.unmodifiableMap(data), updateTime));
+                }
+                if (updateTime.isAfter(lastUpdateTime)) {
+                    lastUpdateTime = updateTime;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Datendatei durch den aktuellen Stand ersetzen (eine Zeile pro Dokument)
+     */
+    private void compact(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, ConcurrentSkipListMap<String, StoredDocument>> collection : collections.entrySet()) {
+                for (Map.Entry<String, StoredDocument> document : collection.getValue().entrySet()) {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("op", "put");
+                    line.put("collection", collection.getKey());
+                    line.put("id", document.getKey());
+                    line.put("time", document.getValue().updateTime.toString());
+                    line.put("data", document.getValue().data);
+                    writer.write(mapper.writeValueAsString(line));
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Operation im Thread-Pool ausführen, bei konfigurierter Latenz um latency + Zufall(jitter) verzögert
+     */
+    private <R> CompletableFuture<R> async(Supplier<R> operation) {
+        long delayMillis = latency.toMillis();
+        if (!jitter.isZero()) {
+            delayMillis += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        
+        Executor executor = delayMillis > 0
+            ? CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, operationExecutor)
+            : operationExecutor;
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+    
+    /**
+     * Gespeicherter Stand eines Dokuments: Felder (unveränderlich) und Änderungszeitpunkt
+     */
+    private static class StoredDocument {
+        
+        private final Map<String, Object> data;
+        private final Instant updateTime;
+        
+        StoredDocument(Map<String, Object> data, Instant updateTime) {
+            this.data = data;
+            this.updateTime = updateTime;
+        }
+    }
+}
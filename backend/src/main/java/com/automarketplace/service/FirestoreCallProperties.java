@@ -0,0 +1,293 @@
+package com.automarketplace.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Zeitbudgets, Hedging und Bulkheads der Firestore-Aufrufe (firestore.calls.*)
+ *
+ * Jeder Aufruf bekommt min(Timeout der Operation, Restbudget des Requests).
+ * Operationen heißen wie in den Metriken (get, query, page, save, ...).
+ */
+@Component
+@ConfigurationProperties(prefix = "firestore.calls")
+public class FirestoreCallProperties {
+    
+    // Gesamtbudget eines HTTP-Requests für alle Firestore-Aufrufe
+    private Duration requestBudget = Duration.ofSeconds(10);
+    
+    // Timeout einer Operation ohne eigenen Eintrag
+    private Duration timeout = Duration.ofSeconds(5);
+    
+    private Map<String, OperationSettings> operations = new HashMap<>();
+    
+    private Hedging hedging = new Hedging();
+    
+    private Bulkheads bulkheads = new Bulkheads();
+    
+    public Duration getRequestBudget() {
+        return requestBudget;
+    }
+    
+    public void setRequestBudget(Duration requestBudget) {
+        this.requestBudget = requestBudget;
+    }
+    
+    public Duration getTimeout() {
+        return timeout;
+    }
+    
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+    
+    public Map<String, OperationSettings> getOperations() {
+        return operations;
+    }
+    
+    public void setOperations(Map<String, OperationSettings> operations) {
+        this.operations = operations;
+    }
+    
+    public Hedging getHedging() {
+        return hedging;
+    }
+    
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+    
+    public Bulkheads getBulkheads() {
+        return bulkheads;
+    }
+    
+    public void setBulkheads(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+    
+    /**
+     * Timeout der Operation (eigener Eintrag oder Standard)
+     */
+    public Duration timeoutOf(String operation) {
+        OperationSettings settings = operations.get(operation);
+        return settings != null && settings.getTimeout() != null ? settings.getTimeout() : timeout;
+    }
+    
+    /**
+     * Ob für die Operation ein zweiter Versuch gestartet werden darf
+     */
+    public boolean isHedged(String operation) {
+        OperationSettings settings = operations.get(operation);
+        return hedging.isEnabled() && settings != null && settings.isHedge();
+    }
+    
+    /**
+     * Einstellungen einer Operation
+     */
+    public static class OperationSettings {
+        
+        // null = firestore.calls.timeout
+        private Duration timeout;
+        
+        // Nur für idempotente Lesezugriffe einschalten
+        private boolean hedge;
+        
+        public Duration getTimeout() {
+            return timeout;
+        }
+        
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+        
+        public boolean isHedge() {
+            return hedge;
+        }
+        
+        public void setHedge(boolean hedge) {
+            this.hedge = hedge;
+        }
+    }
+    
+    /**
+     * Hedged Reads: zweiter Versuch, wenn der erste länger als das Perzentil braucht
+     */
+    public static class Hedging {
+        
+        private boolean enabled = true;
+        
+        // Verzögerung des zweiten Versuchs = dieses Perzentil der letzten Laufzeiten
+        private double percentile = 0.95;
+        
+        // Grenzen der Verzögerung
+        private Duration minDelay = Duration.ofMillis(10);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        
+        // Erst ab so vielen gemessenen Aufrufen wird gehedged
+        private int minSamples = 100;
+        
+        // Höchstens dieser Anteil der Aufrufe bekommt einen zweiten Versuch
+        private double maxRatio = 0.1;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public double getPercentile() {
+            return percentile;
+        }
+        
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+        
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+        
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+        
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+        
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+        
+        public int getMinSamples() {
+            return minSamples;
+        }
+        
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+        
+        public double getMaxRatio() {
+            return maxRatio;
+        }
+        
+        public void setMaxRatio(double maxRatio) {
+            this.maxRatio = maxRatio;
+        }
+    }
+    
+    /**
+     * Bulkheads: getrennte Genehmigungen für Lesezugriffe pro Collection
+     * ("<collection>-read") und alle Schreibzugriffe ("writes")
+     */
+    public static class Bulkheads {
+        
+        private boolean enabled = true;
+        
+        // Wert des Retry-After-Headers bei Ablehnung (503)
+        private Duration retryAfter = Duration.ofSeconds(1);
+        
+        // Einstellungen pro Bulkhead; nicht eingetragene verwenden "defaults"
+        private Map<String, Bulkhead> pools = new HashMap<>();
+        
+        private Bulkhead defaults = new Bulkhead();
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+        
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+        
+        public Map<String, Bulkhead> getPools() {
+            return pools;
+        }
+        
+        public void setPools(Map<String, Bulkhead> pools) {
+            this.pools = pools;
+        }
+        
+        public Bulkhead getDefaults() {
+            return defaults;
+        }
+        
+        public void setDefaults(Bulkhead defaults) {
+            this.defaults = defaults;
+        }
+        
+        public Bulkhead settingsOf(String pool) {
+            return pools.getOrDefault(pool, defaults);
+        }
+    }
+    
+    /**
+     * Adaptive Grenze eines Bulkheads (AIMD, siehe ConcurrencyLimiter)
+     */
+    public static class Bulkhead {
+        
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        
+        // Faktor, um den die Grenze bei Überlast sinkt
+        private double backoffRatio = 0.9;
+        
+        // Langsamere Aufrufe zählen wie Überlast
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+        
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+        
+        public int getMinLimit() {
+            return minLimit;
+        }
+        
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+        
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+        
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+        
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+        
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+        
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+        
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.automarketplace.service;
+
+import com.google.api.core.ApiFuture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Ausführung der Firestore-Aufrufe mit Zeitbudget und optionalem Hedging
+ *
+ * - Deadline: jeder Aufruf endet spätestens nach min(Timeout der Operation,
+ *   Restbudget des Requests) mit DeadlineExceededException; der RPC wird dann
+ *   abgebrochen. Die Deadline des Requests (RequestDeadline) gilt auch für
+ *   Aufrufe aus den Folgeschritten des Futures.
+ * - Hedging (nur für konfigurierte, idempotente Operationen): braucht der erste
+ *   Versuch länger als das Perzentil der letzten Laufzeiten, wird ein zweiter
+ *   gestartet; die erste erfolgreiche Antwort gewinnt, der andere RPC wird
+ *   abgebrochen. Höchstens hedging.max-ratio der Aufrufe werden gehedged.
+ *
+ * - Bulkheads: Lesezugriffe pro Collection ("cars-read", "users-read") und alle
+ *   Schreibzugriffe ("writes") haben getrennte Genehmigungen, deren Anzahl ein
+ *   ConcurrencyLimiter an die beobachtete Latenz anpasst. Ist ein Bulkhead voll,
+ *   endet der Aufruf sofort mit ConcurrencyLimitExceededException (HTTP 503
+ *   mit Retry-After) statt sich hinter einem langsamen Firestore zu stauen.
+ *
+ * Metriken: firestore.deadline.exceeded, firestore.hedge (Tag result: sent,
+ * won = zweiter Versuch war schneller, lost = erster Versuch war schneller),
+ * firestore.bulkhead.limit/.inflight/.rejected (Tag pool).
+ */
+@Component
+public class FirestoreCalls {
+    
+    /**
+     * Anzahl der letzten Laufzeiten pro Operation für das Perzentil
+     */
+    private static final int WINDOW_SIZE = 512;
+    
+    private static final Set<String> WRITE_OPERATIONS = Set.of(
+        "save", "update", "delete", "update_if_unchanged", "delete_if_unchanged",
+        "bulk_save", "bulk_update", "bulk_delete");
+    
+    /**
+     * gRPC-Status, die auf Überlast von Firestore hindeuten
+     */
+    private static final Set<String> OVERLOAD_STATUSES = Set.of("DEADLINE_EXCEEDED", "UNAVAILABLE", "RESOURCE_EXHAUSTED");
+    
+    private final FirestoreMetrics metrics;
+    private final FirestoreCallProperties properties;
+    private final MeterRegistry registry;
+    
+    /**
+     * Executor für die Folgeschritte der Futures (virtuelle Threads im Profil
+     * java21); ohne laufen sie direkt im gRPC-Thread, der die Antwort liefert
+     */
+    private final Executor callbackExecutor;
+    
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Map<String, HedgeBudget> hedgeBudgets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimiter> bulkheads = new ConcurrentHashMap<>();
+    
+    public FirestoreCalls(FirestoreMetrics metrics, FirestoreCallProperties properties, MeterRegistry registry,
+                          @Qualifier("firestoreCallbackExecutor") Optional<Executor> callbackExecutor) {
+        this.metrics = metrics;
+        this.properties = properties;
+        this.registry = registry;
+        this.callbackExecutor = callbackExecutor.orElse(null);
+    }
+    
+    /**
+     * Firestore-Aufruf mit Deadline und Metriken ausführen
+     */
+    public <T> CompletableFuture<T> call(String collection, String operation, Supplier<ApiFuture<T>> call) {
+        Long deadline = RequestDeadline.current();
+        long timeout = timeoutNanos(operation);
+        if (timeout <= 0) {
+            return CompletableFuture.failedFuture(deadlineExceeded(collection, operation, null));
+        }
+        ConcurrencyLimiter limiter = bulkhead(collection, operation);
+        if (limiter != null && !limiter.tryAcquire()) {
+            return CompletableFuture.failedFuture(rejected(limiter));
+        }
+        
+        return propagate(collection, operation, deadline, attempt(collection, operation, call, timeout, limiter));
+    }
+    
+    /**
+     * Wie call(), für Aufrufe ohne ApiFuture (Streams, BulkWriter)
+     *
+     * Nach Ablauf der Deadline endet das Future; die Operation selbst kann
+     * nicht abgebrochen werden und läuft im Hintergrund zu Ende.
+     */
+    public <T> CompletableFuture<T> callAsync(String collection, String operation, Supplier<CompletableFuture<T>> call) {
+        Long deadline = RequestDeadline.current();
+        long timeout = timeoutNanos(operation);
+        if (timeout <= 0) {
+            return CompletableFuture.failedFuture(deadlineExceeded(collection, operation, null));
+        }
+        
+        ConcurrencyLimiter limiter = bulkhead(collection, operation);
+        if (limiter != null && !limiter.tryAcquire()) {
+            return CompletableFuture.failedFuture(rejected(limiter));
+        }
+        
+        // Die Genehmigung gilt bis zum tatsächlichen Ende der Operation, nicht bis zum Timeout
+        long started = System.nanoTime();
+        CompletableFuture<T> future = metrics.recordAsync(collection, operation, () -> {
+            CompletableFuture<T> operationFuture;
+            try {
+                operationFuture = call.get();
+            } catch (RuntimeException e) {
+                operationFuture = CompletableFuture.failedFuture(e);
+            }
+            return operationFuture.whenComplete((value, e) -> release(limiter, started, e));
+        }).orTimeout(timeout, TimeUnit.NANOSECONDS);
+        return propagate(collection, operation, deadline, future);
+    }
+    
+    /**
+     * Idempotenten Lesezugriff mit Deadline und ggf. zweitem Versuch ausführen
+     *
+     * Ohne hedge: true für die Operation wie call().
+     */
+    public <T> CompletableFuture<T> hedged(String collection, String operation, Supplier<ApiFuture<T>> call) {
+        if (!properties.isHedged(operation)) {
+            return call(collection, operation, call);
+        }
+        
+        Long deadline = RequestDeadline.current();
+        long timeout = timeoutNanos(operation);
+        if (timeout <= 0) {
+            return CompletableFuture.failedFuture(deadlineExceeded(collection, operation, null));
+        }
+        
+        String key = collection + "|" + operation;
+        LatencyWindow window = latencies.computeIfAbsent(key, k -> new LatencyWindow());
+        HedgeBudget budget = hedgeBudgets.computeIfAbsent(key, k -> new HedgeBudget());
+        budget.deposit(properties.getHedging().getMaxRatio());
+        
+        ConcurrencyLimiter limiter = bulkhead(collection, operation);
+        if (limiter != null && !limiter.tryAcquire()) {
+            return CompletableFuture.failedFuture(rejected(limiter));
+        }
+        
+        long started = System.nanoTime();
+        CompletableFuture<T> primary = attempt(collection, operation, call, timeout, limiter);
+        primary.thenRun(() -> window.add(System.nanoTime() - started));
+        
+        long delay = hedgeDelayNanos(window);
+        if (delay < 0 || delay >= timeout) {
+            return propagate(collection, operation, deadline, primary);
+        }
+        
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+        
+        primary.whenComplete(attemptDone(result, running, () -> {
+            CompletableFuture<T> other = hedge.get();
+            if (other != null && other.cancel(true)) {
+                counter(collection, operation, "lost").increment();
+            }
+        }));
+        
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            // Nur solange der erste Versuch noch läuft, Kontingent und Bulkhead reichen.
+            // Genehmigung und Kontingent werden vor dem Zählen genommen: ein verworfener
+            // zweiter Versuch zählt nie mit, sonst bliebe nach dem Fehlschlag des ersten
+            // Versuchs niemand, der das Ergebnis abschließt.
+            if (result.isDone()) {
+                return;
+            }
+            if (limiter != null && !limiter.tryAcquire()) {
+                return;
+            }
+            if (!budget.withdraw()) {
+                if (limiter != null) {
+                    limiter.release(0, false, true);
+                }
+                return;
+            }
+            if (running.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+                // Erster Versuch inzwischen fehlgeschlagen, Ergebnis steht fest
+                budget.deposit(1);
+                if (limiter != null) {
+                    limiter.release(0, false, true);
+                }
+                return;
+            }
+            
+            counter(collection, operation, "sent").increment();
+            long hedgeStarted = System.nanoTime();
+            CompletableFuture<T> second = attempt(collection, operation, call, timeout - delay, limiter);
+            hedge.set(second);
+            second.thenRun(() -> window.add(System.nanoTime() - hedgeStarted));
+            second.whenComplete(attemptDone(result, running, () -> {
+                primary.cancel(true);
+                counter(collection, operation, "won").increment();
+            }));
+        });
+        
+        return propagate(collection, operation, deadline, result);
+    }
+    
+    /**
+     * Ende eines Versuchs: erste Antwort gewinnt, Fehler erst wenn kein Versuch mehr läuft
+     */
+    private static <T> BiConsumer<T, Throwable> attemptDone(CompletableFuture<T> result, AtomicInteger running,
+                                                          Runnable onWin) {
+        return (value, e) -> {
+            if (e == null) {
+                if (result.complete(value)) {
+                    onWin.run();
+                }
+            } else if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        };
+    }
+    
+    /**
+     * Einzelner Versuch; bei Timeout oder cancel() wird der RPC abgebrochen
+     *
+     * @param limiter Bulkhead, dessen Genehmigung bereits genommen wurde (oder null)
+     */
+    private <T> CompletableFuture<T> attempt(String collection, String operation, Supplier<ApiFuture<T>> call,
+                                             long timeoutNanos, ConcurrencyLimiter limiter) {
+        long started = System.nanoTime();
+        AtomicReference<ApiFuture<T>> rpc = new AtomicReference<>();
+        CompletableFuture<T> future = metrics.record(collection, operation, () -> {
+            ApiFuture<T> apiFuture = call.get();
+            rpc.set(apiFuture);
+            return apiFuture;
+        }).orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        
+        future.whenComplete((value, e) -> {
+            release(limiter, started, e);
+            ApiFuture<T> apiFuture = rpc.get();
+            if (e != null && apiFuture != null && !apiFuture.isDone()) {
+                apiFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Ergebnis mit der Deadline des Aufrufers abschließen und Timeouts übersetzen
+     */
+    private <T> CompletableFuture<T> propagate(String collection, String operation, Long deadline,
+                                               CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        BiConsumer<T, Throwable> complete = (value, e) -> RequestDeadline.runWith(deadline, () -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            result.completeExceptionally(cause instanceof TimeoutException ? deadlineExceeded(collection, operation, cause) : cause);
+        });
+        if (callbackExecutor != null) {
+            future.whenCompleteAsync(complete, callbackExecutor);
+        } else {
+            future.whenComplete(complete);
+        }
+        return result;
+    }
+    
+    private DeadlineExceededException deadlineExceeded(String collection, String operation, Throwable cause) {
+        counters.computeIfAbsent(collection + "|" + operation + "|deadline", key -> Counter.builder("firestore.deadline.exceeded")
+            .description("Firestore-Aufrufe, die am Zeitbudget gescheitert sind")
+            .tags(Tags.of("collection", collection, "operation", operation))
+            .register(registry))
+            .increment();
+        return new DeadlineExceededException("Zeitbudget überschritten: " + collection + "/" + operation, cause);
+    }
+    
+    /**
+     * Bulkhead der Operation: "writes" für Schreibzugriffe, sonst "<collection>-read"
+     *
+     * @return Limiter oder null, wenn Bulkheads ausgeschaltet sind
+     */
+    private ConcurrencyLimiter bulkhead(String collection, String operation) {
+        FirestoreCallProperties.Bulkheads settings = properties.getBulkheads();
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        
+        String pool = WRITE_OPERATIONS.contains(operation) ? "writes" : collection + "-read";
+        return bulkheads.computeIfAbsent(pool, name -> {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(name, settings.settingsOf(name));
+            Gauge.builder("firestore.bulkhead.limit", limiter, ConcurrencyLimiter::getLimit)
+                .description("Aktuelle adaptive Grenze gleichzeitiger Aufrufe")
+                .tag("pool", name)
+                .register(registry);
+            Gauge.builder("firestore.bulkhead.inflight", limiter, ConcurrencyLimiter::getInFlight)
+                .description("Laufende Aufrufe im Bulkhead")
+                .tag("pool", name)
+                .register(registry);
+            return limiter;
+        });
+    }
+    
+    /**
+     * Genehmigung zurückgeben; abgebrochene Versuche (Hedging) werden nicht bewertet
+     */
+    private static void release(ConcurrencyLimiter limiter, long started, Throwable e) {
+        if (limiter == null) {
+            return;
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        boolean overloaded = cause instanceof TimeoutException
+            || (cause != null && OVERLOAD_STATUSES.contains(FirestoreMetrics.statusOf(cause)));
+        limiter.release(System.nanoTime() - started, overloaded, cause instanceof CancellationException);
+    }
+    
+    private ConcurrencyLimitExceededException rejected(ConcurrencyLimiter limiter) {
+        counters.computeIfAbsent(limiter.getName() + "|rejected", key -> Counter.builder("firestore.bulkhead.rejected")
+            .description("Wegen vollem Bulkhead abgelehnte Aufrufe")
+            .tag("pool", limiter.getName())
+            .register(registry))
+            .increment();
+        return new ConcurrencyLimitExceededException("Bulkhead ausgelastet: " + limiter,
+                                                     properties.getBulkheads().getRetryAfter());
+    }
+    
+    /**
+     * min(Timeout der Operation, Restbudget des Requests)
+     */
+    private long timeoutNanos(String operation) {
+        long timeout = properties.timeoutOf(operation).toNanos();
+        Long remaining = RequestDeadline.remainingNanos();
+        return remaining != null ? Math.min(timeout, remaining) : timeout;
+    }
+    
+    /**
+     * Verzögerung des zweiten Versuchs oder -1, solange zu wenige Messwerte vorliegen
+     */
+    private long hedgeDelayNanos(LatencyWindow window) {
+        FirestoreCallProperties.Hedging hedging = properties.getHedging();
+        if (window.count() < hedging.getMinSamples()) {
+            return -1;
+        }
+        long delay = window.percentile(hedging.getPercentile());
+        return Math.max(hedging.getMinDelay().toNanos(), Math.min(delay, hedging.getMaxDelay().toNanos()));
+    }
+    
+    private Counter counter(String collection, String operation, String result) {
+        return counters.computeIfAbsent(collection + "|" + operation + "|" + result, key -> Counter.builder("firestore.hedge")
+            .description("Hedged Reads: gesendete, gewonnene und verlorene zweite Versuche")
+            .tags(Tags.of("collection", collection, "operation", operation, "result", result))
+            .register(registry));
+    }
+    
+    /**
+     * Die letzten WINDOW_SIZE Laufzeiten; das Perzentil wird alle 32 Werte neu berechnet
+     */
+    private static final class LatencyWindow {
+        
+        private final long[] samples = new long[WINDOW_SIZE];
+        private long count;
+        private double cachedPercentile = -1;
+        private long cachedValue;
+        private long cachedAt = -1;
+        
+        synchronized void add(long nanos) {
+            samples[(int) (count++ % WINDOW_SIZE)] = nanos;
+        }
+        
+        synchronized long count() {
+            return count;
+        }
+        
+        synchronized long percentile(double percentile) {
+            if (percentile != cachedPercentile || count - cachedAt >= 32) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW_SIZE));
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile * sorted.length) - 1;
+                cachedValue = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+                cachedPercentile = percentile;
+                cachedAt = count;
+            }
+            return cachedValue;
+        }
+    }
+    
+    /**
+     * Kontingent für zweite Versuche: jeder Aufruf bringt maxRatio Anteile, ein Hedge kostet einen
+     */
+    private static final class HedgeBudget {
+        
+        private static final double MAX_TOKENS = 10;
+        
+        private double tokens;
+        
+        synchronized void deposit(double amount) {
+            tokens = Math.min(MAX_TOKENS, tokens + amount);
+        }
+        
+        synchronized boolean withdraw() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
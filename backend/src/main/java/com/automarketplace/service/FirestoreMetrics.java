@@ -0,0 +1,245 @@
+package com.automarketplace.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.GeoPoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer-Metriken der Firestore-Zugriffsschicht
+ *
+ * Pro (collection, operation):
+ * - firestore.operation: Dauer jedes Firestore-Aufrufs als Histogramm, Tag outcome
+ *   (success/error); p99 z.B. mit histogram_quantile(0.99, ...) in Prometheus
+ * - firestore.inflight: gerade laufende Aufrufe
+ * - firestore.errors: Fehler nach gRPC-Status (Tag status)
+ * - firestore.documents: gelesene Dokumente pro Aufruf
+ * - firestore.read.bytes / firestore.document.size: gelesene Bytes, geschätzt nach
+ *   den Größenregeln von Firestore an einer Stichprobe der Dokumente
+ *
+ * Meter werden pro Tag-Kombination einmal angelegt und danach aus einer Map gelesen.
+ */
+@Component
+public class FirestoreMetrics {
+    
+    private final MeterRegistry registry;
+    
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> documentCounts = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> documentSizes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> bytesRead = new ConcurrentHashMap<>();
+    
+    /**
+     * Anteil der Dokumente, deren Größe geschätzt wird (0 = aus, 1 = alle);
+     * die Schätzung braucht eine zusätzliche Umwandlung des Dokuments
+     */
+    @Value("${firestore.metrics.size-sample-rate:0.1}")
+    private double sizeSampleRate;
+    
+    public FirestoreMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+    
+    /**
+     * Firestore-Aufruf messen: Dauer, laufende Aufrufe und Fehler
+     *
+     * @param call startet den Aufruf; wird erst nach dem Start der Messung ausgeführt
+     */
+    public <T> CompletableFuture<T> record(String collection, String operation, Supplier<ApiFuture<T>> call) {
+        return recordAsync(collection, operation, () -> FirestoreService.toCompletableFuture(call.get()));
+    }
+    
+    /**
+     * Wie record(), für Aufrufe ohne ApiFuture (Streams, BulkWriter)
+     */
+    public <T> CompletableFuture<T> recordAsync(String collection, String operation, Supplier<CompletableFuture<T>> call) {
+        AtomicInteger running = inFlight(collection, operation);
+        running.incrementAndGet();
+        long start = System.nanoTime();
+        
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        
+        return future.whenComplete((result, e) -> {
+            running.decrementAndGet();
+            timer(collection, operation, e == null ? "success" : "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (e != null) {
+                error(collection, operation, e);
+            }
+        });
+    }
+    
+    private void error(String collection, String operation, Throwable e) {
+        String status = statusOf(e);
+        errors.computeIfAbsent(key(collection, operation, status), key -> Counter.builder("firestore.errors")
+            .description("Fehlgeschlagene Firestore-Aufrufe nach gRPC-Status")
+            .tags(Tags.of("collection", collection, "operation", operation, "status", status))
+            .register(registry))
+            .increment();
+    }
+    
+    /**
+     * Anzahl und Größe der gelesenen Dokumente eines Aufrufs erfassen
+     */
+    public void documentsRead(String collection, String operation, Collection<? extends DocumentSnapshot> documents) {
+        documentCount(collection, operation).record(documents.size());
+        if (sizeSampleRate > 0) {
+            for (DocumentSnapshot document : documents) {
+                documentRead(collection, operation, document);
+            }
+        }
+    }
+    
+    /**
+     * Größe eines einzeln gelesenen Dokuments erfassen (Stichprobe)
+     */
+    public void documentRead(String collection, String operation, DocumentSnapshot document) {
+        if (sizeSampleRate <= 0 || !document.exists()
+                || (sizeSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sizeSampleRate)) {
+            return;
+        }
+        
+        long size = estimateSize(document);
+        documentSizes.computeIfAbsent(key(collection, operation), key -> DistributionSummary.builder("firestore.document.size")
+            .description("Geschätzte Größe gelesener Dokumente (Stichprobe)")
+            .baseUnit("bytes")
+            .tags(Tags.of("collection", collection, "operation", operation))
+            .register(registry))
+            .record(size);
+        // Hochgerechnet auf alle Dokumente (jedes gemessene steht für 1/Rate Dokumente)
+        bytesRead.computeIfAbsent(key(collection, operation), key -> Counter.builder("firestore.read.bytes")
+            .description("Geschätzte gelesene Bytes")
+            .baseUnit("bytes")
+            .tags(Tags.of("collection", collection, "operation", operation))
+            .register(registry))
+            .increment(size / Math.min(sizeSampleRate, 1.0));
+    }
+    
+    /**
+     * Anzahl Dokumente eines Aufrufs, deren Inhalt nicht vorliegt (z.B. Zähler beim Streamen)
+     */
+    public void documentCount(String collection, String operation, long count) {
+        documentCount(collection, operation).record(count);
+    }
+    
+    private DistributionSummary documentCount(String collection, String operation) {
+        return documentCounts.computeIfAbsent(key(collection, operation), key -> DistributionSummary.builder("firestore.documents")
+            .description("Gelesene Dokumente pro Aufruf")
+            .tags(Tags.of("collection", collection, "operation", operation))
+            .register(registry));
+    }
+    
+    private Timer timer(String collection, String operation, String outcome) {
+        return timers.computeIfAbsent(key(collection, operation, outcome), key -> Timer.builder("firestore.operation")
+            .description("Dauer der Firestore-Aufrufe")
+            .tags(Tags.of("collection", collection, "operation", operation, "outcome", outcome))
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+    
+    private AtomicInteger inFlight(String collection, String operation) {
+        return inFlight.computeIfAbsent(key(collection, operation), key -> registry.gauge("firestore.inflight",
+            Tags.of("collection", collection, "operation", operation), new AtomicInteger()));
+    }
+    
+    private static String key(String... parts) {
+        return String.join("|", parts);
+    }
+    
+    /**
+     * gRPC-Status des Fehlers (erste ApiException in der Ursachenkette)
+     */
+    static String statusOf(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException apiException) {
+                return apiException.getStatusCode().getCode().name();
+            }
+        }
+        return "UNKNOWN";
+    }
+    
+    /**
+     * Dokumentgröße nach den Regeln von Firestore: Name + Feldnamen + Werte + 32 Bytes
+     */
+    static long estimateSize(DocumentSnapshot document) {
+        long size = 32;
+        for (String segment : document.getReference().getPath().split("/")) {
+            size += utf8Length(segment) + 1;
+        }
+        size += 16;
+        
+        Map<String, Object> data = document.getData();
+        return data != null ? size + mapSize(data) : size;
+    }
+    
+    private static long mapSize(Map<?, ?> map) {
+        long size = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += utf8Length(String.valueOf(entry.getKey())) + 1 + valueSize(entry.getValue());
+        }
+        return size;
+    }
+    
+    private static long valueSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number || value instanceof Timestamp) {
+            return 8;
+        }
+        if (value instanceof String string) {
+            return utf8Length(string) + 1;
+        }
+        if (value instanceof GeoPoint) {
+            return 16;
+        }
+        if (value instanceof Blob blob) {
+            return blob.toBytes().length;
+        }
+        if (value instanceof DocumentReference reference) {
+            return utf8Length(reference.getPath()) + 1;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return mapSize(map);
+        }
+        if (value instanceof List<?> list) {
+            long size = 0;
+            for (Object element : list) {
+                size += valueSize(element);
+            }
+            return size;
+        }
+        return utf8Length(value.toString()) + 1;
+    }
+    
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
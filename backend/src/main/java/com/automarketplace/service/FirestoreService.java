@@ -1,182 +1,903 @@
 package com.automarketplace.service;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiStreamObserver;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service für Firestore Operationen
  * Bietet generische CRUD-Operationen für alle Entitäten
+ *
+ * Firestore-Implementierung von DocumentStore (document-store.type=firestore,
+ * Standard). Hier stehen nur die asynchronen Operationen; die synchronen
+ * Varianten kommen als Default-Methoden aus DocumentStore.
+ *
+ * Jeder Firestore-Aufruf läuft über FirestoreCalls (Zeitbudget, Hedging für
+ * get/query) und wird dort über FirestoreMetrics gemessen; pro Dokument wird
+ * nicht geloggt, nur Fehler.
  */
 @Service
-public class FirestoreService {
+@ConditionalOnProperty(name = "document-store.type", havingValue = "firestore", matchIfMissing = true)
+public class FirestoreService implements DocumentStore {
     
     private static final Logger logger = LoggerFactory.getLogger(FirestoreService.class);
     private final Firestore firestore;
+    private final FirestoreMetrics metrics;
+    private final FirestoreCalls calls;
     
-    public FirestoreService() {
-        this.firestore = FirestoreClient.getFirestore();
+    /**
+     * Handgeschriebene Codecs pro Klasse; andere Klassen über toObject()
+     */
+    private final Map<Class<?>, DocumentCodec<?>> codecs = new HashMap<>();
+    
+    /**
+     * Read-Through-Caches für getDocument, nur für konfigurierte Collections
+     */
+    private final Map<String, DocumentCache<DocumentSnapshot>> caches = new HashMap<>();
+    
+    /**
+     * Drosselung des BulkWriters (Ramp-up nach der 500/50/5-Regel von Firestore)
+     */
+    @Value("${firestore.bulk-writer.throttling-enabled:true}")
+    private boolean bulkThrottlingEnabled;
+    
+    @Value("${firestore.bulk-writer.initial-ops-per-second:500}")
+    private int bulkInitialOpsPerSecond;
+    
+    @Value("${firestore.bulk-writer.max-ops-per-second:10000}")
+    private int bulkMaxOpsPerSecond;
+    
+    public FirestoreService(Firestore firestore, DocumentCacheProperties cacheProperties, FirestoreMetrics metrics,
+                            FirestoreCalls calls, List<DocumentCodec<?>> codecs) {
+        this.firestore = firestore;
+        this.metrics = metrics;
+        this.calls = calls;
+        codecs.forEach(codec -> this.codecs.put(codec.getType(), codec));
+        
+        cacheProperties.getCollections().forEach((collection, settings) -> {
+            if (settings.isEnabled()) {
+                caches.put(collection, new DocumentCache<>(collection, settings,
+                    (documentId, executor) -> loadSnapshotAsync(collection, documentId)));
+                logger.info("Dokument-Cache aktiv für {} (max. {} Einträge, TTL {})",
+                           collection, settings.getMaximumSize(), settings.getExpireAfterWrite());
+            }
+        });
     }
     
     /**
-     * Dokument erstellen oder aktualisieren
+     * Dokument erstellen oder aktualisieren (nicht-blockierend)
      */
-    public <T> String saveDocument(String collection, String documentId, T data) {
-        try {
-            DocumentReference docRef;
+    @Override
+    public <T> CompletableFuture<String> saveDocumentAsync(String collection, String documentId, T data) {
+        DocumentReference docRef;
+        
+        if (documentId != null && !documentId.isEmpty()) {
+            docRef = firestore.collection(collection).document(documentId);
+        } else {
+            docRef = firestore.collection(collection).document();
+        }
+        
+        return calls.call(collection, "save", () -> docRef.set(toData(data)))
+            .handle((writeResult, e) -> {
+                invalidateCached(collection, docRef.getId());
+                
+                if (e != null) {
+                    logger.error("Fehler beim Speichern des Dokuments in {}: {}", collection, e.getMessage());
+                    throw new RuntimeException("Fehler beim Speichern des Dokuments", e);
+                }
+                
+                return docRef.getId();
+            });
+    }
+    
+    /**
+     * Dokument nach ID abrufen (nicht-blockierend)
+     *
+     * @return Future mit dem Dokument oder null, wenn es nicht existiert
+     */
+    @Override
+    public <T> CompletableFuture<T> getDocumentAsync(String collection, String documentId, Class<T> clazz) {
+        return cachedSnapshotAsync(collection, documentId)
+            .handle((document, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Abrufen des Dokuments {}/{}: {}",
+                                collection, documentId, e.getMessage());
+                    throw new RuntimeException("Fehler beim Abrufen des Dokuments", e);
+                }
+                
+                return document.map(snapshot -> toObject(snapshot, clazz)).orElse(null);
+            });
+    }
+    
+    /**
+     * Dokument mit Änderungszeitpunkt abrufen (nicht-blockierend)
+     *
+     * Liest über den Cache der Collection. Ein veralteter Stand fällt beim
+     * bedingten Schreiben mit diesem Zeitpunkt als DocumentConflictException auf.
+     *
+     * @return Future mit dem Dokument oder null, wenn es nicht existiert
+     */
+    @Override
+    public <T> CompletableFuture<VersionedDocument<T>> getVersionedDocumentAsync(String collection, String documentId,
+                                                                              Class<T> clazz) {
+        return cachedSnapshotAsync(collection, documentId)
+            .handle((document, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Abrufen des Dokuments {}/{}: {}",
+                                collection, documentId, e.getMessage());
+                    throw new RuntimeException("Fehler beim Abrufen des Dokuments", e);
+                }
+                
+                return document
+                    .map(snapshot -> new VersionedDocument<>(toObject(snapshot, clazz), toInstant(snapshot.getUpdateTime())))
+                    .orElse(null);
+            });
+    }
+    
+    /**
+     * Dokument über den Cache der Collection lesen, falls einer konfiguriert ist
+     */
+    private CompletableFuture<Optional<DocumentSnapshot>> cachedSnapshotAsync(String collection, String documentId) {
+        DocumentCache<DocumentSnapshot> cache = caches.get(collection);
+        return cache != null ? cache.get(documentId) : loadSnapshotAsync(collection, documentId);
+    }
+    
+    /**
+     * Dokument direkt aus Firestore lesen (Loader des Caches)
+     */
+    private CompletableFuture<Optional<DocumentSnapshot>> loadSnapshotAsync(String collection, String documentId) {
+        return calls.hedged(collection, "get", () -> firestore.collection(collection).document(documentId).get())
+            .thenApply(document -> {
+                metrics.documentRead(collection, "get", document);
+                return document.exists() ? Optional.of(document) : Optional.empty();
+            });
+    }
+    
+    private void invalidateCached(String collection, String documentId) {
+        DocumentCache<DocumentSnapshot> cache = caches.get(collection);
+        if (cache != null) {
+            cache.invalidate(documentId);
+        }
+    }
+    
+    /**
+     * Statistiken der Dokument-Caches
+     *
+     * @return Collection -> Kennzahlen (Größe, Treffer, Fehlschläge, Verdrängungen)
+     */
+    @Override
+    public Map<String, Map<String, Object>> getCacheStatistics() {
+        Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        caches.forEach((collection, cache) -> statistics.put(collection, cache.statistics()));
+        return statistics;
+    }
+    
+    /**
+     * Mehrere Dokumente nach ID in einem Round-Trip abrufen (nicht-blockierend)
+     *
+     * Verwendet Firestore.getAll(), d.h. einen einzigen BatchGetDocuments-Aufruf
+     * statt eines get() pro Dokument. Doppelte IDs werden nur einmal gelesen.
+     */
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getDocumentsAsync(String collection, Collection<String> documentIds,
+                                                                 Class<T> clazz) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        
+        DocumentReference[] docRefs = new DocumentReference[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            docRefs[i] = firestore.collection(collection).document(ids.get(i));
+        }
+        
+        return calls.call(collection, "get_all", () -> firestore.getAll(docRefs))
+            .handle((documents, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Abrufen von {} Dokumenten aus {}: {}",
+                                ids.size(), collection, e.getMessage());
+                    throw new RuntimeException("Fehler beim Abrufen der Dokumente", e);
+                }
+                
+                // getAll() garantiert keine Reihenfolge, daher nach ID zuordnen
+                Map<String, DocumentSnapshot> byId = new HashMap<>(documents.size() * 2);
+                for (DocumentSnapshot document : documents) {
+                    if (document.exists()) {
+                        byId.put(document.getId(), document);
+                    }
+                }
+                metrics.documentsRead(collection, "get_all", byId.values());
+                
+                Map<String, T> results = new LinkedHashMap<>(byId.size() * 2);
+                for (String id : ids) {
+                    DocumentSnapshot document = byId.get(id);
+                    if (document != null) {
+                        results.put(id, toObject(document, clazz));
+                    }
+                }
+                
+                return results;
+            });
+    }
+    
+    /**
+     * Alle Dokumente einer Collection abrufen (nicht-blockierend)
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> getAllDocumentsAsync(String collection, Class<T> clazz) {
+        return calls.call(collection, "list", () -> firestore.collection(collection).get())
+            .handle((snapshot, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Abrufen aller Dokumente aus {}: {}", collection, e.getMessage());
+                    throw new RuntimeException("Fehler beim Abrufen der Dokumente", e);
+                }
+                
+                metrics.documentsRead(collection, "list", snapshot.getDocuments());
+                return toObjects(snapshot.getDocuments(), clazz);
+            });
+    }
+    
+    /**
+     * Dokumente mit Query abrufen (nicht-blockierend)
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, String field, Object value, Class<T> clazz) {
+        Query query = firestore.collection(collection).whereEqualTo(field, value);
+        
+        return calls.hedged(collection, "query", query::get)
+            .handle((snapshot, e) -> {
+                if (e != null) {
+                    logger.error("Fehler bei Query in {}: {}", collection, e.getMessage());
+                    throw new RuntimeException("Fehler bei der Abfrage", e);
+                }
+                
+                metrics.documentsRead(collection, "query", snapshot.getDocuments());
+                return toObjects(snapshot.getDocuments(), clazz);
+            });
+    }
+    
+    /**
+     * Dokumente mit zusammengesetzter Query abrufen (nicht-blockierend)
+     *
+     * Alle Bedingungen, Sortierung und Limit laufen in Firestore.
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, DocumentQuery documentQuery, Class<T> clazz) {
+        Query query = toQuery(collection, documentQuery);
+        
+        return calls.hedged(collection, "query", query::get)
+            .handle((snapshot, e) -> {
+                if (e != null) {
+                    logger.error("Fehler bei Query in {} ({}): {}", collection, documentQuery, e.getMessage());
+                    throw new RuntimeException("Fehler bei der Abfrage", e);
+                }
+                
+                metrics.documentsRead(collection, "query", snapshot.getDocuments());
+                return toObjects(snapshot.getDocuments(), clazz);
+            });
+    }
+    
+    /**
+     * DocumentQuery in eine Firestore Query übersetzen
+     */
+    private Query toQuery(String collection, DocumentQuery documentQuery) {
+        Query query = firestore.collection(collection);
+        
+        for (DocumentQuery.Filter filter : documentQuery.getFilters()) {
+            String field = filter.getField();
+            Object value = DocumentValues.toFirestore(filter.getValue());
             
-            if (documentId != null && !documentId.isEmpty()) {
-                docRef = firestore.collection(collection).document(documentId);
-            } else {
-                docRef = firestore.collection(collection).document();
+            switch (filter.getOperator()) {
+                case EQUAL:
+                    query = query.whereEqualTo(field, value);
+                    break;
+                case LESS_THAN:
+                    query = query.whereLessThan(field, value);
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    query = query.whereLessThanOrEqualTo(field, value);
+                    break;
+                case GREATER_THAN:
+                    query = query.whereGreaterThan(field, value);
+                    break;
+                case GREATER_THAN_OR_EQUAL:
+                    query = query.whereGreaterThanOrEqualTo(field, value);
+                    break;
+                case IN:
+                    query = query.whereIn(field, (List<?>) value);
+                    break;
+                case ARRAY_CONTAINS:
+                    query = query.whereArrayContains(field, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unbekannter Operator: " + filter.getOperator());
+            }
+        }
+        
+        for (DocumentQuery.Order order : documentQuery.getOrders()) {
+            query = query.orderBy(order.getField(),
+                                  order.isDescending() ? Query.Direction.DESCENDING : Query.Direction.ASCENDING);
+        }
+        
+        if (documentQuery.getLimit() != null) {
+            query = query.limit(documentQuery.getLimit());
+        }
+        
+        return query;
+    }
+    
+    /**
+     * Eine Seite von Dokumenten mit ausgewählten Feldern abrufen (nicht-blockierend)
+     *
+     * Sortierung, limit() und startAfter() werden an Firestore übergeben, es
+     * werden also höchstens pageRequest.getLimit() Dokumente gelesen. Die
+     * Document ID dient als eindeutiges zweites Sortierkriterium.
+     *
+     * @param fields zu lesende Felder (select) oder null für alle Felder; nicht
+     *               gelesene Felder behalten im Objekt ihren Standardwert
+     */
+    @Override
+    public <T> CompletableFuture<Page<T>> queryPageAsync(String collection, String field, Object value, String orderBy,
+                                                       PageRequest pageRequest, Collection<String> fields, Class<T> clazz) {
+        Query query = firestore.collection(collection);
+        if (field != null) {
+            query = query.whereEqualTo(field, value);
+        }
+        if (fields != null && !fields.isEmpty()) {
+            // Das Sortierfeld wird für den Cursor gebraucht
+            Set<String> selected = new LinkedHashSet<>(fields);
+            if (orderBy != null) {
+                selected.add(orderBy);
+            }
+            query = query.select(selected.toArray(new String[0]));
+        }
+        if (orderBy != null) {
+            query = query.orderBy(orderBy);
+        }
+        query = query.orderBy(FieldPath.documentId());
+        
+        PageCursor cursor = pageRequest.getCursor();
+        if (cursor != null) {
+            if (!Objects.equals(cursor.getOrderBy(), orderBy)) {
+                throw new IllegalArgumentException("Cursor gehört zu einer anderen Sortierung");
+            }
+            query = orderBy != null
+                ? query.startAfter(cursor.getValue(), cursor.getDocumentId())
+                : query.startAfter(cursor.getDocumentId());
+        }
+        
+        int limit = pageRequest.getLimit();
+        Query pageQuery = query.limit(limit);
+        
+        return calls.call(collection, "page", pageQuery::get)
+            .handle((snapshot, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Abrufen einer Seite aus {}: {}", collection, e.getMessage());
+                    throw new RuntimeException("Fehler bei der Abfrage", e);
+                }
+                
+                List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+                metrics.documentsRead(collection, "page", documents);
+                
+                // Volle Seite -> es kann weitere Dokumente geben
+                String nextCursor = null;
+                if (documents.size() == limit) {
+                    QueryDocumentSnapshot last = documents.get(documents.size() - 1);
+                    Object lastValue = orderBy != null ? last.get(orderBy) : null;
+                    nextCursor = new PageCursor(orderBy, lastValue, last.getId()).encode();
+                }
+                
+                return new Page<>(toObjects(documents, clazz), nextCursor);
+            });
+    }
+    
+    /**
+     * Dokumente einzeln an einen Consumer streamen (nicht-blockierend)
+     *
+     * Anders als get() hält Query.stream() weder den kompletten QuerySnapshot noch
+     * eine Liste aller Objekte im Speicher: jedes Dokument wird beim Eintreffen
+     * umgewandelt, an den Consumer übergeben und kann danach freigegeben werden.
+     * Der Consumer wird im gRPC-Thread aufgerufen und sollte daher nicht blockieren.
+     *
+     * @return Future, das nach dem letzten Dokument abgeschlossen wird
+     */
+    @Override
+    public <T> CompletableFuture<Void> streamDocumentsAsync(String collection, String field, Object value, Class<T> clazz,
+                                                          Consumer<? super T> consumer) {
+        return streamSnapshotsAsync(collection, field, value, document -> consumer.accept(toObject(document, clazz)));
+    }
+    
+    /**
+     * Dokumente streamen und nur die passenden behalten (nicht-blockierend)
+     *
+     * Der Speicherbedarf wächst mit der Anzahl der Treffer, nicht mit der Größe der Collection.
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> filterDocumentsAsync(String collection, String field, Object value, Class<T> clazz,
+                                                             Predicate<? super T> filter) {
+        List<T> matches = new ArrayList<>();
+        
+        return streamDocumentsAsync(collection, field, value, clazz, item -> {
+                if (filter.test(item)) {
+                    matches.add(item);
+                }
+            })
+            .thenApply(done -> {
+                logger.debug("Filter ergab {} Treffer in {}", matches.size(), collection);
+                return matches;
+            });
+    }
+    
+    /**
+     * Dokumente einer zusammengesetzten Query zählen (nicht-blockierend)
+     *
+     * Läuft als count()-Aggregation in Firestore: es werden keine Dokumente
+     * übertragen, berechnet wird ein Lesevorgang pro 1000 gezählte Einträge.
+     */
+    @Override
+    public CompletableFuture<Long> countDocumentsAsync(String collection, DocumentQuery documentQuery) {
+        return aggregateAsync(collection, documentQuery, "count", Query::count, AggregateQuerySnapshot::getCount);
+    }
+    
+    /**
+     * Aggregation in Firestore ausführen
+     *
+     * Weitere Aggregationen (z.B. sum/avg, sobald das SDK sie anbietet)
+     * brauchen nur eine eigene aggregation- und extractor-Funktion.
+     */
+    private <R> CompletableFuture<R> aggregateAsync(String collection, DocumentQuery documentQuery, String name,
+                                                    Function<Query, AggregateQuery> aggregation,
+                                                    Function<AggregateQuerySnapshot, R> extractor) {
+        AggregateQuery aggregateQuery = aggregation.apply(toQuery(collection, documentQuery));
+        
+        return calls.call(collection, name, aggregateQuery::get)
+            .handle((snapshot, e) -> {
+                if (e != null) {
+                    logger.error("Fehler bei Aggregation {} in {} ({}): {}", name, collection, documentQuery, e.getMessage());
+                    throw new RuntimeException("Fehler bei der Aggregation", e);
+                }
+                return extractor.apply(snapshot);
+            });
+    }
+    
+    private CompletableFuture<Void> streamSnapshotsAsync(String collection, String field, Object value,
+                                                         Consumer<DocumentSnapshot> consumer) {
+        Query query = firestore.collection(collection);
+        if (field != null) {
+            query = query.whereEqualTo(field, value);
+        }
+        
+        Query streamQuery = query;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicLong count = new AtomicLong();
+        
+        return calls.callAsync(collection, "stream", () -> {
+            streamQuery.stream(new ApiStreamObserver<DocumentSnapshot>() {
+                @Override
+                public void onNext(DocumentSnapshot document) {
+                    if (done.isDone()) {
+                        return;
+                    }
+                    count.incrementAndGet();
+                    metrics.documentRead(collection, "stream", document);
+                    try {
+                        consumer.accept(document);
+                    } catch (RuntimeException e) {
+                        logger.error("Fehler beim Verarbeiten von {}/{}: {}",
+                                    collection, document.getId(), e.getMessage());
+                        done.completeExceptionally(e);
+                    }
+                }
+                
+                @Override
+                public void onError(Throwable t) {
+                    logger.error("Fehler beim Streamen aus {}: {}", collection, t.getMessage());
+                    done.completeExceptionally(new RuntimeException("Fehler beim Streamen der Dokumente", t));
+                }
+                
+                @Override
+                public void onCompleted() {
+                    done.complete(null);
+                }
+            });
+            return done;
+        }).whenComplete((result, e) -> metrics.documentCount(collection, "stream", count.get()));
+    }
+    
+    /**
+     * Collection beobachten
+     *
+     * Registriert einen Snapshot-Listener: zuerst werden alle Dokumente
+     * geliefert, danach nur noch Änderungen. Die Callbacks laufen im
+     * Listener-Thread des SDK.
+     *
+     * @return Registrierung; close() beendet die Beobachtung
+     */
+    @Override
+    public <T> AutoCloseable watchCollection(String collection, Class<T> clazz, CollectionListener<T> listener) {
+        ListenerRegistration registration = firestore.collection(collection).addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                logger.error("Snapshot-Listener für {} beendet: {}", collection, e.getMessage());
+                listener.onError(e);
+                return;
             }
             
-            ApiFuture<WriteResult> result = docRef.set(data);
-            WriteResult writeResult = result.get();
-            
-            logger.info("Dokument gespeichert in {}/{} um {}", 
-                       collection, docRef.getId(), writeResult.getUpdateTime());
+            Map<String, T> upserts = new HashMap<>();
+            Map<String, Instant> updateTimes = new HashMap<>();
+            Set<String> removedIds = new HashSet<>();
+            metrics.documentCount(collection, "watch", snapshot.getDocumentChanges().size());
             
-            return docRef.getId();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                QueryDocumentSnapshot document = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removedIds.add(document.getId());
+                    continue;
+                }
+                try {
+                    upserts.put(document.getId(), toObject(document, clazz));
+                    updateTimes.put(document.getId(), toInstant(document.getUpdateTime()));
+                } catch (RuntimeException conversionError) {
+                    logger.warn("Dokument {}/{} konnte nicht gelesen werden: {}",
+                               collection, document.getId(), conversionError.getMessage());
+                }
+            }
             
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Speichern des Dokuments in {}: {}", collection, e.getMessage());
-            throw new RuntimeException("Fehler beim Speichern des Dokuments", e);
-        }
+            listener.onChanges(upserts, updateTimes, removedIds, toInstant(snapshot.getReadTime()));
+        });
+        
+        return registration::remove;
     }
     
     /**
-     * Dokument nach ID abrufen
+     * Dokument löschen (nicht-blockierend)
      */
-    public <T> T getDocument(String collection, String documentId, Class<T> clazz) {
-        try {
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            ApiFuture<DocumentSnapshot> future = docRef.get();
-            DocumentSnapshot document = future.get();
-            
-            if (document.exists()) {
-                T result = document.toObject(clazz);
-                logger.info("Dokument gefunden: {}/{}", collection, documentId);
-                return result;
-            } else {
-                logger.warn("Dokument nicht gefunden: {}/{}", collection, documentId);
+    @Override
+    public CompletableFuture<Void> deleteDocumentAsync(String collection, String documentId) {
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        
+        return calls.call(collection, "delete", docRef::delete)
+            .handle((result, e) -> {
+                invalidateCached(collection, documentId);
+                
+                if (e != null) {
+                    logger.error("Fehler beim Löschen des Dokuments {}/{}: {}",
+                                collection, documentId, e.getMessage());
+                    throw new RuntimeException("Fehler beim Löschen des Dokuments", e);
+                }
+                
                 return null;
+            });
+    }
+    
+    /**
+     * Dokument aktualisieren (nur bestimmte Felder, nicht-blockierend)
+     */
+    @Override
+    public CompletableFuture<Void> updateDocumentAsync(String collection, String documentId, Map<String, Object> updates) {
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        
+        return calls.call(collection, "update", () -> docRef.update(DocumentValues.toFirestore(updates)))
+            .handle((result, e) -> {
+                invalidateCached(collection, documentId);
+                
+                if (e != null) {
+                    logger.error("Fehler beim Aktualisieren des Dokuments {}/{}: {}",
+                                collection, documentId, e.getMessage());
+                    throw new RuntimeException("Fehler beim Aktualisieren des Dokuments", e);
+                }
+                
+                return null;
+            });
+    }
+    
+    /**
+     * Felder nur aktualisieren, wenn das Dokument seit dem Lesen unverändert ist (nicht-blockierend)
+     *
+     * Ein einziger Schreibaufruf mit Precondition auf den Änderungszeitpunkt
+     * (optimistische Nebenläufigkeit statt "last writer wins").
+     */
+    @Override
+    public CompletableFuture<Instant> updateDocumentIfUnchangedAsync(String collection, String documentId,
+                                                                   Map<String, Object> updates, Instant expectedUpdateTime) {
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        
+        Precondition precondition = Precondition.updatedAt(toTimestamp(expectedUpdateTime));
+        
+        return calls.call(collection, "update_if_unchanged", () -> docRef.update(DocumentValues.toFirestore(updates), precondition))
+            .handle((writeResult, e) -> {
+                invalidateCached(collection, documentId);
+                
+                if (e != null) {
+                    throw conditionalWriteError("Aktualisieren", collection, documentId, e);
+                }
+                
+                return toInstant(writeResult.getUpdateTime());
+            });
+    }
+    
+    /**
+     * Dokument nur löschen, wenn es seit dem Lesen unverändert ist (nicht-blockierend)
+     */
+    @Override
+    public CompletableFuture<Void> deleteDocumentIfUnchangedAsync(String collection, String documentId,
+                                                                Instant expectedUpdateTime) {
+        DocumentReference docRef = firestore.collection(collection).document(documentId);
+        
+        Precondition precondition = Precondition.updatedAt(toTimestamp(expectedUpdateTime));
+        
+        return calls.call(collection, "delete_if_unchanged", () -> docRef.delete(precondition))
+            .handle((writeResult, e) -> {
+                invalidateCached(collection, documentId);
+                
+                if (e != null) {
+                    throw conditionalWriteError("Löschen", collection, documentId, e);
+                }
+                
+                return null;
+            });
+    }
+    
+    /**
+     * Fehler eines bedingten Schreibvorgangs übersetzen: abgelehnte Precondition -> DocumentConflictException
+     */
+    private RuntimeException conditionalWriteError(String action, String collection, String documentId, Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException
+                    && ((ApiException) cause).getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION) {
+                logger.warn("Konflikt beim {} von {}/{}: Dokument wurde geändert", action, collection, documentId);
+                return new DocumentConflictException("Dokument wurde zwischenzeitlich geändert: " + documentId, e);
             }
-            
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Abrufen des Dokuments {}/{}: {}", 
-                        collection, documentId, e.getMessage());
-            throw new RuntimeException("Fehler beim Abrufen des Dokuments", e);
         }
+        
+        logger.error("Fehler beim {} des Dokuments {}/{}: {}", action, collection, documentId, e.getMessage());
+        return new RuntimeException("Fehler beim " + action + " des Dokuments", e);
+    }
+    
+    private static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+    
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
     }
     
     /**
-     * Alle Dokumente einer Collection abrufen
+     * Prüfen ob Dokument existiert (nicht-blockierend)
      */
-    public <T> List<T> getAllDocuments(String collection, Class<T> clazz) {
-        try {
-            ApiFuture<QuerySnapshot> future = firestore.collection(collection).get();
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+    @Override
+    public CompletableFuture<Boolean> documentExistsAsync(String collection, String documentId) {
+        return cachedSnapshotAsync(collection, documentId)
+            .handle((document, e) -> {
+                if (e != null) {
+                    logger.error("Fehler beim Prüfen der Existenz von {}/{}: {}",
+                                collection, documentId, e.getMessage());
+                    return false;
+                }
+                
+                return document.isPresent();
+            });
+    }
+    
+    /**
+     * Mehrere Dokumente erstellen oder überschreiben (nicht-blockierend)
+     *
+     * Die Schreibvorgänge laufen über einen BulkWriter, der sie parallel und
+     * gedrosselt an Firestore sendet, statt sie einzeln nacheinander abzuwarten.
+     */
+    @Override
+    public <T> CompletableFuture<BulkWriteResult> saveDocumentsAsync(String collection, Collection<T> documents,
+                                                                   Function<T, String> idExtractor) {
+        return calls.callAsync(collection, "bulk_save", () -> {
+            BulkWriter writer = newBulkWriter();
+            List<String> ids = new ArrayList<>(documents.size());
+            List<ApiFuture<WriteResult>> writes = new ArrayList<>(documents.size());
             
-            List<T> results = new ArrayList<>();
-            for (QueryDocumentSnapshot document : documents) {
-                T item = document.toObject(clazz);
-                results.add(item);
+            for (T data : documents) {
+                String documentId = idExtractor.apply(data);
+                DocumentReference docRef = documentId != null && !documentId.isEmpty()
+                    ? firestore.collection(collection).document(documentId)
+                    : firestore.collection(collection).document();
+                
+                ids.add(docRef.getId());
+                writes.add(writer.set(docRef, toData(data)));
             }
             
-            logger.info("Gefunden {} Dokumente in Collection {}", results.size(), collection);
-            return results;
-            
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Abrufen aller Dokumente aus {}: {}", collection, e.getMessage());
-            throw new RuntimeException("Fehler beim Abrufen der Dokumente", e);
-        }
+            return completeBulkWrite(collection, "gespeichert", writer, ids, writes);
+        });
     }
     
     /**
-     * Dokumente mit Query abrufen
+     * Mehrere Dokumente teilweise aktualisieren (nicht-blockierend)
      */
-    public <T> List<T> queryDocuments(String collection, String field, Object value, Class<T> clazz) {
-        try {
-            Query query = firestore.collection(collection).whereEqualTo(field, value);
-            ApiFuture<QuerySnapshot> future = query.get();
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+    @Override
+    public CompletableFuture<BulkWriteResult> updateDocumentsAsync(String collection, Map<String, Map<String, Object>> updates) {
+        return calls.callAsync(collection, "bulk_update", () -> {
+            BulkWriter writer = newBulkWriter();
+            List<String> ids = new ArrayList<>(updates.size());
+            List<ApiFuture<WriteResult>> writes = new ArrayList<>(updates.size());
             
-            List<T> results = new ArrayList<>();
-            for (QueryDocumentSnapshot document : documents) {
-                T item = document.toObject(clazz);
-                results.add(item);
+            for (Map.Entry<String, Map<String, Object>> update : updates.entrySet()) {
+                ids.add(update.getKey());
+                writes.add(writer.update(firestore.collection(collection).document(update.getKey()), DocumentValues.toFirestore(update.getValue())));
             }
             
-            logger.info("Query {} = {} ergab {} Ergebnisse in {}", 
-                       field, value, results.size(), collection);
-            return results;
-            
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler bei Query in {}: {}", collection, e.getMessage());
-            throw new RuntimeException("Fehler bei der Abfrage", e);
-        }
+            return completeBulkWrite(collection, "aktualisiert", writer, ids, writes);
+        });
     }
     
     /**
-     * Dokument löschen
+     * Mehrere Dokumente löschen (nicht-blockierend)
      */
-    public void deleteDocument(String collection, String documentId) {
-        try {
-            ApiFuture<WriteResult> writeResult = firestore.collection(collection)
-                .document(documentId).delete();
+    @Override
+    public CompletableFuture<BulkWriteResult> deleteDocumentsAsync(String collection, Collection<String> documentIds) {
+        return calls.callAsync(collection, "bulk_delete", () -> {
+            BulkWriter writer = newBulkWriter();
+            List<String> ids = new ArrayList<>(documentIds);
+            List<ApiFuture<WriteResult>> writes = new ArrayList<>(ids.size());
             
-            writeResult.get();
-            logger.info("Dokument gelöscht: {}/{}", collection, documentId);
+            for (String documentId : ids) {
+                writes.add(writer.delete(firestore.collection(collection).document(documentId)));
+            }
             
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Löschen des Dokuments {}/{}: {}", 
-                        collection, documentId, e.getMessage());
-            throw new RuntimeException("Fehler beim Löschen des Dokuments", e);
+            return completeBulkWrite(collection, "gelöscht", writer, ids, writes);
+        });
+    }
+    
+    private BulkWriter newBulkWriter() {
+        BulkWriterOptions.Builder options = BulkWriterOptions.builder();
+        
+        if (bulkThrottlingEnabled) {
+            options.setInitialOpsPerSecond(bulkInitialOpsPerSecond)
+                   .setMaxOpsPerSecond(bulkMaxOpsPerSecond);
+        } else {
+            options.setThrottlingEnabled(false);
         }
+        
+        return firestore.bulkWriter(options.build());
     }
     
     /**
-     * Dokument aktualisieren (nur bestimmte Felder)
+     * Wartet auf alle Schreibvorgänge eines BulkWriters und sammelt die Einzelergebnisse
+     *
+     * Fehler einzelner Dokumente lassen die Operation nicht scheitern, sondern
+     * werden im BulkWriteResult gemeldet.
      */
-    public void updateDocument(String collection, String documentId, Map<String, Object> updates) {
-        try {
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            ApiFuture<WriteResult> writeResult = docRef.update(updates);
-            
-            writeResult.get();
-            logger.info("Dokument aktualisiert: {}/{}", collection, documentId);
-            
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Aktualisieren des Dokuments {}/{}: {}", 
-                        collection, documentId, e.getMessage());
-            throw new RuntimeException("Fehler beim Aktualisieren des Dokuments", e);
+    private CompletableFuture<BulkWriteResult> completeBulkWrite(String collection, String action, BulkWriter writer,
+                                                                 List<String> ids, List<ApiFuture<WriteResult>> writes) {
+        List<CompletableFuture<BulkWriteResult.Entry>> entries = new ArrayList<>(writes.size());
+        
+        for (int i = 0; i < writes.size(); i++) {
+            String documentId = ids.get(i);
+            entries.add(toCompletableFuture(writes.get(i))
+                .handle((writeResult, e) -> e == null
+                    ? BulkWriteResult.Entry.success(documentId)
+                    : BulkWriteResult.Entry.failure(documentId, e.getMessage())));
         }
+        
+        CompletableFuture<?>[] pending = entries.toArray(new CompletableFuture<?>[entries.size() + 1]);
+        pending[entries.size()] = toCompletableFuture(writer.flush());
+        
+        return CompletableFuture.allOf(pending)
+            .handle((done, e) -> {
+                closeBulkWriter(writer);
+                
+                DocumentCache<DocumentSnapshot> cache = caches.get(collection);
+                if (cache != null) {
+                    cache.invalidateAll(ids);
+                }
+                
+                if (e != null) {
+                    logger.error("Fehler beim Massen-Schreiben in {}: {}", collection, e.getMessage());
+                    throw new RuntimeException("Fehler beim Massen-Schreiben der Dokumente", e);
+                }
+                
+                List<BulkWriteResult.Entry> results = new ArrayList<>(entries.size());
+                for (CompletableFuture<BulkWriteResult.Entry> entry : entries) {
+                    results.add(entry.join());
+                }
+                BulkWriteResult result = new BulkWriteResult(results);
+                
+                logger.info("{} von {} Dokumenten {} in {}",
+                           result.getSucceededCount(), results.size(), action, collection);
+                return result;
+            });
     }
     
     /**
-     * Prüfen ob Dokument existiert
+     * BulkWriter schließen; alle Schreibvorgänge sind zu diesem Zeitpunkt bereits abgeschlossen
      */
-    public boolean documentExists(String collection, String documentId) {
+    private void closeBulkWriter(BulkWriter writer) {
         try {
-            DocumentReference docRef = firestore.collection(collection).document(documentId);
-            ApiFuture<DocumentSnapshot> future = docRef.get();
-            DocumentSnapshot document = future.get();
-            
-            return document.exists();
-            
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Fehler beim Prüfen der Existenz von {}/{}: {}", 
-                        collection, documentId, e.getMessage());
-            return false;
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Fehler beim Schließen des BulkWriters: {}", e.getMessage());
         }
     }
+    
+    /**
+     * Snapshots in Objekte der gewünschten Klasse umwandeln
+     */
+    private <T> List<T> toObjects(List<QueryDocumentSnapshot> documents, Class<T> clazz) {
+        List<T> results = new ArrayList<>(documents.size());
+        for (QueryDocumentSnapshot document : documents) {
+            results.add(toObject(document, clazz));
+        }
+        return results;
+    }
+    
+    /**
+     * Snapshot umwandeln, mit Codec der Klasse falls vorhanden
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T toObject(DocumentSnapshot document, Class<T> clazz) {
+        DocumentCodec<T> codec = (DocumentCodec<T>) codecs.get(clazz);
+        return codec != null ? codec.decode(document.getId(), document.getData()) : document.toObject(clazz);
+    }
+    
+    /**
+     * Zu schreibende Daten: Felder aus dem Codec der Klasse oder das Objekt selbst (CustomClassMapper)
+     */
+    @SuppressWarnings("unchecked")
+    private Object toData(Object data) {
+        DocumentCodec<Object> codec = (DocumentCodec<Object>) codecs.get(data.getClass());
+        return codec != null ? codec.encode(data) : data;
+    }
+    
+    /**
+     * ApiFuture des Firestore SDK in ein CompletableFuture überführen
+     *
+     * Der Callback läuft direkt im gRPC-Thread, der die Antwort liefert,
+     * es wird also kein zusätzlicher Thread belegt.
+     */
+    static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+            
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        
+        return future;
+    }
 }
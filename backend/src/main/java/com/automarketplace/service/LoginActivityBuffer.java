@@ -0,0 +1,90 @@
+package com.automarketplace.service;
+
+import com.automarketplace.repository.UserFirestoreRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-Behind-Puffer für lastLoginAt
+ * 
+ * Logins setzen nur einen Eintrag im Speicher; mehrere Logins derselben
+ * UID bis zum nächsten Flush werden zu einem Schreibvorgang mit dem
+ * neuesten Zeitpunkt zusammengefasst. Der Flush läuft periodisch
+ * (users.login-flush-interval) und schreibt alle Einträge über den
+ * BulkWriter als Teil-Update nur des Felds lastLoginAt.
+ */
+@Component
+public class LoginActivityBuffer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LoginActivityBuffer.class);
+    
+    private final UserFirestoreRepository userRepository;
+    private final ConcurrentHashMap<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+    
+    public LoginActivityBuffer(UserFirestoreRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+    
+    /**
+     * Login vormerken; es bleibt der späteste Zeitpunkt pro UID
+     */
+    public void recordLogin(String firebaseUid, LocalDateTime loginAt) {
+        pending.merge(firebaseUid, loginAt, (current, next) -> next.isAfter(current) ? next : current);
+    }
+    
+    /**
+     * Anzahl noch nicht geschriebener Logins
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Vorgemerkte Logins schreiben
+     */
+    @Scheduled(fixedDelayString = "${users.login-flush-interval:30s}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        Map<String, Map<String, Object>> updates = new HashMap<>();
+        for (String firebaseUid : pending.keySet()) {
+            LocalDateTime loginAt = pending.remove(firebaseUid);
+            if (loginAt != null) {
+                updates.put(firebaseUid, Map.of("lastLoginAt", loginAt));
+            }
+        }
+        
+        try {
+            BulkWriteResult result = userRepository.updateAll(updates);
+            if (!result.isAllSucceeded()) {
+                // z.B. inzwischen gelöschte Benutzer - nicht erneut versuchen
+                logger.warn("lastLoginAt für {} Benutzer nicht geschrieben: {}", 
+                           result.getFailedCount(), result.getFailedIds());
+            }
+            logger.debug("lastLoginAt für {} Benutzer geschrieben", result.getSucceededCount());
+        } catch (RuntimeException e) {
+            // Ganzer Flush fehlgeschlagen - Einträge für den nächsten Versuch zurücklegen
+            logger.error("Fehler beim Schreiben von lastLoginAt: {}", e.getMessage());
+            updates.forEach((firebaseUid, fields) -> 
+                recordLogin(firebaseUid, (LocalDateTime) fields.get("lastLoginAt")));
+        }
+    }
+    
+    /**
+     * Beim Herunterfahren alles Vorgemerkte schreiben
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,39 @@
+package com.automarketplace.service;
+
+import java.util.List;
+
+/**
+ * Eine Seite eines Abfrageergebnisses mit Cursor für die nächste Seite
+ *
+ * Der Cursor ist für den Client undurchsichtig und wird unverändert als
+ * Parameter "cursor" der nächsten Anfrage zurückgeschickt.
+ */
+public class Page<T> {
+    
+    private final List<T> items;
+    private final String nextCursor;
+    
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * Cursor der nächsten Seite oder null, wenn es keine weitere Seite gibt
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+    
+    public int getSize() {
+        return items.size();
+    }
+}
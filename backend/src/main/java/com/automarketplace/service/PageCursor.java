@@ -0,0 +1,98 @@
+package com.automarketplace.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Position in einem sortierten Abfrageergebnis (Keyset-Pagination)
+ *
+ * Besteht aus dem Wert des Sortierfelds und der Document ID des letzten
+ * Dokuments einer Seite. Die nächste Seite beginnt per startAfter() direkt
+ * dahinter, Firestore liest also nur die Dokumente der angefragten Seite.
+ * Nach außen wird der Cursor als Base64-kodiertes JSON weitergegeben.
+ */
+public class PageCursor {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final String orderBy;
+    private final Object value;
+    private final String documentId;
+    
+    public PageCursor(String orderBy, Object value, String documentId) {
+        if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+            throw new IllegalArgumentException("Sortierfeld " + orderBy + " kann nicht als Cursor verwendet werden");
+        }
+        this.orderBy = orderBy;
+        this.value = value;
+        this.documentId = documentId;
+    }
+    
+    /**
+     * Cursor hinter einem Dokument bei Sortierung nach Document ID
+     */
+    public static PageCursor afterDocument(String documentId) {
+        return new PageCursor(null, null, documentId);
+    }
+    
+    /**
+     * Sortierfeld oder null bei Sortierung nur nach Document ID
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+    
+    public Object getValue() {
+        return value;
+    }
+    
+    public String getDocumentId() {
+        return documentId;
+    }
+    
+    /**
+     * Cursor für die Weitergabe an den Client kodieren
+     */
+    public String encode() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("o", orderBy);
+        json.put("v", value);
+        json.put("id", documentId);
+        
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(json));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cursor konnte nicht kodiert werden", e);
+        }
+    }
+    
+    /**
+     * Vom Client erhaltenen Cursor dekodieren
+     *
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public static PageCursor decode(String encoded) {
+        try {
+            // Nur ein JSON-Objekt ist ein Cursor; null, Zahlen oder Listen werden abgelehnt
+            Object parsed = MAPPER.readValue(Base64.getUrlDecoder().decode(encoded), Object.class);
+            if (!(parsed instanceof Map)) {
+                throw new IllegalArgumentException("Ungültiger Cursor");
+            }
+            Map<?, ?> json = (Map<?, ?>) parsed;
+            Object id = json.get("id");
+            Object orderBy = json.get("o");
+            
+            if (!(id instanceof String) || (orderBy != null && !(orderBy instanceof String))) {
+                throw new IllegalArgumentException("Ungültiger Cursor");
+            }
+            return new PageCursor((String) orderBy, json.get("v"), (String) id);
+            
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor", e);
+        }
+    }
+}
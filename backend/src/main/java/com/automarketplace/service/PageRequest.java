@@ -0,0 +1,55 @@
+package com.automarketplace.service;
+
+/**
+ * Anfrage nach einer Seite: Seitengröße und optionaler Cursor der vorherigen Seite
+ */
+public class PageRequest {
+    
+    public static final int DEFAULT_LIMIT = 24;
+    public static final int MAX_LIMIT = 100;
+    
+    private final int limit;
+    private final PageCursor cursor;
+    
+    private PageRequest(int limit, PageCursor cursor) {
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+    
+    /**
+     * PageRequest aus Request-Parametern erstellen
+     * 
+     * @param limit Seitengröße (null = Standard, wird auf MAX_LIMIT begrenzt)
+     * @param cursor nextCursor der vorherigen Seite oder null für die erste Seite
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public static PageRequest of(Integer limit, String cursor) {
+        int size = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        return new PageRequest(size, cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor));
+    }
+    
+    /**
+     * Erste Seite mit der angegebenen Größe
+     */
+    public static PageRequest first(int limit) {
+        return new PageRequest(limit, null);
+    }
+    
+    /**
+     * Gleiche Seitengröße, aber ab einem anderen Cursor
+     */
+    public PageRequest withCursor(PageCursor cursor) {
+        return new PageRequest(limit, cursor);
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    /**
+     * Cursor der vorherigen Seite oder null für die erste Seite
+     */
+    public PageCursor getCursor() {
+        return cursor;
+    }
+}
@@ -0,0 +1,97 @@
+package com.automarketplace.service;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.repository.CarFirestoreRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Einmalige Migration: priceCents aus price für ältere Autos schreiben
+ *
+ * Preisbereiche (findByPriceBetween, findSimilarCars) fragen in Firestore
+ * das Feld priceCents ab; Dokumente von vor seiner Einführung fehlen dort.
+ * Die Migration liest alle Autos seitenweise nur mit priceCents, lädt die
+ * Autos ohne das Feld vollständig und schreibt priceCents per BulkWriter.
+ * Bereits migrierte Autos werden nicht erneut geschrieben, ein zweiter Lauf
+ * ist also unschädlich. Aktivierung über migrations.price-cents.enabled.
+ */
+@Component
+@ConditionalOnProperty(prefix = "migrations.price-cents", name = "enabled", havingValue = "true")
+public class PriceCentsBackfill {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PriceCentsBackfill.class);
+    
+    private static final int PAGE_SIZE = PageRequest.MAX_LIMIT;
+    
+    private final CarFirestoreRepository carRepository;
+    
+    public PriceCentsBackfill(CarFirestoreRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            int written = backfill();
+            logger.info("priceCents für {} Autos nachgetragen", written);
+        } catch (RuntimeException e) {
+            logger.error("Fehler beim Nachtragen von priceCents: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * priceCents für alle Autos ohne das Feld schreiben
+     *
+     * @return Anzahl geschriebener Autos
+     */
+    public int backfill() {
+        int written = 0;
+        PageRequest pageRequest = PageRequest.first(PAGE_SIZE);
+        
+        while (true) {
+            Page<Car> page = carRepository.findStoredPriceCentsAsync(pageRequest).join();
+            List<String> missing = page.getItems().stream()
+                .filter(car -> car.getPriceCents() == null)
+                .map(Car::getId)
+                .collect(Collectors.toList());
+            
+            if (!missing.isEmpty()) {
+                written += write(missing);
+            }
+            if (page.getNextCursor() == null) {
+                return written;
+            }
+            pageRequest = pageRequest.withCursor(PageCursor.decode(page.getNextCursor()));
+        }
+    }
+    
+    private int write(List<String> ids) {
+        // Autos ohne Preis bleiben unverändert
+        Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+        carRepository.findAllById(ids).forEach((id, car) -> {
+            if (car.getPrice() != null) {
+                updates.put(id, Map.of("priceCents", Car.toPriceCents(car.getPrice())));
+            }
+        });
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        
+        BulkWriteResult result = carRepository.updateAll(updates);
+        if (!result.isAllSucceeded()) {
+            // z.B. inzwischen gelöschte Autos
+            logger.warn("priceCents für {} Autos nicht geschrieben: {}",
+                       result.getFailedCount(), result.getFailedIds());
+        }
+        return result.getSucceededCount();
+    }
+}
@@ -0,0 +1,67 @@
+package com.automarketplace.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Zeitbudget des laufenden HTTP-Requests (Deadline in System.nanoTime())
+ *
+ * Wird von RequestDeadlineFilter für den Request-Thread gesetzt. FirestoreCalls
+ * liest die Deadline beim Start eines Aufrufs und setzt sie wieder, während die
+ * Folgeschritte des Futures laufen - ein thenCompose() mit dem nächsten
+ * Firestore-Aufruf sieht also dasselbe Budget, auch im gRPC-Thread.
+ */
+public final class RequestDeadline {
+    
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+    
+    private RequestDeadline() {}
+    
+    /**
+     * Deadline des aktuellen Threads oder null, wenn keine gesetzt ist
+     */
+    public static Long current() {
+        return DEADLINE.get();
+    }
+    
+    /**
+     * Verbleibende Zeit in Nanosekunden (kann negativ sein) oder null ohne Deadline
+     */
+    public static Long remainingNanos() {
+        Long deadline = DEADLINE.get();
+        return deadline != null ? deadline - System.nanoTime() : null;
+    }
+    
+    /**
+     * Code mit der angegebenen Deadline ausführen (null = ohne Deadline)
+     */
+    public static void runWith(Long deadline, Runnable action) {
+        callWith(deadline, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    public static <T> T callWith(Long deadline, Supplier<T> action) {
+        Long previous = replace(deadline);
+        try {
+            return action.get();
+        } finally {
+            replace(previous);
+        }
+    }
+    
+    /**
+     * Deadline des aktuellen Threads setzen (null = entfernen)
+     *
+     * @return bisherige Deadline, zum Zurücksetzen in einem finally-Block
+     */
+    public static Long replace(Long deadline) {
+        Long previous = DEADLINE.get();
+        if (deadline != null) {
+            DEADLINE.set(deadline);
+        } else {
+            DEADLINE.remove();
+        }
+        return previous;
+    }
+}
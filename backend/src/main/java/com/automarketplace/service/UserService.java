@@ -7,35 +7,47 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service-Klasse für User-Business-Logic
  * 
  * Diese Klasse enthält die Geschäftslogik für User-Operationen.
  * Services sind die Schicht zwischen Controllern und Repositories.
+ * 
+ * Die Methoden mit dem Suffix "Async" blockieren nicht und werden von den
+ * Controllern verwendet; Fehler werden über das zurückgegebene Future gemeldet.
  */
 @Service
 public class UserService {
     
     private final UserFirestoreRepository userRepository;
+    private final LoginActivityBuffer loginActivityBuffer;
     
     /**
      * Constructor Injection - Spring injiziert automatisch UserFirestoreRepository
      * 
      * @param userRepository User Firestore Repository
+     * @param loginActivityBuffer Write-Behind-Puffer für lastLoginAt
      */
     @Autowired
-    public UserService(UserFirestoreRepository userRepository) {
+    public UserService(UserFirestoreRepository userRepository, LoginActivityBuffer loginActivityBuffer) {
         this.userRepository = userRepository;
+        this.loginActivityBuffer = loginActivityBuffer;
     }
     
     /**
      * Erstelle oder aktualisiere User nach Firebase Authentication
      * 
      * Diese Methode wird aufgerufen, wenn sich ein User zum ersten Mal anmeldet
-     * oder wenn User-Daten aktualisiert werden müssen.
+     * oder wenn User-Daten aktualisiert werden müssen. Neue User werden
+     * vollständig gespeichert; bei bestehenden werden nur geänderte Felder
+     * geschrieben und lastLoginAt verzögert über den LoginActivityBuffer.
      * 
      * @param firebaseUid Firebase UID
      * @param email Email-Adresse
@@ -50,23 +62,83 @@ public class UserService {
         // Prüfe ob User bereits existiert
         Optional<User> existingUser = userRepository.findByFirebaseUid(firebaseUid);
         
-        if (existingUser.isPresent()) {
-            // User existiert - aktualisiere Daten
-            User user = existingUser.get();
+        if (existingUser.isEmpty()) {
+            return userRepository.save(newUser(firebaseUid, email, firstName, lastName, userType));
+        }
+        
+        User user = existingUser.get();
+        Map<String, Object> changes = applyLogin(user, email, firstName, lastName);
+        if (!changes.isEmpty()) {
+            userRepository.update(firebaseUid, changes);
+        }
+        return user;
+    }
+    
+    /**
+     * Erstelle oder aktualisiere User nach Firebase Authentication (nicht-blockierend)
+     * 
+     * @see #createOrUpdateUser(String, String, String, String, UserType)
+     * @return Future mit dem gespeicherten User
+     */
+    public CompletableFuture<User> createOrUpdateUserAsync(String firebaseUid, String email, String firstName, 
+                                                         String lastName, UserType userType) {
+        return userRepository.findByFirebaseUidAsync(firebaseUid)
+            .thenCompose(existingUser -> {
+                if (existingUser.isEmpty()) {
+                    return userRepository.saveAsync(newUser(firebaseUid, email, firstName, lastName, userType));
+                }
+                
+                User user = existingUser.get();
+                Map<String, Object> changes = applyLogin(user, email, firstName, lastName);
+                if (changes.isEmpty()) {
+                    return CompletableFuture.completedFuture(user);
+                }
+                return userRepository.updateAsync(firebaseUid, changes).thenApply(done -> user);
+            });
+    }
+    
+    /**
+     * Neuer User - erstelle neuen Eintrag
+     */
+    private User newUser(String firebaseUid, String email, String firstName, String lastName, UserType userType) {
+        User newUser = new User(firebaseUid, email, firstName, lastName, userType);
+        newUser.setLastLoginAt(LocalDateTime.now());
+        
+        return newUser;
+    }
+    
+    /**
+     * Übernimmt die Login-Daten in einen bestehenden User
+     * 
+     * lastLoginAt wird nur vorgemerkt und gesammelt geschrieben.
+     * 
+     * @return geänderte Felder für ein Teil-Update (leer, wenn sich nichts geändert hat)
+     */
+    private Map<String, Object> applyLogin(User user, String email, String firstName, String lastName) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> changes = new HashMap<>();
+        
+        if (!Objects.equals(user.getEmail(), email)) {
             user.setEmail(email);
+            changes.put("email", email);
+        }
+        if (!Objects.equals(user.getFirstName(), firstName)) {
             user.setFirstName(firstName);
+            changes.put("firstName", firstName);
+        }
+        if (!Objects.equals(user.getLastName(), lastName)) {
             user.setLastName(lastName);
-            user.setLastLoginAt(LocalDateTime.now());
-            user.setUpdatedAt(LocalDateTime.now());
-            
-            return userRepository.save(user);
-        } else {
-            // Neuer User - erstelle neuen Eintrag
-            User newUser = new User(firebaseUid, email, firstName, lastName, userType);
-            newUser.setLastLoginAt(LocalDateTime.now());
-            
-            return userRepository.save(newUser);
+            changes.put("lastName", lastName);
+        }
+        if (!changes.isEmpty()) {
+            user.setUpdatedAt(now);
+            changes.put("updatedAt", now);
         }
+        
+        user.setLastLoginAt(now);
+        loginActivityBuffer.recordLogin(user.getFirebaseUid(), now);
+        
+        return changes;
     }
     
     /**
@@ -79,6 +151,16 @@ public class UserService {
         return userRepository.findByFirebaseUid(firebaseUid);
     }
     
+    /**
+     * Finde User anhand Firebase UID (nicht-blockierend)
+     * 
+     * @param firebaseUid Firebase UID
+     * @return Future mit Optional<User>
+     */
+    public CompletableFuture<Optional<User>> findByFirebaseUidAsync(String firebaseUid) {
+        return userRepository.findByFirebaseUidAsync(firebaseUid);
+    }
+    
     /**
      * Finde User anhand ID
      * 
@@ -89,6 +171,16 @@ public class UserService {
         return userRepository.findById(userId);
     }
     
+    /**
+     * Finde User anhand ID (nicht-blockierend)
+     * 
+     * @param userId User ID
+     * @return Future mit Optional<User>
+     */
+    public CompletableFuture<Optional<User>> findByIdAsync(String userId) {
+        return userRepository.findByIdAsync(userId);
+    }
+    
     /**
      * Finde User anhand Email
      * 
@@ -99,6 +191,16 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
     
+    /**
+     * Finde User anhand Email (nicht-blockierend)
+     * 
+     * @param email Email-Adresse
+     * @return Future mit Optional<User>
+     */
+    public CompletableFuture<Optional<User>> findByEmailAsync(String email) {
+        return userRepository.findByEmailAsync(email);
+    }
+    
     /**
      * Aktualisiere User-Profil
      * 
@@ -116,13 +218,31 @@ public class UserService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId));
         
+        return userRepository.save(applyProfile(user, firstName, lastName, phoneNumber, profileImageUrl));
+    }
+    
+    /**
+     * Aktualisiere User-Profil (nicht-blockierend)
+     * 
+     * @see #updateProfile(String, String, String, String, String)
+     * @return Future mit dem aktualisierten User
+     */
+    public CompletableFuture<User> updateProfileAsync(String userId, String firstName, String lastName, 
+                                                    String phoneNumber, String profileImageUrl) {
+        return userRepository.findByIdAsync(userId)
+            .thenApply(user -> user.orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId)))
+            .thenCompose(user -> userRepository.saveAsync(
+                applyProfile(user, firstName, lastName, phoneNumber, profileImageUrl)));
+    }
+    
+    private User applyProfile(User user, String firstName, String lastName, 
+                              String phoneNumber, String profileImageUrl) {
         user.setFirstName(firstName);
         user.setLastName(lastName);
         user.setPhoneNumber(phoneNumber);
         user.setProfileImageUrl(profileImageUrl);
         user.setUpdatedAt(LocalDateTime.now());
-        
-        return userRepository.save(user);
+        return user;
     }
     
     /**
@@ -142,8 +262,28 @@ public class UserService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId));
         
+        return userRepository.save(
+            applySellerInfo(user, companyName, businessLicense, address, specializations));
+    }
+    
+    /**
+     * Aktualisiere Seller-spezifische Informationen (nicht-blockierend)
+     * 
+     * @see #updateSellerInfo(String, String, String, String, List)
+     * @return Future mit dem aktualisierten User
+     */
+    public CompletableFuture<User> updateSellerInfoAsync(String userId, String companyName, String businessLicense, 
+                                                       String address, List<String> specializations) {
+        return userRepository.findByIdAsync(userId)
+            .thenApply(user -> user.orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId)))
+            .thenCompose(user -> userRepository.saveAsync(
+                applySellerInfo(user, companyName, businessLicense, address, specializations)));
+    }
+    
+    private User applySellerInfo(User user, String companyName, String businessLicense, 
+                                 String address, List<String> specializations) {
         if (!user.isSeller()) {
-            throw new RuntimeException("User ist kein Seller: " + userId);
+            throw new RuntimeException("User ist kein Seller: " + user.getId());
         }
         
         user.setCompanyName(companyName);
@@ -151,8 +291,7 @@ public class UserService {
         user.setAddress(address);
         user.setSpecializations(specializations);
         user.setUpdatedAt(LocalDateTime.now());
-        
-        return userRepository.save(user);
+        return user;
     }
     
     /**
@@ -164,6 +303,15 @@ public class UserService {
         return userRepository.findActiveSellers();
     }
     
+    /**
+     * Finde alle aktiven Seller (nicht-blockierend)
+     * 
+     * @return Future mit List<User>
+     */
+    public CompletableFuture<List<User>> findActiveSellersAsync() {
+        return userRepository.findActiveSellersAsync();
+    }
+    
     /**
      * Finde alle aktiven Customer
      * 
@@ -173,6 +321,15 @@ public class UserService {
         return userRepository.findActiveCustomers();
     }
     
+    /**
+     * Finde alle aktiven Customer (nicht-blockierend)
+     * 
+     * @return Future mit List<User>
+     */
+    public CompletableFuture<List<User>> findActiveCustomersAsync() {
+        return userRepository.findActiveCustomersAsync();
+    }
+    
     /**
      * Suche User nach Namen
      * 
@@ -184,6 +341,17 @@ public class UserService {
             searchTerm, searchTerm);
     }
     
+    /**
+     * Suche User nach Namen (nicht-blockierend)
+     * 
+     * @param searchTerm Suchbegriff
+     * @return Future mit List<User>
+     */
+    public CompletableFuture<List<User>> searchUsersByNameAsync(String searchTerm) {
+        return userRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseAsync(
+            searchTerm, searchTerm);
+    }
+    
     /**
      * Finde Seller nach Spezialisierung
      * 
@@ -194,6 +362,16 @@ public class UserService {
         return userRepository.findSellersBySpecialization(specialization);
     }
     
+    /**
+     * Finde Seller nach Spezialisierung (nicht-blockierend)
+     * 
+     * @param specialization Spezialisierung
+     * @return Future mit List<User>
+     */
+    public CompletableFuture<List<User>> findSellersBySpecializationAsync(String specialization) {
+        return userRepository.findSellersBySpecializationAsync(specialization);
+    }
+    
     /**
      * Prüfe ob Email bereits verwendet wird
      * 
@@ -204,6 +382,16 @@ public class UserService {
         return userRepository.existsByEmail(email);
     }
     
+    /**
+     * Prüfe ob Email bereits verwendet wird (nicht-blockierend)
+     * 
+     * @param email Email-Adresse
+     * @return Future mit boolean
+     */
+    public CompletableFuture<Boolean> isEmailTakenAsync(String email) {
+        return userRepository.existsByEmailAsync(email);
+    }
+    
     /**
      * Prüfe ob Firebase UID bereits registriert ist
      * 
@@ -214,6 +402,16 @@ public class UserService {
         return userRepository.existsByFirebaseUid(firebaseUid);
     }
     
+    /**
+     * Prüfe ob Firebase UID bereits registriert ist (nicht-blockierend)
+     * 
+     * @param firebaseUid Firebase UID
+     * @return Future mit boolean
+     */
+    public CompletableFuture<Boolean> isFirebaseUidRegisteredAsync(String firebaseUid) {
+        return userRepository.existsByFirebaseUidAsync(firebaseUid);
+    }
+    
     /**
      * Lösche User (Soft Delete - setze Status auf INACTIVE)
      * 
@@ -224,9 +422,32 @@ public class UserService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId));
         
+        userRepository.update(user.getFirebaseUid(), applyDeactivation(user));
+    }
+    
+    /**
+     * Lösche User (Soft Delete, nicht-blockierend)
+     * 
+     * @param userId User ID
+     * @return Future, das bei unbekanntem User mit RuntimeException endet
+     */
+    public CompletableFuture<Void> deactivateUserAsync(String userId) {
+        return userRepository.findByIdAsync(userId)
+            .thenApply(user -> user.orElseThrow(() -> new RuntimeException("User nicht gefunden: " + userId)))
+            .thenCompose(user -> userRepository.updateAsync(user.getFirebaseUid(), applyDeactivation(user)));
+    }
+    
+    /**
+     * Status auf INACTIVE setzen und die geänderten Felder für ein Teil-Update liefern
+     */
+    private Map<String, Object> applyDeactivation(User user) {
+        LocalDateTime now = LocalDateTime.now();
         user.setStatus(com.automarketplace.model.AccountStatus.INACTIVE);
-        user.setUpdatedAt(LocalDateTime.now());
+        user.setUpdatedAt(now);
         
-        userRepository.save(user);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", com.automarketplace.model.AccountStatus.INACTIVE);
+        fields.put("updatedAt", now);
+        return fields;
     }
 }
@@ -0,0 +1,28 @@
+package com.automarketplace.service;
+
+import java.time.Instant;
+
+/**
+ * Dokument zusammen mit dem Zeitpunkt seiner letzten Änderung
+ * 
+ * Der Zeitpunkt dient als Version für bedingte Schreibvorgänge
+ * (updateDocumentIfUnchanged, deleteDocumentIfUnchanged).
+ */
+public class VersionedDocument<T> {
+    
+    private final T value;
+    private final Instant updateTime;
+    
+    public VersionedDocument(T value, Instant updateTime) {
+        this.value = value;
+        this.updateTime = updateTime;
+    }
+    
+    public T getValue() {
+        return value;
+    }
+    
+    public Instant getUpdateTime() {
+        return updateTime;
+    }
+}
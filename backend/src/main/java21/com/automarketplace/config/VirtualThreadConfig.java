@@ -0,0 +1,48 @@
+package com.automarketplace.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtuelle Threads für Request-Verarbeitung und Firestore-Callbacks (Java 21)
+ *
+ * Liegt in src/main/java21 und wird nur mit dem Maven-Profil java21 gebaut;
+ * der Standard-Build (Java 17) arbeitet weiter mit Plattform-Threads.
+ *
+ * - Tomcat: jeder Request (inkl. Filterkette mit verifyIdToken und
+ *   Async-Dispatch der CompletableFutures) läuft in einem eigenen virtuellen
+ *   Thread statt im Pool mit server.tomcat.threads.max Threads
+ * - applicationTaskExecutor: @Async und Callable-Controller
+ * - firestoreCallbackExecutor: FirestoreCalls schließt die Futures darin ab,
+ *   Codecs und Service-Logik laufen also nicht mehr in den gRPC-Threads
+ *
+ * Ausschalten ohne neuen Build: virtual-threads.enabled=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "virtual-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConfig {
+    
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+    
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("task-", 0).factory()));
+    }
+    
+    @Bean(name = "firestoreCallbackExecutor")
+    public Executor firestoreCallbackExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("firestore-callback-", 0).factory());
+    }
+}
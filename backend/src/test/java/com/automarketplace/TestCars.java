@@ -0,0 +1,84 @@
+package com.automarketplace;
+
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Testdaten: Autos mit zufälligen, aber reproduzierbaren Werten
+ *
+ * Einzelne Felder fehlen absichtlich (null), damit Index und Suche ohne Index
+ * auch fehlende Werte gleich behandeln müssen.
+ */
+public final class TestCars {
+    
+    private static final String[][] MODELS = {
+        {"BMW", "3er", "5er", "X5"},
+        {"Audi", "A4", "A6", "Q5"},
+        {"Volkswagen", "Golf", "Passat", "Tiguan"},
+        {"Mercedes-Benz", "C-Klasse", "E-Klasse"},
+        {"Škoda", "Octavia", "Superb"},
+        {"Opel", "Astra"}
+    };
+    private static final String[] FUEL_TYPES = {"Benzin", "Diesel", "Elektro", "Hybrid"};
+    private static final String[] TRANSMISSIONS = {"Manuell", "Automatik"};
+    private static final String[] BODY_TYPES = {"Limousine", "Kombi", "SUV", "Cabrio"};
+    private static final String[] DRIVETRAINS = {"Frontantrieb", "Heckantrieb", "Allrad"};
+    private static final String[] CONDITIONS = {"Neu", "Gebraucht"};
+    private static final CarStatus[] STATUSES = {
+        CarStatus.ACTIVE, CarStatus.ACTIVE, CarStatus.ACTIVE, CarStatus.SOLD, CarStatus.INACTIVE
+    };
+    
+    private TestCars() {}
+    
+    /**
+     * Auto mit den wichtigsten Feldern (Status ACTIVE)
+     */
+    public static Car car(String id, String brand, String model, Integer year, String price, Integer mileage) {
+        Car car = new Car("seller-1", brand, model, year, price != null ? new BigDecimal(price) : null, mileage,
+                          "Diesel", "Automatik", "Gebraucht", brand + " " + model);
+        car.setId(id);
+        car.setStatus(CarStatus.ACTIVE);
+        return car;
+    }
+    
+    /**
+     * count Autos mit IDs "car-00000", "car-00001", ... aus einem festen Startwert
+     */
+    public static List<Car> random(int count, long seed) {
+        Random random = new Random(seed);
+        List<Car> cars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] models = MODELS[random.nextInt(MODELS.length)];
+            Car car = new Car();
+            car.setId(String.format("car-%05d", i));
+            car.setSellerId("seller-" + random.nextInt(20));
+            car.setBrand(models[0]);
+            car.setModel(random.nextInt(20) == 0 ? null : models[1 + random.nextInt(models.length - 1)]);
+            car.setYear(random.nextInt(20) == 0 ? null : 2000 + random.nextInt(25));
+            car.setPrice(random.nextInt(20) == 0 ? null : BigDecimal.valueOf(200_000 + random.nextInt(8_000_000), 2));
+            car.setMileage(random.nextInt(20) == 0 ? null : random.nextInt(300_000));
+            car.setHorsepower(random.nextInt(10) == 0 ? null : 60 + random.nextInt(400));
+            car.setFuelType(pick(random, FUEL_TYPES));
+            car.setTransmission(pick(random, TRANSMISSIONS));
+            car.setBodyType(random.nextInt(10) == 0 ? null : pick(random, BODY_TYPES));
+            car.setDrivetrain(pick(random, DRIVETRAINS));
+            car.setCondition(pick(random, CONDITIONS));
+            car.setDescription("Gepflegtes Fahrzeug Nr. " + i);
+            car.setStatus(pick(random, STATUSES));
+            car.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(random.nextInt(500_000)));
+            car.setUpdatedAt(car.getCreatedAt());
+            cars.add(car);
+        }
+        return cars;
+    }
+    
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
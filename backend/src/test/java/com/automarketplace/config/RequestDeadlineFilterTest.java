@@ -0,0 +1,51 @@
+package com.automarketplace.config;
+
+import com.automarketplace.service.FirestoreCallProperties;
+import com.automarketplace.service.RequestDeadline;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestDeadlineFilterTest {
+    
+    private final FirestoreCallProperties properties = new FirestoreCallProperties();
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(properties);
+    
+    @Test
+    void requestRunsWithConfiguredBudget() throws Exception {
+        properties.setRequestBudget(Duration.ofSeconds(10));
+        
+        long remaining = remainingDuring(new MockHttpServletRequest());
+        
+        assertThat(remaining).isBetween(TimeUnit.SECONDS.toNanos(9), TimeUnit.SECONDS.toNanos(10));
+        assertThat(RequestDeadline.current()).isNull();
+    }
+    
+    @Test
+    void headerShortensButNeverExtendsBudget() throws Exception {
+        properties.setRequestBudget(Duration.ofSeconds(2));
+        
+        MockHttpServletRequest shorter = new MockHttpServletRequest();
+        shorter.addHeader("X-Request-Timeout", "300");
+        MockHttpServletRequest longer = new MockHttpServletRequest();
+        longer.addHeader("X-Request-Timeout", "60000");
+        MockHttpServletRequest invalid = new MockHttpServletRequest();
+        invalid.addHeader("X-Request-Timeout", "bald");
+        
+        assertThat(remainingDuring(shorter)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(remainingDuring(longer)).isBetween(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2));
+        assertThat(remainingDuring(invalid)).isBetween(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(2));
+    }
+    
+    private long remainingDuring(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Long> remaining = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> remaining.set(RequestDeadline.remainingNanos()));
+        return remaining.get();
+    }
+}
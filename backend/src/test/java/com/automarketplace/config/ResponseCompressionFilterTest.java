@@ -0,0 +1,152 @@
+package com.automarketplace.config;
+
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ResponseCompressionFilterTest {
+    
+    // Größer als min-response-size (2 KB)
+    private static final String LIST = "{\"items\":[" + "{\"brand\":\"BMW\",\"model\":\"3er\"},".repeat(200) + "{}]}";
+    
+    private CompressionProperties properties;
+    private SimpleMeterRegistry registry;
+    private ResponseCompressionFilter filter;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new CompressionProperties();
+        registry = new SimpleMeterRegistry();
+        filter = new ResponseCompressionFilter(properties, registry);
+    }
+    
+    @Test
+    void negotiatePrefersBrotliAndHonoursQualityZero() {
+        assertThat(filter.negotiate("gzip, deflate")).isEqualTo("gzip");
+        assertThat(filter.negotiate("br;q=0, gzip;q=0.5")).isEqualTo("gzip");
+        assertThat(filter.negotiate("gzip;q=0")).isNull();
+        assertThat(filter.negotiate("identity")).isNull();
+        assertThat(filter.negotiate(null)).isNull();
+        assertThat(filter.negotiate("*;q=0")).isNull();
+        // br nur, wenn die native Bibliothek geladen wurde
+        assertThat(filter.negotiate("gzip, br")).isIn("br", "gzip");
+    }
+    
+    @Test
+    void largeJsonIsGzipped() throws Exception {
+        MockHttpServletResponse response = run(get("/cars/123", "gzip"), 200, "application/json", LIST);
+        
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentLength()).isLessThan(LIST.length());
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(LIST);
+    }
+    
+    @Test
+    void compressionIsMeasuredPerEncoding() throws Exception {
+        run(get("/cars/1", "gzip"), 200, "application/json", LIST);
+        run(get("/cars/2", "gzip"), 200, "application/json", LIST);
+        
+        assertThat(registry.get("http.compression.cpu").tag("encoding", "gzip").timers()).hasSize(1);
+        assertThat(registry.get("http.compression.cpu").tag("encoding", "gzip").timer().count()).isEqualTo(2);
+        assertThat(registry.get("http.compression.ratio").tag("encoding", "gzip").summary().count()).isEqualTo(2);
+        assertThat(registry.get("http.compression.ratio").tag("encoding", "gzip").summary().max()).isLessThan(1);
+    }
+    
+    @Test
+    void brotliRoundTripsWhenAvailable() throws Exception {
+        assumeTrue("br".equals(filter.negotiate("br")), "Brotli-Bibliothek nicht geladen");
+        
+        MockHttpServletResponse response = run(get("/cars/123", "gzip, br"), 200, "application/json", LIST);
+        
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("br");
+        assertThat(new String(Decoder.decompress(response.getContentAsByteArray()).getDecompressedData(),
+                              StandardCharsets.UTF_8)).isEqualTo(LIST);
+    }
+    
+    @Test
+    void smallErrorAndOtherTypesStayUncompressed() throws Exception {
+        assertUncompressed(run(get("/cars/123", "gzip"), 200, "application/json", "{\"id\":\"123\"}"), "{\"id\":\"123\"}");
+        assertUncompressed(run(get("/cars/123", "gzip"), 500, "application/json", LIST), LIST);
+        assertUncompressed(run(get("/cars/123", "gzip"), 200, "image/png", LIST), LIST);
+        assertUncompressed(run(get("/cars/123", null), 200, "application/json", LIST), LIST);
+    }
+    
+    @Test
+    void disabledFilterPassesThrough() throws Exception {
+        properties.setEnabled(false);
+        
+        assertUncompressed(run(get("/cars", "gzip"), 200, "application/json", LIST), LIST);
+    }
+    
+    @Test
+    void listResponsesAreCachedAndCarryAnEtag() throws Exception {
+        MockHttpServletResponse first = run(get("/cars/brand/BMW", "gzip"), 200, "application/json", LIST);
+        MockHttpServletResponse second = run(get("/cars/brand/BMW", "gzip"), 200, "application/json", LIST);
+        
+        assertThat(first.getHeader(HttpHeaders.ETAG)).startsWith("W/\"").isEqualTo(second.getHeader(HttpHeaders.ETAG));
+        assertThat(second.getContentAsByteArray()).isEqualTo(first.getContentAsByteArray());
+        assertThat(registry.get("http.compression.cache").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("http.compression.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        // Einzelne Autos stehen nicht in cache.paths
+        assertThat(run(get("/cars/123", "gzip"), 200, "application/json", LIST).getHeader(HttpHeaders.ETAG)).isNull();
+    }
+    
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        String etag = run(get("/cars", "gzip"), 200, "application/json", LIST).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = get("/cars", "gzip");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        
+        MockHttpServletResponse response = run(request, 200, "application/json", LIST);
+        
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+    
+    private MockHttpServletResponse run(MockHttpServletRequest request, int status, String contentType, String body)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            HttpServletResponse httpResponse = (HttpServletResponse) res;
+            httpResponse.setStatus(status);
+            httpResponse.setContentType(contentType);
+            httpResponse.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+    
+    private static MockHttpServletRequest get(String path, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+    
+    private static void assertUncompressed(MockHttpServletResponse response, String body) throws Exception {
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(body);
+    }
+    
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.automarketplace.controller;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSuggestion;
+import com.automarketplace.service.CarService;
+import com.automarketplace.service.ConcurrencyLimitExceededException;
+import com.automarketplace.service.DeadlineExceededException;
+import com.automarketplace.service.DocumentConflictException;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * CarController mit MockMvc (ohne Spring-Kontext und Security), CarService als Mock
+ */
+class CarControllerTest {
+    
+    private CarService carService;
+    private MockMvc mockMvc;
+    
+    @BeforeEach
+    void setUp() {
+        carService = mock(CarService.class);
+        CarController controller = new CarController();
+        ReflectionTestUtils.setField(controller, "carService", carService);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+    
+    @Test
+    void batchReturnsCarsInRequestOrderAndMissingIds() throws Exception {
+        Map<String, Car> found = new LinkedHashMap<>();
+        found.put("b", TestCars.car("b", "Audi", "A4", 2020, "31000", 30000));
+        found.put("a", TestCars.car("a", "BMW", "3er", 2019, "27450", 48000));
+        when(carService.findByIdsAsync(any())).thenReturn(CompletableFuture.completedFuture(found));
+        
+        perform(get("/cars/batch").param("ids", "b, a,x,b,"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.cars[*].id").value(contains("b", "a")))
+            .andExpect(jsonPath("$.missingIds").value(contains("x")));
+        
+        // Doppelte und leere IDs werden vorher entfernt
+        verify(carService).findByIdsAsync(new LinkedHashSet<>(List.of("b", "a", "x")));
+    }
+    
+    @Test
+    void batchRejectsMoreThanHundredIds() throws Exception {
+        String ids = String.join(",", IntStream.rangeClosed(0, 100)
+            .mapToObj(i -> "car-" + i)
+            .toArray(String[]::new));
+        
+        perform(get("/cars/batch").param("ids", ids))
+            .andExpect(status().isBadRequest());
+        
+        verifyNoInteractions(carService);
+    }
+    
+    @Test
+    void invalidCursorIsBadRequest() throws Exception {
+        perform(get("/cars/brand/BMW").param("cursor", "kein-cursor"))
+            .andExpect(status().isBadRequest());
+        
+        verifyNoInteractions(carService);
+    }
+    
+    @Test
+    void pageContainsNextCursor() throws Exception {
+        String next = PageCursor.afterDocument("car-2").encode();
+        when(carService.findByBrandAsync(eq("BMW"), any(), isNull())).thenReturn(CompletableFuture.completedFuture(
+            new Page<>(List.of(TestCars.car("car-2", "BMW", "3er", 2019, "27450", 48000)), next)));
+        
+        perform(get("/cars/brand/BMW").param("limit", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value("car-2"))
+            .andExpect(jsonPath("$.nextCursor").value(next))
+            .andExpect(jsonPath("$.hasMore").value(true));
+    }
+    
+    @Test
+    void fieldsLimitSerializedProperties() throws Exception {
+        when(carService.findByBrandAsync(eq("BMW"), any(), eq(Set.of("brand", "price")))).thenReturn(
+            CompletableFuture.completedFuture(new Page<>(
+                List.of(TestCars.car("car-2", "BMW", "3er", 2019, "27450", 48000)), null)));
+        
+        perform(get("/cars/brand/BMW").param("fields", "brand,price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value("car-2"))
+            .andExpect(jsonPath("$.items[0].brand").value("BMW"))
+            .andExpect(jsonPath("$.items[0].price").value(27450))
+            .andExpect(jsonPath("$.items[0].model").doesNotExist())
+            .andExpect(jsonPath("$.items[0].description").doesNotExist());
+    }
+    
+    @Test
+    void unknownFieldIsBadRequest() throws Exception {
+        perform(get("/cars/brand/BMW").param("fields", "brand,passwort"))
+            .andExpect(status().isBadRequest());
+        
+        verifyNoInteractions(carService);
+    }
+    
+    @Test
+    void facetsBindSearchCriteriaAndAreCacheable() throws Exception {
+        CarFacets facets = CarFacets.of(List.of(TestCars.car("car-1", "BMW", "3er", 2019, "27450", 48000)));
+        ArgumentCaptor<CarSearchCriteria> criteria = ArgumentCaptor.forClass(CarSearchCriteria.class);
+        when(carService.searchFacetsAsync(criteria.capture())).thenReturn(CompletableFuture.completedFuture(facets));
+        
+        perform(get("/cars/search/facets").param("brand", "BMW").param("minYear", "2015").param("fuelType", "Diesel"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", containsString("public")))
+            .andExpect(jsonPath("$.total").value(1))
+            .andExpect(jsonPath("$.counts.brand.BMW").value(1))
+            .andExpect(jsonPath("$.histograms.year[0].from").value(2019));
+        
+        assertThat(criteria.getValue().getBrand()).isEqualTo("BMW");
+        assertThat(criteria.getValue().getMinYear()).isEqualTo(2015);
+        assertThat(criteria.getValue().getFuelType()).isEqualTo("Diesel");
+    }
+    
+    @Test
+    void suggestClampsLimitAndRejectsBlankPrefix() throws Exception {
+        when(carService.suggestAsync(eq("bm"), eq(50))).thenReturn(CompletableFuture.completedFuture(
+            List.of(new CarSuggestion("BMW", CarSuggestion.BRAND, "BMW", null, 12))));
+        when(carService.suggestAsync(eq("au"), eq(10))).thenReturn(CompletableFuture.completedFuture(List.of()));
+        
+        perform(get("/cars/suggest").param("prefix", "bm").param("limit", "500"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].text").value("BMW"))
+            .andExpect(jsonPath("$[0].count").value(12));
+        perform(get("/cars/suggest").param("prefix", "au"))
+            .andExpect(status().isOk());
+        perform(get("/cars/suggest").param("prefix", "  "))
+            .andExpect(status().isBadRequest());
+        
+        verify(carService).suggestAsync("bm", 50);
+        verify(carService).suggestAsync("au", 10);
+    }
+    
+    @Test
+    void exhaustedDeadlineIsGatewayTimeout() throws Exception {
+        when(carService.findByBrandAsync(eq("BMW"), any(), isNull())).thenReturn(
+            CompletableFuture.failedFuture(new DeadlineExceededException("Zeitbudget überschritten", null)));
+        
+        perform(get("/cars/brand/BMW"))
+            .andExpect(status().isGatewayTimeout());
+    }
+    
+    @Test
+    void fullBulkheadIsServiceUnavailableWithRetryAfter() throws Exception {
+        when(carService.findByBrandAsync(eq("BMW"), any(), isNull())).thenReturn(CompletableFuture.failedFuture(
+            new ConcurrencyLimitExceededException("Bulkhead ausgelastet", Duration.ofSeconds(2))));
+        
+        perform(get("/cars/brand/BMW"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "2"));
+    }
+    
+    @Test
+    void rejectedWriteIsServiceUnavailable() throws Exception {
+        when(carService.deleteCarAsync("car-1", "seller-1")).thenReturn(CompletableFuture.failedFuture(
+            new ConcurrencyLimitExceededException("Bulkhead ausgelastet", Duration.ofMillis(200))));
+        
+        perform(delete("/cars/car-1").principal(new TestingAuthenticationToken("seller-1", null)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "1"));
+    }
+    
+    @Test
+    void concurrentChangeIsConflict() throws Exception {
+        when(carService.deleteCarAsync("car-1", "seller-1")).thenReturn(
+            CompletableFuture.failedFuture(new DocumentConflictException("geändert", null)));
+        
+        perform(delete("/cars/car-1").principal(new TestingAuthenticationToken("seller-1", null)))
+            .andExpect(status().isConflict());
+    }
+    
+    @Test
+    void deleteIsNoContent() throws Exception {
+        when(carService.deleteCarAsync("car-1", "seller-1")).thenReturn(CompletableFuture.completedFuture(null));
+        
+        perform(delete("/cars/car-1").principal(new TestingAuthenticationToken("seller-1", null)))
+            .andExpect(status().isNoContent());
+    }
+    
+    /**
+     * Request ausführen; asynchrone Antworten (CompletableFuture) werden abgewartet
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result.getAsyncResult(5000);
+            return mockMvc.perform(asyncDispatch(result));
+        }
+        return actions;
+    }
+}
@@ -0,0 +1,57 @@
+package com.automarketplace.model;
+
+import com.automarketplace.TestCars;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CarFacetsTest {
+    
+    @Test
+    void countsAreSortedByCountThenValue() {
+        CarFacets facets = CarFacets.of(List.of(
+            TestCars.car("a", "Opel", "Astra", 2019, "9000", 10),
+            TestCars.car("b", "BMW", "3er", 2019, "9000", 10),
+            TestCars.car("c", "Audi", "A4", 2019, "9000", 10),
+            TestCars.car("d", "Opel", "Corsa", 2019, "9000", 10)));
+        
+        assertThat(facets.getTotal()).isEqualTo(4);
+        assertThat(facets.getCounts().get("brand")).containsExactly(
+            Map.entry("Opel", 2L), Map.entry("Audi", 1L), Map.entry("BMW", 1L));
+        assertThat(facets.getCounts().get("fuelType")).containsExactly(Map.entry("Diesel", 4L));
+        assertThat(facets.getCounts().get("bodyType")).isEmpty();
+    }
+    
+    @Test
+    void histogramBucketsAreHalfOpenAndSkipEmptyBuckets() {
+        CarFacets facets = CarFacets.of(List.of(
+            TestCars.car("a", "BMW", "3er", 2019, "4999.99", 24_999),
+            TestCars.car("b", "BMW", "3er", 2019, "5000.00", 25_000),
+            TestCars.car("c", "BMW", "3er", 2021, "17500", 80_000),
+            TestCars.car("d", "BMW", "3er", null, null, null)));
+        
+        assertThat(facets.getHistograms().get("price"))
+            .extracting(CarFacets.Bucket::getFrom, CarFacets.Bucket::getTo, CarFacets.Bucket::getCount)
+            .containsExactly(tuple(0L, 5000L, 1L), tuple(5000L, 10000L, 1L), tuple(15000L, 20000L, 1L));
+        assertThat(facets.getHistograms().get("year"))
+            .extracting(CarFacets.Bucket::getFrom, CarFacets.Bucket::getTo, CarFacets.Bucket::getCount)
+            .containsExactly(tuple(2019L, 2020L, 2L), tuple(2021L, 2022L, 1L));
+        assertThat(facets.getHistograms().get("mileage"))
+            .extracting(CarFacets.Bucket::getFrom, CarFacets.Bucket::getTo, CarFacets.Bucket::getCount)
+            .containsExactly(tuple(0L, 25000L, 1L), tuple(25000L, 50000L, 1L), tuple(75000L, 100000L, 1L));
+    }
+    
+    @Test
+    void noMatchesGiveEmptyFacets() {
+        CarFacets facets = CarFacets.of(List.of());
+        
+        assertThat(facets.getTotal()).isZero();
+        assertThat(facets.getCounts()).containsOnlyKeys(CarFacets.VALUE_FIELDS);
+        assertThat(facets.getCounts().values()).allMatch(Map::isEmpty);
+        assertThat(facets.getHistograms().values()).allMatch(List::isEmpty);
+    }
+}
@@ -0,0 +1,47 @@
+package com.automarketplace.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CarFieldsTest {
+    
+    @Test
+    void noFieldsMeansNoProjection() {
+        assertThat(CarFields.parse(null)).isNull();
+        assertThat(CarFields.parse("  ")).isNull();
+    }
+    
+    @Test
+    void parseTrimsDeduplicatesAndSkipsId() {
+        assertThat(CarFields.parse(" brand,model , id,brand,,price"))
+            .containsExactly("brand", "model", "price");
+    }
+    
+    @Test
+    void onlyIdSelectsNoStoredFields() {
+        assertThat(CarFields.parse("id")).isEmpty();
+    }
+    
+    @Test
+    void rejectsUnknownFields() {
+        assertThatThrownBy(() -> CarFields.parse("brand,passwort"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("passwort");
+    }
+    
+    @Test
+    void selectableFieldsAreStoredFieldsOfCar() {
+        Set<String> carFields = Arrays.stream(Car.class.getDeclaredFields())
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+        
+        assertThat(carFields).containsAll(CarFields.SELECTABLE);
+    }
+}
@@ -0,0 +1,63 @@
+package com.automarketplace.model;
+
+import com.automarketplace.TestCars;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CarSortTest {
+    
+    @Test
+    void parseReadsFieldAndDirection() {
+        CarSort ascending = CarSort.parse("price");
+        CarSort descending = CarSort.parse(" year , DESC ");
+        
+        assertThat(ascending.getField()).isEqualTo("price");
+        assertThat(ascending.isDescending()).isFalse();
+        assertThat(ascending.getName()).isEqualTo("price");
+        assertThat(descending.getField()).isEqualTo("year");
+        assertThat(descending.isDescending()).isTrue();
+        assertThat(descending.getName()).isEqualTo("year,desc");
+        assertThat(CarSort.parse("brand").isText()).isTrue();
+        assertThat(CarSort.parse("mileage,asc").isText()).isFalse();
+    }
+    
+    @Test
+    void parseRejectsUnknownFieldsAndDirections() {
+        assertThatThrownBy(() -> CarSort.parse("description")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CarSort.parse("price,up")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CarSort.parse("")).isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void keysCompareAscendingAndPutMissingValuesLast() {
+        Car car = TestCars.car("car-1", "BMW", "3er", 2019, "27450.50", 48000);
+        car.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+        Car missing = TestCars.car("car-2", "BMW", "3er", null, null, null);
+        
+        assertThat(CarSort.parse("price").key(car)).isEqualTo(2_745_050L);
+        assertThat(CarSort.parse("price,desc").key(car)).isEqualTo(-2_745_050L);
+        assertThat(CarSort.parse("createdAt").key(car))
+            .isEqualTo(car.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        assertThat(CarSort.parse("year").key(missing)).isEqualTo(Long.MAX_VALUE);
+        assertThat(CarSort.parse("year,desc").key(missing)).isEqualTo(Long.MAX_VALUE);
+    }
+    
+    @Test
+    void textIsBrandAndModel() {
+        assertThat(CarSort.text(TestCars.car("a", "BMW", "3er", 2019, null, null))).isEqualTo("BMW 3er");
+        assertThat(CarSort.text(TestCars.car("b", "BMW", null, 2019, null, null))).isEqualTo("BMW");
+        assertThat(CarSort.text(TestCars.car("c", null, "3er", 2019, null, null))).isNull();
+    }
+    
+    @Test
+    void collatorIgnoresCaseButNotAccents() {
+        assertThat(CarSort.collator().compare("škoda", "Škoda")).isZero();
+        assertThat(CarSort.collator().compare("Skoda", "Škoda")).isNegative();
+        assertThat(CarSort.collator().compare("Škoda", "Tesla")).isNegative();
+    }
+}
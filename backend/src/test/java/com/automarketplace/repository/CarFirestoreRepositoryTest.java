@@ -0,0 +1,327 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.automarketplace.service.BulkWriteResult;
+import com.automarketplace.service.DocumentConflictException;
+import com.automarketplace.service.EmbeddedDocumentStore;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageRequest;
+import com.automarketplace.service.TestDocumentStores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CarFirestoreRepository gegen den eingebetteten Dokumentenspeicher (ohne Replikat)
+ */
+class CarFirestoreRepositoryTest {
+    
+    private EmbeddedDocumentStore store;
+    private CarFirestoreRepository repository;
+    
+    @BeforeEach
+    void setUp() {
+        store = TestDocumentStores.embedded();
+        repository = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(repository, "documentStore", store);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    void saveAsyncAssignsIdAndFindByIdAsyncReadsCarBack() throws Exception {
+        Car car = TestCars.car(null, "BMW", "3er", 2019, "27450.00", 48000);
+        
+        Car saved = await(repository.saveAsync(car));
+        Optional<Car> found = await(repository.findByIdAsync(saved.getId()));
+        
+        assertThat(saved.getId()).isNotBlank();
+        assertThat(found).get()
+            .usingRecursiveComparison()
+            .isEqualTo(saved);
+    }
+    
+    @Test
+    void findByIdAsyncIsEmptyForUnknownId() throws Exception {
+        assertThat(await(repository.findByIdAsync("unbekannt"))).isEmpty();
+    }
+    
+    @Test
+    void asyncAndBlockingVariantsReturnTheSameCars() throws Exception {
+        List<Car> cars = TestCars.random(50, 1);
+        cars.forEach(repository::save);
+        
+        assertThat(await(repository.findBySellerIdAsync("seller-3")))
+            .usingRecursiveFieldByFieldElementComparator()
+            .containsExactlyElementsOf(repository.findBySellerId("seller-3"));
+        assertThat(await(repository.countBySellerIdAsync("seller-3")))
+            .isEqualTo(repository.countBySellerId("seller-3"))
+            .isEqualTo(cars.stream().filter(car -> car.getSellerId().equals("seller-3")).count());
+        assertThat(await(repository.findAllAsync())).hasSize(50);
+    }
+    
+    @Test
+    void deleteByIdAsyncRemovesCar() throws Exception {
+        Car car = repository.save(TestCars.car("car-1", "Audi", "A4", 2020, "31000", 30000));
+        
+        await(repository.deleteByIdAsync(car.getId()));
+        
+        assertThat(await(repository.existsByIdAsync(car.getId()))).isFalse();
+    }
+    
+    @Test
+    void failedWriteCompletesFutureExceptionally() {
+        CompletableFuture<Void> update = repository.updateAsync("unbekannt", Map.of("mileage", 1));
+        
+        assertThatThrownBy(() -> await(update))
+            .isInstanceOf(ExecutionException.class)
+            .hasMessageContaining("existiert nicht");
+    }
+    
+    @Test
+    void saveAllAssignsIdsInInputOrder() throws Exception {
+        List<Car> cars = List.of(
+            TestCars.car(null, "BMW", "3er", 2019, "27450", 48000),
+            TestCars.car("car-fest", "Audi", "A4", 2020, "31000", 30000),
+            TestCars.car(null, "Opel", "Astra", 2015, "9900", 120000));
+        
+        BulkWriteResult result = await(repository.saveAllAsync(cars));
+        
+        assertThat(result.isAllSucceeded()).isTrue();
+        assertThat(cars.get(1).getId()).isEqualTo("car-fest");
+        assertThat(cars).extracting(Car::getId)
+            .doesNotContainNull()
+            .containsExactlyElementsOf(result.getEntries().stream()
+                .map(BulkWriteResult.Entry::getDocumentId)
+                .collect(Collectors.toList()));
+        assertThat(repository.findAllById(cars.stream().map(Car::getId).collect(Collectors.toList())))
+            .hasSize(3);
+    }
+    
+    @Test
+    void updateAllReportsFailuresPerDocument() throws Exception {
+        repository.saveAll(TestCars.random(3, 2));
+        Map<String, Map<String, Object>> updates = new LinkedHashMap<>();
+        updates.put("car-00000", Map.of("mileage", 1));
+        updates.put("unbekannt", Map.of("mileage", 2));
+        updates.put("car-00002", Map.of("mileage", 3));
+        
+        BulkWriteResult result = await(repository.updateAllAsync(updates));
+        
+        assertThat(result.getSucceededCount()).isEqualTo(2);
+        assertThat(result.getFailedIds()).containsExactly("unbekannt");
+        assertThat(repository.findById("car-00000")).get().extracting(Car::getMileage).isEqualTo(1);
+        assertThat(repository.findById("car-00002")).get().extracting(Car::getMileage).isEqualTo(3);
+    }
+    
+    @Test
+    void deleteAllRemovesCars() throws Exception {
+        repository.saveAll(TestCars.random(5, 3));
+        
+        BulkWriteResult result = await(repository.deleteAllAsync(List.of("car-00001", "car-00003")));
+        
+        assertThat(result.isAllSucceeded()).isTrue();
+        assertThat(repository.findAll()).extracting(Car::getId)
+            .containsExactly("car-00000", "car-00002", "car-00004");
+    }
+    
+    @Test
+    void findAllByIdKeepsRequestOrderAndSkipsUnknownIds() throws Exception {
+        repository.saveAll(TestCars.random(5, 4));
+        
+        Map<String, Car> found = await(repository.findAllByIdAsync(
+            List.of("car-00003", "unbekannt", "car-00000", "car-00003")));
+        
+        assertThat(found.keySet()).containsExactly("car-00003", "car-00000");
+        assertThat(found.get("car-00000").getId()).isEqualTo("car-00000");
+    }
+    
+    @Test
+    void pagesCoverAllCarsOnceInIdOrder() throws Exception {
+        List<Car> cars = TestCars.random(95, 5);
+        repository.saveAll(cars);
+        
+        List<String> seen = new ArrayList<>();
+        PageRequest request = PageRequest.first(10);
+        int pages = 0;
+        while (true) {
+            Page<Car> page = await(repository.findAllAsync(request));
+            page.getItems().forEach(car -> seen.add(car.getId()));
+            pages++;
+            if (!page.isHasMore()) {
+                break;
+            }
+            request = PageRequest.of(10, page.getNextCursor());
+        }
+        
+        assertThat(seen).containsExactlyElementsOf(cars.stream().map(Car::getId).sorted().collect(Collectors.toList()));
+        assertThat(pages).isEqualTo(10);
+    }
+    
+    @Test
+    void pagesOfOneSellerContainOnlyTheirCars() throws Exception {
+        List<Car> cars = TestCars.random(200, 6);
+        repository.saveAll(cars);
+        
+        List<String> seen = new ArrayList<>();
+        Page<Car> page = await(repository.findBySellerIdAsync("seller-4", PageRequest.first(3)));
+        seen.addAll(page.getItems().stream().map(Car::getId).collect(Collectors.toList()));
+        while (page.isHasMore()) {
+            page = await(repository.findBySellerIdAsync("seller-4", PageRequest.of(3, page.getNextCursor())));
+            seen.addAll(page.getItems().stream().map(Car::getId).collect(Collectors.toList()));
+        }
+        
+        assertThat(seen).containsExactlyElementsOf(cars.stream()
+            .filter(car -> car.getSellerId().equals("seller-4"))
+            .map(Car::getId)
+            .sorted()
+            .collect(Collectors.toList()));
+    }
+    
+    @Test
+    void projectionReadsOnlySelectedFields() throws Exception {
+        List<Car> cars = TestCars.random(40, 7);
+        repository.saveAll(cars);
+        
+        Page<Car> page = await(repository.findByBrandAsync("BMW", PageRequest.first(5), List.of("model", "price")));
+        
+        assertThat(page.getItems()).isNotEmpty().allSatisfy(car -> {
+            Car stored = cars.stream().filter(candidate -> candidate.getId().equals(car.getId())).findFirst().orElseThrow();
+            assertThat(car.getModel()).isEqualTo(stored.getModel());
+            assertThat(car.getPrice()).isEqualByComparingTo(stored.getPrice());
+            assertThat(car.getBrand()).isNull();
+            assertThat(car.getDescription()).isNull();
+            assertThat(car.getMileage()).isNull();
+        });
+    }
+    
+    @Test
+    void findByBrandAndModelMatchesExactly() throws Exception {
+        List<Car> cars = TestCars.random(300, 8);
+        repository.saveAll(cars);
+        
+        assertThat(await(repository.findByBrandAndModelAsync("Audi", "A4"))).extracting(Car::getId)
+            .containsExactlyInAnyOrderElementsOf(ids(cars, car -> "Audi".equals(car.getBrand()) && "A4".equals(car.getModel())));
+        assertThat(repository.findByBrandAndModel("audi", "A4")).isEmpty();
+    }
+    
+    @Test
+    void priceRangeIsInclusiveInCentsAndSortedByPrice() throws Exception {
+        List<Car> cars = TestCars.random(300, 9);
+        repository.saveAll(cars);
+        // Grenzen mit Bruchteilen von Cent: aufgerundet bzw. abgerundet
+        BigDecimal min = new BigDecimal("15000.005");
+        BigDecimal max = new BigDecimal("40000.999");
+        
+        List<Car> found = await(repository.findByPriceBetweenAsync(min, max));
+        
+        assertThat(found).extracting(Car::getId).containsExactlyInAnyOrderElementsOf(ids(cars, car ->
+            car.getPrice() != null
+                && car.getPrice().compareTo(new BigDecimal("15000.01")) >= 0
+                && car.getPrice().compareTo(new BigDecimal("40000.99")) <= 0));
+        assertThat(found).extracting(Car::getPriceCents).isSorted();
+    }
+    
+    @Test
+    void yearRangeSkipsCarsWithoutYear() throws Exception {
+        List<Car> cars = TestCars.random(300, 10);
+        repository.saveAll(cars);
+        
+        List<Car> found = repository.findByYearBetween(2010, 2015);
+        
+        assertThat(found).extracting(Car::getId).containsExactlyInAnyOrderElementsOf(ids(cars, car ->
+            car.getYear() != null && car.getYear() >= 2010 && car.getYear() <= 2015));
+        assertThat(found).extracting(Car::getYear).isSorted();
+    }
+    
+    @Test
+    void similarCarsExcludeTheCarItself() throws Exception {
+        List<Car> cars = TestCars.random(300, 11);
+        repository.saveAll(cars);
+        BigDecimal min = new BigDecimal("10000");
+        BigDecimal max = new BigDecimal("30000");
+        Predicate<Car> similar = car -> "BMW".equals(car.getBrand()) && car.getPrice() != null
+            && car.getPrice().compareTo(min) >= 0 && car.getPrice().compareTo(max) <= 0;
+        String excluded = ids(cars, similar).get(0);
+        
+        List<Car> found = await(repository.findSimilarCarsAsync("BMW", min, max, excluded));
+        
+        assertThat(found).extracting(Car::getId)
+            .containsExactlyInAnyOrderElementsOf(ids(cars, similar.and(car -> !car.getId().equals(excluded))));
+    }
+    
+    @Test
+    void findBySellerAndStatusCombinesBothConditions() throws Exception {
+        List<Car> cars = TestCars.random(300, 12);
+        repository.saveAll(cars);
+        User seller = new User("seller-7", "verkaeufer@example.com", "Max", "Muster", UserType.SELLER);
+        
+        assertThat(await(repository.findBySellerAndStatusAsync(seller, CarStatus.SOLD))).extracting(Car::getId)
+            .containsExactlyInAnyOrderElementsOf(ids(cars, car ->
+                car.getSellerId().equals("seller-7") && car.getStatus() == CarStatus.SOLD));
+    }
+    
+    @Test
+    void countsMatchTheStoredCars() throws Exception {
+        List<Car> cars = TestCars.random(300, 13);
+        repository.saveAll(cars);
+        User seller = new User("seller-2", "verkaeufer@example.com", "Max", "Muster", UserType.SELLER);
+        
+        assertThat(await(repository.countAsync())).isEqualTo(300);
+        assertThat(repository.countByStatus(CarStatus.INACTIVE))
+            .isEqualTo(ids(cars, car -> car.getStatus() == CarStatus.INACTIVE).size());
+        assertThat(await(repository.countBySellerAndStatusAsync(seller, CarStatus.ACTIVE)))
+            .isEqualTo(ids(cars, car -> car.getSellerId().equals("seller-2") && car.getStatus() == CarStatus.ACTIVE).size());
+        assertThat(await(repository.countByStatusAsync(CarStatus.REJECTED))).isZero();
+    }
+    
+    @Test
+    void conditionalWritesRejectStaleVersions() throws Exception {
+        repository.save(TestCars.car("car-1", "Audi", "A4", 2020, "31000", 30000));
+        Instant read = repository.findVersionedById("car-1").orElseThrow().getUpdateTime();
+        
+        Instant written = repository.updateIfUnchanged("car-1", Map.of("mileage", 31000), read);
+        
+        assertThat(written).isAfter(read);
+        assertThatThrownBy(() -> repository.updateIfUnchanged("car-1", Map.of("mileage", 1), read))
+            .isInstanceOf(DocumentConflictException.class);
+        assertThatThrownBy(() -> await(repository.deleteIfUnchangedAsync("car-1", read)))
+            .hasCauseInstanceOf(DocumentConflictException.class);
+        assertThat(repository.findById("car-1")).get().extracting(Car::getMileage).isEqualTo(31000);
+        
+        repository.deleteIfUnchanged("car-1", written);
+        assertThat(repository.existsById("car-1")).isFalse();
+    }
+    
+    private static List<String> ids(List<Car> cars, Predicate<Car> filter) {
+        return cars.stream().filter(filter).map(Car::getId).collect(Collectors.toList());
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
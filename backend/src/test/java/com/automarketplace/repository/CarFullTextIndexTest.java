@@ -0,0 +1,219 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.service.EmbeddedDocumentStore;
+import com.automarketplace.service.TestDocumentStores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * CarFullTextIndex im Speicher mit dem Wörterbuch aus search/compounds-de.txt
+ */
+class CarFullTextIndexTest {
+    
+    private CarFirestoreRepository repository;
+    private CarFullTextIndex index;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = mock(CarFirestoreRepository.class);
+        index = new CarFullTextIndex(repository, Optional.empty(), "", new ClassPathResource("search/compounds-de.txt"));
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+    
+    @Test
+    void findsCompoundPartsAndFoldedUmlauts() {
+        index.index(car("car-1", "BMW", "3er", "Mit Sitzheizung", List.of("Anhängerkupplung")));
+        index.index(car("car-2", "Audi", "A4", "Ohne Extras", List.of("Navigation")));
+        
+        assertThat(ids(index.search("Heizung", null, 10))).containsExactly("car-1");
+        assertThat(ids(index.search("anhaenger", null, 10))).containsExactly("car-1");
+        assertThat(ids(index.search("navi*", null, 10))).containsExactly("car-2");
+    }
+    
+    @Test
+    void queryOperatorsCombineTerms() {
+        index.index(car("car-1", "VW", "Golf", "Scheckheft gepflegt, Nichtraucher", null));
+        index.index(car("car-2", "VW", "Passat", "Nichtraucher, Unfall repariert", null));
+        index.index(car("car-3", "VW", "Tiguan", "gepflegt", null));
+        
+        assertThat(ids(index.search("gepflegt Nichtraucher", null, 10))).containsExactly("car-1");
+        assertThat(ids(index.search("Nichtraucher -Unfall", null, 10))).containsExactly("car-1");
+        assertThat(ids(index.search("Golf | Tiguan", null, 10))).containsExactlyInAnyOrder("car-1", "car-3");
+        assertThat(ids(index.search("\"Unfall repariert\"", null, 10))).containsExactly("car-2");
+    }
+    
+    @Test
+    void titleOutranksDescription() {
+        index.index(car("car-1", "Opel", "Astra", "Tauscht gern gegen einen Golf", null));
+        index.index(car("car-2", "VW", "Golf", "Gut erhalten", null));
+        
+        assertThat(ids(index.search("Golf", null, 10))).containsExactly("car-2", "car-1");
+    }
+    
+    @Test
+    void onlyAvailableCarsAreFound() {
+        Car sold = car("car-1", "BMW", "3er", "Sitzheizung", null);
+        sold.setStatus(CarStatus.SOLD);
+        index.index(sold);
+        index.index(car("car-2", "BMW", "5er", "Sitzheizung", null));
+        
+        assertThat(ids(index.search("Sitzheizung", null, 10))).containsExactly("car-2");
+    }
+    
+    @Test
+    void pagesFollowScoreThenIdWithoutGapsOrDuplicates() {
+        for (int i = 0; i < 30; i++) {
+            // Gleiche Texte -> gleiche Relevanz, die ID entscheidet
+            String description = "gepflegt ".repeat(1 + i % 4) + "Nr " + i;
+            index.index(car(String.format("car-%02d", i), "Skoda", "Octavia", description, null));
+        }
+        
+        List<CarFullTextIndex.Hit> all = index.search("gepflegt", null, 100);
+        assertThat(all).hasSize(30);
+        assertThat(all).isSortedAccordingTo(Comparator.comparing(CarFullTextIndex.Hit::getScore).reversed()
+            .thenComparing(CarFullTextIndex.Hit::getId));
+        
+        List<CarFullTextIndex.Hit> paged = new ArrayList<>();
+        CarFullTextIndex.Hit after = null;
+        while (true) {
+            List<CarFullTextIndex.Hit> page = index.search("gepflegt", after, 4);
+            if (page.isEmpty()) {
+                break;
+            }
+            paged.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertThat(ids(paged)).containsExactlyElementsOf(ids(all));
+    }
+    
+    @Test
+    void deleteAndUpdateChangeHits() {
+        index.index(car("car-1", "BMW", "3er", "Sitzheizung", null));
+        index.index(car("car-2", "BMW", "5er", "Sitzheizung", null));
+        
+        index.delete("car-1");
+        index.index(car("car-2", "BMW", "5er", "Klimaanlage", null));
+        
+        assertThat(index.search("Sitzheizung", null, 10)).isEmpty();
+        assertThat(ids(index.search("Klimaanlage", null, 10))).containsExactly("car-2");
+    }
+    
+    @Test
+    void emptyQueryFindsNothing() {
+        index.index(car("car-1", "BMW", "3er", "Sitzheizung", null));
+        
+        assertThat(index.search("", null, 10)).isEmpty();
+        assertThat(index.search("der die das", null, 10)).isEmpty();
+        assertThat(index.search("Sitzheizung", null, 0)).isEmpty();
+    }
+    
+    @Test
+    void highlightsMarkMatchesAndEscapeHtml() {
+        index.index(car("car-1", "BMW", "3er", "Neue <b>Bremsen</b> & Sitzheizung", List.of("Glasdach")));
+        index.index(car("car-2", "BMW", "5er", "Ohne Extras", null));
+        
+        Map<String, Map<String, String>> highlights = index.highlights("Heizung Glasdach", List.of("car-1", "car-2"));
+        
+        assertThat(highlights).containsOnlyKeys("car-1");
+        assertThat(highlights.get("car-1").get("description"))
+            .contains("&lt;b&gt;Bremsen&lt;&#x2F;b&gt;")
+            .contains("<b>Sitzheizung</b>");
+        assertThat(highlights.get("car-1").get("features")).isEqualTo("<b>Glasdach</b>");
+        assertThat(highlights.get("car-1")).doesNotContainKey("serviceHistory");
+    }
+    
+    @Test
+    void rebuildReplacesTheIndexWithAllCars() {
+        index.index(car("alt", "BMW", "3er", "Sitzheizung", null));
+        when(repository.findAllAsync()).thenReturn(CompletableFuture.completedFuture(List.of(
+            car("car-1", "BMW", "5er", "Sitzheizung", null))));
+        
+        index.rebuild();
+        
+        assertThat(index.highlights("Sitzheizung", List.of("alt", "car-1"))).containsOnlyKeys("car-1");
+    }
+    
+    @Test
+    void followsReplicaSnapshots() throws IOException {
+        EmbeddedDocumentStore store = TestDocumentStores.embedded();
+        CarReplica replica = new CarReplica(store);
+        ReflectionTestUtils.setField(replica, "maxLag", Duration.ofMinutes(1));
+        CarFirestoreRepository cars = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(cars, "documentStore", store);
+        cars.saveAll(List.of(car("car-1", "BMW", "3er", "Sitzheizung", null),
+                             car("car-2", "BMW", "5er", "Klimaanlage", null)));
+        replica.start();
+        awaitUntil(replica::isLoaded);
+        
+        // Nach dem Laden registriert: bekommt zuerst alle Autos, danach die Änderungen
+        CarFullTextIndex following = new CarFullTextIndex(cars, Optional.of(replica), "",
+                                                          new ClassPathResource("search/compounds-de.txt"));
+        try {
+            following.start();
+            assertThat(ids(following.search("Sitzheizung", null, 10))).containsExactly("car-1");
+            
+            Car sold = car("car-1", "BMW", "3er", "Sitzheizung", null);
+            sold.setStatus(CarStatus.SOLD);
+            cars.save(sold);
+            cars.save(car("car-3", "Audi", "A4", "Sitzheizung", null));
+            cars.deleteById("car-2");
+            
+            awaitUntil(() -> ids(following.search("Sitzheizung", null, 10)).equals(List.of("car-3")));
+            awaitUntil(() -> following.search("Klimaanlage", null, 10).isEmpty());
+        } finally {
+            following.close();
+            replica.stop();
+            store.close();
+        }
+    }
+    
+    private static Car car(String id, String brand, String model, String description, List<String> features) {
+        Car car = TestCars.car(id, brand, model, 2019, "20000", 50000);
+        car.setDescription(description);
+        car.setFeatures(features);
+        return car;
+    }
+    
+    private static List<String> ids(List<CarFullTextIndex.Hit> hits) {
+        return hits.stream().map(CarFullTextIndex.Hit::getId).collect(Collectors.toList());
+    }
+    
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Bedingung nicht rechtzeitig erfüllt").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.automarketplace.service.EmbeddedDocumentStore;
+import com.automarketplace.service.Page;
+import com.automarketplace.service.PageRequest;
+import com.automarketplace.service.TestDocumentStores;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CarReplica über dem eingebetteten Dokumentenspeicher; Antworten aus dem
+ * Replikat müssen denen direkt aus dem Speicher entsprechen
+ */
+class CarReplicaTest {
+    
+    private EmbeddedDocumentStore store;
+    private CarReplica replica;
+    
+    // Gleicher Speicher, einmal mit und einmal ohne Replikat
+    private CarFirestoreRepository withReplica;
+    private CarFirestoreRepository withoutReplica;
+    
+    @BeforeEach
+    void setUp() {
+        store = TestDocumentStores.embedded();
+        replica = new CarReplica(store);
+        ReflectionTestUtils.setField(replica, "maxLag", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(replica, "restartDelay", Duration.ofMillis(50));
+        
+        withReplica = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(withReplica, "documentStore", store);
+        ReflectionTestUtils.setField(withReplica, "carReplica", replica);
+        withoutReplica = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(withoutReplica, "documentStore", store);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        replica.stop();
+        store.close();
+    }
+    
+    @Test
+    void usableAfterInitialSnapshot() {
+        withoutReplica.saveAll(TestCars.random(200, 20));
+        assertThat(replica.isUsable()).isFalse();
+        assertThat(replica.isLoaded()).isFalse();
+        
+        replica.start();
+        awaitUntil(replica::isUsable);
+        
+        assertThat(replica.size()).isEqualTo(200);
+        assertThat(replica.getStatus()).containsEntry("ready", true).containsEntry("connected", true);
+    }
+    
+    @Test
+    void followsWritesAfterSnapshot() {
+        withoutReplica.saveAll(TestCars.random(20, 21));
+        replica.start();
+        awaitUntil(replica::isUsable);
+        
+        withoutReplica.save(TestCars.car("car-neu", "Audi", "A6", 2021, "45000", 12000));
+        withoutReplica.deleteById("car-00003");
+        withoutReplica.update("car-00004", Map.of("mileage", 7));
+        
+        awaitUntil(() -> replica.size() == 20 && replica.find(car -> car.getId().equals("car-neu")).size() == 1);
+        awaitUntil(() -> replica.find(car -> car.getId().equals("car-00004") && Integer.valueOf(7).equals(car.getMileage())).size() == 1);
+        assertThat(replica.find(car -> car.getId().equals("car-00003"))).isEmpty();
+    }
+    
+    @Test
+    void becomesUnusableWhenStaleAndHeartbeatConfirmsAgain() throws Exception {
+        withoutReplica.saveAll(TestCars.random(20, 22));
+        replica.start();
+        awaitUntil(replica::isUsable);
+        // Erst nach dem ersten Snapshot verkürzen, dessen Zustellung dauert beim Kaltstart länger
+        ReflectionTestUtils.setField(replica, "maxLag", Duration.ofMillis(200));
+        
+        // Keine Änderungen, kein Heartbeat -> Stand zu alt
+        Thread.sleep(300);
+        assertThat(replica.isUsable()).isFalse();
+        
+        // Anzahl und neuestes Auto stimmen mit dem Speicher überein
+        replica.heartbeat();
+        awaitUntil(replica::isUsable);
+    }
+    
+    @Test
+    void heartbeatDoesNotConfirmADivergedCopy() throws Exception {
+        withoutReplica.saveAll(TestCars.random(20, 23));
+        replica.start();
+        awaitUntil(replica::isUsable);
+        // Erst nach dem ersten Snapshot verkürzen, dessen Zustellung dauert beim Kaltstart länger
+        ReflectionTestUtils.setField(replica, "maxLag", Duration.ofMillis(200));
+        
+        // Listener abgemeldet, danach geänderter Speicher: die Kopie bekommt davon nichts mit
+        ((AutoCloseable) ReflectionTestUtils.getField(replica, "registration")).close();
+        withoutReplica.save(TestCars.car("car-neu", "Audi", "A6", 2021, "45000", 12000));
+        Thread.sleep(300);
+        
+        replica.heartbeat();
+        awaitUntil(() -> !Boolean.TRUE.equals(ReflectionTestUtils.getField(replica, "heartbeatRunning")));
+        
+        assertThat(replica.isUsable()).isFalse();
+        assertThat(replica.isLoaded()).isTrue();
+        assertThat(withReplica.count()).isEqualTo(21);
+    }
+    
+    @Test
+    void repositoryAnswersFromReplicaEqualStoreAnswers() throws Exception {
+        List<Car> cars = TestCars.random(400, 24);
+        withoutReplica.saveAll(cars);
+        replica.start();
+        awaitUntil(replica::isUsable);
+        User seller = new User("seller-5", "verkaeufer@example.com", "Max", "Muster", UserType.SELLER);
+        BigDecimal min = new BigDecimal("12000.005");
+        BigDecimal max = new BigDecimal("35000");
+        
+        assertThat(ids(withReplica.findBySellerId("seller-5"))).containsExactlyElementsOf(ids(withoutReplica.findBySellerId("seller-5")));
+        assertThat(ids(withReplica.findByBrandAndModel("BMW", "X5"))).containsExactlyInAnyOrderElementsOf(ids(withoutReplica.findByBrandAndModel("BMW", "X5")));
+        assertThat(ids(withReplica.findBySellerAndStatus(seller, CarStatus.ACTIVE)))
+            .containsExactlyInAnyOrderElementsOf(ids(withoutReplica.findBySellerAndStatus(seller, CarStatus.ACTIVE)));
+        assertThat(ids(withReplica.findByPriceBetween(min, max))).containsExactlyElementsOf(ids(withoutReplica.findByPriceBetween(min, max)));
+        assertThat(ids(withReplica.findByYearBetween(2005, 2012))).containsExactlyElementsOf(ids(withoutReplica.findByYearBetween(2005, 2012)));
+        assertThat(ids(withReplica.findSimilarCars("Audi", min, max, "car-00001")))
+            .containsExactlyElementsOf(ids(withoutReplica.findSimilarCars("Audi", min, max, "car-00001")));
+        assertThat(withReplica.countByStatus(CarStatus.SOLD)).isEqualTo(withoutReplica.countByStatus(CarStatus.SOLD));
+        assertThat(withReplica.countBySellerAndStatus(seller, CarStatus.INACTIVE))
+            .isEqualTo(withoutReplica.countBySellerAndStatus(seller, CarStatus.INACTIVE));
+        assertThat(withReplica.count()).isEqualTo(withoutReplica.count());
+        assertThat(pagedIds(withReplica)).containsExactlyElementsOf(pagedIds(withoutReplica));
+    }
+    
+    @Test
+    void activeCarsAreAvailableWithAndWithoutReplica() throws Exception {
+        Car active = TestCars.car("car-aktiv", "BMW", "3er", 2019, "27450", 48000);
+        Car sold = TestCars.car("car-verkauft", "BMW", "5er", 2018, "31000", 61000);
+        sold.setStatus(CarStatus.SOLD);
+        withoutReplica.saveAll(List.of(active, sold));
+        CarSearchCriteria bmw = new CarSearchCriteria();
+        bmw.setBrand("BMW");
+        
+        assertAvailable(withoutReplica, bmw);
+        
+        replica.start();
+        awaitUntil(replica::isUsable);
+        assertAvailable(withReplica, bmw);
+    }
+    
+    private static void assertAvailable(CarFirestoreRepository repository, CarSearchCriteria criteria) throws Exception {
+        assertThat(ids(repository.findAvailableCars())).containsExactly("car-aktiv");
+        assertThat(ids(repository.searchAvailable(criteria))).containsExactly("car-aktiv");
+        assertThat(ids(await(repository.findAvailableCarsAsync(PageRequest.first(10))).getItems())).containsExactly("car-aktiv");
+        assertThat(await(repository.findAvailableByIdAsync(List.of("car-aktiv", "car-verkauft")))).containsOnlyKeys("car-aktiv");
+    }
+    
+    // Alle Seiten von findAll mit 37 Autos pro Seite
+    private static List<String> pagedIds(CarFirestoreRepository repository) throws Exception {
+        List<String> seen = new ArrayList<>();
+        PageRequest request = PageRequest.first(37);
+        while (true) {
+            Page<Car> page = await(repository.findAllAsync(request));
+            seen.addAll(ids(page.getItems()));
+            if (!page.isHasMore()) {
+                return seen;
+            }
+            request = PageRequest.of(37, page.getNextCursor());
+        }
+    }
+    
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+    
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Bedingung nicht rechtzeitig erfüllt").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
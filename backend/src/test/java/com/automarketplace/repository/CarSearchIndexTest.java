@@ -0,0 +1,318 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarFacets;
+import com.automarketplace.model.CarSearchCriteria;
+import com.automarketplace.model.CarSort;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.service.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * CarSearchIndex gegen eine vollständige Suche ohne Index über dieselben Autos
+ *
+ * Der Index muss für jede Abfrage genau das liefern, was Status + Kriterien
+ * auf der Liste aller Autos ergeben, auch nach inkrementellen Änderungen.
+ */
+class CarSearchIndexTest {
+    
+    private static final String ACTIVE = CarStatus.ACTIVE.name();
+    
+    private CarSearchIndex index;
+    private NavigableMap<String, Car> byId;
+    
+    @BeforeEach
+    void setUp() {
+        index = new CarSearchIndex();
+        byId = new TreeMap<>();
+        upsert(TestCars.random(2000, 42));
+    }
+    
+    @Test
+    void searchMatchesFullScan() {
+        for (CarSearchCriteria criteria : criteria()) {
+            assertThat(ids(index.search(ACTIVE, criteria, null, Integer.MAX_VALUE, byId)))
+                .as(describe(criteria))
+                .containsExactlyElementsOf(scan(ACTIVE, criteria));
+        }
+    }
+    
+    @Test
+    void pagesMatchFullScan() {
+        // Kleine Seiten laufen in ID-Reihenfolge, große Seiten sortieren die Kandidaten
+        for (int limit : new int[] {1, 7, 500}) {
+            for (CarSearchCriteria criteria : criteria()) {
+                assertThat(pageThrough(ACTIVE, criteria, limit))
+                    .as(describe(criteria) + ", limit " + limit)
+                    .containsExactlyElementsOf(scan(ACTIVE, criteria));
+            }
+        }
+    }
+    
+    @Test
+    void otherStatusesAreSeparate() {
+        CarSearchCriteria all = new CarSearchCriteria();
+        
+        for (CarStatus status : CarStatus.values()) {
+            assertThat(ids(index.search(status.name(), all, null, Integer.MAX_VALUE, byId)))
+                .containsExactlyElementsOf(scan(status.name(), all));
+        }
+        assertThat(index.search("UNBEKANNT", all, null, 10, byId)).isEmpty();
+    }
+    
+    @Test
+    void incrementalChangesMatchFullScan() {
+        List<Car> changed = new ArrayList<>();
+        for (Car car : byId.values()) {
+            int n = Integer.parseInt(car.getId().substring(4));
+            if (n % 7 == 0) {
+                Car copy = TestCars.car(car.getId(), n % 2 == 0 ? "Audi" : "Opel", null, car.getYear(),
+                                        null, car.getMileage());
+                copy.setStatus(n % 3 == 0 ? CarStatus.SOLD : CarStatus.ACTIVE);
+                changed.add(copy);
+            }
+        }
+        upsert(changed);
+        
+        Set<String> removed = byId.keySet().stream()
+            .filter(id -> Integer.parseInt(id.substring(4)) % 11 == 0)
+            .collect(Collectors.toSet());
+        remove(removed);
+        
+        // Freigewordene Nummern werden für neue Autos wiederverwendet
+        List<Car> added = TestCars.random(300, 7).stream()
+            .peek(car -> car.setId("neu-" + car.getId()))
+            .collect(Collectors.toList());
+        upsert(added);
+        
+        for (CarSearchCriteria criteria : criteria()) {
+            assertThat(ids(index.search(ACTIVE, criteria, null, Integer.MAX_VALUE, byId)))
+                .as(describe(criteria))
+                .containsExactlyElementsOf(scan(ACTIVE, criteria));
+            assertThat(pageThrough(ACTIVE, criteria, 5))
+                .containsExactlyElementsOf(scan(ACTIVE, criteria));
+        }
+        // Bereichsindexe werden fortgeschrieben statt neu sortiert
+        assertRangesMatchSortedScan();
+    }
+    
+    @Test
+    void rangeBoundsAreInclusive() {
+        Car car = byId.get("car-00000");
+        CarSearchCriteria exact = with(c -> {
+            c.setMinPrice(car.getPrice());
+            c.setMaxPrice(car.getPrice());
+            c.setMinYear(car.getYear());
+            c.setMaxYear(car.getYear());
+            c.setMinMileage(car.getMileage());
+            c.setMaxMileage(car.getMileage());
+        });
+        
+        assertThat(ids(index.search(car.getStatus().name(), exact, null, Integer.MAX_VALUE, byId)))
+            .contains(car.getId())
+            .containsExactlyElementsOf(scan(car.getStatus().name(), exact));
+    }
+    
+    @Test
+    void findInRangeMatchesSortedScan() {
+        assertRangesMatchSortedScan();
+    }
+    
+    @Test
+    void unknownRangeFieldIsRejected() {
+        assertThatThrownBy(() -> index.findInRange("horsepower", 0, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void facetsMatchFullScan() {
+        for (CarSearchCriteria criteria : criteria()) {
+            List<Car> matches = scan(ACTIVE, criteria).stream().map(byId::get).collect(Collectors.toList());
+            CarFacets expected = CarFacets.of(matches);
+            CarFacets actual = index.facets(ACTIVE, criteria);
+            
+            assertThat(actual.getTotal()).as(describe(criteria)).isEqualTo(expected.getTotal());
+            assertThat(actual.getCounts()).as(describe(criteria)).isEqualTo(expected.getCounts());
+            assertThat(actual.getHistograms()).as(describe(criteria))
+                .usingRecursiveComparison()
+                .isEqualTo(expected.getHistograms());
+        }
+    }
+    
+    @Test
+    void sortedSearchMatchesFullSort() {
+        for (String name : TopKSelectionTest.SORTS) {
+            CarSort sort = CarSort.parse(name);
+            for (CarSearchCriteria criteria : criteria()) {
+                List<Car> matches = scan(ACTIVE, criteria).stream().map(byId::get).collect(Collectors.toList());
+                List<String> paged = new ArrayList<>();
+                PageCursor cursor = null;
+                while (true) {
+                    List<Car> page = index.search(ACTIVE, criteria, sort, cursor, 50);
+                    paged.addAll(ids(page));
+                    if (page.size() < 50) {
+                        break;
+                    }
+                    cursor = TopKSelection.cursorAfter(sort, page.get(page.size() - 1));
+                }
+                
+                assertThat(paged)
+                    .as(name + ", " + describe(criteria))
+                    .containsExactlyElementsOf(TopKSelectionTest.fullSort(matches, sort));
+            }
+        }
+    }
+    
+    @Test
+    void clearRemovesEverything() {
+        index.clear();
+        byId.clear();
+        
+        assertThat(index.search(ACTIVE, new CarSearchCriteria(), null, 10, byId)).isEmpty();
+        
+        upsert(List.of(TestCars.car("car-1", "BMW", "3er", 2019, "27450", 48000)));
+        assertThat(ids(index.search(ACTIVE, new CarSearchCriteria(), null, 10, byId))).containsExactly("car-1");
+    }
+    
+    /**
+     * Kriterien mit Teiltreffern, Groß-/Kleinschreibung, fehlenden Werten und ohne Treffer
+     */
+    private static List<CarSearchCriteria> criteria() {
+        List<CarSearchCriteria> criteria = new ArrayList<>();
+        criteria.add(new CarSearchCriteria());
+        criteria.add(with(c -> c.setBrand("b")));
+        criteria.add(with(c -> c.setBrand("ŠKODA")));
+        criteria.add(with(c -> {
+            c.setModel("a");
+            c.setFuelType("diesel");
+        }));
+        criteria.add(with(c -> {
+            c.setTransmission("AUTOMATIK");
+            c.setBodyType("SUV");
+        }));
+        criteria.add(with(c -> {
+            c.setBrand("audi");
+            c.setDrivetrain("Allrad");
+            c.setCondition("neu");
+        }));
+        criteria.add(with(c -> c.setBrand("Tesla")));
+        
+        // Bereiche: Grenzen inklusive, Preise mit Bruchteilen eines Cents, offene Seiten
+        criteria.add(with(c -> {
+            c.setMinPrice(new BigDecimal("20000.005"));
+            c.setMaxPrice(new BigDecimal("45000.999"));
+        }));
+        criteria.add(with(c -> c.setMinYear(2015)));
+        criteria.add(with(c -> c.setMaxMileage(100_000)));
+        criteria.add(with(c -> {
+            c.setBrand("a");
+            c.setMinYear(2010);
+            c.setMaxYear(2010);
+            c.setMinMileage(50_000);
+            c.setMaxPrice(new BigDecimal("60000"));
+        }));
+        criteria.add(with(c -> {
+            c.setMinYear(2020);
+            c.setMaxYear(2019);
+        }));
+        return criteria;
+    }
+    
+    private static CarSearchCriteria with(Consumer<CarSearchCriteria> setup) {
+        CarSearchCriteria criteria = new CarSearchCriteria();
+        setup.accept(criteria);
+        return criteria;
+    }
+    
+    /**
+     * Suche ohne Index: Status und Kriterien auf jedem Auto, sortiert nach ID
+     */
+    private List<String> scan(String status, CarSearchCriteria criteria) {
+        return byId.values().stream()
+            .filter(car -> car.getStatus() != null && car.getStatus().name().equals(status))
+            .filter(criteria.toPredicate())
+            .map(Car::getId)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+    
+    private List<String> pageThrough(String status, CarSearchCriteria criteria, int limit) {
+        List<String> all = new ArrayList<>();
+        String afterId = null;
+        while (true) {
+            List<Car> page = index.search(status, criteria, afterId, limit, byId);
+            assertThat(page.size()).isLessThanOrEqualTo(limit);
+            if (page.isEmpty()) {
+                return all;
+            }
+            all.addAll(ids(page));
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+    
+    /**
+     * findInRange für jedes Feld und einige Bereiche gegen sortierte Autos aus byId
+     */
+    private void assertRangesMatchSortedScan() {
+        Map<String, Function<Car, ? extends Number>> fields = Map.of(
+            "priceCents", Car::getPriceCents,
+            "year", Car::getYear,
+            "mileage", Car::getMileage);
+        long[][] bounds = {{Long.MIN_VALUE, Long.MAX_VALUE}, {2010, 2012}, {3_000_000, 4_500_000}, {0, 20_000}, {5, 4}};
+        
+        for (Map.Entry<String, Function<Car, ? extends Number>> field : fields.entrySet()) {
+            for (long[] range : bounds) {
+                Function<Car, ? extends Number> getter = field.getValue();
+                List<String> expected = byId.values().stream()
+                    .filter(car -> getter.apply(car) != null)
+                    .filter(car -> getter.apply(car).longValue() >= range[0] && getter.apply(car).longValue() <= range[1])
+                    .sorted(Comparator.<Car>comparingLong(car -> getter.apply(car).longValue()).thenComparing(Car::getId))
+                    .map(Car::getId)
+                    .collect(Collectors.toList());
+                
+                assertThat(ids(index.findInRange(field.getKey(), range[0], range[1])))
+                    .as(field.getKey() + " " + Arrays.toString(range))
+                    .containsExactlyElementsOf(expected);
+            }
+        }
+    }
+    
+    private void upsert(List<Car> cars) {
+        Map<String, Car> upserts = new LinkedHashMap<>();
+        cars.forEach(car -> upserts.put(car.getId(), car));
+        byId.putAll(upserts);
+        index.apply(upserts, Set.of());
+    }
+    
+    private void remove(Set<String> ids) {
+        ids.forEach(byId::remove);
+        index.apply(Map.of(), ids);
+    }
+    
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+    
+    private static String describe(CarSearchCriteria criteria) {
+        return "Kriterien " + criteria.valueFilters().keySet() + " " + criteria.rangeFilters().keySet();
+    }
+}
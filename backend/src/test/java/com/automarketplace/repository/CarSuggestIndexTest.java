@@ -0,0 +1,177 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.model.CarSuggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CarSuggestIndex gegen Vorschläge, die direkt aus allen Autos gezählt werden
+ */
+class CarSuggestIndexTest {
+    
+    private static final Predicate<Car> ACTIVE = car -> car.getStatus() == CarStatus.ACTIVE;
+    
+    private static final List<String> PREFIXES = List.of(
+        "b", "a", "BMW", "bmw ", "  Audi   A", "vol", "š", "škoda o", "mercedes-benz c", "o", "tesla");
+    
+    private Map<String, Car> cars;
+    private CarSuggestIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        cars = new TreeMap<>();
+        TestCars.random(1000, 3).forEach(car -> cars.put(car.getId(), car));
+        index = CarSuggestIndex.of(cars.values(), ACTIVE);
+    }
+    
+    @Test
+    void suggestionsMatchCountsOverAllCars() {
+        for (String prefix : PREFIXES) {
+            for (int limit : new int[] {1, 3, 100}) {
+                assertThat(describe(index.suggest(prefix, limit)))
+                    .as("Präfix '" + prefix + "', limit " + limit)
+                    .containsExactlyElementsOf(expected(prefix, limit));
+            }
+        }
+    }
+    
+    @Test
+    void countOnlyChangesPatchTheSnapshot() {
+        // Snapshot aufbauen, dann nur Anzahlen ändern (alle Schlüssel bleiben bestehen)
+        index.suggest("b", 10);
+        Map<String, Car> upserts = new HashMap<>();
+        for (Car car : cars.values()) {
+            if (car.getStatus() == CarStatus.ACTIVE && "BMW".equals(car.getBrand()) && upserts.size() < 5) {
+                Car sold = TestCars.car(car.getId(), car.getBrand(), car.getModel(), car.getYear(), null, null);
+                sold.setStatus(CarStatus.SOLD);
+                upserts.put(sold.getId(), sold);
+            }
+        }
+        apply(upserts, Set.of());
+        
+        for (String prefix : PREFIXES) {
+            assertThat(describe(index.suggest(prefix, 100))).as(prefix).containsExactlyElementsOf(expected(prefix, 100));
+        }
+    }
+    
+    @Test
+    void addedAndRemovedKeysRebuildTheSnapshot() {
+        index.suggest("o", 10);
+        
+        // Alle Opel entfernen, ein neues Modell hinzufügen, Marke eines Autos ändern
+        Set<String> removed = cars.values().stream()
+            .filter(car -> "Opel".equals(car.getBrand()))
+            .map(Car::getId)
+            .collect(Collectors.toSet());
+        Map<String, Car> upserts = new HashMap<>();
+        upserts.put("neu-1", TestCars.car("neu-1", "Tesla", "Model 3", 2022, "40000", 10));
+        Car renamed = TestCars.car("car-00001", "Volkswagen", "Golf", 2018, "15000", 80000);
+        upserts.put(renamed.getId(), renamed);
+        apply(upserts, removed);
+        
+        for (String prefix : PREFIXES) {
+            assertThat(describe(index.suggest(prefix, 100))).as(prefix).containsExactlyElementsOf(expected(prefix, 100));
+        }
+        assertThat(index.suggest("opel", 10)).isEmpty();
+        assertThat(describe(index.suggest("tesla", 10)))
+            .containsExactly("brand:Tesla:1", "brandModel:Tesla Model 3:1");
+    }
+    
+    @Test
+    void unchangedUpsertsLeaveCountsAlone() {
+        List<String> before = describe(index.suggest("a", 100));
+        
+        // Neue Objekte mit gleicher Marke, gleichem Modell und Status
+        Map<String, Car> upserts = new HashMap<>();
+        cars.values().stream().limit(50).forEach(car -> {
+            Car copy = TestCars.car(car.getId(), car.getBrand(), car.getModel(), 2000, "1", 1);
+            copy.setStatus(car.getStatus());
+            upserts.put(copy.getId(), copy);
+        });
+        apply(upserts, Set.of());
+        
+        assertThat(describe(index.suggest("a", 100))).containsExactlyElementsOf(before);
+    }
+    
+    @Test
+    void blankPrefixOrLimitGivesNothing() {
+        assertThat(index.suggest("   ", 10)).isEmpty();
+        assertThat(index.suggest("b", 0)).isEmpty();
+    }
+    
+    @Test
+    void clearEmptiesTheIndex() {
+        index.clear();
+        
+        assertThat(index.suggest("b", 10)).isEmpty();
+    }
+    
+    private void apply(Map<String, Car> upserts, Set<String> removedIds) {
+        cars.putAll(upserts);
+        removedIds.forEach(cars::remove);
+        index.apply(upserts, removedIds);
+    }
+    
+    /**
+     * Erwartete Vorschläge ohne Index: Marke, Modell und "Marke Modell" der aktiven
+     * Autos zählen, nach Präfix filtern, absteigend nach Anzahl, dann nach Schlüssel
+     */
+    private List<String> expected(String prefix, int limit) {
+        Map<String, CarSuggestion> counts = new HashMap<>();
+        for (Car car : cars.values()) {
+            if (!ACTIVE.test(car) || car.getBrand() == null) {
+                continue;
+            }
+            count(counts, CarSuggestion.BRAND, car.getBrand(), null, car.getBrand());
+            if (car.getModel() != null) {
+                count(counts, CarSuggestion.MODEL, car.getBrand(), car.getModel(), car.getModel());
+                count(counts, CarSuggestion.BRAND_MODEL, car.getBrand(), car.getModel(),
+                      car.getBrand() + " " + car.getModel());
+            }
+        }
+        
+        String normalized = normalize(prefix);
+        return counts.values().stream()
+            .filter(suggestion -> normalize(suggestion.getText()).startsWith(normalized))
+            .sorted(Comparator.comparingInt(CarSuggestion::getCount).reversed()
+                .thenComparing(suggestion -> normalize(suggestion.getText())))
+            .limit(limit)
+            .map(CarSuggestIndexTest::describe)
+            .collect(Collectors.toList());
+    }
+    
+    private static void count(Map<String, CarSuggestion> counts, String type, String brand, String model, String text) {
+        counts.merge(type + "|" + brand + "|" + model, new CarSuggestion(text, type, brand, model, 1),
+                     (a, b) -> new CarSuggestion(text, type, brand, model, a.getCount() + 1));
+    }
+    
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private static List<String> describe(List<CarSuggestion> suggestions) {
+        List<String> result = new ArrayList<>(suggestions.size());
+        suggestions.forEach(suggestion -> result.add(describe(suggestion)));
+        return result;
+    }
+    
+    private static String describe(CarSuggestion suggestion) {
+        return suggestion.getType() + ":" + suggestion.getText() + ":" + suggestion.getCount();
+    }
+}
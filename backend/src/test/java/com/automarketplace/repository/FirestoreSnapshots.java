@@ -0,0 +1,92 @@
+package com.automarketplace.repository;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DocumentSnapshots ohne Server erzeugen und den CustomClassMapper des SDK aufrufen
+ *
+ * Beides ist im SDK nur paketintern erreichbar und wird hier per Reflection
+ * aufgerufen (DocumentCodecParityTest, DocumentMappingBenchmark).
+ */
+final class FirestoreSnapshots {
+    
+    private static final String SDK_PACKAGE = "com.google.cloud.firestore.";
+    
+    private static final MethodHandle FROM_OBJECT;
+    private static final MethodHandle CONVERT_TO_PLAIN_JAVA_TYPES;
+    private static final Object NO_DELETES;
+    
+    static {
+        try {
+            Class<?> rpcContext = Class.forName(SDK_PACKAGE + "FirestoreRpcContext");
+            Class<?> converter = Class.forName(SDK_PACKAGE + "UserDataConverter");
+            Class<?> encodingOptions = Class.forName(SDK_PACKAGE + "UserDataConverter$EncodingOptions");
+            Class<?> mapper = Class.forName(SDK_PACKAGE + "CustomClassMapper");
+            
+            Method fromObject = DocumentSnapshot.class.getDeclaredMethod(
+                "fromObject", rpcContext, DocumentReference.class, Map.class, encodingOptions);
+            fromObject.setAccessible(true);
+            Method convert = mapper.getDeclaredMethod("convertToPlainJavaTypes", Object.class);
+            convert.setAccessible(true);
+            Field noDeletes = converter.getDeclaredField("NO_DELETES");
+            noDeletes.setAccessible(true);
+            
+            FROM_OBJECT = MethodHandles.lookup().unreflect(fromObject);
+            CONVERT_TO_PLAIN_JAVA_TYPES = MethodHandles.lookup().unreflect(convert);
+            NO_DELETES = noDeletes.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private FirestoreSnapshots() {}
+    
+    /**
+     * Firestore-Instanz ohne Zugangsdaten; es wird nie eine Verbindung aufgebaut
+     */
+    static Firestore offlineFirestore(String projectId) {
+        // Warnungen "No setter/field for fullName" würden sonst jede Umwandlung begleiten
+        Logger.getLogger(SDK_PACKAGE + "CustomClassMapper").setLevel(Level.OFF);
+        return FirestoreOptions.newBuilder()
+            .setProjectId(projectId)
+            .setCredentials(NoCredentials.getInstance())
+            .build()
+            .getService();
+    }
+    
+    /**
+     * Snapshot mit den Feldern, wie ihn eine Abfrage liefern würde
+     */
+    static DocumentSnapshot snapshot(Firestore firestore, String collection, String documentId,
+                                     Map<String, Object> data) {
+        try {
+            return (DocumentSnapshot) FROM_OBJECT.invoke(firestore, firestore.collection(collection).document(documentId),
+                                                         data, NO_DELETES);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Snapshot konnte nicht erzeugt werden", e);
+        }
+    }
+    
+    /**
+     * Objekt so umwandeln, wie das SDK es beim Schreiben tut (CustomClassMapper)
+     */
+    static Object convertToPlainJavaTypes(Object object) {
+        try {
+            return CONVERT_TO_PLAIN_JAVA_TYPES.invoke(object);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Objekt konnte nicht umgewandelt werden", e);
+        }
+    }
+}
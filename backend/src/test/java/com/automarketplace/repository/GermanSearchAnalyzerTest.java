@@ -0,0 +1,50 @@
+package com.automarketplace.repository;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GermanSearchAnalyzerTest {
+    
+    private final GermanSearchAnalyzer analyzer = new GermanSearchAnalyzer(
+        List.of("sitz", "heizung", "Anhänger", "kupplung", "glas", "dach"));
+    
+    @Test
+    void compoundsKeepTheWholeWordAndAddTheirParts() throws IOException {
+        assertThat(tokens("Sitzheizung")).containsExactly("sitzheizung", "sitz", "heizung");
+        assertThat(tokens("Glasdach")).containsExactly("glasdach", "glas", "dach");
+    }
+    
+    @Test
+    void umlautsAndSharpSAreFoldedInTextAndDictionary() throws IOException {
+        assertThat(tokens("Anhängerkupplung")).contains("anhang", "kupplung");
+        assertThat(tokens("Anhaenger")).contains("anhang");
+        assertThat(tokens("Straße")).isEqualTo(tokens("Strasse"));
+    }
+    
+    @Test
+    void stopWordsAreDroppedAndWordsStemmed() throws IOException {
+        assertThat(tokens("der Golf und die Autos")).containsExactly("golf", "autos");
+        assertThat(tokens("Fahrzeuge")).containsOnly(tokens("Fahrzeug").get(0));
+        assertThat(tokens("BMW 3er")).containsExactly("bmw", "3er");
+    }
+    
+    private List<String> tokens(String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("description", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
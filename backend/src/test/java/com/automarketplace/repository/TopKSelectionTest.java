@@ -0,0 +1,116 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarSort;
+import com.automarketplace.service.PageCursor;
+import org.junit.jupiter.api.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TopKSelection gegen eine vollständige Sortierung aller Autos
+ */
+class TopKSelectionTest {
+    
+    static final List<String> SORTS = List.of(
+        "price", "price,desc", "year", "year,desc", "mileage", "mileage,desc",
+        "horsepower,desc", "createdAt", "createdAt,desc", "brand", "brand,desc");
+    
+    private final List<Car> cars = TestCars.random(1500, 11);
+    
+    @Test
+    void firstKMatchFullSort() {
+        for (String name : SORTS) {
+            CarSort sort = CarSort.parse(name);
+            List<String> expected = fullSort(cars, sort);
+            for (int limit : new int[] {1, 10, 250, 5000}) {
+                TopKSelection selection = new TopKSelection(sort, null, limit, cars.size());
+                cars.forEach(selection::offer);
+                
+                assertThat(ids(selection.result()))
+                    .as(name + ", limit " + limit)
+                    .containsExactlyElementsOf(expected.subList(0, Math.min(limit, expected.size())));
+            }
+        }
+    }
+    
+    @Test
+    void cursorPagesMatchFullSort() {
+        for (String name : SORTS) {
+            CarSort sort = CarSort.parse(name);
+            List<String> paged = new ArrayList<>();
+            PageCursor cursor = null;
+            while (true) {
+                TopKSelection selection = new TopKSelection(sort, cursor, 97, Long.MAX_VALUE);
+                cars.forEach(selection::offer);
+                List<Car> page = selection.result();
+                paged.addAll(ids(page));
+                if (page.size() < 97) {
+                    break;
+                }
+                // Über die kodierte Form, wie beim Client
+                cursor = PageCursor.decode(TopKSelection.cursorAfter(sort, page.get(page.size() - 1)).encode());
+            }
+            
+            assertThat(paged).as(name).containsExactlyElementsOf(fullSort(cars, sort));
+        }
+    }
+    
+    @Test
+    void cursorOfAnotherSortIsRejected() {
+        CarSort price = CarSort.parse("price");
+        PageCursor descending = TopKSelection.cursorAfter(CarSort.parse("price,desc"), cars.get(0));
+        
+        assertThatThrownBy(() -> new TopKSelection(price, descending, 10, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TopKSelection(price, PageCursor.afterDocument("car-00001"), 10, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TopKSelection(price, new PageCursor("price", "teuer", "car-00001"), 10, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TopKSelection(CarSort.parse("brand"), new PageCursor("brand", 5, "car-00001"), 10, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void emptyLimitOrCandidatesGiveEmptyResult() {
+        TopKSelection none = new TopKSelection(CarSort.parse("year"), null, 0, cars.size());
+        cars.forEach(none::offer);
+        TopKSelection noCandidates = new TopKSelection(CarSort.parse("year"), null, 10, 0);
+        
+        assertThat(none.result()).isEmpty();
+        assertThat(noCandidates.result()).isEmpty();
+    }
+    
+    /**
+     * Erwartete Reihenfolge: ganze Liste sortieren (Schlüssel bzw. Collator, fehlende Werte am Ende, dann ID)
+     */
+    static List<String> fullSort(List<Car> cars, CarSort sort) {
+        Comparator<Car> order;
+        if (sort.isText()) {
+            Collator collator = CarSort.collator();
+            Comparator<String> text = collator::compare;
+            if (sort.isDescending()) {
+                text = text.reversed();
+            }
+            order = Comparator.comparing(CarSort::text, Comparator.nullsLast(text));
+        } else {
+            order = Comparator.comparingLong(sort::key);
+        }
+        return cars.stream()
+            .sorted(order.thenComparing(Car::getId))
+            .map(Car::getId)
+            .collect(Collectors.toList());
+    }
+    
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,53 @@
+package com.automarketplace.repository;
+
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.automarketplace.service.BulkWriteResult;
+import com.automarketplace.service.DocumentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserFirestoreRepository mit gemocktem Dokumentenspeicher
+ */
+class UserFirestoreRepositoryTest {
+    
+    private DocumentStore store;
+    private UserFirestoreRepository repository;
+    
+    @BeforeEach
+    void setUp() {
+        store = mock(DocumentStore.class);
+        repository = new UserFirestoreRepository();
+        ReflectionTestUtils.setField(repository, "documentStore", store);
+    }
+    
+    @Test
+    void saveAllAssignsIdsOnlyForSuccessfulWrites() throws Exception {
+        List<User> users = List.of(
+            new User("uid-1", "eins@example.com", "Anna", "Eins", UserType.CUSTOMER),
+            new User("uid-2", "zwei@example.com", "Ben", "Zwei", UserType.SELLER),
+            new User("uid-3", "drei@example.com", "Clara", "Drei", UserType.CUSTOMER));
+        BulkWriteResult result = new BulkWriteResult(List.of(
+            BulkWriteResult.Entry.success("uid-1"),
+            BulkWriteResult.Entry.failure("uid-2", "abgelehnt"),
+            BulkWriteResult.Entry.success("uid-3")));
+        when(store.<User>saveDocumentsAsync(eq("users"), any(), any()))
+            .thenReturn(CompletableFuture.completedFuture(result));
+        
+        assertThat(repository.saveAllAsync(users).get(5, TimeUnit.SECONDS)).isSameAs(result);
+        
+        assertThat(users).extracting(User::getId).containsExactly("uid-1", null, "uid-3");
+    }
+}
@@ -0,0 +1,180 @@
+package com.automarketplace.service;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import com.automarketplace.repository.CarFirestoreRepository;
+import com.automarketplace.repository.CarReplica;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Änderungen an Autos über CarService gegen den eingebetteten Dokumentenspeicher
+ */
+class CarServiceTest {
+    
+    private EmbeddedDocumentStore store;
+    private CarFirestoreRepository carRepository;
+    private CarService carService;
+    
+    @BeforeEach
+    void setUp() {
+        store = TestDocumentStores.embedded();
+        CarFirestoreRepository repository = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(repository, "documentStore", store);
+        carRepository = spy(repository);
+        carService = new CarService(carRepository, mock(UserService.class), Optional.empty());
+        
+        Car car = TestCars.car("car-1", "Audi", "A4", 2020, "31000", 30000);
+        car.setHorsepower(150);
+        carRepository.save(car);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    void statusChangeWritesOnlyStatusFields() throws Exception {
+        Car changed = await(carService.updateCarStatusAsync("car-1", CarStatus.SOLD, "seller-1"));
+        
+        Car stored = carRepository.findById("car-1").orElseThrow();
+        assertThat(changed.getStatus()).isEqualTo(CarStatus.SOLD);
+        assertThat(stored.getStatus()).isEqualTo(CarStatus.SOLD);
+        assertThat(stored.getSoldAt()).isNotNull();
+        // Nicht geschriebene Felder bleiben erhalten
+        assertThat(stored.getHorsepower()).isEqualTo(150);
+        assertThat(stored.getDescription()).isEqualTo("Audi A4");
+    }
+    
+    @Test
+    void otherSellersCannotChangeTheCar() {
+        assertThatThrownBy(() -> carService.updateCarStatus("car-1", CarStatus.SOLD, "seller-2"))
+            .hasMessageContaining("Keine Berechtigung");
+        assertThatThrownBy(() -> await(carService.deleteCarAsync("car-1", "seller-2")))
+            .isInstanceOf(ExecutionException.class)
+            .hasMessageContaining("Keine Berechtigung");
+        
+        assertThat(carRepository.findById("car-1")).get().extracting(Car::getStatus).isEqualTo(CarStatus.ACTIVE);
+    }
+    
+    @Test
+    void concurrentChangeIsRetriedWithFreshVersion() throws Exception {
+        // Beim ersten Schreibversuch ändert jemand anderes das Auto dazwischen
+        doAnswer(invocation -> {
+            store.updateDocument("cars", "car-1", Map.of("mileage", 30500));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(carRepository).updateIfUnchangedAsync(eq("car-1"), anyMap(), any(Instant.class));
+        
+        await(carService.updateCarStatusAsync("car-1", CarStatus.INACTIVE, "seller-1"));
+        
+        verify(carRepository, times(2)).updateIfUnchangedAsync(eq("car-1"), anyMap(), any(Instant.class));
+        Car stored = carRepository.findById("car-1").orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(CarStatus.INACTIVE);
+        assertThat(stored.getMileage()).isEqualTo(30500);
+    }
+    
+    @Test
+    void repeatedConflictReachesTheCaller() {
+        doAnswer(invocation -> {
+            store.updateDocument("cars", "car-1", Map.of("mileage", 30500));
+            return invocation.callRealMethod();
+        }).when(carRepository).updateIfUnchanged(eq("car-1"), anyMap(), any(Instant.class));
+        
+        assertThatThrownBy(() -> carService.updateCarStatus("car-1", CarStatus.SOLD, "seller-1"))
+            .isInstanceOf(DocumentConflictException.class);
+        verify(carRepository, times(2)).updateIfUnchanged(eq("car-1"), anyMap(), any(Instant.class));
+    }
+    
+    @Test
+    void deleteByOwnerRemovesCar() throws Exception {
+        await(carService.deleteCarAsync("car-1", "seller-1"));
+        
+        assertThat(carRepository.existsById("car-1")).isFalse();
+    }
+    
+    @Test
+    void changesWithReplicaWriteWithoutReading() throws Exception {
+        CarReplica replica = startReplica();
+        try {
+            // Die zweite Änderung sieht sofort die Version der ersten, ohne Snapshot abzuwarten
+            carService.updateCarStatus("car-1", CarStatus.INACTIVE, "seller-1");
+            Car changed = await(carService.updateCarStatusAsync("car-1", CarStatus.SOLD, "seller-1"));
+            
+            assertThat(changed.getStatus()).isEqualTo(CarStatus.SOLD);
+            assertThat(changed.getHorsepower()).isEqualTo(150);
+            verify(carRepository).updateIfUnchanged(eq("car-1"), anyMap(), any(Instant.class));
+            verify(carRepository).updateIfUnchangedAsync(eq("car-1"), anyMap(), any(Instant.class));
+            
+            carService.deleteCar("car-1", "seller-1");
+            
+            verify(carRepository, never()).findVersionedById(any());
+            verify(carRepository, never()).findVersionedByIdAsync(any());
+            assertThat(carRepository.existsById("car-1")).isFalse();
+        } finally {
+            replica.stop();
+        }
+    }
+    
+    @Test
+    void staleReplicaVersionIsRetriedWithReadVersion() throws Exception {
+        CarReplica replica = startReplica();
+        try {
+            // Listener abgemeldet: die Änderung im Speicher erreicht das Replikat nicht
+            ((AutoCloseable) ReflectionTestUtils.getField(replica, "registration")).close();
+            store.updateDocument("cars", "car-1", Map.of("mileage", 30500));
+            
+            await(carService.updateCarStatusAsync("car-1", CarStatus.INACTIVE, "seller-1"));
+            
+            verify(carRepository, times(2)).updateIfUnchangedAsync(eq("car-1"), anyMap(), any(Instant.class));
+            verify(carRepository).findVersionedByIdAsync("car-1");
+            Car stored = carRepository.findById("car-1").orElseThrow();
+            assertThat(stored.getStatus()).isEqualTo(CarStatus.INACTIVE);
+            assertThat(stored.getMileage()).isEqualTo(30500);
+        } finally {
+            replica.stop();
+        }
+    }
+    
+    private CarReplica startReplica() throws InterruptedException {
+        CarReplica replica = new CarReplica(store);
+        ReflectionTestUtils.setField(replica, "maxLag", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(replica, "restartDelay", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(carRepository, "carReplica", replica);
+        replica.start();
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!replica.isUsable()) {
+            assertThat(System.nanoTime()).as("Replikat nicht rechtzeitig bereit").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        return replica;
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,108 @@
+package com.automarketplace.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+    
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+    
+    @Test
+    void rejectsWithoutWaitingOnceLimitIsReached() {
+        ConcurrencyLimiter limiter = limiter(2, 1, 10);
+        
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        
+        limiter.release(FAST, false, false);
+        
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+    
+    @Test
+    void overloadAndSlowCallsShrinkLimitMultiplicatively() {
+        ConcurrencyLimiter limiter = limiter(20, 2, 200);
+        
+        limiter.tryAcquire();
+        limiter.release(FAST, true, false);
+        assertThat(limiter.getLimit()).isEqualTo(18);
+        
+        limiter.tryAcquire();
+        limiter.release(SLOW, false, false);
+        assertThat(limiter.getLimit()).isEqualTo(16);
+    }
+    
+    @Test
+    void limitNeverDropsBelowMinimum() {
+        ConcurrencyLimiter limiter = limiter(4, 3, 10);
+        
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, true, false);
+        }
+        
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+    
+    @Test
+    void fastCallsGrowLimitAdditivelyOnlyWhenItIsUsed() {
+        ConcurrencyLimiter limiter = limiter(4, 1, 5);
+        
+        // Ein Aufruf von vier: Grenze nicht ausgelastet, bleibt
+        completeFastCalls(limiter, 20);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        
+        // Mit zwei weiteren laufenden Aufrufen ausgelastet: jede Antwort +1/limit
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        completeFastCalls(limiter, 4);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        completeFastCalls(limiter, 1);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+        
+        // Obergrenze
+        completeFastCalls(limiter, 50);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+    
+    @Test
+    void ignoredReleaseOnlyFreesThePermit() {
+        ConcurrencyLimiter limiter = limiter(10, 1, 20);
+        
+        limiter.tryAcquire();
+        limiter.release(SLOW, true, true);
+        
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+    
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertThat(limiter(500, 2, 200).getLimit()).isEqualTo(200);
+        assertThat(limiter(0, 2, 200).getLimit()).isEqualTo(2);
+    }
+    
+    private static void completeFastCalls(ConcurrencyLimiter limiter, int count) {
+        for (int i = 0; i < count; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(FAST, false, false);
+        }
+    }
+    
+    private static ConcurrencyLimiter limiter(int initial, int min, int max) {
+        FirestoreCallProperties.Bulkhead settings = new FirestoreCallProperties.Bulkhead();
+        settings.setInitialLimit(initial);
+        settings.setMinLimit(min);
+        settings.setMaxLimit(max);
+        settings.setBackoffRatio(0.9);
+        settings.setLatencyThreshold(Duration.ofMillis(500));
+        return new ConcurrencyLimiter("test", settings);
+    }
+}
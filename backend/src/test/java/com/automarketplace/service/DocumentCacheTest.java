@@ -0,0 +1,149 @@
+package com.automarketplace.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentCacheTest {
+    
+    private final Map<String, String> documents = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    // Ladevorgänge ab dem ersten warten hierauf (null = sofort)
+    private volatile CountDownLatch reloads;
+    
+    @Test
+    void secondReadIsServedFromCache() throws Exception {
+        documents.put("car-1", "v1");
+        DocumentCache<String> cache = cache(settings());
+        
+        assertThat(await(cache.get("car-1"))).contains("v1");
+        documents.put("car-1", "v2");
+        assertThat(await(cache.get("car-1"))).contains("v1");
+        
+        assertThat(loads).hasValue(1);
+        assertThat(cache.statistics()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+    
+    @Test
+    void invalidateLoadsCurrentState() throws Exception {
+        documents.put("car-1", "v1");
+        DocumentCache<String> cache = cache(settings());
+        await(cache.get("car-1"));
+        
+        documents.put("car-1", "v2");
+        cache.invalidate("car-1");
+        
+        assertThat(await(cache.get("car-1"))).contains("v2");
+        assertThat(loads).hasValue(2);
+    }
+    
+    @Test
+    void missingDocumentsAreCachedWithTheirOwnTtl() throws Exception {
+        DocumentCache<String> cache = cache(settings());
+        
+        assertThat(await(cache.get("car-1"))).isEmpty();
+        documents.put("car-1", "v1");
+        assertThat(await(cache.get("car-1"))).isEmpty();
+        assertThat(loads).hasValue(1);
+        
+        DocumentCacheProperties.CollectionSettings uncached = settings();
+        uncached.setMissingTtl(Duration.ZERO);
+        DocumentCache<String> withoutMissing = cache(uncached);
+        documents.remove("car-1");
+        
+        assertThat(await(withoutMissing.get("car-1"))).isEmpty();
+        documents.put("car-1", "v1");
+        assertThat(await(withoutMissing.get("car-1"))).contains("v1");
+    }
+    
+    @Test
+    void entriesExpireAfterWrite() throws Exception {
+        documents.put("car-1", "v1");
+        DocumentCacheProperties.CollectionSettings settings = settings();
+        settings.setExpireAfterWrite(Duration.ofMillis(50));
+        DocumentCache<String> cache = cache(settings);
+        await(cache.get("car-1"));
+        
+        documents.put("car-1", "v2");
+        Thread.sleep(100);
+        
+        assertThat(await(cache.get("car-1"))).contains("v2");
+    }
+    
+    @Test
+    void refreshAheadServesOldValueWhileReloading() throws Exception {
+        documents.put("car-1", "v1");
+        DocumentCacheProperties.CollectionSettings settings = settings();
+        settings.setRefreshAfterWrite(Duration.ofMillis(50));
+        DocumentCache<String> cache = cache(settings);
+        await(cache.get("car-1"));
+        
+        documents.put("car-1", "v2");
+        Thread.sleep(100);
+        
+        // Erster Zugriff nach refreshAfterWrite: alter Wert, Reload im Hintergrund
+        reloads = new CountDownLatch(1);
+        assertThat(await(cache.get("car-1"))).contains("v1");
+        assertThat(await(cache.get("car-1"))).contains("v1");
+        reloads.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Optional.of("v2").equals(await(cache.get("car-1"))) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(await(cache.get("car-1"))).contains("v2");
+    }
+    
+    @Test
+    void invalidateAllRemovesEveryGivenId() throws Exception {
+        documents.put("car-1", "v1");
+        documents.put("car-2", "v1");
+        DocumentCache<String> cache = cache(settings());
+        await(cache.get("car-1"));
+        await(cache.get("car-2"));
+        
+        cache.invalidateAll(List.of("car-1", "car-2"));
+        await(cache.get("car-1"));
+        await(cache.get("car-2"));
+        
+        assertThat(loads).hasValue(4);
+    }
+    
+    private DocumentCache<String> cache(DocumentCacheProperties.CollectionSettings settings) {
+        // Wie beim Firestore-Loader: Ergebnis kommt asynchron
+        return new DocumentCache<>("cars", settings, (id, executor) -> CompletableFuture.supplyAsync(() -> {
+            if (loads.incrementAndGet() > 1 && reloads != null) {
+                awaitQuietly(reloads);
+            }
+            return Optional.ofNullable(documents.get(id));
+        }, executor));
+    }
+    
+    // Ohne Refresh, damit kein Hintergrund-Reload die Zählung stört
+    private static DocumentCacheProperties.CollectionSettings settings() {
+        DocumentCacheProperties.CollectionSettings settings = new DocumentCacheProperties.CollectionSettings();
+        settings.setRefreshAfterWrite(null);
+        return settings;
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,51 @@
+package com.automarketplace.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DocumentQueryTest {
+    
+    @Test
+    void collectsFiltersOrdersAndLimit() {
+        DocumentQuery query = DocumentQuery.create()
+            .whereEqualTo("brand", "BMW")
+            .whereGreaterThanOrEqualTo("priceCents", 1_000_000L)
+            .orderBy("priceCents", true)
+            .limit(50);
+        
+        assertThat(query.getFilters()).extracting(DocumentQuery.Filter::getField, DocumentQuery.Filter::getOperator)
+            .containsExactly(
+                tuple("brand", DocumentQuery.Operator.EQUAL),
+                tuple("priceCents", DocumentQuery.Operator.GREATER_THAN_OR_EQUAL));
+        assertThat(query.getOrders()).singleElement()
+            .satisfies(order -> {
+                assertThat(order.getField()).isEqualTo("priceCents");
+                assertThat(order.isDescending()).isTrue();
+            });
+        assertThat(query.getLimit()).isEqualTo(50);
+    }
+    
+    @Test
+    void optionalFiltersWithoutValueAreSkipped() {
+        DocumentQuery query = DocumentQuery.create()
+            .whereIfPresent("year", DocumentQuery.Operator.GREATER_THAN_OR_EQUAL, null)
+            .whereIfPresent("mileage", DocumentQuery.Operator.LESS_THAN_OR_EQUAL, 100_000);
+        
+        assertThat(query.getFilters()).extracting(DocumentQuery.Filter::getField).containsExactly("mileage");
+        assertThat(query.getLimit()).isNull();
+    }
+    
+    @Test
+    void whereInCopiesValues() {
+        List<String> brands = new ArrayList<>(List.of("BMW", "Audi"));
+        DocumentQuery query = DocumentQuery.create().whereIn("brand", brands);
+        brands.add("Opel");
+        
+        assertThat(query.getFilters().get(0).getValue()).isEqualTo(List.of("BMW", "Audi"));
+    }
+}
@@ -0,0 +1,299 @@
+package com.automarketplace.service;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.model.CarStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedDocumentStoreTest {
+    
+    private static final String CARS = "cars";
+    
+    private EmbeddedDocumentStore store;
+    
+    @BeforeEach
+    void setUp() {
+        store = TestDocumentStores.embedded();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    void streamDeliversEachMatchingDocumentOnce() throws Exception {
+        List<Car> cars = saveRandomCars(300);
+        List<String> streamed = new ArrayList<>();
+        
+        await(store.streamDocumentsAsync(CARS, "status", CarStatus.SOLD.name(), Car.class,
+                                         car -> streamed.add(car.getId())));
+        
+        assertThat(streamed).containsExactlyElementsOf(cars.stream()
+            .filter(car -> car.getStatus() == CarStatus.SOLD)
+            .map(Car::getId)
+            .collect(Collectors.toList()));
+    }
+    
+    @Test
+    void streamWithoutFieldCoversWholeCollection() throws Exception {
+        saveRandomCars(120);
+        List<Car> streamed = new ArrayList<>();
+        
+        await(store.streamDocumentsAsync(CARS, null, null, Car.class, streamed::add));
+        
+        assertThat(streamed).hasSize(120);
+        assertThat(streamed).allSatisfy(car -> assertThat(car.getId()).startsWith("car-"));
+    }
+    
+    @Test
+    void filterKeepsOnlyMatches() throws Exception {
+        List<Car> cars = saveRandomCars(300);
+        
+        List<Car> matches = await(store.filterDocumentsAsync(CARS, "status", CarStatus.ACTIVE.name(), Car.class,
+                                                             car -> "BMW".equals(car.getBrand())));
+        
+        assertThat(matches).extracting(Car::getId).containsExactlyElementsOf(cars.stream()
+            .filter(car -> car.getStatus() == CarStatus.ACTIVE && "BMW".equals(car.getBrand()))
+            .map(Car::getId)
+            .collect(Collectors.toList()));
+    }
+    
+    @Test
+    void countMatchesQueryAndRespectsLimit() throws Exception {
+        List<Car> cars = saveRandomCars(300);
+        DocumentQuery query = DocumentQuery.create()
+            .whereEqualTo("brand", "Audi")
+            .whereLessThan("mileage", 100_000);
+        long expected = cars.stream()
+            .filter(car -> "Audi".equals(car.getBrand()) && car.getMileage() != null && car.getMileage() < 100_000)
+            .count();
+        
+        assertThat(await(store.countDocumentsAsync(CARS, query))).isEqualTo(expected);
+        assertThat(store.countDocuments(CARS, query.limit(3))).isEqualTo(Math.min(3, expected));
+        assertThat(store.countDocuments(CARS, null, null)).isEqualTo(300);
+        assertThat(store.countDocuments("leer", null, null)).isZero();
+    }
+    
+    @Test
+    void documentsWithoutFilterOrSortFieldAreExcluded() {
+        put("a", Map.of("n", 1));
+        put("b", Map.of("anderes", 2));
+        
+        assertThat(ids(DocumentQuery.create().whereGreaterThanOrEqualTo("n", 0))).containsExactly("a");
+        assertThat(ids(DocumentQuery.create().orderBy("n"))).containsExactly("a");
+        assertThat(ids(DocumentQuery.create())).containsExactly("a", "b");
+    }
+    
+    @Test
+    void numbersCompareAcrossTypesButRangesOnlyWithinType() {
+        put("int", Map.of("n", 5));
+        put("long", Map.of("n", 7L));
+        put("double", Map.of("n", 6.5));
+        put("text", Map.of("n", "6"));
+        put("bool", Map.of("n", true));
+        
+        assertThat(ids(DocumentQuery.create().whereGreaterThan("n", 5L))).containsExactlyInAnyOrder("long", "double");
+        assertThat(ids(DocumentQuery.create().whereEqualTo("n", 5.0))).containsExactly("int");
+        assertThat(ids(DocumentQuery.create().whereLessThan("n", "9"))).containsExactly("text");
+        // Sortierung über Typgrenzen: Boolean < Zahl < String
+        assertThat(ids(DocumentQuery.create().orderBy("n"))).containsExactly("bool", "int", "double", "long", "text");
+    }
+    
+    @Test
+    void inAndArrayContainsMatchElements() {
+        put("a", Map.of("farbe", "rot", "tags", List.of("neu", "garantie")));
+        put("b", Map.of("farbe", "blau", "tags", List.of("unfallfrei")));
+        
+        assertThat(ids(DocumentQuery.create().whereIn("farbe", List.of("blau", "grün")))).containsExactly("b");
+        assertThat(ids(DocumentQuery.create().whereArrayContains("tags", "garantie"))).containsExactly("a");
+    }
+    
+    @Test
+    void descendingOrderBreaksTiesByIdDescendingAndRespectsLimit() {
+        put("a", Map.of("n", 1));
+        put("b", Map.of("n", 2));
+        put("c", Map.of("n", 2));
+        put("d", Map.of("n", 3));
+        
+        assertThat(ids(DocumentQuery.create().orderBy("n", true))).containsExactly("d", "c", "b", "a");
+        assertThat(ids(DocumentQuery.create().orderBy("n").limit(3))).containsExactly("a", "b", "c");
+    }
+    
+    @Test
+    void orderedPagesContinueAfterCursorValueAndId() throws Exception {
+        List<Car> cars = saveRandomCars(150);
+        List<String> seen = new ArrayList<>();
+        PageRequest request = PageRequest.first(16);
+        while (true) {
+            Page<Car> page = await(store.queryPageAsync(CARS, "status", CarStatus.ACTIVE.name(), "mileage",
+                                                        request, null, Car.class));
+            page.getItems().forEach(car -> seen.add(car.getId()));
+            if (!page.isHasMore()) {
+                break;
+            }
+            request = PageRequest.of(16, page.getNextCursor());
+        }
+        
+        // Gespeichertes null ist ein Wert und steht wie bei Firestore vorn
+        assertThat(seen).containsExactlyElementsOf(cars.stream()
+            .filter(car -> car.getStatus() == CarStatus.ACTIVE)
+            .sorted(Comparator.comparing(Car::getMileage, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                .thenComparing(Car::getId))
+            .map(Car::getId)
+            .collect(Collectors.toList()));
+    }
+    
+    @Test
+    void cursorOfAnotherOrderIsRejected() {
+        PageRequest request = PageRequest.of(10, new PageCursor("year", 2020, "car-00001").encode());
+        
+        assertThatThrownBy(() -> store.queryPageAsync(CARS, null, null, "mileage", request, null, Car.class))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void operationsCompleteOffTheCallerThread() throws Exception {
+        // Mit Latenz hängt thenApply() sicher vor dem Abschluss am Future
+        EmbeddedDocumentStore slow = TestDocumentStores.embedded(null, Duration.ofMillis(50));
+        try {
+            Thread completedIn = await(slow.countDocumentsAsync(CARS, DocumentQuery.create())
+                .thenApply(count -> Thread.currentThread()));
+            
+            assertThat(completedIn).isNotSameAs(Thread.currentThread());
+            assertThat(completedIn.getName()).startsWith("document-store-");
+        } finally {
+            slow.close();
+        }
+    }
+    
+    @Test
+    void updateTimesIncreaseStrictly() {
+        put("a", Map.of("n", 1));
+        Instant saved = store.getVersionedDocument("werte", "a", Map.class).getUpdateTime();
+        Instant updated = store.updateDocumentIfUnchanged("werte", "a", Map.of("n", 2), saved);
+        
+        assertThat(updated).isAfter(saved);
+    }
+    
+    @Test
+    void watchDeliversSnapshotThenChanges() throws Exception {
+        saveRandomCars(10);
+        BlockingQueue<Map<String, Car>> upserts = new LinkedBlockingQueue<>();
+        BlockingQueue<Set<String>> removals = new LinkedBlockingQueue<>();
+        
+        try (AutoCloseable registration = store.watchCollection(CARS, Car.class, new CollectionListener<>() {
+            @Override
+            public void onChanges(Map<String, Car> changed, Set<String> removed, Instant readTime) {
+                upserts.add(changed);
+                removals.add(removed);
+            }
+            
+            @Override
+            public void onError(Throwable error) {}
+        })) {
+            assertThat(upserts.poll(5, TimeUnit.SECONDS)).hasSize(10);
+            assertThat(removals.poll(5, TimeUnit.SECONDS)).isEmpty();
+            
+            store.updateDocument(CARS, "car-00002", Map.of("mileage", 1));
+            store.deleteDocument(CARS, "car-00003");
+            
+            assertThat(upserts.poll(5, TimeUnit.SECONDS)).containsOnlyKeys("car-00002")
+                .extractingByKey("car-00002").extracting(Car::getMileage).isEqualTo(1);
+            assertThat(removals.poll(5, TimeUnit.SECONDS)).isEmpty();
+            assertThat(upserts.poll(5, TimeUnit.SECONDS)).isEmpty();
+            assertThat(removals.poll(5, TimeUnit.SECONDS)).containsExactly("car-00003");
+        }
+        
+        // Nach dem Abmelden keine Benachrichtigungen mehr
+        store.deleteDocument(CARS, "car-00004");
+        assertThat(upserts.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+    
+    @Test
+    void closedStoreRejectsWatches() {
+        store.close();
+        
+        assertThatThrownBy(() -> store.watchCollection(CARS, Car.class, new CollectionListener<>() {
+            @Override
+            public void onChanges(Map<String, Car> changed, Set<String> removed, Instant readTime) {}
+            
+            @Override
+            public void onError(Throwable error) {}
+        })).isInstanceOf(IllegalStateException.class);
+    }
+    
+    @Test
+    void dataFileIsReplayedAndCompacted(@TempDir Path directory) throws Exception {
+        Path dataFile = directory.resolve("daten").resolve("store.jsonl");
+        EmbeddedDocumentStore persistent = TestDocumentStores.embedded(dataFile, Duration.ZERO);
+        persistent.saveDocuments(CARS, TestCars.random(5, 42), Car::getId);
+        persistent.updateDocument(CARS, "car-00001", Map.of("mileage", 1));
+        persistent.deleteDocument(CARS, "car-00002");
+        Instant lastWrite = persistent.getVersionedDocument(CARS, "car-00001", Car.class).getUpdateTime();
+        persistent.close();
+        // Absturz mitten im Schreiben: unvollständige letzte Zeile
+        Files.writeString(dataFile, "{\"op\":\"put\",\"coll", StandardOpenOption.APPEND);
+        
+        EmbeddedDocumentStore reopened = TestDocumentStores.embedded(dataFile, Duration.ZERO);
+        try {
+            assertThat(reopened.getAllDocuments(CARS, Car.class)).extracting(Car::getId)
+                .containsExactly("car-00000", "car-00001", "car-00003", "car-00004");
+            assertThat(reopened.getDocument(CARS, "car-00001", Car.class).getMileage()).isEqualTo(1);
+            assertThat(reopened.getVersionedDocument(CARS, "car-00001", Car.class).getUpdateTime()).isEqualTo(lastWrite);
+            // Verdichtet: eine Zeile pro Dokument
+            assertThat(Files.readAllLines(dataFile)).hasSize(4);
+            
+            reopened.saveDocument(CARS, "car-00009", TestCars.car("car-00009", "Opel", "Astra", 2015, "9900", 120000));
+            assertThat(reopened.getVersionedDocument(CARS, "car-00009", Car.class).getUpdateTime()).isAfter(lastWrite);
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    // Dokumente ohne Klasse: die ID steht zusätzlich im Feld "key"
+    private void put(String documentId, Map<String, Object> fields) {
+        Map<String, Object> data = new HashMap<>(fields);
+        data.put("key", documentId);
+        store.saveDocument("werte", documentId, data);
+    }
+    
+    private List<String> ids(DocumentQuery query) {
+        return store.queryDocuments("werte", query, Map.class).stream()
+            .map(document -> (String) document.get("key"))
+            .collect(Collectors.toList());
+    }
+    
+    private List<Car> saveRandomCars(int count) {
+        List<Car> cars = TestCars.random(count, 42);
+        store.saveDocuments(CARS, cars, Car::getId);
+        return cars;
+    }
+    
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+}
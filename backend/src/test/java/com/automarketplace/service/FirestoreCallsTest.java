@@ -0,0 +1,350 @@
+package com.automarketplace.service;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.spy;
+
+/**
+ * FirestoreCalls mit SettableApiFuture statt echter RPCs
+ */
+class FirestoreCallsTest {
+    
+    private SimpleMeterRegistry registry;
+    private FirestoreCallProperties properties;
+    private FirestoreCalls calls;
+    
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new FirestoreCallProperties();
+        properties.getBulkheads().setEnabled(false);
+        
+        FirestoreCallProperties.OperationSettings get = new FirestoreCallProperties.OperationSettings();
+        get.setHedge(true);
+        properties.getOperations().put("get", get);
+        
+        FirestoreCallProperties.Hedging hedging = properties.getHedging();
+        hedging.setMinSamples(3);
+        hedging.setMinDelay(Duration.ofMillis(30));
+        hedging.setMaxDelay(Duration.ofMillis(30));
+        hedging.setMaxRatio(1.0);
+        
+        calls = new FirestoreCalls(new FirestoreMetrics(registry), properties, registry, Optional.empty());
+    }
+    
+    @Test
+    void operationTimeoutFailsWithDeadlineExceededAndCancelsRpc() {
+        properties.setTimeout(Duration.ofMillis(50));
+        SettableApiFuture<String> rpc = SettableApiFuture.create();
+        
+        CompletableFuture<String> result = calls.call("cars", "query", () -> rpc);
+        
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(DeadlineExceededException.class);
+        awaitUntil(rpc::isCancelled);
+        assertThat(registry.get("firestore.deadline.exceeded").tags("collection", "cars", "operation", "query")
+            .counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void exhaustedRequestBudgetFailsWithoutCallingFirestore() {
+        AtomicInteger started = new AtomicInteger();
+        
+        CompletableFuture<String> result = RequestDeadline.callWith(System.nanoTime() - 1,
+            () -> calls.call("cars", "query", () -> {
+                started.incrementAndGet();
+                return ApiFutures.immediateFuture("zu spät");
+            }));
+        
+        assertThat(result).isCompletedExceptionally();
+        assertThatThrownBy(result::join).hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(started).hasValue(0);
+    }
+    
+    @Test
+    void requestBudgetShortensOperationTimeout() {
+        SettableApiFuture<String> rpc = SettableApiFuture.create();
+        long started = System.nanoTime();
+        
+        CompletableFuture<String> result = RequestDeadline.callWith(started + TimeUnit.MILLISECONDS.toNanos(50),
+            () -> calls.call("cars", "query", () -> rpc));
+        
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(properties.getTimeout());
+        awaitUntil(rpc::isCancelled);
+    }
+    
+    @Test
+    void dependentStagesSeeTheCallersDeadline() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        SettableApiFuture<String> rpc = SettableApiFuture.create();
+        AtomicReference<Long> seen = new AtomicReference<>();
+        
+        CompletableFuture<String> result = RequestDeadline.callWith(deadline,
+            () -> calls.call("cars", "get", () -> rpc))
+            .thenApply(value -> {
+                seen.set(RequestDeadline.current());
+                return value;
+            });
+        
+        // Antwort aus einem fremden Thread ohne Deadline, wie im gRPC-Executor
+        new Thread(() -> rpc.set("ok")).start();
+        
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(seen.get()).isEqualTo(deadline);
+        assertThat(RequestDeadline.current()).isNull();
+    }
+    
+    @Test
+    void callbackExecutorCompletesFuturesWithTheCallersDeadline() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "callbacks"));
+        try {
+            FirestoreCalls withExecutor = new FirestoreCalls(new FirestoreMetrics(registry), properties, registry,
+                                                             Optional.of(executor));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            AtomicReference<String> thread = new AtomicReference<>();
+            AtomicReference<Long> seen = new AtomicReference<>();
+            
+            CompletableFuture<String> result = RequestDeadline.callWith(deadline,
+                () -> withExecutor.call("cars", "get", () -> rpc))
+                .thenApply(value -> {
+                    thread.set(Thread.currentThread().getName());
+                    seen.set(RequestDeadline.current());
+                    return value;
+                });
+            rpc.set("ok");
+            
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+            assertThat(thread.get()).isEqualTo("callbacks");
+            assertThat(seen.get()).isEqualTo(deadline);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void slowFirstAttemptIsHedgedAndSecondResponseWins() throws Exception {
+        warmUp("get");
+        List<SettableApiFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        
+        CompletableFuture<String> result = calls.hedged("cars", "get", () -> {
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            if (!attempts.isEmpty()) {
+                rpc.set("zweiter");
+            }
+            attempts.add(rpc);
+            return rpc;
+        });
+        
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("zweiter");
+        assertThat(attempts).hasSize(2);
+        // Der Verlierer wird erst nach dem Abschluss des Ergebnisses abgebrochen
+        awaitUntil(() -> attempts.get(0).isCancelled());
+        assertThat(hedges("sent")).isEqualTo(1);
+        assertThat(hedges("won")).isEqualTo(1);
+    }
+    
+    @Test
+    void firstAttemptAnsweringAfterTheHedgeCancelsTheHedge() throws Exception {
+        warmUp("get");
+        List<SettableApiFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        
+        CompletableFuture<String> result = calls.hedged("cars", "get", () -> {
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            attempts.add(rpc);
+            return rpc;
+        });
+        awaitAttempts(attempts, 2);
+        attempts.get(0).set("erster");
+        
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("erster");
+        awaitUntil(() -> attempts.get(1).isCancelled());
+        assertThat(hedges("lost")).isEqualTo(1);
+    }
+    
+    @Test
+    void failedAttemptWaitsForTheOtherOne() throws Exception {
+        warmUp("get");
+        List<SettableApiFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        
+        CompletableFuture<String> result = calls.hedged("cars", "get", () -> {
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            attempts.add(rpc);
+            return rpc;
+        });
+        awaitAttempts(attempts, 2);
+        attempts.get(0).setException(new IllegalStateException("erster gescheitert"));
+        assertThat(result).isNotDone();
+        attempts.get(1).set("zweiter");
+        
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("zweiter");
+    }
+    
+    @Test
+    void firstAttemptFailingWhileTheHedgeIsRejectedFailsTheResult() throws Exception {
+        useBulkheads(10);
+        warmUp("get");
+        List<SettableApiFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        
+        // Der erste Versuch scheitert genau in dem Moment, in dem das Bulkhead den zweiten ablehnt
+        @SuppressWarnings("unchecked")
+        Map<String, ConcurrencyLimiter> bulkheads = (Map<String, ConcurrencyLimiter>) ReflectionTestUtils.getField(calls, "bulkheads");
+        ConcurrencyLimiter limiter = spy(bulkheads.get("cars-read"));
+        doCallRealMethod().doAnswer(invocation -> {
+            attempts.get(0).setException(new IllegalStateException("erster gescheitert"));
+            return false;
+        }).when(limiter).tryAcquire();
+        bulkheads.put("cars-read", limiter);
+        
+        CompletableFuture<String> result = calls.hedged("cars", "get", () -> {
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            attempts.add(rpc);
+            return rpc;
+        });
+        
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+            .hasRootCauseInstanceOf(IllegalStateException.class)
+            .hasRootCauseMessage("erster gescheitert");
+        assertThat(attempts).hasSize(1);
+        assertThat(hedges("sent")).isZero();
+    }
+    
+    @Test
+    void noHedgeWithoutBudgetOrForOtherOperations() throws Exception {
+        properties.getHedging().setMaxRatio(0);
+        warmUp("get");
+        warmUp("query");
+        AtomicInteger started = new AtomicInteger();
+        
+        for (String operation : List.of("get", "query")) {
+            SettableApiFuture<String> rpc = SettableApiFuture.create();
+            CompletableFuture<String> result = calls.hedged("cars", operation, () -> {
+                started.incrementAndGet();
+                return rpc;
+            });
+            Thread.sleep(150);
+            rpc.set("ok");
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        }
+        
+        assertThat(started).hasValue(2);
+        assertThat(registry.find("firestore.hedge").counters()).allMatch(counter -> counter.count() == 0);
+    }
+    
+    @Test
+    void fullBulkheadRejectsImmediatelyAndOtherPoolsStayOpen() throws Exception {
+        useBulkheads(1);
+        SettableApiFuture<String> slow = SettableApiFuture.create();
+        AtomicInteger started = new AtomicInteger();
+        
+        CompletableFuture<String> first = calls.call("cars", "query", () -> slow);
+        CompletableFuture<String> rejected = calls.call("cars", "get", () -> {
+            started.incrementAndGet();
+            return ApiFutures.immediateFuture("nie");
+        });
+        
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(ConcurrencyLimitExceededException.find(catchCause(rejected)).getRetryAfter())
+            .isEqualTo(Duration.ofSeconds(3));
+        assertThat(started).hasValue(0);
+        assertThat(registry.get("firestore.bulkhead.rejected").tag("pool", "cars-read").counter().count()).isEqualTo(1);
+        
+        // Andere Collection und Schreibzugriffe haben eigene Genehmigungen
+        assertThat(calls.call("users", "get", () -> ApiFutures.immediateFuture("user")).get(5, TimeUnit.SECONDS))
+            .isEqualTo("user");
+        assertThat(calls.call("cars", "save", () -> ApiFutures.immediateFuture("gespeichert")).get(5, TimeUnit.SECONDS))
+            .isEqualTo("gespeichert");
+        
+        slow.set("ok");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(calls.call("cars", "get", () -> ApiFutures.immediateFuture("wieder")).get(5, TimeUnit.SECONDS))
+            .isEqualTo("wieder");
+    }
+    
+    @Test
+    void timeoutsShrinkTheBulkheadAndReleaseThePermit() {
+        useBulkheads(10);
+        properties.setTimeout(Duration.ofMillis(20));
+        
+        CompletableFuture<String> timedOut = calls.call("cars", "query", SettableApiFuture::create);
+        
+        assertThatThrownBy(() -> timedOut.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DeadlineExceededException.class);
+        awaitUntil(() -> registry.get("firestore.bulkhead.inflight").tag("pool", "cars-read").gauge().value() == 0);
+        assertThat(registry.get("firestore.bulkhead.limit").tag("pool", "cars-read").gauge().value()).isEqualTo(9);
+    }
+    
+    private void useBulkheads(int limit) {
+        FirestoreCallProperties.Bulkheads bulkheads = properties.getBulkheads();
+        bulkheads.setEnabled(true);
+        bulkheads.setRetryAfter(Duration.ofSeconds(3));
+        bulkheads.getDefaults().setInitialLimit(limit);
+        bulkheads.getDefaults().setMinLimit(1);
+    }
+    
+    private static Throwable catchCause(CompletableFuture<?> future) {
+        try {
+            future.join();
+            throw new AssertionError("Future ohne Fehler abgeschlossen");
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+    
+    /**
+     * Genug schnelle Messwerte, damit das Hedging einsetzt (Verzögerung = min-delay)
+     */
+    private void warmUp(String operation) {
+        for (int i = 0; i < properties.getHedging().getMinSamples(); i++) {
+            calls.hedged("cars", operation, () -> ApiFutures.immediateFuture("warm")).join();
+        }
+    }
+    
+    private static void awaitAttempts(List<?> attempts, int count) {
+        awaitUntil(() -> attempts.size() >= count);
+        assertThat(attempts).hasSize(count);
+    }
+    
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Bedingung nicht rechtzeitig erfüllt").isLessThan(deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    private double hedges(String result) {
+        Counter counter = registry.find("firestore.hedge").tags("operation", "get", "result", result).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.automarketplace.service;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FirestoreMetricsTest {
+    
+    private SimpleMeterRegistry registry;
+    private FirestoreMetrics metrics;
+    
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new FirestoreMetrics(registry);
+        ReflectionTestUtils.setField(metrics, "sizeSampleRate", 1.0);
+    }
+    
+    @Test
+    void successfulCallIsTimedAndLeavesNothingInFlight() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        
+        CompletableFuture<String> recorded = metrics.recordAsync("cars", "get", () -> pending);
+        assertThat(inFlight("cars", "get")).isEqualTo(1);
+        
+        pending.complete("ok");
+        
+        assertThat(recorded.join()).isEqualTo("ok");
+        assertThat(inFlight("cars", "get")).isZero();
+        assertThat(registry.get("firestore.operation").tags("collection", "cars", "operation", "get", "outcome", "success")
+            .timer().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void failedCallCountsErrorByGrpcStatus() {
+        RuntimeException notFound = ApiExceptionFactory.createException(
+            new RuntimeException("fehlt"), GrpcStatusCode.of(Status.Code.NOT_FOUND), false);
+        
+        CompletableFuture<Object> recorded = metrics.recordAsync("cars", "update",
+            () -> CompletableFuture.failedFuture(new CompletionException(notFound)));
+        
+        assertThat(recorded).isCompletedExceptionally();
+        assertThat(registry.get("firestore.operation").tags("operation", "update", "outcome", "error").timer().count())
+            .isEqualTo(1);
+        assertThat(registry.get("firestore.errors").tags("operation", "update", "status", "NOT_FOUND").counter().count())
+            .isEqualTo(1);
+    }
+    
+    @Test
+    void exceptionWhileStartingCallIsRecordedAsFailure() {
+        CompletableFuture<Object> recorded = metrics.recordAsync("cars", "query", () -> {
+            throw new IllegalStateException("kein Client");
+        });
+        
+        assertThat(recorded).isCompletedExceptionally();
+        assertThat(inFlight("cars", "query")).isZero();
+        assertThat(registry.get("firestore.errors").tags("operation", "query", "status", "UNKNOWN").counter().count())
+            .isEqualTo(1);
+    }
+    
+    @Test
+    void documentSizeFollowsFirestoreRules() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("brand", "BMW");
+        data.put("year", 2020L);
+        data.put("features", List.of("Navi", "AHK"));
+        DocumentSnapshot document = snapshot("cars/car-1", data);
+        
+        // 32 + "cars"+1 + "car-1"+1 + 16, Felder: brand+1 + "BMW"+1, year+1 + 8, features+1 + (4+1) + (3+1)
+        assertThat(FirestoreMetrics.estimateSize(document)).isEqualTo(59 + 10 + 13 + 18);
+    }
+    
+    @Test
+    void readDocumentsAreCountedAndSized() {
+        metrics.documentsRead("cars", "query", List.of(
+            snapshot("cars/a", Map.of("n", 1L)),
+            snapshot("cars/b", Map.of("n", 2L))));
+        
+        assertThat(registry.get("firestore.documents").tags("operation", "query").summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get("firestore.document.size").tags("operation", "query").summary().count()).isEqualTo(2);
+        assertThat(registry.get("firestore.read.bytes").tags("operation", "query").counter().count())
+            .isEqualTo(2 * (32 + 5 + 2 + 16 + 2 + 8));
+    }
+    
+    private double inFlight(String collection, String operation) {
+        return registry.get("firestore.inflight").tags("collection", collection, "operation", operation).gauge().value();
+    }
+    
+    private static DocumentSnapshot snapshot(String path, Map<String, Object> data) {
+        DocumentReference reference = mock(DocumentReference.class);
+        when(reference.getPath()).thenReturn(path);
+        DocumentSnapshot document = mock(DocumentSnapshot.class);
+        when(document.exists()).thenReturn(true);
+        when(document.getReference()).thenReturn(reference);
+        when(document.getData()).thenReturn(data);
+        return document;
+    }
+}
@@ -0,0 +1,97 @@
+package com.automarketplace.service;
+
+import com.automarketplace.repository.UserFirestoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class LoginActivityBufferTest {
+    
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0);
+    
+    private UserFirestoreRepository userRepository;
+    private LoginActivityBuffer buffer;
+    
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserFirestoreRepository.class);
+        buffer = new LoginActivityBuffer(userRepository);
+    }
+    
+    @Test
+    void flushWritesLatestLoginPerUserAsOnePartialUpdate() {
+        when(userRepository.updateAll(any())).thenAnswer(invocation -> succeeded(invocation.getArgument(0)));
+        buffer.recordLogin("uid-1", T0.plusMinutes(5));
+        buffer.recordLogin("uid-1", T0);
+        buffer.recordLogin("uid-2", T0);
+        
+        buffer.flush();
+        
+        assertThat(updates()).containsOnly(
+            Map.entry("uid-1", Map.of("lastLoginAt", T0.plusMinutes(5))),
+            Map.entry("uid-2", Map.of("lastLoginAt", T0)));
+        assertThat(buffer.getPendingCount()).isZero();
+    }
+    
+    @Test
+    void emptyBufferWritesNothing() {
+        buffer.flush();
+        
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    void failedFlushKeepsLoginsForNextAttempt() {
+        when(userRepository.updateAll(any()))
+            .thenThrow(new RuntimeException("nicht erreichbar"))
+            .thenAnswer(invocation -> succeeded(invocation.getArgument(0)));
+        buffer.recordLogin("uid-1", T0);
+        
+        buffer.flush();
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+        
+        // Neuerer Login zwischen den Versuchen gewinnt
+        buffer.recordLogin("uid-1", T0.plusMinutes(1));
+        buffer.flush();
+        
+        verify(userRepository, times(2)).updateAll(any());
+        assertThat(buffer.getPendingCount()).isZero();
+    }
+    
+    @Test
+    void failedDocumentsAreNotRetried() {
+        when(userRepository.updateAll(any())).thenReturn(new BulkWriteResult(List.of(
+            BulkWriteResult.Entry.failure("uid-geloescht", "NOT_FOUND"))));
+        buffer.recordLogin("uid-geloescht", T0);
+        
+        buffer.flush();
+        
+        assertThat(buffer.getPendingCount()).isZero();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> updates() {
+        ArgumentCaptor<Map<String, Map<String, Object>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(userRepository).updateAll(captor.capture());
+        return captor.getValue();
+    }
+    
+    private static BulkWriteResult succeeded(Map<String, ?> updates) {
+        return new BulkWriteResult(updates.keySet().stream()
+            .map(BulkWriteResult.Entry::success)
+            .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.automarketplace.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+    
+    @Test
+    void roundTripKeepsOrderByValueAndDocumentId() {
+        PageCursor decoded = PageCursor.decode(new PageCursor("brand", "Škoda Octavia", "car-7").encode());
+        
+        assertThat(decoded.getOrderBy()).isEqualTo("brand");
+        assertThat(decoded.getValue()).isEqualTo("Škoda Octavia");
+        assertThat(decoded.getDocumentId()).isEqualTo("car-7");
+    }
+    
+    @Test
+    void roundTripKeepsNumbersAndBooleans() {
+        PageCursor price = PageCursor.decode(new PageCursor("priceCents", 2_745_000_000L, "car-1").encode());
+        PageCursor score = PageCursor.decode(new PageCursor("_score", 1.25f, "car-2").encode());
+        PageCursor flag = PageCursor.decode(new PageCursor("accidentFree", true, "car-3").encode());
+        
+        assertThat(((Number) price.getValue()).longValue()).isEqualTo(2_745_000_000L);
+        assertThat(((Number) score.getValue()).floatValue()).isEqualTo(1.25f);
+        assertThat(flag.getValue()).isEqualTo(true);
+    }
+    
+    @Test
+    void afterDocumentHasNoOrderBy() {
+        PageCursor decoded = PageCursor.decode(PageCursor.afterDocument("car-9").encode());
+        
+        assertThat(decoded.getOrderBy()).isNull();
+        assertThat(decoded.getValue()).isNull();
+        assertThat(decoded.getDocumentId()).isEqualTo("car-9");
+    }
+    
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new PageCursor("brand", "?&/+= äöü", "car/1").encode();
+        
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+    
+    @Test
+    void rejectsValuesThatCannotBeCursors() {
+        assertThatThrownBy(() -> new PageCursor("features", List.of("Navi"), "car-1"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void decodeRejectsInvalidCursors() {
+        String withoutId = Base64.getUrlEncoder().encodeToString("{\"o\":\"brand\",\"v\":\"BMW\"}".getBytes());
+        String objectValue = Base64.getUrlEncoder().encodeToString("{\"o\":\"brand\",\"v\":{},\"id\":\"a\"}".getBytes());
+        
+        // Statt eines Objekts: JSON null, eine Zahl und eine Liste
+        String jsonNull = Base64.getUrlEncoder().encodeToString("null".getBytes());
+        String number = Base64.getUrlEncoder().encodeToString("42".getBytes());
+        String array = Base64.getUrlEncoder().encodeToString("[\"car-1\"]".getBytes());
+        
+        for (String invalid : List.of("kein base64!", "bm9jaCBrZWluIEpTT04", withoutId, objectValue,
+                                      jsonNull, number, array)) {
+            assertThatThrownBy(() -> PageCursor.decode(invalid))
+                .as(invalid)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ungültiger Cursor");
+        }
+    }
+    
+    @Test
+    void decodeIgnoresUnknownFields() {
+        String encoded = Base64.getUrlEncoder().encodeToString(
+            "{\"o\":null,\"v\":null,\"id\":\"car-1\",\"x\":1}".getBytes());
+        
+        assertThat(PageCursor.decode(encoded).getDocumentId()).isEqualTo("car-1");
+    }
+}
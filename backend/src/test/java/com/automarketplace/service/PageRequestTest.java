@@ -0,0 +1,42 @@
+package com.automarketplace.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageRequestTest {
+    
+    @Test
+    void usesDefaultLimitWithoutValidLimit() {
+        assertThat(PageRequest.of(null, null).getLimit()).isEqualTo(PageRequest.DEFAULT_LIMIT);
+        assertThat(PageRequest.of(0, null).getLimit()).isEqualTo(PageRequest.DEFAULT_LIMIT);
+        assertThat(PageRequest.of(-5, null).getLimit()).isEqualTo(PageRequest.DEFAULT_LIMIT);
+    }
+    
+    @Test
+    void capsLimitAtMaximum() {
+        assertThat(PageRequest.of(10, null).getLimit()).isEqualTo(10);
+        assertThat(PageRequest.of(10_000, null).getLimit()).isEqualTo(PageRequest.MAX_LIMIT);
+    }
+    
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertThat(PageRequest.of(10, null).getCursor()).isNull();
+        assertThat(PageRequest.of(10, "").getCursor()).isNull();
+    }
+    
+    @Test
+    void decodesCursorOfPreviousPage() {
+        PageRequest request = PageRequest.of(10, PageCursor.afterDocument("car-5").encode());
+        
+        assertThat(request.getCursor().getDocumentId()).isEqualTo("car-5");
+        assertThat(request.withCursor(null).getLimit()).isEqualTo(10);
+    }
+    
+    @Test
+    void rejectsInvalidCursor() {
+        assertThatThrownBy(() -> PageRequest.of(10, "###"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
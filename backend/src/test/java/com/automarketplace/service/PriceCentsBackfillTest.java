@@ -0,0 +1,78 @@
+package com.automarketplace.service;
+
+import com.automarketplace.TestCars;
+import com.automarketplace.model.Car;
+import com.automarketplace.repository.CarFirestoreRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PriceCentsBackfill gegen den eingebetteten Dokumentenspeicher mit Dokumenten ohne priceCents
+ */
+class PriceCentsBackfillTest {
+    
+    private EmbeddedDocumentStore store;
+    private CarFirestoreRepository repository;
+    private PriceCentsBackfill backfill;
+    
+    @BeforeEach
+    void setUp() {
+        store = TestDocumentStores.embedded();
+        repository = new CarFirestoreRepository();
+        ReflectionTestUtils.setField(repository, "documentStore", store);
+        backfill = new PriceCentsBackfill(repository);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    void oldCarsAreFoundByPriceAfterBackfill() {
+        // Mehr als eine Seite aktueller Autos, dazwischen alte Dokumente nur mit price
+        repository.saveAll(TestCars.random(250, 5));
+        store.saveDocument("cars", "alt-1", oldCar("BMW", "12345.67"));
+        store.saveDocument("cars", "car-00120x", oldCar("Audi", "8999.99"));
+        store.saveDocument("cars", "ohne-preis", oldCar("Opel", null));
+        
+        assertThat(ids(repository.findByPriceBetween(new BigDecimal("12345.67"), new BigDecimal("12345.67"))))
+            .doesNotContain("alt-1");
+        
+        assertThat(backfill.backfill()).isEqualTo(2);
+        
+        assertThat(ids(repository.findByPriceBetween(new BigDecimal("12345.67"), new BigDecimal("12345.67"))))
+            .contains("alt-1");
+        assertThat(ids(repository.findByPriceBetween(new BigDecimal("8999.99"), new BigDecimal("8999.99"))))
+            .contains("car-00120x");
+        assertThat(repository.findById("alt-1")).get()
+            .extracting(Car::getBrand, Car::getPriceCents)
+            .containsExactly("BMW", 1_234_567L);
+        
+        // Zweiter Lauf findet nur noch das Auto ohne Preis und schreibt nichts
+        assertThat(backfill.backfill()).isZero();
+    }
+    
+    private static Map<String, Object> oldCar(String brand, String price) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("brand", brand);
+        data.put("status", "ACTIVE");
+        if (price != null) {
+            data.put("price", new BigDecimal(price));
+        }
+        return data;
+    }
+    
+    private static List<String> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).toList();
+    }
+}
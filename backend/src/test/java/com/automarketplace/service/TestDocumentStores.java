@@ -0,0 +1,35 @@
+package com.automarketplace.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Dokumentenspeicher für Tests: EmbeddedDocumentStore ohne Spring-Kontext
+ */
+public final class TestDocumentStores {
+    
+    private TestDocumentStores() {}
+    
+    /**
+     * Nur im Speicher, ohne simulierte Latenz
+     */
+    public static EmbeddedDocumentStore embedded() {
+        return embedded(null, Duration.ZERO);
+    }
+    
+    /**
+     * @param dataFile Datendatei oder null für nur im Speicher
+     * @param latency  simulierte Latenz jeder Operation
+     */
+    public static EmbeddedDocumentStore embedded(Path dataFile, Duration latency) {
+        EmbeddedDocumentStore store = new EmbeddedDocumentStore();
+        ReflectionTestUtils.setField(store, "threads", 2);
+        ReflectionTestUtils.setField(store, "dataFile", dataFile != null ? dataFile.toString() : "");
+        ReflectionTestUtils.setField(store, "latency", latency);
+        ReflectionTestUtils.setField(store, "jitter", Duration.ZERO);
+        store.open();
+        return store;
+    }
+}
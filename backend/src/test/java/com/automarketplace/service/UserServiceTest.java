@@ -0,0 +1,90 @@
+package com.automarketplace.service;
+
+import com.automarketplace.model.User;
+import com.automarketplace.model.UserType;
+import com.automarketplace.repository.UserFirestoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Login-Pfad von UserService: nur geänderte Felder schreiben, lastLoginAt puffern
+ */
+class UserServiceTest {
+    
+    private UserFirestoreRepository userRepository;
+    private LoginActivityBuffer loginActivityBuffer;
+    private UserService userService;
+    
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserFirestoreRepository.class);
+        loginActivityBuffer = new LoginActivityBuffer(userRepository);
+        userService = new UserService(userRepository, loginActivityBuffer);
+    }
+    
+    @Test
+    void newUserIsSavedCompletely() {
+        when(userRepository.findByFirebaseUid("uid-1")).thenReturn(Optional.empty());
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        User user = userService.createOrUpdateUser("uid-1", "max@example.com", "Max", "Muster", UserType.SELLER);
+        
+        assertThat(user.getLastLoginAt()).isNotNull();
+        verify(userRepository).save(user);
+        verify(userRepository, never()).update(anyString(), anyMap());
+    }
+    
+    @Test
+    void unchangedLoginOnlyRecordsLoginTime() {
+        when(userRepository.findByFirebaseUid("uid-1")).thenReturn(Optional.of(existingUser()));
+        
+        userService.createOrUpdateUser("uid-1", "max@example.com", "Max", "Muster", UserType.SELLER);
+        
+        verify(userRepository, never()).save(any());
+        verify(userRepository, never()).update(anyString(), anyMap());
+        assertThat(loginActivityBuffer.getPendingCount()).isEqualTo(1);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void changedProfileWritesOnlyChangedFields() {
+        when(userRepository.findByFirebaseUid("uid-1")).thenReturn(Optional.of(existingUser()));
+        
+        userService.createOrUpdateUser("uid-1", "neu@example.com", "Max", "Muster", UserType.SELLER);
+        
+        ArgumentCaptor<Map<String, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(userRepository).update(eq("uid-1"), fields.capture());
+        assertThat(fields.getValue()).containsOnlyKeys("email", "updatedAt")
+            .containsEntry("email", "neu@example.com");
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void deactivationWritesStatusAndUpdatedAt() {
+        when(userRepository.findById("uid-1")).thenReturn(Optional.of(existingUser()));
+        
+        userService.deactivateUser("uid-1");
+        
+        ArgumentCaptor<Map<String, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(userRepository).update(eq("uid-1"), fields.capture());
+        assertThat(fields.getValue()).containsOnlyKeys("status", "updatedAt");
+    }
+    
+    private static User existingUser() {
+        return new User("uid-1", "max@example.com", "Max", "Muster", UserType.SELLER);
+    }
+}